@@ -4,6 +4,9 @@ import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
 /**
  * Static access class for the currently active PermissionProvider.
  * 
@@ -14,9 +17,16 @@ import org.jetbrains.annotations.Nullable;
  * </p>
  * 
  * <p>
- * <b>Thread Safety:</b> This class is thread-safe. The singleton instance uses
- * volatile memory semantics and synchronized initialization to prevent race
- * conditions.
+ * The platform plugin may later replace the provider with
+ * {@link #swap(PermissionProvider)}, for example to switch the backend or to
+ * put a cache in front of it at runtime. Callers should therefore not keep
+ * the result of {@link #get()} around, but ask for it on every use.
+ * </p>
+ * 
+ * <p>
+ * <b>Thread Safety:</b> This class is thread-safe and lock-free. Reading the
+ * provider is a single volatile read; initialization and replacement are
+ * atomic compare-and-set operations on the same field.
  * </p>
  * 
  * @since 1.0.0
@@ -25,6 +35,17 @@ public final class Permission {
 
     private static volatile @Nullable PermissionProvider instance = null;
 
+    private static final VarHandle INSTANCE;
+
+    static {
+        try {
+            INSTANCE = MethodHandles.lookup().findStaticVarHandle(Permission.class, "instance",
+                    PermissionProvider.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
     @ApiStatus.Internal
     private Permission() {
         throw new UnsupportedOperationException("This class cannot be instantiated");
@@ -38,7 +59,7 @@ public final class Permission {
      * Check {@link #isInitialized()} first if you need to verify provider
      * availability.
      * </p>
-     *
+     * 
      * @return the active PermissionProvider instance
      * @throws IllegalStateException if no provider has been set
      * @see #isInitialized()
@@ -71,18 +92,36 @@ public final class Permission {
      * </p>
      * 
      * <p>
-     * <b>Thread Safety:</b> This method is synchronized to prevent race conditions
-     * during initialization.
+     * <b>Thread Safety:</b> Concurrent calls are safe; exactly one of them
+     * succeeds.
      * </p>
-     *
+     * 
      * @param provider the provider to use (must not be null)
      * @throws IllegalStateException if a provider has already been set
      * @since 1.0.0
      */
-    public static synchronized void set(@NotNull PermissionProvider provider) {
-        if (instance != null) {
+    public static void set(@NotNull PermissionProvider provider) {
+        if (!INSTANCE.compareAndSet((PermissionProvider) null, provider)) {
             throw new IllegalStateException("Permission provider has already been initialized");
         }
-        instance = provider;
+    }
+
+    /**
+     * Replaces the global PermissionProvider.
+     * 
+     * <p>
+     * Unlike {@link #set(PermissionProvider)}, this method may be called any
+     * number of times. Calls that already obtained the previous provider run
+     * to completion on it; every later call to {@link #get()} returns the
+     * new one. Intended for the platform plugin only.
+     * </p>
+     * 
+     * @param provider the provider to use from now on (must not be null)
+     * @return the previous provider, or null if none was set
+     * @since 1.0.0
+     */
+    @ApiStatus.Internal
+    public static @Nullable PermissionProvider swap(@NotNull PermissionProvider provider) {
+        return (PermissionProvider) INSTANCE.getAndSet(provider);
     }
 }
@@ -0,0 +1,305 @@
+package net.opsucht.permission.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * A compiled boolean expression over permission nodes.
+ * 
+ * <p>
+ * Expressions combine nodes with {@code &&}, {@code ||}, {@code !} and
+ * parentheses, for example {@code vip.fly && (shop.* || !shop.banned)}.
+ * {@code !} binds tightest, then {@code &&}, then {@code ||}. Nodes may
+ * contain letters, digits and {@code . _ - * :} and are case-insensitive.
+ * A node is tested as a permission check, so {@code shop.*} checks for the
+ * wildcard node itself rather than for any node below it.
+ * </p>
+ * 
+ * <p>
+ * An expression is parsed once by {@link #compile(String)} and can then be
+ * evaluated any number of times, from any thread. Evaluation short-circuits
+ * and does not allocate.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionExpression {
+
+    private final String source;
+    private final Expr root;
+    private final Set<String> nodes;
+
+    private PermissionExpression(String source, Expr root, Set<String> nodes) {
+        this.source = source;
+        this.root = root;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Parses an expression.
+     * 
+     * @param source the expression text
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public static @NotNull PermissionExpression compile(@NotNull String source) {
+        Parser parser = new Parser(source);
+        Expr root = parser.parseOr();
+        parser.skipWhitespace();
+        if (parser.position < source.length()) {
+            throw parser.error("Unexpected '" + source.charAt(parser.position) + "'");
+        }
+        return new PermissionExpression(source, root, Collections.unmodifiableSet(parser.nodes));
+    }
+
+    /**
+     * Evaluates the expression for a player through a provider. Each node
+     * is checked with {@link PermissionProvider#has(UUID, String)} at most
+     * once per occurrence, and only if it can still change the result.
+     * 
+     * @param provider the provider to check nodes with
+     * @param uuid     the player's UUID
+     * @return the result of the expression
+     */
+    public boolean test(@NotNull PermissionProvider provider, @NotNull UUID uuid) {
+        return root.test(provider, uuid);
+    }
+
+    /**
+     * Evaluates the expression against an already resolved set of nodes.
+     * 
+     * @param permissions returns whether a lower-case node is granted
+     * @return the result of the expression
+     */
+    public boolean test(@NotNull Predicate<String> permissions) {
+        return root.test(permissions);
+    }
+
+    /**
+     * Returns the text this expression was compiled from.
+     * 
+     * @return the source text
+     */
+    public @NotNull String getSource() {
+        return source;
+    }
+
+    /**
+     * Returns the nodes referenced by this expression.
+     * 
+     * @return the lower-case nodes in order of first occurrence
+     */
+    public @NotNull Set<String> getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * A node of the compiled expression tree.
+     */
+    private abstract static class Expr {
+        abstract boolean test(PermissionProvider provider, UUID uuid);
+
+        abstract boolean test(Predicate<String> permissions);
+    }
+
+    private static final class Node extends Expr {
+        private final String node;
+
+        Node(String node) {
+            this.node = node;
+        }
+
+        @Override
+        boolean test(PermissionProvider provider, UUID uuid) {
+            return provider.has(uuid, node);
+        }
+
+        @Override
+        boolean test(Predicate<String> permissions) {
+            return permissions.test(node);
+        }
+    }
+
+    private static final class Not extends Expr {
+        private final Expr operand;
+
+        Not(Expr operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(PermissionProvider provider, UUID uuid) {
+            return !operand.test(provider, uuid);
+        }
+
+        @Override
+        boolean test(Predicate<String> permissions) {
+            return !operand.test(permissions);
+        }
+    }
+
+    private static final class And extends Expr {
+        private final Expr[] operands;
+
+        And(Expr[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(PermissionProvider provider, UUID uuid) {
+            for (Expr operand : operands) {
+                if (!operand.test(provider, uuid)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        boolean test(Predicate<String> permissions) {
+            for (Expr operand : operands) {
+                if (!operand.test(permissions)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class Or extends Expr {
+        private final Expr[] operands;
+
+        Or(Expr[] operands) {
+            this.operands = operands;
+        }
+
+        @Override
+        boolean test(PermissionProvider provider, UUID uuid) {
+            for (Expr operand : operands) {
+                if (operand.test(provider, uuid)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        boolean test(Predicate<String> permissions) {
+            for (Expr operand : operands) {
+                if (operand.test(permissions)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Recursive descent parser. Chains of the same operator are flattened
+     * into one node, so {@code a && b && c} is evaluated in one loop.
+     */
+    private static final class Parser {
+        private final String source;
+        private final Set<String> nodes = new LinkedHashSet<>();
+        private int position;
+
+        Parser(String source) {
+            this.source = source;
+        }
+
+        Expr parseOr() {
+            Expr first = parseAnd();
+            List<Expr> operands = null;
+            while (accept("||")) {
+                if (operands == null) {
+                    operands = new ArrayList<>();
+                    operands.add(first);
+                }
+                operands.add(parseAnd());
+            }
+            return operands == null ? first : new Or(operands.toArray(new Expr[0]));
+        }
+
+        Expr parseAnd() {
+            Expr first = parseUnary();
+            List<Expr> operands = null;
+            while (accept("&&")) {
+                if (operands == null) {
+                    operands = new ArrayList<>();
+                    operands.add(first);
+                }
+                operands.add(parseUnary());
+            }
+            return operands == null ? first : new And(operands.toArray(new Expr[0]));
+        }
+
+        Expr parseUnary() {
+            skipWhitespace();
+            if (accept("!")) {
+                Expr operand = parseUnary();
+                // Double negation cancels out
+                return operand instanceof Not ? ((Not) operand).operand : new Not(operand);
+            }
+            if (accept("(")) {
+                Expr inner = parseOr();
+                if (!accept(")")) {
+                    throw error("Expected ')'");
+                }
+                return inner;
+            }
+            return parseNode();
+        }
+
+        Expr parseNode() {
+            skipWhitespace();
+            int start = position;
+            while (position < source.length() && isNodeChar(source.charAt(position))) {
+                position++;
+            }
+            if (start == position) {
+                throw error(position < source.length()
+                        ? "Expected a permission node but found '" + source.charAt(position) + "'"
+                        : "Expected a permission node but reached the end");
+            }
+            String node = source.substring(start, position).toLowerCase(Locale.ROOT);
+            nodes.add(node);
+            return new Node(node);
+        }
+
+        boolean accept(String token) {
+            skipWhitespace();
+            if (source.startsWith(token, position)) {
+                position += token.length();
+                return true;
+            }
+            return false;
+        }
+
+        void skipWhitespace() {
+            while (position < source.length() && Character.isWhitespace(source.charAt(position))) {
+                position++;
+            }
+        }
+
+        IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + position + " in: " + source);
+        }
+
+        private static boolean isNodeChar(char c) {
+            return Character.isLetterOrDigit(c) || c == '.' || c == '_' || c == '-' || c == '*' || c == ':';
+        }
+    }
+}
@@ -1,10 +1,13 @@
 package net.opsucht.permission.api;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Generic interface for permission systems.
@@ -105,6 +108,82 @@ public interface PermissionProvider {
         return CompletableFuture.runAsync(() -> add(uuid, permission));
     }
 
+    /**
+     * Adds a permission to a player asynchronously, failing if the operation
+     * does not complete within the given time.
+     * 
+     * <p>
+     * If the deadline passes, the returned future completes exceptionally
+     * with a {@link PermissionTimeoutException}. Implementations skip the
+     * change if it has not started by then; a change that is already being
+     * saved cannot be cancelled and may still be applied.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Bounds the future of
+     * {@link #addAsync(UUID, String)} without cancelling the work.
+     * </p>
+     *
+     * @param uuid       the player's unique identifier
+     * @param permission the permission node to add
+     * @param timeout    the maximum time to wait for completion
+     * @return a future that completes when the operation is done or timed out
+     * @since 1.0.0
+     */
+    default CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return withTimeout(addAsync(uuid, permission), uuid, permission, timeout);
+    }
+
+    /**
+     * Adds a permission to a player that is removed again after the given
+     * duration.
+     * 
+     * <p>
+     * The expiry is kept by the permission system and survives restarts.
+     * If the player already holds the permission temporarily, the later of
+     * both expiry times is kept. Adding or removing the permission with
+     * {@link #add} or {@link #remove} ends the temporary grant.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Throws
+     * {@link UnsupportedOperationException}. Implementations backed by a
+     * permission system without native expiry may schedule the removal
+     * themselves.
+     * </p>
+     * 
+     * @param uuid       the player's unique identifier
+     * @param permission the permission node to add
+     * @param duration   how long the permission is granted
+     * @throws UnsupportedOperationException if temporary permissions are not
+     *                                       supported
+     * @since 1.0.0
+     */
+    default void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        throw new UnsupportedOperationException(getProviderName() + " does not support temporary permissions");
+    }
+
+    /**
+     * Adds a temporary permission to a player asynchronously.
+     * 
+     * <p>
+     * <b>Default Implementation:</b> The default implementation wraps the
+     * synchronous {@link #addTemporary} method.
+     * </p>
+     * 
+     * @param uuid       the player's unique identifier
+     * @param permission the permission node to add
+     * @param duration   how long the permission is granted
+     * @return a future that completes when the operation is done
+     * @since 1.0.0
+     * @see #addTemporary(UUID, String, Duration)
+     */
+    default CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return CompletableFuture.runAsync(() -> addTemporary(uuid, permission, duration));
+    }
+
     /**
      * Removes a permission from a player.
      * 
@@ -149,6 +228,26 @@ public interface PermissionProvider {
         return CompletableFuture.runAsync(() -> remove(uuid, permission));
     }
 
+    /**
+     * Removes a permission from a player asynchronously, failing if the
+     * operation does not complete within the given time.
+     * 
+     * <p>
+     * See {@link #addAsync(UUID, String, Duration)} for the semantics of the
+     * deadline.
+     * </p>
+     *
+     * @param uuid       the player's unique identifier
+     * @param permission the permission node to remove
+     * @param timeout    the maximum time to wait for completion
+     * @return a future that completes when the operation is done or timed out
+     * @since 1.0.0
+     */
+    default CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return withTimeout(removeAsync(uuid, permission), uuid, permission, timeout);
+    }
+
     /**
      * Returns all groups a player belongs to.
      * 
@@ -178,4 +277,190 @@ public interface PermissionProvider {
      */
     @NotNull
     Set<String> getGroups();
-}
\ No newline at end of file
+
+    /**
+     * Checks whether a player belongs to a group.
+     * 
+     * <p>
+     * Group names are compared case-insensitively.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Looks the group up in
+     * {@link #getGroups(UUID)}. The caching layer answers from its group
+     * index for online players instead.
+     * </p>
+     * 
+     * @param uuid  the player's unique identifier
+     * @param group the group name
+     * @return true if the player is a member of the group
+     * @since 1.0.0
+     */
+    default boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        for (String name : getGroups(uuid)) {
+            if (name.equalsIgnoreCase(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a player belongs to a group, directly or through group
+     * inheritance. A player in {@code admin}, which inherits from
+     * {@code staff}, inherits from {@code staff} as well.
+     * 
+     * <p>
+     * Group names are compared case-insensitively.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Only checks direct membership with
+     * {@link #isMember(UUID, String)}. The caching layer resolves
+     * inheritance from a precomputed closure of the group hierarchy, where
+     * the permission system provides one.
+     * </p>
+     * 
+     * @param uuid  the player's unique identifier
+     * @param group the group name
+     * @return true if the player is a member of the group or of a group
+     *         inheriting from it
+     * @since 1.0.0
+     */
+    default boolean inheritsFrom(@NotNull UUID uuid, @NotNull String group) {
+        return isMember(uuid, group);
+    }
+
+    /**
+     * Returns the online players that belong to a group, for example to
+     * send a message to all staff members.
+     * 
+     * <p>
+     * Group names are compared case-insensitively. The result is a copy
+     * and does not change when players join or leave.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Throws
+     * {@link UnsupportedOperationException}, since the API does not know
+     * which players are online. The bundled backends check every online
+     * player with {@link #isMember(UUID, String)}. The caching layer keeps
+     * an index from groups to online players and answers in time
+     * proportional to the number of members.
+     * </p>
+     * 
+     * @param group the group name
+     * @return the UUIDs of the online members
+     * @throws UnsupportedOperationException if the provider does not track
+     *                                       online players
+     * @since 1.0.0
+     */
+    @NotNull
+    default Set<UUID> getOnlineMembers(@NotNull String group) {
+        throw new UnsupportedOperationException(getProviderName() + " does not track online players");
+    }
+
+    /**
+     * Returns the effective chat prefix of a player.
+     * 
+     * <p>
+     * Like {@link #has}, this is a lookup against already loaded data and
+     * should not perform I/O. If the user is not loaded or has no prefix,
+     * this returns null.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Returns null. Providers for systems with
+     * prefix support should override this method.
+     * </p>
+     *
+     * @param uuid the player's unique identifier
+     * @return the prefix, or null if none is set
+     * @since 1.0.0
+     */
+    @Nullable
+    default String getPrefix(@NotNull UUID uuid) {
+        return null;
+    }
+
+    /**
+     * Returns the effective chat suffix of a player.
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Returns null. Providers for systems with
+     * suffix support should override this method.
+     * </p>
+     *
+     * @param uuid the player's unique identifier
+     * @return the suffix, or null if none is set
+     * @since 1.0.0
+     * @see #getPrefix(UUID)
+     */
+    @Nullable
+    default String getSuffix(@NotNull UUID uuid) {
+        return null;
+    }
+
+    /**
+     * Returns the effective value of a meta (option) key for a player.
+     * 
+     * <p>
+     * Meta values are free-form key/value pairs such as chat colors or
+     * home limits. If several values are inherited, the backend decides
+     * which one wins.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Returns null.
+     * </p>
+     *
+     * @param uuid the player's unique identifier
+     * @param key  the meta key (e.g., "chat-color")
+     * @return the meta value, or null if the key is not set
+     * @since 1.0.0
+     */
+    @Nullable
+    default String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        return null;
+    }
+
+    /**
+     * Returns the primary group of a player.
+     * 
+     * <p>
+     * For backends without an explicit primary group concept, this is the
+     * highest ranked group the player belongs to.
+     * </p>
+     * 
+     * <p>
+     * <b>Default Implementation:</b> Returns null.
+     * </p>
+     *
+     * @param uuid the player's unique identifier
+     * @return the primary group name, or null if unknown
+     * @since 1.0.0
+     */
+    @Nullable
+    default String getPrimaryGroup(@NotNull UUID uuid) {
+        return null;
+    }
+
+    /**
+     * Returns a future that mirrors the given one, or fails with a
+     * {@link PermissionTimeoutException} once the timeout has passed.
+     */
+    private static CompletableFuture<Void> withTimeout(CompletableFuture<Void> future, UUID uuid, String permission,
+            Duration timeout) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        future.whenComplete((value, error) -> {
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+        CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(
+                () -> result.completeExceptionally(new PermissionTimeoutException(uuid, permission, timeout)));
+        return result;
+    }
+}
@@ -0,0 +1,56 @@
+package net.opsucht.permission.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Thrown when an asynchronous permission change is not accepted because
+ * too many changes are already pending.
+ * 
+ * <p>
+ * Futures returned by the asynchronous methods of
+ * {@link PermissionProvider} complete exceptionally with this exception
+ * when the server limits pending changes. The change was not applied.
+ * Callers should slow down and retry later rather than right away.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public class PermissionRejectedException extends RejectedExecutionException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UUID uuid;
+    private final String permission;
+    private final String caller;
+
+    /**
+     * Creates a new rejection.
+     * 
+     * @param uuid       the player whose permission was to be changed
+     * @param permission the permission node
+     * @param caller     the plugin the change was attributed to
+     * @param reason     which limit was reached
+     */
+    public PermissionRejectedException(@NotNull UUID uuid, @NotNull String permission, @NotNull String caller,
+            @NotNull String reason) {
+        super("Permission change " + permission + " for " + uuid + " by " + caller + " rejected: " + reason);
+        this.uuid = uuid;
+        this.permission = permission;
+        this.caller = caller;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull String getPermission() {
+        return permission;
+    }
+
+    public @NotNull String getCaller() {
+        return caller;
+    }
+}
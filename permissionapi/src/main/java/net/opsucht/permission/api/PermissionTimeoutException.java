@@ -0,0 +1,55 @@
+package net.opsucht.permission.api;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Thrown when an asynchronous permission change does not complete within
+ * its deadline.
+ * 
+ * <p>
+ * Futures returned by the deadline-aware methods of
+ * {@link PermissionProvider} complete exceptionally with this exception.
+ * The change may still be applied later by the backend if it had already
+ * started when the deadline passed.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public class PermissionTimeoutException extends TimeoutException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final UUID uuid;
+    private final String permission;
+    private final Duration timeout;
+
+    /**
+     * Creates a new timeout exception.
+     * 
+     * @param uuid       the player whose permission was changed
+     * @param permission the permission node
+     * @param timeout    the deadline that passed
+     */
+    public PermissionTimeoutException(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration timeout) {
+        super("Permission change " + permission + " for " + uuid + " timed out after " + timeout.toMillis() + " ms");
+        this.uuid = uuid;
+        this.permission = permission;
+        this.timeout = timeout;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull String getPermission() {
+        return permission;
+    }
+
+    public @NotNull Duration getTimeout() {
+        return timeout;
+    }
+}
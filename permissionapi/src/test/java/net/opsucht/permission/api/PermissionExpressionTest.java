@@ -0,0 +1,54 @@
+package net.opsucht.permission.api;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for parsing and evaluating permission expressions.
+ */
+class PermissionExpressionTest {
+
+    @Test
+    void shouldApplyOperatorPrecedence() {
+        PermissionExpression expression = PermissionExpression.compile("a.b && (c.* || !d)");
+
+        assertTrue(expression.test(Set.of("a.b", "c.*")::contains));
+        assertTrue(expression.test(Set.of("a.b")::contains));
+        assertFalse(expression.test(Set.of("a.b", "d")::contains));
+        assertFalse(expression.test(Set.of("c.*")::contains));
+
+        // ! binds tighter than &&, which binds tighter than ||
+        PermissionExpression unparenthesized = PermissionExpression.compile("x || y && !z");
+        assertTrue(unparenthesized.test(Set.of("x", "z")::contains));
+        assertFalse(unparenthesized.test(Set.of("y", "z")::contains));
+    }
+
+    @Test
+    void shouldShortCircuitAndNormalizeNodes() {
+        PermissionExpression expression = PermissionExpression.compile("  VIP.Fly || shop.use && shop.sell ");
+        List<String> checked = new ArrayList<>();
+
+        assertTrue(expression.test(node -> {
+            checked.add(node);
+            return node.equals("vip.fly");
+        }));
+        assertEquals(List.of("vip.fly"), checked);
+        assertEquals(Set.of("vip.fly", "shop.use", "shop.sell"), expression.getNodes());
+    }
+
+    @Test
+    void shouldRejectMalformedExpressions() {
+        assertThrows(IllegalArgumentException.class, () -> PermissionExpression.compile(""));
+        assertThrows(IllegalArgumentException.class, () -> PermissionExpression.compile("a &&"));
+        assertThrows(IllegalArgumentException.class, () -> PermissionExpression.compile("(a || b"));
+        assertThrows(IllegalArgumentException.class, () -> PermissionExpression.compile("a & b"));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> PermissionExpression.compile("a ) b"));
+        assertTrue(error.getMessage().contains("position 2"), error.getMessage());
+    }
+}
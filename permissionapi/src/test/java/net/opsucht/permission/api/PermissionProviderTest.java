@@ -0,0 +1,78 @@
+package net.opsucht.permission.api;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the default methods of PermissionProvider.
+ */
+class PermissionProviderTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @Test
+    void shouldFailWithTypedTimeoutWhenDeadlinePasses() {
+        PermissionProvider provider = new HangingProvider();
+
+        CompletableFuture<Void> future = provider.addAsync(PLAYER, "vip.fly", Duration.ofMillis(50));
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        PermissionTimeoutException timeout = assertInstanceOf(PermissionTimeoutException.class, error.getCause());
+        assertEquals(PLAYER, timeout.getUuid());
+        assertEquals("vip.fly", timeout.getPermission());
+    }
+
+    @Test
+    void shouldCompleteNormallyWithinDeadline() throws Exception {
+        PermissionProvider provider = new HangingProvider();
+
+        provider.removeAsync(PLAYER, "vip.fly", Duration.ofSeconds(5)).get(5, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Provider whose asynchronous adds never complete.
+     */
+    private static class HangingProvider implements PermissionProvider {
+        @Override
+        public @NotNull String getProviderName() {
+            return "Hanging";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+            return new CompletableFuture<>();
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
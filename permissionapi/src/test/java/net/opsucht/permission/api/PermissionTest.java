@@ -56,6 +56,18 @@ class PermissionTest {
                 "Should throw on duplicate initialization");
     }
 
+    @Test
+    void shouldReplaceProviderOnSwap() {
+        PermissionProvider first = new MockPermissionProvider();
+        PermissionProvider second = new MockPermissionProvider();
+
+        assertNull(Permission.swap(first), "Nothing was set before");
+        assertSame(first, Permission.swap(second), "Should return the replaced provider");
+        assertSame(second, Permission.get(), "Should return the new provider");
+        assertThrows(IllegalStateException.class, () -> Permission.set(first),
+                "set should still refuse to overwrite a provider");
+    }
+
     /**
      * Mock implementation for testing.
      */
@@ -1,30 +1,592 @@
 package net.opsucht.permission.bukkit;
 
+import net.luckperms.api.event.EventSubscription;
 import net.opsucht.permission.api.Permission;
 import net.opsucht.permission.api.PermissionProvider;
-import net.opsucht.permission.bukkit.manager.ProviderManager;
+import net.opsucht.permission.bukkit.command.OpspermCommand;
+import net.opsucht.permission.bukkit.listener.CacheListener;
+import net.opsucht.permission.bukkit.permissible.PermissibleInjector;
+import net.opsucht.permission.bukkit.scheduler.RegionScheduled;
+import net.opsucht.permission.bukkit.scheduler.ServerScheduler;
+import net.opsucht.permission.bukkit.sync.BukkitMessagingTransport;
+import net.opsucht.permission.bukkit.sync.SnapshotReceiver;
+import net.opsucht.permission.common.admission.AdmissionControlledPermissionProvider;
+import net.opsucht.permission.common.admission.AdmissionController;
+import net.opsucht.permission.common.admission.OverflowPolicy;
+import net.opsucht.permission.common.audit.AuditLog;
+import net.opsucht.permission.common.audit.AuditingPermissionProvider;
+import net.opsucht.permission.common.audit.FsyncPolicy;
+import net.opsucht.permission.common.builtin.BuiltinPermissionProvider;
+import net.opsucht.permission.common.builtin.BuiltinProviderFactory;
+import net.opsucht.permission.common.builtin.CacheRefresher;
+import net.opsucht.permission.common.cache.CachePersistence;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.cache.GroupRecomputer;
+import net.opsucht.permission.common.expiry.ExpiringPermissionProvider;
+import net.opsucht.permission.common.expiry.ExpiryScheduler;
+import net.opsucht.permission.common.metrics.CallSampler;
+import net.opsucht.permission.common.metrics.CallerLookup;
+import net.opsucht.permission.common.metrics.InstrumentedPermissionProvider;
+import net.opsucht.permission.common.metrics.PermissionMetrics;
+import net.opsucht.permission.common.metrics.PermissionStats;
+import net.opsucht.permission.common.migration.Migration;
+import net.opsucht.permission.common.provider.AbstractLPProvider;
+import net.opsucht.permission.common.query.ScanningUserQuery;
+import net.opsucht.permission.common.query.UserQueries;
+import net.opsucht.permission.common.query.UserQuery;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.SnapshotStore;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import net.opsucht.permission.common.spi.ProviderRegistry;
+import net.opsucht.permission.common.sync.InvalidationBus;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.plugin.Plugin;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public final class Bukkit extends JavaPlugin {
 
+    /**
+     * How long a replaced provider chain may take to finish its running calls.
+     */
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private ServerScheduler scheduler;
+    private ProviderRegistry registry;
+    private PermissionProviderFactory backend;
+    private boolean cacheEnabled;
+    private PermissionMetrics metrics;
+    private CallSampler sampler;
+    private PermissionStats stats;
+    private AuditLog auditLog;
+    private AdmissionController admission;
+    private ExpiryScheduler expiry;
+    private volatile Migration migration;
+    private volatile boolean migrating;
+
+    // State of the active provider chain, replaced on every switch
+    private final List<ServerScheduler.Task> tasks = new ArrayList<>();
+    private CacheListener cacheListener;
+    private final List<EventSubscription<?>> subscriptions = new ArrayList<>();
+    private BuiltinPermissionProvider builtin;
+    private CacheRefresher cacheRefresher;
+    private BukkitMessagingTransport transport;
+    private InvalidationBus invalidationBus;
+    private SnapshotReceiver snapshotReceiver;
+    private CachePersistence persistence;
+    private PermissibleInjector injector;
+    // Components of replaced chains, stopped once the chain is released
+    private final List<Runnable> retiring = new CopyOnWriteArrayList<>();
+
     @Override
     public void onEnable() {
         getLogger().info("[OPSucht] Initialising PermissionsAPI...");
+        saveDefaultConfig();
+        scheduler = new ServerScheduler(this);
+        if (ServerScheduler.isFolia()) {
+            getLogger().info("Folia erkannt, Änderungen an Spielern laufen auf deren Region-Thread");
+        }
 
-        PermissionProvider provider = ProviderManager.detectProvider();
+        registry = new ProviderRegistry(getClassLoader());
+        PermissionProviderFactory factory = registry.detect(getConfig().getStringList("provider-priority"));
 
-        if (provider == null) {
+        if (factory == null) {
             getLogger().warning("⚠️ Kein unterstütztes Permission-System gefunden!");
             getLogger().warning("Das Plugin bleibt inaktiv.");
             return;
         }
 
-        Permission.set(provider);
-        getLogger().info("✅ Permission-System erkannt: " + provider.getProviderName());
+        if (getConfig().getBoolean("metrics.enabled", true)) {
+            metrics = new PermissionMetrics(factory.getName());
+            sampler = new CallSampler(getConfig().getInt("sampling.buffer-size", 4096),
+                    getConfig().getInt("sampling.rate", 1024), this::pluginOf);
+            sampler.setEnabled(getConfig().getBoolean("sampling.enabled", false));
+            stats = new PermissionStats(metrics);
+            stats.register(getLogger());
+        }
+        if (getConfig().getBoolean("audit.enabled", false)) {
+            startAudit();
+        }
+        if (getConfig().getBoolean("admission.enabled", false)) {
+            startAdmission();
+        }
+        OpspermCommand command = new OpspermCommand(this, metrics, sampler);
+        getCommand("opsperm").setExecutor(command);
+        getCommand("opsperm").setTabCompleter(command);
+
+        activate(factory, getConfig().getBoolean("enable-cache", false));
+        getLogger().info("✅ Permission-System erkannt: " + Permission.get().getProviderName());
     }
 
     @Override
     public void onDisable() {
+        if (migration != null) {
+            migration.cancel();
+        }
+        detachChain().run();
+        for (Runnable chain : retiring) {
+            stopRetired(chain);
+        }
+        if (expiry != null) {
+            expiry.close();
+        }
+        closeBuiltin();
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        if (stats != null) {
+            stats.unregister();
+        }
         getLogger().info("[OPSucht] PermissionsAPI disabled.");
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the scheduler for the plugin's own tasks, which works on Paper
+     * and on Folia.
+     * 
+     * @return the scheduler
+     */
+    public @NotNull ServerScheduler getTaskScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Returns the registry of the permission backends of this server.
+     * 
+     * @return the registry, or null if no backend was found
+     */
+    public @Nullable ProviderRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the factory of the active backend.
+     * 
+     * @return the factory, or null if no backend was found
+     */
+    public @Nullable PermissionProviderFactory getBackend() {
+        return backend;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Returns the limits on pending asynchronous changes.
+     * 
+     * @return the controller, or null if admission control is disabled
+     */
+    public @Nullable AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Returns the audit log of permission changes.
+     * 
+     * @return the log, or null if auditing is disabled
+     */
+    public @Nullable AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Returns the migration started last.
+     * 
+     * @return the migration, or null if none was started
+     */
+    public @Nullable Migration getMigration() {
+        return migration;
+    }
+
+    /**
+     * Starts copying the users and groups of one backend into another off
+     * the main thread. The active provider chain is not changed. Progress
+     * is saved in the data folder, so starting the same migration again
+     * continues where it stopped.
+     * 
+     * @param from the backend to read from
+     * @param to   the backend to write into
+     * @return the started migration
+     * @throws IllegalStateException    if a migration is running or a backend is not available
+     * @throws IllegalArgumentException if a backend does not support migrations
+     */
+    public synchronized @NotNull Migration migrate(@NotNull PermissionProviderFactory from,
+            @NotNull PermissionProviderFactory to) {
+        if (migrating) {
+            throw new IllegalStateException("Es läuft bereits eine Migration");
+        }
+        Migration next = new Migration(from.create(), to.create(),
+                getDataFolder().toPath().resolve("migration")
+                        .resolve(from.getName() + "-" + to.getName() + ".checkpoint"),
+                Math.max(1, getConfig().getInt("migration.readers", 4)),
+                Math.max(1, getConfig().getInt("migration.batch-size", 500)), getLogger());
+        boolean verify = getConfig().getBoolean("migration.verify", true);
+        migration = next;
+        migrating = true;
+        scheduler.runAsync(() -> {
+            try {
+                next.run();
+                if (verify && next.canVerify() && next.getPhase() == Migration.Phase.DONE) {
+                    next.verify();
+                }
+            } catch (IOException | RuntimeException e) {
+                getLogger().log(Level.WARNING, "Migration fehlgeschlagen", e);
+            } finally {
+                migrating = false;
+            }
+            for (String line : next.report()) {
+                getLogger().info(line);
+            }
+        });
+        return next;
+    }
+
+    /**
+     * Builds the provider chain for a backend and makes it the active
+     * provider. Can be called at runtime to switch the backend or to turn
+     * the cache on or off. The new chain is built and activated while the
+     * previous one keeps running; the components of the previous chain are
+     * stopped once the calls still running on it have finished.
+     * 
+     * @param factory  the backend to use
+     * @param useCache whether to put a cache in front of the backend
+     * @throws IllegalStateException if the backend is not available
+     */
+    public void activate(@NotNull PermissionProviderFactory factory, boolean useCache) {
+        PermissionProvider provider = factory.create();
+        PermissionProvider created = provider;
+        Runnable previousChain = detachChain();
+
+        long asyncTimeout = getConfig().getLong("async-timeout", 0);
+        if (asyncTimeout > 0 && provider instanceof AbstractLPProvider) {
+            ((AbstractLPProvider) provider).setDefaultTimeout(Duration.ofSeconds(asyncTimeout));
+        }
+
+        boolean nativeExpiry = provider instanceof AbstractLPProvider;
+        CachedPermissionProvider cache = null;
+        if (useCache) {
+            long duration = TimeUnit.SECONDS.toMillis(getConfig().getLong("cache-duration", 30));
+            cache = new CachedPermissionProvider(provider, duration);
+            cacheListener = new CacheListener(cache);
+            getServer().getPluginManager().registerEvents(cacheListener, this);
+            for (Player player : getServer().getOnlinePlayers()) {
+                cache.trackMember(player.getUniqueId());
+            }
+            GroupRecomputer recomputer = new GroupRecomputer(cache, getConfig().getInt("group-recompute.batch-size", 100));
+            tasks.add(scheduler.runAsyncTimer(recomputer, 1L, 1L));
+            if (provider instanceof AbstractLPProvider) {
+                AbstractLPProvider luckPerms = (AbstractLPProvider) provider;
+                subscriptions.add(luckPerms.onRecalculate(cache::refreshMember));
+                subscriptions.add(luckPerms.onGroupRecalculate(recomputer::groupChanged));
+                subscriptions.add(luckPerms.onGroupDelete(recomputer::groupChanged));
+            }
+            if (provider instanceof BuiltinPermissionProvider) {
+                builtin = (BuiltinPermissionProvider) provider;
+                cacheRefresher = new CacheRefresher(cache, recomputer);
+                builtin.addChangeListener(cacheRefresher);
+            }
+            // The executor goes away with the provider, so the listener is never removed
+            if (provider instanceof RegionScheduled) {
+                ((RegionScheduled) provider).getRegionExecutor().addCompletionListener(cache::invalidateUser);
+            }
+            if (getConfig().getBoolean("sync.enabled", false)) {
+                startSync(cache);
+            }
+            if (getConfig().getBoolean("snapshot-push.enabled", false)) {
+                startSnapshotReceiver(cache);
+            }
+            if (getConfig().getBoolean("persistent-cache.enabled", false)) {
+                startPersistence(cache);
+            }
+            if (getConfig().getBoolean("inject-permissible", false)) {
+                startInjector(cache, provider);
+            }
+            provider = cache;
+        }
+
+        // Wraps the cache, so expired nodes are invalidated like any other removal
+        if (!nativeExpiry) {
+            provider = startExpiry(provider);
+        }
+        // Outside the expiry wrapper, so temporary grants are recorded as such
+        if (auditLog != null) {
+            provider = new AuditingPermissionProvider(provider, auditLog);
+        }
+        // Outside the audit, so rejected changes are not recorded
+        if (admission != null) {
+            provider = new AdmissionControlledPermissionProvider(provider, admission, new CallerLookup(this::pluginOf));
+        }
+
+        if (metrics != null) {
+            metrics.setProviderName(provider.getProviderName());
+            metrics.setCacheStats(cache != null ? cache.getStats() : null);
+            provider = new InstrumentedPermissionProvider(provider, metrics, sampler);
+        }
+
+        backend = factory;
+        cacheEnabled = useCache;
+        String name = provider.getProviderName();
+        retiring.add(previousChain);
+        CompletableFuture<PermissionProvider> released = registry.activate(provider, DRAIN_TIMEOUT);
+        // Queries go to the backend directly, never through the cache
+        UserQueries.replace(created instanceof UserQuery
+                ? (UserQuery) created
+                : new ScanningUserQuery(created, this::knownUsers));
+        released.whenComplete((previous, error) -> {
+            scheduler.run(() -> stopRetired(previousChain));
+            if (error != null) {
+                getLogger().warning("Vorheriger Provider wurde nicht rechtzeitig frei: " + error.getMessage());
+            } else if (previous != null) {
+                getLogger().info("Provider gewechselt zu " + name + (useCache ? " (mit Cache)" : ""));
+            }
+        });
+    }
+
+    /**
+     * Closes the built-in backend if it was opened, so its data is compacted
+     * before the plugin stops.
+     */
+    private void closeBuiltin() {
+        if (registry == null) {
+            return;
+        }
+        for (PermissionProviderFactory factory : registry.getFactories()) {
+            if (factory instanceof BuiltinProviderFactory) {
+                ((BuiltinProviderFactory) factory).close();
+            }
+        }
+    }
+
+    /**
+     * Detaches the components of the active provider chain, so that a new
+     * chain can be built while the current one still answers calls. The
+     * persistent cache is saved right away, so the new chain restores the
+     * latest state.
+     * 
+     * @return stops the detached components, once the chain is released
+     */
+    private Runnable detachChain() {
+        List<ServerScheduler.Task> chainTasks = new ArrayList<>(tasks);
+        tasks.clear();
+        List<EventSubscription<?>> chainSubscriptions = new ArrayList<>(subscriptions);
+        subscriptions.clear();
+        BuiltinPermissionProvider chainBuiltin = builtin;
+        CacheRefresher chainRefresher = cacheRefresher;
+        CacheListener chainListener = cacheListener;
+        InvalidationBus chainBus = invalidationBus;
+        BukkitMessagingTransport chainTransport = transport;
+        SnapshotReceiver chainReceiver = snapshotReceiver;
+        PermissibleInjector chainInjector = injector;
+        if (persistence != null) {
+            persistence.save();
+        }
+        builtin = null;
+        cacheRefresher = null;
+        cacheListener = null;
+        invalidationBus = null;
+        transport = null;
+        snapshotReceiver = null;
+        persistence = null;
+        injector = null;
+
+        return () -> {
+            for (ServerScheduler.Task task : chainTasks) {
+                task.cancel();
+            }
+            for (EventSubscription<?> subscription : chainSubscriptions) {
+                subscription.close();
+            }
+            if (chainRefresher != null) {
+                chainBuiltin.removeChangeListener(chainRefresher);
+            }
+            if (chainListener != null) {
+                HandlerList.unregisterAll(chainListener);
+            }
+            // Pending invalidations of the replaced cache are dropped
+            if (chainBus != null) {
+                chainBus.stop();
+                chainTransport.unregister();
+            }
+            if (chainReceiver != null) {
+                chainReceiver.unregister();
+            }
+            if (chainInjector != null) {
+                HandlerList.unregisterAll(chainInjector);
+                for (Player player : getServer().getOnlinePlayers()) {
+                    chainInjector.uninject(player);
+                }
+            }
+        };
+    }
+
+    /**
+     * Stops the components of a replaced chain, unless that happened already.
+     */
+    private void stopRetired(Runnable chain) {
+        if (retiring.remove(chain)) {
+            chain.run();
+        }
+    }
+
+    /**
+     * Connects the cache to the other servers of the network. Pending
+     * invalidations are sent once per tick.
+     */
+    private void startSync(CachedPermissionProvider cache) {
+        transport = new BukkitMessagingTransport(this);
+        transport.register();
+        invalidationBus = new InvalidationBus(cache, transport, getLogger());
+        invalidationBus.start();
+        tasks.add(scheduler.runTimer(invalidationBus::flush, 1L, 1L));
+        getLogger().info("Cache-Synchronisation aktiv (Kanal " + BukkitMessagingTransport.CHANNEL + ")");
+    }
+
+    /**
+     * Accepts permission snapshots that the proxy pushes while players connect.
+     */
+    private void startSnapshotReceiver(CachedPermissionProvider cache) {
+        String secret = getConfig().getString("snapshot-push.secret", "");
+        if (secret == null || secret.isEmpty()) {
+            getLogger().warning("snapshot-push ist aktiv, aber kein secret gesetzt. Snapshots werden ignoriert.");
+            return;
+        }
+        snapshotReceiver = new SnapshotReceiver(this, cache, secret.getBytes(StandardCharsets.UTF_8));
+        snapshotReceiver.register();
+        getLogger().info("Permission-Snapshots vom Proxy aktiv");
+    }
+
+    /**
+     * Restores the cache from disk and keeps the stored state up to date.
+     * Restored players are refreshed from the backend once it had time to
+     * load them.
+     */
+    private void startPersistence(CachedPermissionProvider cache) {
+        long maxAge = TimeUnit.SECONDS.toMillis(getConfig().getLong("persistent-cache.max-age", 300));
+        long interval = getConfig().getLong("persistent-cache.save-interval", 60) * 20L;
+        SnapshotStore store = new SnapshotStore(getDataFolder().toPath().resolve("snapshots.bin"));
+        persistence = new CachePersistence(cache, store, maxAge, getLogger());
+
+        int restored = persistence.restore();
+        if (restored > 0) {
+            getLogger().info(restored + " Spieler aus dem gespeicherten Cache geladen");
+        }
+        tasks.add(scheduler.runAsyncLater(persistence::revalidate, 100L));
+        tasks.add(scheduler.runAsyncTimer(persistence::save, interval, interval));
+    }
+
+    /**
+     * Answers {@code Player.hasPermission} from the cache for every plugin.
+     * Only backends that resolve snapshots are supported.
+     */
+    private void startInjector(CachedPermissionProvider cache, PermissionProvider backend) {
+        if (!(backend instanceof SnapshotSource)) {
+            getLogger().warning("inject-permissible wird von " + backend.getProviderName() + " nicht unterstützt");
+            return;
+        }
+        injector = new PermissibleInjector(cache, getLogger());
+        getServer().getPluginManager().registerEvents(injector, this);
+        for (Player player : getServer().getOnlinePlayers()) {
+            injector.inject(player);
+        }
+    }
+
+    /**
+     * Adds temporary permissions for backends without native expiry. The
+     * scheduler is shared by every provider chain, so the journal is only
+     * opened once. If it cannot be loaded, temporary permissions stay
+     * unsupported.
+     */
+    private PermissionProvider startExpiry(PermissionProvider provider) {
+        if (expiry != null) {
+            return new ExpiringPermissionProvider(provider, expiry, getLogger());
+        }
+        ExpiringPermissionProvider wrapped = new ExpiringPermissionProvider(provider,
+                getDataFolder().toPath().resolve("expiry.journal"), getLogger());
+        try {
+            wrapped.start();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Ablauf-Journal konnte nicht geladen werden, "
+                    + "temporäre Rechte sind deaktiviert", e);
+            return provider;
+        }
+        expiry = wrapped.getScheduler();
+        return wrapped;
+    }
+
+    /**
+     * Opens the audit journal. It is shared by every provider chain, so it
+     * stays open across backend switches. If it cannot be opened, changes
+     * are not audited.
+     */
+    private void startAudit() {
+        AuditLog log;
+        try {
+            log = new AuditLog(getDataFolder().toPath().resolve("audit"),
+                    getConfig().getLong("audit.segment-size-mb", 16) * 1024L * 1024L,
+                    getConfig().getInt("audit.max-segments", 16),
+                    FsyncPolicy.parse(getConfig().getString("audit.fsync", "periodic")),
+                    Duration.ofMillis(getConfig().getLong("audit.fsync-interval-ms", 1000)), getLogger());
+            log.start();
+        } catch (IOException | IllegalArgumentException e) {
+            getLogger().log(Level.WARNING, "Audit-Journal konnte nicht geöffnet werden, "
+                    + "Änderungen werden nicht protokolliert", e);
+            return;
+        }
+        auditLog = log;
+    }
+
+    /**
+     * Limits pending asynchronous changes per plugin and in total. The
+     * limits are shared by every provider chain, so changes still running
+     * on a replaced chain keep their slots.
+     */
+    private void startAdmission() {
+        try {
+            admission = new AdmissionController(getConfig().getInt("admission.max-in-flight", 256),
+                    getConfig().getInt("admission.max-per-plugin", 64), getConfig().getInt("admission.max-queued", 4096),
+                    OverflowPolicy.parse(getConfig().getString("admission.policy", "queue")));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("Ungültige admission-Einstellungen, asynchrone Änderungen sind unbegrenzt: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns every player that has joined this server before.
+     */
+    private List<UUID> knownUsers() {
+        OfflinePlayer[] players = getServer().getOfflinePlayers();
+        List<UUID> uuids = new ArrayList<>(players.length);
+        for (OfflinePlayer player : players) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
+
+    /**
+     * Returns the name of the plugin a class loader belongs to.
+     */
+    private @Nullable String pluginOf(ClassLoader loader) {
+        for (Plugin plugin : getServer().getPluginManager().getPlugins()) {
+            if (plugin.getClass().getClassLoader() == loader) {
+                return plugin.getName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,359 @@
+package net.opsucht.permission.bukkit.command;
+
+import net.opsucht.permission.bukkit.Bukkit;
+import net.opsucht.permission.common.admission.AdmissionController;
+import net.opsucht.permission.common.audit.AuditLog;
+import net.opsucht.permission.common.audit.AuditRecord;
+import net.opsucht.permission.common.metrics.CallSampler;
+import net.opsucht.permission.common.metrics.PermissionMetrics;
+import net.opsucht.permission.common.migration.Migration;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.command.TabExecutor;
+import org.bukkit.entity.Player;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * The {@code /opsperm} admin command.
+ * 
+ * <ul>
+ * <li>{@code /opsperm stats [reset]} shows or clears call counts, latencies,
+ * cache statistics and the state of admission control.</li>
+ * <li>{@code /opsperm sample <on|off|rate <n>|report [n]|clear>} controls
+ * caller sampling and shows the top callers and nodes.</li>
+ * <li>{@code /opsperm provider [name]} shows the available backends or
+ * switches to another one without a restart.</li>
+ * <li>{@code /opsperm cache <on|off>} puts a cache in front of the active
+ * backend or removes it.</li>
+ * <li>{@code /opsperm audit <player|uuid> [n]} shows the latest recorded
+ * permission changes of a player. The journal is read off the main
+ * thread.</li>
+ * <li>{@code /opsperm migrate <from> <to>|status|cancel} copies all users
+ * and groups of one backend into another and shows or stops the
+ * progress.</li>
+ * </ul>
+ * 
+ * @since 1.0.0
+ */
+public final class OpspermCommand implements TabExecutor {
+
+    private static final List<String> SUBCOMMANDS = Arrays.asList("stats", "sample", "provider", "cache", "audit",
+            "migrate");
+    private static final List<String> SAMPLE_ACTIONS = Arrays.asList("on", "off", "rate", "report", "clear");
+    private static final int DEFAULT_REPORT_SIZE = 10;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final Bukkit plugin;
+    private final @Nullable PermissionMetrics metrics;
+    private final @Nullable CallSampler sampler;
+
+    /**
+     * @param plugin  the plugin that owns the provider chain
+     * @param metrics the metrics to report, or null if metrics are disabled
+     * @param sampler the caller sampler, or null if metrics are disabled
+     */
+    public OpspermCommand(@NotNull Bukkit plugin, @Nullable PermissionMetrics metrics,
+            @Nullable CallSampler sampler) {
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.sampler = sampler;
+    }
+
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label,
+            @NotNull String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            stats(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("sample")) {
+            sample(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("provider")) {
+            provider(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("cache")) {
+            cache(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("audit")) {
+            audit(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("migrate")) {
+            migrate(sender, args);
+        } else {
+            sender.sendMessage("§cVerwendung: /" + label + " <stats [reset]|sample <on|off|rate|report|clear>"
+                    + "|provider [name]|cache <on|off>|audit <spieler> [anzahl]"
+                    + "|migrate <von> <nach>|status|cancel>");
+        }
+        return true;
+    }
+
+    private void stats(CommandSender sender, String[] args) {
+        if (metrics == null) {
+            sender.sendMessage("§cMetriken sind deaktiviert (metrics.enabled in der config.yml).");
+            return;
+        }
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            sender.sendMessage("§aStatistiken zurückgesetzt.");
+            return;
+        }
+        sender.sendMessage("§6OPSucht Permission-Statistiken");
+        for (String line : metrics.report()) {
+            sender.sendMessage("§7" + line);
+        }
+        AdmissionController admission = plugin.getAdmission();
+        if (admission != null) {
+            for (String line : admission.report()) {
+                sender.sendMessage("§7" + line);
+            }
+        }
+    }
+
+    private void sample(CommandSender sender, String[] args) {
+        if (sampler == null) {
+            sender.sendMessage("§cMetriken sind deaktiviert (metrics.enabled in der config.yml).");
+            return;
+        }
+        String action = args.length > 1 ? args[1].toLowerCase() : "report";
+        switch (action) {
+            case "on":
+                sampler.setEnabled(true);
+                sender.sendMessage("§aSampling aktiviert (1 von " + sampler.getRate() + " Aufrufen).");
+                break;
+            case "off":
+                sampler.setEnabled(false);
+                sender.sendMessage("§aSampling deaktiviert.");
+                break;
+            case "clear":
+                sampler.clear();
+                sender.sendMessage("§aSamples gelöscht.");
+                break;
+            case "rate":
+                try {
+                    sampler.setRate(Integer.parseInt(args.length > 2 ? args[2] : ""));
+                    sender.sendMessage("§aSampling-Rate: 1 von " + sampler.getRate() + " Aufrufen.");
+                } catch (IllegalArgumentException e) {
+                    sender.sendMessage("§cDie Rate muss eine Zweierpotenz sein, z. B. 1024.");
+                }
+                break;
+            case "report":
+                int limit = DEFAULT_REPORT_SIZE;
+                if (args.length > 2) {
+                    try {
+                        limit = Math.max(1, Integer.parseInt(args[2]));
+                    } catch (NumberFormatException e) {
+                        sender.sendMessage("§cUngültige Anzahl: " + args[2]);
+                        return;
+                    }
+                }
+                sender.sendMessage("§6OPSucht Aufrufer-Sampling");
+                for (String line : sampler.report(limit)) {
+                    sender.sendMessage("§7" + line);
+                }
+                break;
+            default:
+                sender.sendMessage("§cVerwendung: /opsperm sample <on|off|rate <n>|report [n]|clear>");
+        }
+    }
+
+    private void provider(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            sender.sendMessage("§6Aktiver Provider: §f" + plugin.getBackend().getName()
+                    + (plugin.isCacheEnabled() ? " (mit Cache)" : ""));
+            for (PermissionProviderFactory factory : plugin.getRegistry().getFactories()) {
+                sender.sendMessage("§7  " + factory.getName() + (factory.isAvailable() ? "" : " §c(nicht verfügbar)"));
+            }
+            return;
+        }
+        PermissionProviderFactory factory = plugin.getRegistry().getFactory(args[1]);
+        if (factory == null) {
+            sender.sendMessage("§cUnbekannter Provider: " + args[1]);
+            return;
+        }
+        if (!factory.isAvailable()) {
+            sender.sendMessage("§c" + factory.getName() + " ist nicht verfügbar.");
+            return;
+        }
+        switchTo(sender, factory, plugin.isCacheEnabled());
+    }
+
+    private void cache(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        switch (action) {
+            case "on":
+                switchTo(sender, plugin.getBackend(), true);
+                break;
+            case "off":
+                switchTo(sender, plugin.getBackend(), false);
+                break;
+            default:
+                sender.sendMessage("§cVerwendung: /opsperm cache <on|off>");
+        }
+    }
+
+    private void audit(CommandSender sender, String[] args) {
+        AuditLog log = plugin.getAuditLog();
+        if (log == null) {
+            sender.sendMessage("§cDas Audit-Journal ist deaktiviert (audit.enabled in der config.yml).");
+            return;
+        }
+        if (args.length < 2) {
+            sender.sendMessage("§cVerwendung: /opsperm audit <spieler|uuid> [anzahl]");
+            return;
+        }
+        UUID uuid = resolvePlayer(args[1]);
+        if (uuid == null) {
+            sender.sendMessage("§cUnbekannter Spieler: " + args[1]);
+            return;
+        }
+        int limit = DEFAULT_REPORT_SIZE;
+        if (args.length > 2) {
+            try {
+                limit = Math.max(1, Integer.parseInt(args[2]));
+            } catch (NumberFormatException e) {
+                sender.sendMessage("§cUngültige Anzahl: " + args[2]);
+                return;
+            }
+        }
+
+        int count = limit;
+        plugin.getTaskScheduler().runAsync(() -> {
+            List<AuditRecord> records;
+            try {
+                records = log.reader().tail(uuid, count);
+            } catch (IOException e) {
+                sender.sendMessage("§cAudit-Journal konnte nicht gelesen werden: " + e.getMessage());
+                return;
+            }
+            sender.sendMessage("§6Letzte Änderungen von " + args[1] + " (" + records.size() + ")");
+            for (AuditRecord record : records) {
+                sender.sendMessage("§7" + TIME.format(Instant.ofEpochMilli(record.getTimestamp())) + " §f"
+                        + record.getAction().getDisplayName() + " " + record.getPermission()
+                        + (record.getExpiresAt() != 0
+                                ? " §7bis " + TIME.format(Instant.ofEpochMilli(record.getExpiresAt())) : "")
+                        + " §8[" + record.getThread() + "]");
+            }
+        });
+    }
+
+    private void migrate(CommandSender sender, String[] args) {
+        Migration migration = plugin.getMigration();
+        if (args.length == 2 && args[1].equalsIgnoreCase("status")) {
+            if (migration == null) {
+                sender.sendMessage("§cEs wurde noch keine Migration gestartet.");
+                return;
+            }
+            for (String line : migration.report()) {
+                sender.sendMessage("§7" + line);
+            }
+            return;
+        }
+        if (args.length == 2 && args[1].equalsIgnoreCase("cancel")) {
+            if (migration == null || !migration.isRunning()) {
+                sender.sendMessage("§cEs läuft keine Migration.");
+                return;
+            }
+            migration.cancel();
+            sender.sendMessage("§aMigration wird nach den laufenden Paketen angehalten. "
+                    + "Ein erneuter Start setzt dort fort.");
+            return;
+        }
+        if (args.length < 3) {
+            sender.sendMessage("§cVerwendung: /opsperm migrate <von> <nach>|status|cancel");
+            return;
+        }
+        PermissionProviderFactory from = plugin.getRegistry().getFactory(args[1]);
+        PermissionProviderFactory to = plugin.getRegistry().getFactory(args[2]);
+        if (from == null || to == null) {
+            sender.sendMessage("§cUnbekannter Provider: " + (from == null ? args[1] : args[2]));
+            return;
+        }
+        if (!from.isAvailable() || !to.isAvailable()) {
+            sender.sendMessage("§c" + (from.isAvailable() ? to : from).getName() + " ist nicht verfügbar.");
+            return;
+        }
+        try {
+            plugin.migrate(from, to);
+        } catch (RuntimeException e) {
+            sender.sendMessage("§cMigration nicht gestartet: " + e.getMessage());
+            return;
+        }
+        sender.sendMessage("§aMigration von " + from.getName() + " nach " + to.getName()
+                + " gestartet. Fortschritt: /opsperm migrate status");
+    }
+
+    /**
+     * Resolves an online player, a UUID or a player known to the server.
+     */
+    private @Nullable UUID resolvePlayer(String name) {
+        Player online = plugin.getServer().getPlayerExact(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        try {
+            return UUID.fromString(name);
+        } catch (IllegalArgumentException e) {
+            OfflinePlayer offline = plugin.getServer().getOfflinePlayerIfCached(name);
+            return offline != null ? offline.getUniqueId() : null;
+        }
+    }
+
+    private void switchTo(CommandSender sender, PermissionProviderFactory factory, boolean cache) {
+        try {
+            plugin.activate(factory, cache);
+        } catch (RuntimeException e) {
+            sender.sendMessage("§cWechsel fehlgeschlagen: " + e.getMessage());
+            return;
+        }
+        sender.sendMessage("§aAktiver Provider: " + factory.getName() + (cache ? " (mit Cache)" : ""));
+    }
+
+    @Override
+    public @Nullable List<String> onTabComplete(@NotNull CommandSender sender, @NotNull Command command,
+            @NotNull String alias, @NotNull String[] args) {
+        if (args.length == 1) {
+            return SUBCOMMANDS;
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("stats")) {
+            return Collections.singletonList("reset");
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("sample")) {
+            return SAMPLE_ACTIONS;
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("provider")
+                || args.length == 3 && args[0].equalsIgnoreCase("migrate")) {
+            return providerNames();
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("migrate")) {
+            List<String> options = providerNames();
+            options.add("status");
+            options.add("cancel");
+            return options;
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("cache")) {
+            return Arrays.asList("on", "off");
+        }
+        if (args.length == 2 && args[0].equalsIgnoreCase("audit")) {
+            // Player names
+            return null;
+        }
+        return Collections.emptyList();
+    }
+
+    private List<String> providerNames() {
+        List<String> names = new ArrayList<>();
+        for (PermissionProviderFactory factory : plugin.getRegistry().getFactories()) {
+            names.add(factory.getName());
+        }
+        return names;
+    }
+}
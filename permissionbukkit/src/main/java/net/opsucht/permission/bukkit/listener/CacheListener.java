@@ -0,0 +1,57 @@
+package net.opsucht.permission.bukkit.listener;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drops cached state of players leaving the server.
+ * 
+ * <p>
+ * This keeps the cache bounded by the number of online players and makes
+ * sure a player switching back from another server starts with fresh data,
+ * even if an invalidation could not be delivered while they were away.
+ * </p>
+ * 
+ * <p>
+ * Joining players are added to the group index of the cache, leaving
+ * players are removed from it.
+ * </p>
+ * 
+ * <p>
+ * Players changing worlds are dropped as well, since nodes of the backend
+ * may be bound to a world.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class CacheListener implements Listener {
+
+    private final CachedPermissionProvider cache;
+
+    public CacheListener(@NotNull CachedPermissionProvider cache) {
+        this.cache = cache;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        cache.trackMember(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        cache.untrackMember(event.getPlayer().getUniqueId());
+        cache.invalidateUser(event.getPlayer().getUniqueId());
+    }
+
+    // After the backend has updated the player's contexts
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldChange(PlayerChangedWorldEvent event) {
+        cache.invalidateUser(event.getPlayer().getUniqueId());
+    }
+}
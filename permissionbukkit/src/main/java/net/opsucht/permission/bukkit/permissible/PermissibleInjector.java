@@ -0,0 +1,135 @@
+package net.opsucht.permission.bukkit.permissible;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.permissions.PermissibleBase;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Replaces the permissible of joining players with a
+ * {@link SnapshotPermissible}, so that every plugin calling
+ * {@code Player.hasPermission} is answered from the cache.
+ * 
+ * <p>
+ * The permissible lives in the {@code perm} field of the server's
+ * {@code CraftHumanEntity}, which is replaced by reflection. Whatever was
+ * there before, for example the permissible injected by LuckPerms, is kept
+ * as the original and restored when the player quits or the injector is
+ * stopped. If the field cannot be found, a warning is logged once and the
+ * players keep their permissible.
+ * </p>
+ * 
+ * <p>
+ * While the provider chain is switched, the injectors of both chains are
+ * registered. A newer injector takes over players injected by an older one,
+ * never the other way around, and each injector only restores its own.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissibleInjector implements Listener {
+
+    private static final AtomicLong GENERATIONS = new AtomicLong();
+
+    private final CachedPermissionProvider cache;
+    private final Logger logger;
+    private final long generation = GENERATIONS.incrementAndGet();
+    private volatile Field field;
+    private volatile boolean failed;
+
+    public PermissibleInjector(@NotNull CachedPermissionProvider cache, @NotNull Logger logger) {
+        this.cache = cache;
+        this.logger = logger;
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        inject(event.getPlayer());
+    }
+
+    // Before MONITOR, where LuckPerms restores its own original
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onQuit(PlayerQuitEvent event) {
+        uninject(event.getPlayer());
+    }
+
+    /**
+     * Replaces the permissible of a player, unless it was replaced already.
+     * 
+     * @param player the player
+     */
+    public void inject(@NotNull Player player) {
+        if (failed) {
+            return;
+        }
+        try {
+            Field perm = field(player);
+            Object current = perm.get(player);
+            if (current instanceof SnapshotPermissible) {
+                SnapshotPermissible injected = (SnapshotPermissible) current;
+                if (injected.getGeneration() >= generation) {
+                    return;
+                }
+                current = injected.getOriginal();
+            }
+            if (!(current instanceof PermissibleBase)) {
+                return;
+            }
+            perm.set(player, new SnapshotPermissible(player, (PermissibleBase) current, cache, generation));
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            failed = true;
+            logger.log(Level.WARNING, "Permissible konnte nicht ersetzt werden, Checks laufen weiter über Bukkit", e);
+        }
+    }
+
+    /**
+     * Restores the original permissible of a player, if it was replaced by
+     * this injector.
+     * 
+     * @param player the player
+     */
+    public void uninject(@NotNull Player player) {
+        // Without the field, nothing was injected
+        if (field == null) {
+            return;
+        }
+        try {
+            Field perm = field(player);
+            Object current = perm.get(player);
+            if (current instanceof SnapshotPermissible
+                    && ((SnapshotPermissible) current).getGeneration() == generation) {
+                perm.set(player, ((SnapshotPermissible) current).getOriginal());
+            }
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.log(Level.WARNING, "Permissible von " + player.getName() + " konnte nicht zurückgesetzt werden", e);
+        }
+    }
+
+    private Field field(Player player) throws NoSuchFieldException {
+        Field perm = field;
+        if (perm != null) {
+            return perm;
+        }
+        for (Class<?> type = player.getClass(); type != null; type = type.getSuperclass()) {
+            try {
+                perm = type.getDeclaredField("perm");
+            } catch (NoSuchFieldException e) {
+                continue;
+            }
+            perm.setAccessible(true);
+            field = perm;
+            return perm;
+        }
+        throw new NoSuchFieldException("perm in " + player.getClass().getName());
+    }
+}
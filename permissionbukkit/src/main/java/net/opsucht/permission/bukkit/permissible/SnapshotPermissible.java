@@ -0,0 +1,220 @@
+package net.opsucht.permission.bukkit.permissible;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.snapshot.Tristate;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.Permission;
+import org.bukkit.permissions.PermissibleBase;
+import org.bukkit.permissions.PermissionAttachment;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A {@link PermissibleBase} that answers permission checks of a player
+ * from the player's snapshot in the cache.
+ * 
+ * <p>
+ * {@link #hasPermission(String)} and {@link #isPermissionSet(String)} read
+ * the snapshot through {@link CachedPermissionProvider#snapshot(UUID)} and
+ * resolve the node in its immutable permission set, without taking a lock.
+ * Nodes the snapshot does not define, and nodes set by a
+ * {@link PermissionAttachment} of another plugin, are answered by the
+ * original permissible, so op status, defaults from {@code plugin.yml} and
+ * attachments keep working. Everything else is delegated to the original.
+ * </p>
+ * 
+ * <p>
+ * The nodes of all attachments, with their children, are kept in one set
+ * that checks read without copying anything. Bukkit recalculates the
+ * player's permissions whenever an attachment changes, so the set is only
+ * rebuilt in {@link #recalculatePermissions()} and when attachments are
+ * added or removed.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class SnapshotPermissible extends PermissibleBase {
+
+    private final Player player;
+    private final PermissibleBase original;
+    private final CachedPermissionProvider cache;
+    private final long generation;
+    private final Set<PermissionAttachment> attachments = ConcurrentHashMap.newKeySet();
+    // Nodes set by attachments, with their children, which win over the snapshot
+    private volatile Set<String> attachedNodes = Collections.emptySet();
+
+    SnapshotPermissible(@NotNull Player player, @NotNull PermissibleBase original,
+            @NotNull CachedPermissionProvider cache, long generation) {
+        super(player);
+        this.player = player;
+        this.original = original;
+        this.cache = cache;
+        this.generation = generation;
+        // Attachments added before the injection
+        for (PermissionAttachmentInfo info : original.getEffectivePermissions()) {
+            if (info.getAttachment() != null) {
+                attachments.add(info.getAttachment());
+            }
+        }
+        rebuildAttachedNodes();
+    }
+
+    /**
+     * Returns the permissible that was replaced.
+     * 
+     * @return the original permissible
+     */
+    public @NotNull PermissibleBase getOriginal() {
+        return original;
+    }
+
+    /**
+     * Returns the generation of the injector that installed this permissible.
+     * 
+     * @return the generation
+     */
+    long getGeneration() {
+        return generation;
+    }
+
+    @Override
+    public boolean isOp() {
+        return original.isOp();
+    }
+
+    @Override
+    public void setOp(boolean value) {
+        original.setOp(value);
+    }
+
+    @Override
+    public boolean isPermissionSet(@NotNull String name) {
+        return check(name) != Tristate.UNDEFINED || original.isPermissionSet(name);
+    }
+
+    @Override
+    public boolean isPermissionSet(@NotNull Permission perm) {
+        return check(perm.getName()) != Tristate.UNDEFINED || original.isPermissionSet(perm);
+    }
+
+    @Override
+    public boolean hasPermission(@NotNull String inName) {
+        Tristate result = check(inName);
+        return result != Tristate.UNDEFINED ? result.asBoolean() : original.hasPermission(inName);
+    }
+
+    @Override
+    public boolean hasPermission(@NotNull Permission perm) {
+        Tristate result = check(perm.getName());
+        return result != Tristate.UNDEFINED ? result.asBoolean() : original.hasPermission(perm);
+    }
+
+    @Override
+    public @NotNull PermissionAttachment addAttachment(@NotNull Plugin plugin, @NotNull String name, boolean value) {
+        return track(original.addAttachment(plugin, name, value));
+    }
+
+    @Override
+    public @NotNull PermissionAttachment addAttachment(@NotNull Plugin plugin) {
+        return track(original.addAttachment(plugin));
+    }
+
+    @Override
+    public @Nullable PermissionAttachment addAttachment(@NotNull Plugin plugin, @NotNull String name, boolean value,
+            int ticks) {
+        return track(original.addAttachment(plugin, name, value, ticks));
+    }
+
+    @Override
+    public @Nullable PermissionAttachment addAttachment(@NotNull Plugin plugin, int ticks) {
+        return track(original.addAttachment(plugin, ticks));
+    }
+
+    @Override
+    public void removeAttachment(@NotNull PermissionAttachment attachment) {
+        original.removeAttachment(attachment);
+        attachments.remove(attachment);
+        rebuildAttachedNodes();
+    }
+
+    @Override
+    public void recalculatePermissions() {
+        // Also called by the constructor of PermissibleBase, before the fields are set
+        if (original == null) {
+            return;
+        }
+        original.recalculatePermissions();
+        rebuildAttachedNodes();
+    }
+
+    @Override
+    public synchronized void clearPermissions() {
+        original.clearPermissions();
+        attachments.clear();
+        rebuildAttachedNodes();
+    }
+
+    @Override
+    public @NotNull Set<PermissionAttachmentInfo> getEffectivePermissions() {
+        return original.getEffectivePermissions();
+    }
+
+    /**
+     * Resolves a node in the player's snapshot.
+     * 
+     * @return the state, or {@link Tristate#UNDEFINED} if the node is set by
+     *         an attachment or no snapshot is available
+     */
+    private Tristate check(String permission) {
+        String node = permission.toLowerCase(Locale.ROOT);
+        if (attachedNodes.contains(node)) {
+            return Tristate.UNDEFINED;
+        }
+        UserSnapshot snapshot = cache.snapshot(player.getUniqueId());
+        return snapshot != null ? snapshot.getPermissions().check(node) : Tristate.UNDEFINED;
+    }
+
+    private PermissionAttachment track(@Nullable PermissionAttachment attachment) {
+        // Adding already recalculated, before the attachment was known here
+        if (attachment != null) {
+            attachments.add(attachment);
+            rebuildAttachedNodes();
+        }
+        return attachment;
+    }
+
+    /**
+     * Collects the nodes of all attachments with all their children.
+     */
+    private synchronized void rebuildAttachedNodes() {
+        Set<String> nodes = new HashSet<>();
+        for (PermissionAttachment attachment : attachments) {
+            for (String name : attachment.getPermissions().keySet()) {
+                addWithChildren(nodes, name);
+            }
+        }
+        attachedNodes = nodes;
+    }
+
+    private void addWithChildren(Set<String> nodes, String name) {
+        if (!nodes.add(name.toLowerCase(Locale.ROOT))) {
+            return;
+        }
+        Permission permission = player.getServer().getPluginManager().getPermission(name);
+        if (permission != null) {
+            for (String child : permission.getChildren().keySet()) {
+                addWithChildren(nodes, child);
+            }
+        }
+    }
+}
@@ -1,9 +1,14 @@
 package net.opsucht.permission.bukkit.provider;
 
 import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.scheduler.RegionExecutor;
+import net.opsucht.permission.bukkit.scheduler.RegionScheduled;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.jfr.PermissionMutationEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 import java.util.Collections;
 import java.util.Set;
@@ -24,17 +29,30 @@ import java.util.logging.Logger;
  * <b>Limitations:</b>
  * </p>
  * <ul>
- * <li>Only works for online players</li>
+ * <li>Only works for online players, so user queries only find online players</li>
  * <li>No group support (getGroups always returns empty)</li>
  * <li>add/remove operations are runtime-only (not persisted)</li>
  * </ul>
  * 
+ * <p>
+ * Attachments are changed through a {@link RegionExecutor}, so on Folia
+ * they are only touched by the thread that owns the player.
+ * </p>
+ * 
  * @since 1.0.0
  */
-public final class BukkitNativeProvider implements PermissionProvider {
+public final class BukkitNativeProvider implements PermissionProvider, RegionScheduled {
 
     private static final Logger LOGGER = Bukkit.getLogger();
 
+    private final RegionExecutor region = new RegionExecutor(
+            Bukkit.getPluginManager().getPlugin("opsucht-permission"));
+
+    @Override
+    public @NotNull RegionExecutor getRegionExecutor() {
+        return region;
+    }
+
     @Override
     public @NotNull String getProviderName() {
         return "Native Bukkit Permissions";
@@ -42,6 +60,23 @@ public final class BukkitNativeProvider implements PermissionProvider {
 
     @Override
     public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionCheckEvent event = PermissionCheckEvent.start();
+        boolean result = check(uuid, permission);
+        event.finish(uuid, permission, this, result, false);
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        region.execute(uuid, player -> grant(uuid, player, permission));
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        region.execute(uuid, player -> revoke(uuid, player, permission));
+    }
+
+    private boolean check(@NotNull UUID uuid, @NotNull String permission) {
         Player player = Bukkit.getPlayer(uuid);
         if (player == null) {
             LOGGER.fine("Player not online for permission check: " + uuid);
@@ -50,9 +85,8 @@ public final class BukkitNativeProvider implements PermissionProvider {
         return player.hasPermission(permission);
     }
 
-    @Override
-    public void add(@NotNull UUID uuid, @NotNull String permission) {
-        Player player = Bukkit.getPlayer(uuid);
+    private void grant(@NotNull UUID uuid, @Nullable Player player, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         if (player == null) {
             LOGGER.warning("Cannot add permission - player not online: " + uuid);
             return;
@@ -63,16 +97,16 @@ public final class BukkitNativeProvider implements PermissionProvider {
                 Bukkit.getPluginManager().getPlugin("opsucht-permission")).setPermission(permission, true);
 
         LOGGER.info("Added runtime permission '" + permission + "' to player " + player.getName());
+        event.finish(uuid, permission, this, true, false, false);
     }
 
     @Override
     public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.runAsync(() -> add(uuid, permission));
+        return region.submit(uuid, player -> grant(uuid, player, permission));
     }
 
-    @Override
-    public void remove(@NotNull UUID uuid, @NotNull String permission) {
-        Player player = Bukkit.getPlayer(uuid);
+    private void revoke(@NotNull UUID uuid, @Nullable Player player, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         if (player == null) {
             LOGGER.warning("Cannot remove permission - player not online: " + uuid);
             return;
@@ -83,11 +117,12 @@ public final class BukkitNativeProvider implements PermissionProvider {
                 Bukkit.getPluginManager().getPlugin("opsucht-permission")).setPermission(permission, false);
 
         LOGGER.info("Removed runtime permission '" + permission + "' from player " + player.getName());
+        event.finish(uuid, permission, this, false, false, false);
     }
 
     @Override
     public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.runAsync(() -> remove(uuid, permission));
+        return region.submit(uuid, player -> revoke(uuid, player, permission));
     }
 
     @Override
@@ -101,4 +136,10 @@ public final class BukkitNativeProvider implements PermissionProvider {
         // Bukkit's native permission system doesn't have groups
         return Collections.emptySet();
     }
+
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        // Without groups, no player is a member
+        return Collections.emptySet();
+    }
 }
@@ -1,7 +1,17 @@
 package net.opsucht.permission.bukkit.provider;
 
 import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.scheduler.RegionExecutor;
+import net.opsucht.permission.bukkit.scheduler.RegionScheduled;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.jfr.PermissionMutationEvent;
+import net.opsucht.permission.common.migration.Migration;
+import net.opsucht.permission.common.migration.MigrationGroup;
+import net.opsucht.permission.common.migration.MigrationSource;
+import net.opsucht.permission.common.migration.MigrationUser;
 import org.anjocaido.groupmanager.GroupManager;
+import org.anjocaido.groupmanager.data.Group;
+import org.anjocaido.groupmanager.data.User;
 import org.anjocaido.groupmanager.dataholder.OverloadedWorldHolder;
 import org.anjocaido.groupmanager.permissions.AnjoPermissionsHandler;
 import org.bukkit.Bukkit;
@@ -9,9 +19,14 @@ import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.Plugin;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
@@ -26,14 +41,29 @@ import java.util.logging.Logger;
  * Online-first strategy; offline fallback uses default world.
  * </p>
  * 
+ * <p>
+ * As a {@link MigrationSource}, the users and groups of the default world
+ * are read from GroupManager's in-memory data. Users that GroupManager has
+ * not converted to UUIDs yet are skipped.
+ * </p>
+ * 
+ * <p>
+ * Changes run through a {@link RegionExecutor}: on Folia, changes to an
+ * online player run on the player's region, because GroupManager updates
+ * the player's attachment right away. Changes to offline players run on
+ * the global region.
+ * </p>
+ * 
  * @since 1.0.0
  */
-public final class GroupManagerProvider implements PermissionProvider {
+public final class GroupManagerProvider implements PermissionProvider, MigrationSource, RegionScheduled {
 
     private static final String DEFAULT_WORLD = "world";
     private static final Logger LOGGER = Bukkit.getLogger();
 
     private final GroupManager gm;
+    private final RegionExecutor region = new RegionExecutor(
+            Bukkit.getPluginManager().getPlugin("opsucht-permission"));
 
     public GroupManagerProvider() {
         Plugin p = Bukkit.getPluginManager().getPlugin("GroupManager");
@@ -43,6 +73,11 @@ public final class GroupManagerProvider implements PermissionProvider {
         this.gm = (GroupManager) p;
     }
 
+    @Override
+    public @NotNull RegionExecutor getRegionExecutor() {
+        return region;
+    }
+
     @Override
     public @NotNull String getProviderName() {
         return "GroupManager";
@@ -50,16 +85,48 @@ public final class GroupManagerProvider implements PermissionProvider {
 
     @Override
     public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionCheckEvent event = PermissionCheckEvent.start();
+        boolean result = check(uuid, permission);
+        event.finish(uuid, permission, this, result, false);
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        region.execute(uuid, player -> grant(uuid, player, permission));
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        region.execute(uuid, player -> revoke(uuid, player, permission));
+    }
+
+    private boolean check(@NotNull UUID uuid, @NotNull String permission) {
         Player player = Bukkit.getPlayer(uuid);
         if (player == null)
-            return false;
+            return checkOffline(uuid, permission);
         AnjoPermissionsHandler h = gm.getWorldsHolder().getWorldPermissions(player);
         return h != null && h.has(player, permission);
     }
 
-    @Override
-    public void add(@NotNull UUID uuid, @NotNull String permission) {
-        Player player = Bukkit.getPlayer(uuid);
+    /**
+     * Checks an offline player against the default world, so that user
+     * queries scanning offline players see their permissions.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the permission node
+     * @return whether the declared user has the permission
+     */
+    private boolean checkOffline(@NotNull UUID uuid, @NotNull String permission) {
+        OverloadedWorldHolder data = gm.getWorldsHolder().getWorldData(getDefaultWorldName());
+        // getUser would create missing users; GroupManager declares every player on join
+        if (data == null || !data.isUserDeclared(uuid.toString()))
+            return false;
+        return data.getPermissionsHandler().checkUserPermission(data.getUser(uuid.toString()), permission);
+    }
+
+    private void grant(@NotNull UUID uuid, @Nullable Player player, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         String name;
         OverloadedWorldHolder holder;
         if (player != null) {
@@ -76,16 +143,16 @@ public final class GroupManagerProvider implements PermissionProvider {
         holder.getUser(name).addPermission(permission);
         if (player != null)
             GroupManager.BukkitPermissions.updatePermissions(player);
+        event.finish(uuid, permission, this, true, false, false);
     }
 
     @Override
     public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.runAsync(() -> add(uuid, permission));
+        return region.submit(uuid, player -> grant(uuid, player, permission));
     }
 
-    @Override
-    public void remove(@NotNull UUID uuid, @NotNull String permission) {
-        Player player = Bukkit.getPlayer(uuid);
+    private void revoke(@NotNull UUID uuid, @Nullable Player player, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         String name;
         OverloadedWorldHolder holder;
         if (player != null) {
@@ -102,11 +169,12 @@ public final class GroupManagerProvider implements PermissionProvider {
         holder.getUser(name).removePermission(permission);
         if (player != null)
             GroupManager.BukkitPermissions.updatePermissions(player);
+        event.finish(uuid, permission, this, false, false, false);
     }
 
     @Override
     public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.runAsync(() -> remove(uuid, permission));
+        return region.submit(uuid, player -> revoke(uuid, player, permission));
     }
 
     @Override
@@ -146,6 +214,132 @@ public final class GroupManagerProvider implements PermissionProvider {
         return new java.util.LinkedHashSet<>(groups.keySet());
     }
 
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        Set<UUID> members = new HashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (isMember(player.getUniqueId(), group)) {
+                members.add(player.getUniqueId());
+            }
+        }
+        return members;
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        String name = nameOf(uuid);
+        AnjoPermissionsHandler h = handlerOf(uuid);
+        return name != null && h != null ? emptyToNull(h.getUserPrefix(name)) : null;
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        String name = nameOf(uuid);
+        AnjoPermissionsHandler h = handlerOf(uuid);
+        return name != null && h != null ? emptyToNull(h.getUserSuffix(name)) : null;
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        String name = nameOf(uuid);
+        AnjoPermissionsHandler h = handlerOf(uuid);
+        return name != null && h != null ? emptyToNull(h.getUserPermissionString(name, key)) : null;
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        String name = nameOf(uuid);
+        AnjoPermissionsHandler h = handlerOf(uuid);
+        return name != null && h != null ? emptyToNull(h.getGroup(name)) : null;
+    }
+
+    @Override
+    public @NotNull Collection<UUID> readUserIds() {
+        OverloadedWorldHolder data = gm.getWorldsHolder().getWorldData(getDefaultWorldName());
+        if (data == null)
+            return List.of();
+        List<UUID> uuids = new ArrayList<>();
+        for (User user : data.getUserList()) {
+            UUID uuid = parseUuid(user.getUUID());
+            if (uuid != null)
+                uuids.add(uuid);
+        }
+        return uuids;
+    }
+
+    @Override
+    public @Nullable MigrationUser readUser(@NotNull UUID uuid) {
+        OverloadedWorldHolder data = gm.getWorldsHolder().getWorldData(getDefaultWorldName());
+        // getUser would create missing users
+        if (data == null || !data.isUserDeclared(uuid.toString()))
+            return null;
+        User user = data.getUser(uuid.toString());
+        List<String> groups = new ArrayList<>();
+        groups.add(user.getGroupName());
+        groups.addAll(user.subGroupListStringCopy());
+        return new MigrationUser(uuid, Migration.parseNodes(user.getPermissionList()), groups, user.getGroupName(),
+                emptyToNull(user.getVariables().getVarString("prefix")),
+                emptyToNull(user.getVariables().getVarString("suffix")));
+    }
+
+    @Override
+    public @NotNull List<MigrationGroup> readGroups() {
+        OverloadedWorldHolder data = gm.getWorldsHolder().getWorldData(getDefaultWorldName());
+        if (data == null)
+            return List.of();
+        List<MigrationGroup> groups = new ArrayList<>();
+        for (Group group : data.getGroupList()) {
+            groups.add(new MigrationGroup(group.getName(), Migration.parseNodes(group.getPermissionList()),
+                    group.getInherits(), emptyToNull(group.getVariables().getVarString("prefix")),
+                    emptyToNull(group.getVariables().getVarString("suffix"))));
+        }
+        return groups;
+    }
+
+    private static @Nullable UUID parseUuid(@Nullable String value) {
+        if (value == null)
+            return null;
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Resolves the player name, preferring the online player.
+     * 
+     * @param uuid the player's UUID
+     * @return the player name, or null if the player is unknown
+     */
+    private @Nullable String nameOf(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        return player != null ? player.getName() : Bukkit.getOfflinePlayer(uuid).getName();
+    }
+
+    /**
+     * Resolves the permissions handler of the player's current world,
+     * falling back to the default world for offline players.
+     * 
+     * @param uuid the player's UUID
+     * @return the handler, or null if the world has no GroupManager data
+     */
+    private @Nullable AnjoPermissionsHandler handlerOf(UUID uuid) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (player != null)
+            return gm.getWorldsHolder().getWorldPermissions(player);
+        OverloadedWorldHolder data = gm.getWorldsHolder().getWorldData(getDefaultWorldName());
+        return data != null ? data.getPermissionsHandler() : null;
+    }
+
+    /**
+     * GroupManager reports unset prefixes, suffixes and variables as empty
+     * strings; the API uses null for those.
+     */
+    private static @Nullable String emptyToNull(@Nullable String value) {
+        return value == null || value.isEmpty() ? null : value;
+    }
+
     /**
      * Returns the default world name for offline players.
      * 
@@ -4,8 +4,13 @@ import net.luckperms.api.LuckPerms;
 import net.luckperms.api.LuckPermsProvider;
 import net.opsucht.permission.common.provider.AbstractLPProvider;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -44,4 +49,13 @@ public final class LPProvider extends AbstractLPProvider {
     protected Logger getLogger() {
         return logger;
     }
+
+    @Override
+    protected @NotNull Collection<UUID> getOnlinePlayers() {
+        List<UUID> uuids = new ArrayList<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
 }
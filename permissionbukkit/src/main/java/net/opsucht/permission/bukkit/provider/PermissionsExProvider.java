@@ -2,6 +2,12 @@ package net.opsucht.permission.bukkit.provider;
 
 import io.papermc.paper.plugin.PermissionManager;
 import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.jfr.PermissionMutationEvent;
+import net.opsucht.permission.common.migration.Migration;
+import net.opsucht.permission.common.migration.MigrationGroup;
+import net.opsucht.permission.common.migration.MigrationSource;
+import net.opsucht.permission.common.migration.MigrationUser;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.entity.Player;
@@ -12,6 +18,9 @@ import ru.tehkode.permissions.PermissionUser;
 import ru.tehkode.permissions.bukkit.PermissionsEx;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,9 +45,15 @@ import java.util.logging.Logger;
  * API versions. Methods are cached for improved performance.
  * </p>
  * 
+ * <p>
+ * As a {@link MigrationSource}, users and groups are read from the
+ * PermissionsEx backend with their global nodes, parents and prefixes.
+ * World-specific data is not read. Users still stored by name are skipped.
+ * </p>
+ * 
  * @since 1.0.0
  */
-public final class PermissionsExProvider implements PermissionProvider {
+public final class PermissionsExProvider implements PermissionProvider, MigrationSource {
 
     private static final Logger LOGGER = Bukkit.getLogger();
 
@@ -64,6 +79,27 @@ public final class PermissionsExProvider implements PermissionProvider {
 
     @Override
     public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionCheckEvent event = PermissionCheckEvent.start();
+        boolean result = check(uuid, permission);
+        event.finish(uuid, permission, this, result, false);
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        grant(uuid, permission);
+        event.finish(uuid, permission, this, true, false, false);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        revoke(uuid, permission);
+        event.finish(uuid, permission, this, false, false, false);
+    }
+
+    private boolean check(@NotNull UUID uuid, @NotNull String permission) {
         if (manager == null)
             return false;
         String world = worldOf(uuid);
@@ -101,8 +137,7 @@ public final class PermissionsExProvider implements PermissionProvider {
         return false;
     }
 
-    @Override
-    public void add(@NotNull UUID uuid, @NotNull String permission) {
+    private void grant(@NotNull UUID uuid, @NotNull String permission) {
         if (manager == null)
             return;
         PermissionUser user = user(uuid);
@@ -120,8 +155,7 @@ public final class PermissionsExProvider implements PermissionProvider {
         return CompletableFuture.runAsync(() -> add(uuid, permission));
     }
 
-    @Override
-    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+    private void revoke(@NotNull UUID uuid, @NotNull String permission) {
         if (manager == null)
             return;
         PermissionUser user = user(uuid);
@@ -195,6 +229,137 @@ public final class PermissionsExProvider implements PermissionProvider {
         return out;
     }
 
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        Set<UUID> members = new HashSet<>();
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            if (isMember(player.getUniqueId(), group)) {
+                members.add(player.getUniqueId());
+            }
+        }
+        return members;
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        PermissionUser user = user(uuid);
+        if (user == null)
+            return null;
+        return emptyToNull(invoke(user, "getPrefix", new Class[] {}));
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        PermissionUser user = user(uuid);
+        if (user == null)
+            return null;
+        return emptyToNull(invoke(user, "getSuffix", new Class[] {}));
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        PermissionUser user = user(uuid);
+        if (user == null)
+            return null;
+        return emptyToNull(invoke(user, "getOption", new Class[] { String.class }, key));
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        // PEX has no primary group; getGroups keeps the rank order of the backend
+        Set<String> groups = getGroups(uuid);
+        return groups.isEmpty() ? null : groups.iterator().next();
+    }
+
+    @Override
+    public @NotNull Collection<UUID> readUserIds() {
+        if (manager == null)
+            return List.of();
+        List<UUID> uuids = new ArrayList<>();
+        Object identifiers = invoke(manager, "getUserIdentifiers", new Class[] {});
+        if (identifiers instanceof Iterable) {
+            for (Object identifier : (Iterable<?>) identifiers) {
+                UUID uuid = parseUuid(identifier);
+                if (uuid != null)
+                    uuids.add(uuid);
+            }
+            return uuids;
+        }
+        // Older versions only list the users that are loaded
+        Object users = invoke(manager, "getUsers", new Class[] {});
+        if (users instanceof Iterable) {
+            for (Object user : (Iterable<?>) users) {
+                UUID uuid = user != null ? parseUuid(invoke(user, "getIdentifier", new Class[] {})) : null;
+                if (uuid != null)
+                    uuids.add(uuid);
+            }
+        }
+        return uuids;
+    }
+
+    @Override
+    public @Nullable MigrationUser readUser(@NotNull UUID uuid) {
+        PermissionUser user = user(uuid);
+        if (user == null)
+            return null;
+        List<String> groups = strings(invoke(user, "getParentIdentifiers", new Class[] { String.class }, (Object) null));
+        return new MigrationUser(uuid, Migration.parseNodes(ownPermissions(user)), groups,
+                groups.isEmpty() ? null : groups.get(0),
+                emptyToNull(invoke(user, "getOwnPrefix", new Class[] {})),
+                emptyToNull(invoke(user, "getOwnSuffix", new Class[] {})));
+    }
+
+    @Override
+    public @NotNull List<MigrationGroup> readGroups() {
+        if (manager == null)
+            return List.of();
+        List<MigrationGroup> groups = new ArrayList<>();
+        Object list = invoke(manager, "getGroupList", new Class[] {});
+        if (!(list instanceof Iterable))
+            return groups;
+        for (Object group : (Iterable<?>) list) {
+            String name = group != null ? emptyToNull(invoke(group, "getName", new Class[] {})) : null;
+            if (name == null)
+                continue;
+            groups.add(new MigrationGroup(name, Migration.parseNodes(ownPermissions(group)),
+                    strings(invoke(group, "getParentIdentifiers", new Class[] { String.class }, (Object) null)),
+                    emptyToNull(invoke(group, "getOwnPrefix", new Class[] {})),
+                    emptyToNull(invoke(group, "getOwnSuffix", new Class[] {}))));
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the global nodes set directly on a user or group.
+     */
+    private List<String> ownPermissions(Object entity) {
+        return strings(invoke(entity, "getOwnPermissions", new Class[] { String.class }, (Object) null));
+    }
+
+    private static List<String> strings(@Nullable Object value) {
+        List<String> out = new ArrayList<>();
+        if (value instanceof Iterable) {
+            for (Object element : (Iterable<?>) value)
+                if (element != null)
+                    out.add(String.valueOf(element));
+        } else if (value instanceof String[]) {
+            for (String element : (String[]) value)
+                if (element != null)
+                    out.add(element);
+        }
+        return out;
+    }
+
+    private static @Nullable UUID parseUuid(@Nullable Object value) {
+        if (value == null)
+            return null;
+        try {
+            return UUID.fromString(String.valueOf(value));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     private @Nullable PermissionUser user(UUID uuid) {
         if (manager == null)
             return null;
@@ -246,6 +411,13 @@ public final class PermissionsExProvider implements PermissionProvider {
         return null;
     }
 
+    private static @Nullable String emptyToNull(@Nullable Object value) {
+        if (value == null)
+            return null;
+        String s = String.valueOf(value);
+        return s.isEmpty() ? null : s;
+    }
+
     private boolean invokeBool(Object target, String name, Class<?>[] types, Object... args) {
         Object r = invoke(target, name, types, args);
         return r instanceof Boolean && (Boolean) r;
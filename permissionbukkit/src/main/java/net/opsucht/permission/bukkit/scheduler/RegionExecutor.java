@@ -0,0 +1,209 @@
+package net.opsucht.permission.bukkit.scheduler;
+
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs work that touches a player on the thread that owns the player.
+ * 
+ * <p>
+ * On Folia every player belongs to a region, and only that region's thread
+ * may change the player's attachments. Work for an online player is handed
+ * to the player's entity scheduler; work for an offline player runs on the
+ * global region. All work queued for one player before its region ticks
+ * again runs as a single task, so a burst of changes costs one scheduled
+ * task per player and tick rather than one per change. Synchronous work
+ * submitted on the owning thread runs right away, after anything already
+ * queued for the player.
+ * </p>
+ * 
+ * <p>
+ * Synchronous calls never wait for another region. From a thread outside
+ * every region the work is queued like {@link #submit}, and the
+ * {@link #addCompletionListener completion listeners} are told once it
+ * ran, so a cache can drop the state it read in between. From the thread
+ * of another region the call is rejected, since waiting there would stall
+ * that region and queuing would hide the change from the caller.
+ * </p>
+ * 
+ * <p>
+ * On every other server, work runs where it always did: synchronous calls
+ * on the calling thread, asynchronous ones on the common pool.
+ * </p>
+ * 
+ * <p>
+ * Permission checks do not go through this class. They stay on the calling
+ * thread and, with the cache enabled, are answered from it.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class RegionExecutor {
+
+    private static final Logger LOGGER = Bukkit.getLogger();
+
+    private final @Nullable Plugin plugin;
+    private final Map<UUID, Queue<Consumer<Player>>> pending = new ConcurrentHashMap<>();
+    private final List<Consumer<UUID>> completionListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * @param plugin the plugin that owns the scheduled tasks
+     */
+    public RegionExecutor(@Nullable Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registers a listener told about each player whose synchronous work
+     * was queued instead of run by {@link #execute}, once that work ran.
+     * 
+     * @param listener the listener, given the player's UUID
+     */
+    public void addCompletionListener(@NotNull Consumer<UUID> listener) {
+        completionListeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     * 
+     * @param listener the listener to remove
+     */
+    public void removeCompletionListener(@NotNull Consumer<UUID> listener) {
+        completionListeners.remove(listener);
+    }
+
+    /**
+     * Runs work on a player. On Folia, work from a thread outside every
+     * region is queued and this method returns right away; the completion
+     * listeners are called once it ran.
+     * 
+     * @param uuid   the player's UUID
+     * @param action the work, given the online player or null if the player
+     *               is offline
+     * @throws IllegalStateException if called on Folia from a region thread
+     *                               that does not own the player
+     */
+    public void execute(@NotNull UUID uuid, @NotNull Consumer<Player> action) {
+        Player player = Bukkit.getPlayer(uuid);
+        if (!ServerScheduler.isFolia() || plugin == null) {
+            action.accept(player);
+            return;
+        }
+        if (isOwner(player)) {
+            // Queued work has to run first to keep changes in order
+            drain(uuid, player);
+            action.accept(player);
+            return;
+        }
+        // On Folia every tick thread counts as primary
+        if (Bukkit.isPrimaryThread()) {
+            throw new IllegalStateException("Permission change for " + uuid
+                    + " from a region that does not own the player; use the async variant");
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(uuid, player, completing(action, future));
+        future.whenComplete((ignored, error) -> {
+            if (error != null) {
+                LOGGER.log(Level.WARNING, "Permission change for " + uuid + " failed", error);
+            }
+            for (Consumer<UUID> listener : completionListeners) {
+                listener.accept(uuid);
+            }
+        });
+    }
+
+    /**
+     * Runs work on a player in the background.
+     * 
+     * @param uuid   the player's UUID
+     * @param action the work, given the online player or null if the player
+     *               is offline
+     * @return a future completed once the work ran
+     */
+    public @NotNull CompletableFuture<Void> submit(@NotNull UUID uuid, @NotNull Consumer<Player> action) {
+        if (!ServerScheduler.isFolia() || plugin == null) {
+            return CompletableFuture.runAsync(() -> action.accept(Bukkit.getPlayer(uuid)));
+        }
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        enqueue(uuid, Bukkit.getPlayer(uuid), completing(action, future));
+        return future;
+    }
+
+    private static Consumer<Player> completing(Consumer<Player> action, CompletableFuture<Void> future) {
+        return player -> {
+            try {
+                action.accept(player);
+                future.complete(null);
+            } catch (RuntimeException e) {
+                future.completeExceptionally(e);
+            }
+        };
+    }
+
+    /**
+     * Returns whether the current thread may run work on the player.
+     */
+    private static boolean isOwner(@Nullable Player player) {
+        return player != null ? Bukkit.isOwnedByCurrentRegion(player) : Bukkit.isGlobalTickThread();
+    }
+
+    private void enqueue(UUID uuid, @Nullable Player player, Consumer<Player> action) {
+        boolean[] first = new boolean[1];
+        pending.compute(uuid, (key, queue) -> {
+            if (queue == null) {
+                queue = new ArrayDeque<>();
+                first[0] = true;
+            }
+            queue.add(action);
+            return queue;
+        });
+        if (first[0]) {
+            schedule(uuid, player);
+        }
+    }
+
+    /**
+     * Schedules one drain of the player's queue. If the player leaves before
+     * it runs, the queue is drained on the global region instead.
+     */
+    private void schedule(UUID uuid, @Nullable Player player) {
+        if (player != null
+                && player.getScheduler().run(plugin, task -> drain(uuid, player), () -> scheduleOffline(uuid)) != null) {
+            return;
+        }
+        scheduleOffline(uuid);
+    }
+
+    private void scheduleOffline(UUID uuid) {
+        plugin.getServer().getGlobalRegionScheduler().execute(plugin, () -> drain(uuid, null));
+    }
+
+    private void drain(UUID uuid, @Nullable Player player) {
+        Queue<Consumer<Player>> queue = pending.remove(uuid);
+        if (queue == null) {
+            return;
+        }
+        for (Consumer<Player> action : queue) {
+            try {
+                action.accept(player);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Permission change for " + uuid + " failed", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.opsucht.permission.bukkit.scheduler;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A provider that changes players through a {@link RegionExecutor}.
+ * 
+ * <p>
+ * On Folia, a synchronous change from outside every region returns before
+ * it ran. Whoever caches the provider's answers registers a completion
+ * listener on the executor to drop them once the change is applied.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public interface RegionScheduled {
+
+    /**
+     * Returns the executor the provider changes players through.
+     * 
+     * @return the executor
+     */
+    @NotNull RegionExecutor getRegionExecutor();
+}
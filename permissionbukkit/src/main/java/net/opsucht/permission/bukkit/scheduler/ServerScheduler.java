@@ -0,0 +1,136 @@
+package net.opsucht.permission.bukkit.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs the plugin's own tasks on Paper as well as on Folia.
+ * 
+ * <p>
+ * Folia has no main thread and rejects the {@link org.bukkit.scheduler.BukkitScheduler}.
+ * There, repeating tasks run on the global region and background tasks on
+ * Folia's async scheduler. On every other server the Bukkit scheduler is
+ * used as before. Delays and periods are given in ticks either way.
+ * </p>
+ * 
+ * <p>
+ * Work on a single player goes through a {@link RegionExecutor} instead.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class ServerScheduler {
+
+    private static final boolean FOLIA = isClassPresent("io.papermc.paper.threadedregions.RegionizedServer");
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin plugin;
+
+    /**
+     * A scheduled task that can be cancelled.
+     */
+    @FunctionalInterface
+    public interface Task {
+
+        void cancel();
+    }
+
+    public ServerScheduler(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Returns whether this server runs Folia's regionized scheduler.
+     * 
+     * @return true on Folia
+     */
+    public static boolean isFolia() {
+        return FOLIA;
+    }
+
+    /**
+     * Runs a task once on the next server tick: the main thread, or the
+     * global region on Folia.
+     * 
+     * @param task the task
+     */
+    public void run(@NotNull Runnable task) {
+        if (FOLIA) {
+            plugin.getServer().getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            plugin.getServer().getScheduler().runTask(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task on the server tick: the main thread, or the global region
+     * on Folia.
+     * 
+     * @param task   the task
+     * @param delay  ticks before the first run, at least 1
+     * @param period ticks between runs
+     * @return the scheduled task
+     */
+    public @NotNull Task runTimer(@NotNull Runnable task, long delay, long period) {
+        if (FOLIA) {
+            return plugin.getServer().getGlobalRegionScheduler()
+                    .runAtFixedRate(plugin, scheduled -> task.run(), delay, period)::cancel;
+        }
+        return plugin.getServer().getScheduler().runTaskTimer(plugin, task, delay, period)::cancel;
+    }
+
+    /**
+     * Runs a task off the server tick as soon as possible.
+     * 
+     * @param task the task
+     */
+    public void runAsync(@NotNull Runnable task) {
+        if (FOLIA) {
+            plugin.getServer().getAsyncScheduler().runNow(plugin, scheduled -> task.run());
+        } else {
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, task);
+        }
+    }
+
+    /**
+     * Runs a task off the server tick after a delay.
+     * 
+     * @param task  the task
+     * @param delay ticks to wait
+     * @return the scheduled task
+     */
+    public @NotNull Task runAsyncLater(@NotNull Runnable task, long delay) {
+        if (FOLIA) {
+            return plugin.getServer().getAsyncScheduler().runDelayed(plugin, scheduled -> task.run(),
+                    delay * MILLIS_PER_TICK, TimeUnit.MILLISECONDS)::cancel;
+        }
+        return plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, task, delay)::cancel;
+    }
+
+    /**
+     * Runs a task off the server tick repeatedly.
+     * 
+     * @param task   the task
+     * @param delay  ticks before the first run
+     * @param period ticks between runs
+     * @return the scheduled task
+     */
+    public @NotNull Task runAsyncTimer(@NotNull Runnable task, long delay, long period) {
+        if (FOLIA) {
+            return plugin.getServer().getAsyncScheduler().runAtFixedRate(plugin, scheduled -> task.run(),
+                    delay * MILLIS_PER_TICK, period * MILLIS_PER_TICK, TimeUnit.MILLISECONDS)::cancel;
+        }
+        return plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, task, delay, period)::cancel;
+    }
+
+    private static boolean isClassPresent(String name) {
+        try {
+            Class.forName(name);
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
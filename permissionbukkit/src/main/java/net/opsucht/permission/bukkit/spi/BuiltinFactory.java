@@ -0,0 +1,44 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.bukkit.Bukkit;
+import net.opsucht.permission.common.builtin.BuiltinPermissionProvider;
+import net.opsucht.permission.common.builtin.BuiltinProviderFactory;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Creates the {@link BuiltinPermissionProvider}, which keeps its data in
+ * the {@code builtin} folder of the plugin. Always available, but only used
+ * if listed in {@code provider-priority}.
+ * 
+ * @since 1.0.0
+ */
+public final class BuiltinFactory extends BuiltinProviderFactory {
+
+    @Override
+    protected @NotNull Path getDirectory() {
+        return JavaPlugin.getPlugin(Bukkit.class).getDataFolder().toPath().resolve("builtin");
+    }
+
+    @Override
+    protected @NotNull Logger getLogger() {
+        return JavaPlugin.getPlugin(Bukkit.class).getLogger();
+    }
+
+    @Override
+    protected @NotNull Collection<UUID> getOnlinePlayers() {
+        List<UUID> uuids = new ArrayList<>();
+        for (Player player : JavaPlugin.getPlugin(Bukkit.class).getServer().getOnlinePlayers()) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
+}
@@ -0,0 +1,22 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.provider.GroupManagerProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the {@link GroupManagerProvider}.
+ * 
+ * @since 1.0.0
+ */
+public final class GroupManagerFactory extends PluginProviderFactory {
+
+    public GroupManagerFactory() {
+        super("GroupManager");
+    }
+
+    @Override
+    public @NotNull PermissionProvider create() {
+        return new GroupManagerProvider();
+    }
+}
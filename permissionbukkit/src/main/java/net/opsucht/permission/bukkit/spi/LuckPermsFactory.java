@@ -0,0 +1,22 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.provider.LPProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the {@link LPProvider}.
+ * 
+ * @since 1.0.0
+ */
+public final class LuckPermsFactory extends PluginProviderFactory {
+
+    public LuckPermsFactory() {
+        super("LuckPerms");
+    }
+
+    @Override
+    public @NotNull PermissionProvider create() {
+        return new LPProvider();
+    }
+}
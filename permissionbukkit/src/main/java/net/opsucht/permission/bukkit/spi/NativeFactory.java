@@ -0,0 +1,30 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.provider.BukkitNativeProvider;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the {@link BukkitNativeProvider}. Always available, so it serves
+ * as the fallback at the end of {@code provider-priority}.
+ * 
+ * @since 1.0.0
+ */
+public final class NativeFactory implements PermissionProviderFactory {
+
+    @Override
+    public @NotNull String getName() {
+        return "Native";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    @Override
+    public @NotNull PermissionProvider create() {
+        return new BukkitNativeProvider();
+    }
+}
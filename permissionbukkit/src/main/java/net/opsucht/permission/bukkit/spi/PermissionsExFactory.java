@@ -0,0 +1,22 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bukkit.provider.PermissionsExProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the {@link PermissionsExProvider}.
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionsExFactory extends PluginProviderFactory {
+
+    public PermissionsExFactory() {
+        super("PermissionsEx");
+    }
+
+    @Override
+    public @NotNull PermissionProvider create() {
+        return new PermissionsExProvider();
+    }
+}
@@ -0,0 +1,35 @@
+package net.opsucht.permission.bukkit.spi;
+
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Base class for backends that are Bukkit plugins. The backend is available
+ * while the plugin of the same name is enabled.
+ * 
+ * @since 1.0.0
+ */
+public abstract class PluginProviderFactory implements PermissionProviderFactory {
+
+    private final String name;
+
+    /**
+     * @param name the name of the plugin, also used in {@code provider-priority}
+     */
+    protected PluginProviderFactory(@NotNull String name) {
+        this.name = name;
+    }
+
+    @Override
+    public @NotNull String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        Plugin plugin = Bukkit.getPluginManager().getPlugin(name);
+        return plugin != null && plugin.isEnabled();
+    }
+}
@@ -0,0 +1,75 @@
+package net.opsucht.permission.bukkit.sync;
+
+import net.opsucht.permission.common.sync.InvalidationTransport;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport over the Bukkit plugin messaging channel.
+ * 
+ * <p>
+ * Frames are sent to the proxy through the connection of any online player.
+ * The proxy relays them to all other servers.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class BukkitMessagingTransport implements InvalidationTransport, PluginMessageListener {
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver = frame -> {
+    };
+
+    public BukkitMessagingTransport(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registers the plugin messaging channel in both directions.
+     */
+    public void register() {
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.registerOutgoingPluginChannel(plugin, CHANNEL);
+        messenger.registerIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    /**
+     * Unregisters the message listener. The outgoing channel stays
+     * registered until the plugin is disabled, since the transport of a new
+     * provider chain may already be sending on it.
+     */
+    public void unregister() {
+        plugin.getServer().getMessenger().unregisterIncomingPluginChannel(plugin, CHANNEL, this);
+    }
+
+    @Override
+    public void send(byte @NotNull [] frame) {
+        Collection<? extends Player> online = plugin.getServer().getOnlinePlayers();
+        if (online.isEmpty()) {
+            // Without a player there is no connection to the proxy. Nothing
+            // is lost: caches drop players on quit, so remote servers only
+            // hold state for players that are online somewhere else.
+            plugin.getLogger().fine("No player online to carry invalidations, dropping frame");
+            return;
+        }
+        online.iterator().next().sendPluginMessage(plugin, CHANNEL, frame);
+    }
+
+    @Override
+    public void setReceiver(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+    }
+
+    @Override
+    public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte @NotNull [] message) {
+        if (CHANNEL.equals(channel)) {
+            receiver.accept(message);
+        }
+    }
+}
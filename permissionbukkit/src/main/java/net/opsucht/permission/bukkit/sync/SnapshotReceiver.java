@@ -0,0 +1,88 @@
+package net.opsucht.permission.bukkit.sync;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.snapshot.SnapshotCodec;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.plugin.messaging.Messenger;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Installs permission snapshots pushed by the proxy into the cache.
+ * 
+ * <p>
+ * The proxy sends the resolved state of a player while the player connects,
+ * so the first permission checks on this server do not have to wait for the
+ * backend. Frames must carry a valid signature of the shared secret, must
+ * not be older than {@link #MAX_AGE_MS} and must describe the player whose
+ * connection carried them. The snapshot is installed provisionally, see
+ * {@link CachedPermissionProvider#installProvisional(UserSnapshot)}.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class SnapshotReceiver implements PluginMessageListener {
+
+    /**
+     * Maximum age of an accepted snapshot.
+     */
+    public static final long MAX_AGE_MS = TimeUnit.SECONDS.toMillis(30);
+
+    private final Plugin plugin;
+    private final CachedPermissionProvider cache;
+    private final byte[] key;
+
+    public SnapshotReceiver(@NotNull Plugin plugin, @NotNull CachedPermissionProvider cache, byte @NotNull [] key) {
+        this.plugin = plugin;
+        this.cache = cache;
+        this.key = key.clone();
+    }
+
+    /**
+     * Registers the incoming snapshot channel.
+     */
+    public void register() {
+        plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, SnapshotCodec.CHANNEL, this);
+    }
+
+    /**
+     * Unregisters the incoming snapshot channel.
+     */
+    public void unregister() {
+        Messenger messenger = plugin.getServer().getMessenger();
+        messenger.unregisterIncomingPluginChannel(plugin, SnapshotCodec.CHANNEL, this);
+    }
+
+    @Override
+    public void onPluginMessageReceived(@NotNull String channel, @NotNull Player player, byte @NotNull [] message) {
+        if (!SnapshotCodec.CHANNEL.equals(channel)) {
+            return;
+        }
+
+        UserSnapshot snapshot;
+        try {
+            snapshot = SnapshotCodec.decodeSigned(message, key);
+        } catch (IllegalArgumentException e) {
+            plugin.getLogger().log(Level.WARNING, "Ungültiger Permission-Snapshot verworfen: " + e.getMessage());
+            return;
+        }
+
+        if (!snapshot.getUuid().equals(player.getUniqueId())) {
+            plugin.getLogger().warning("Permission-Snapshot von " + snapshot.getUuid() + " über die Verbindung von "
+                    + player.getName() + " verworfen");
+            return;
+        }
+
+        long age = System.currentTimeMillis() - snapshot.getCreatedAt();
+        if (age > MAX_AGE_MS || age < -MAX_AGE_MS) {
+            plugin.getLogger().fine("Discarding outdated snapshot of " + snapshot.getUuid());
+            return;
+        }
+        cache.installProvisional(snapshot);
+    }
+}
@@ -1,35 +1,539 @@
 package net.opsucht.permission.bungee;
 
+import net.luckperms.api.event.EventSubscription;
 import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.api.scheduler.ScheduledTask;
+import net.md_5.bungee.config.Configuration;
+import net.md_5.bungee.config.ConfigurationProvider;
+import net.md_5.bungee.config.YamlConfiguration;
 import net.opsucht.permission.api.Permission;
 import net.opsucht.permission.api.PermissionProvider;
-import net.opsucht.permission.bungee.manager.ProviderManager;
+import net.opsucht.permission.bungee.command.OpspermCommand;
+import net.opsucht.permission.bungee.listener.CacheListener;
+import net.opsucht.permission.bungee.sync.BungeeMessagingTransport;
+import net.opsucht.permission.bungee.sync.SnapshotPushListener;
+import net.opsucht.permission.common.admission.AdmissionControlledPermissionProvider;
+import net.opsucht.permission.common.admission.AdmissionController;
+import net.opsucht.permission.common.admission.OverflowPolicy;
+import net.opsucht.permission.common.audit.AuditLog;
+import net.opsucht.permission.common.audit.AuditingPermissionProvider;
+import net.opsucht.permission.common.audit.FsyncPolicy;
+import net.opsucht.permission.common.builtin.BuiltinPermissionProvider;
+import net.opsucht.permission.common.builtin.BuiltinProviderFactory;
+import net.opsucht.permission.common.builtin.CacheRefresher;
+import net.opsucht.permission.common.cache.CachePersistence;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.cache.GroupRecomputer;
+import net.opsucht.permission.common.cache.OffHeapSnapshotTier;
+import net.opsucht.permission.common.expiry.ExpiringPermissionProvider;
+import net.opsucht.permission.common.expiry.ExpiryScheduler;
+import net.opsucht.permission.common.metrics.CallSampler;
+import net.opsucht.permission.common.metrics.CallerLookup;
+import net.opsucht.permission.common.metrics.InstrumentedPermissionProvider;
+import net.opsucht.permission.common.metrics.PermissionMetrics;
+import net.opsucht.permission.common.metrics.PermissionStats;
+import net.opsucht.permission.common.provider.AbstractLPProvider;
+import net.opsucht.permission.common.query.UserQueries;
+import net.opsucht.permission.common.query.UserQuery;
+import net.opsucht.permission.common.snapshot.SnapshotCodec;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.SnapshotStore;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import net.opsucht.permission.common.spi.ProviderRegistry;
+import net.opsucht.permission.common.sync.InvalidationBus;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 /*
  * BungeeCord Plugin zur Initialisierung der OPSucht PermissionsAPI.
- * Erkennt automatisch LuckPerms oder Fallback-Systeme und registriert den aktiven Provider.
+ * Erkennt das Permission-System über die Provider-Registry und registriert den aktiven Provider.
  */
 public final class Bungee extends Plugin {
 
+    /**
+     * How long a replaced provider chain may take to finish its running calls.
+     */
+    private static final Duration DRAIN_TIMEOUT = Duration.ofSeconds(10);
+
+    private Configuration config;
+    private ProviderRegistry registry;
+    private PermissionProviderFactory backend;
+    private boolean cacheEnabled;
+    private PermissionMetrics metrics;
+    private CallSampler sampler;
+    private PermissionStats stats;
+    private AuditLog auditLog;
+    private AdmissionController admission;
+    private ExpiryScheduler expiry;
+
+    // State of the active provider chain, replaced on every switch
+    private final List<ScheduledTask> tasks = new ArrayList<>();
+    private CacheListener cacheListener;
+    private final List<EventSubscription<?>> subscriptions = new ArrayList<>();
+    private BuiltinPermissionProvider builtin;
+    private CacheRefresher cacheRefresher;
+    private BungeeMessagingTransport transport;
+    private InvalidationBus invalidationBus;
+    private SnapshotPushListener snapshotPush;
+    private CachePersistence persistence;
+    private OffHeapSnapshotTier offHeapTier;
+    // Components of replaced chains, stopped once the chain is released
+    private final List<Runnable> retiring = new CopyOnWriteArrayList<>();
+
     @Override
     public void onEnable() {
         ProxyServer.getInstance().getLogger().info("[OPSucht] Initialising PermissionsAPI...");
 
-        PermissionProvider provider = ProviderManager.detectProvider();
+        config = loadConfig();
+        registry = new ProviderRegistry(getClass().getClassLoader());
+        PermissionProviderFactory factory = registry.detect(config.getStringList("provider-priority"));
 
-        if (provider == null) {
+        if (factory == null) {
             ProxyServer.getInstance().getLogger().warning("⚠️ Kein unterstütztes Permission-System gefunden!");
             ProxyServer.getInstance().getLogger().warning("Das Plugin bleibt inaktiv.");
             return;
         }
 
-        Permission.set(provider);
-        ProxyServer.getInstance().getLogger().info("✅ Permission-System erkannt: " + provider.getProviderName());
+        if (config.getBoolean("metrics.enabled", true)) {
+            metrics = new PermissionMetrics(factory.getName());
+            sampler = new CallSampler(config.getInt("sampling.buffer-size", 4096),
+                    config.getInt("sampling.rate", 1024), this::pluginOf);
+            sampler.setEnabled(config.getBoolean("sampling.enabled", false));
+            stats = new PermissionStats(metrics);
+            stats.register(getLogger());
+        }
+        if (config.getBoolean("audit.enabled", false)) {
+            startAudit();
+        }
+        if (config.getBoolean("admission.enabled", false)) {
+            startAdmission();
+        }
+        getProxy().getPluginManager().registerCommand(this, new OpspermCommand(this, metrics, sampler));
+
+        activate(factory, config.getBoolean("enable-cache", false));
+        ProxyServer.getInstance().getLogger().info("✅ Permission-System erkannt: " + Permission.get().getProviderName());
     }
 
     @Override
     public void onDisable() {
+        detachChain().run();
+        for (Runnable chain : retiring) {
+            stopRetired(chain);
+        }
+        if (expiry != null) {
+            expiry.close();
+        }
+        closeBuiltin();
+        if (auditLog != null) {
+            auditLog.close();
+        }
+        if (stats != null) {
+            stats.unregister();
+        }
         ProxyServer.getInstance().getLogger().info("OpsuchtPermissions disabled.");
     }
-}
\ No newline at end of file
+
+    /**
+     * Returns the registry of the permission backends of this proxy.
+     * 
+     * @return the registry, or null if no backend was found
+     */
+    public @Nullable ProviderRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * Returns the factory of the active backend.
+     * 
+     * @return the factory, or null if no backend was found
+     */
+    public @Nullable PermissionProviderFactory getBackend() {
+        return backend;
+    }
+
+    public boolean isCacheEnabled() {
+        return cacheEnabled;
+    }
+
+    /**
+     * Returns the off-heap tier of the active cache.
+     * 
+     * @return the tier, or null if the cache or the tier is disabled
+     */
+    public @Nullable OffHeapSnapshotTier getOffHeapTier() {
+        return offHeapTier;
+    }
+
+    /**
+     * Returns the limits on pending asynchronous changes.
+     * 
+     * @return the controller, or null if admission control is disabled
+     */
+    public @Nullable AdmissionController getAdmission() {
+        return admission;
+    }
+
+    /**
+     * Returns the audit log of permission changes.
+     * 
+     * @return the log, or null if auditing is disabled
+     */
+    public @Nullable AuditLog getAuditLog() {
+        return auditLog;
+    }
+
+    /**
+     * Builds the provider chain for a backend and makes it the active
+     * provider. Can be called at runtime to switch the backend or to turn
+     * the cache on or off. The new chain is built and activated while the
+     * previous one keeps running; the components of the previous chain are
+     * stopped once the calls still running on it have finished.
+     * 
+     * @param factory  the backend to use
+     * @param useCache whether to put a cache in front of the backend
+     * @throws IllegalStateException if the backend is not available
+     */
+    public synchronized void activate(@NotNull PermissionProviderFactory factory, boolean useCache) {
+        PermissionProvider provider = factory.create();
+        PermissionProvider created = provider;
+        Runnable previousChain = detachChain();
+
+        long asyncTimeout = config.getLong("async-timeout", 0);
+        if (asyncTimeout > 0 && provider instanceof AbstractLPProvider) {
+            ((AbstractLPProvider) provider).setDefaultTimeout(Duration.ofSeconds(asyncTimeout));
+        }
+
+        boolean nativeExpiry = provider instanceof AbstractLPProvider;
+        CachedPermissionProvider cache = null;
+        if (useCache) {
+            long duration = TimeUnit.SECONDS.toMillis(config.getLong("cache-duration", 30));
+            cache = new CachedPermissionProvider(provider, duration);
+            cacheListener = new CacheListener(cache);
+            getProxy().getPluginManager().registerListener(this, cacheListener);
+            if (config.getBoolean("off-heap-cache.enabled", false)) {
+                startOffHeapTier(cache);
+            }
+            for (ProxiedPlayer player : getProxy().getPlayers()) {
+                cache.trackMember(player.getUniqueId());
+            }
+            GroupRecomputer recomputer = new GroupRecomputer(cache, config.getInt("group-recompute.batch-size", 100));
+            tasks.add(getProxy().getScheduler().schedule(this, recomputer, 50L, 50L, TimeUnit.MILLISECONDS));
+            if (provider instanceof AbstractLPProvider) {
+                AbstractLPProvider luckPerms = (AbstractLPProvider) provider;
+                subscriptions.add(luckPerms.onRecalculate(cache::refreshMember));
+                subscriptions.add(luckPerms.onGroupRecalculate(recomputer::groupChanged));
+                subscriptions.add(luckPerms.onGroupDelete(recomputer::groupChanged));
+            }
+            if (provider instanceof BuiltinPermissionProvider) {
+                builtin = (BuiltinPermissionProvider) provider;
+                cacheRefresher = new CacheRefresher(cache, recomputer);
+                builtin.addChangeListener(cacheRefresher);
+            }
+            if (config.getBoolean("sync.enabled", false)) {
+                startSync(cache);
+            }
+            if (config.getBoolean("persistent-cache.enabled", false)) {
+                startPersistence(cache, config);
+            }
+            provider = cache;
+        }
+        if (config.getBoolean("snapshot-push.enabled", false)) {
+            startSnapshotPush(provider, config.getString("snapshot-push.secret", ""));
+        }
+        // Wraps the cache, so expired nodes are invalidated like any other removal
+        if (!nativeExpiry) {
+            provider = startExpiry(provider);
+        }
+        // Outside the expiry wrapper, so temporary grants are recorded as such
+        if (auditLog != null) {
+            provider = new AuditingPermissionProvider(provider, auditLog);
+        }
+        // Outside the audit, so rejected changes are not recorded
+        if (admission != null) {
+            provider = new AdmissionControlledPermissionProvider(provider, admission, new CallerLookup(this::pluginOf));
+        }
+
+        if (metrics != null) {
+            metrics.setProviderName(provider.getProviderName());
+            metrics.setCacheStats(cache != null ? cache.getStats() : null);
+            provider = new InstrumentedPermissionProvider(provider, metrics, sampler);
+        }
+
+        backend = factory;
+        cacheEnabled = useCache;
+        String name = provider.getProviderName();
+        retiring.add(previousChain);
+        CompletableFuture<PermissionProvider> released = registry.activate(provider, DRAIN_TIMEOUT);
+        if (created instanceof UserQuery) {
+            UserQueries.replace((UserQuery) created);
+        }
+        released.whenComplete((previous, error) -> {
+            stopRetired(previousChain);
+            if (error != null) {
+                ProxyServer.getInstance().getLogger().warning("Vorheriger Provider wurde nicht rechtzeitig frei: "
+                        + error.getMessage());
+            } else if (previous != null) {
+                ProxyServer.getInstance().getLogger().info("Provider gewechselt zu " + name
+                        + (useCache ? " (mit Cache)" : ""));
+            }
+        });
+    }
+
+    /**
+     * Closes the built-in backend if it was opened, so its data is compacted
+     * before the plugin stops.
+     */
+    private void closeBuiltin() {
+        if (registry == null) {
+            return;
+        }
+        for (PermissionProviderFactory factory : registry.getFactories()) {
+            if (factory instanceof BuiltinProviderFactory) {
+                ((BuiltinProviderFactory) factory).close();
+            }
+        }
+    }
+
+    /**
+     * Detaches the components of the active provider chain, so that a new
+     * chain can be built while the current one still answers calls. The
+     * persistent cache is saved right away, so the new chain restores the
+     * latest state.
+     * 
+     * @return stops the detached components, once the chain is released
+     */
+    private Runnable detachChain() {
+        List<ScheduledTask> chainTasks = new ArrayList<>(tasks);
+        tasks.clear();
+        List<EventSubscription<?>> chainSubscriptions = new ArrayList<>(subscriptions);
+        subscriptions.clear();
+        BuiltinPermissionProvider chainBuiltin = builtin;
+        CacheRefresher chainRefresher = cacheRefresher;
+        CacheListener chainListener = cacheListener;
+        InvalidationBus chainBus = invalidationBus;
+        BungeeMessagingTransport chainTransport = transport;
+        SnapshotPushListener chainPush = snapshotPush;
+        if (persistence != null) {
+            persistence.save();
+        }
+        builtin = null;
+        cacheRefresher = null;
+        cacheListener = null;
+        invalidationBus = null;
+        transport = null;
+        snapshotPush = null;
+        persistence = null;
+        offHeapTier = null;
+
+        return () -> {
+            for (ScheduledTask task : chainTasks) {
+                task.cancel();
+            }
+            for (EventSubscription<?> subscription : chainSubscriptions) {
+                subscription.close();
+            }
+            if (chainRefresher != null) {
+                chainBuiltin.removeChangeListener(chainRefresher);
+            }
+            if (chainListener != null) {
+                getProxy().getPluginManager().unregisterListener(chainListener);
+            }
+            // Pending invalidations of the replaced cache are dropped
+            if (chainBus != null) {
+                chainBus.stop();
+                chainTransport.unregister();
+            }
+            if (chainPush != null) {
+                chainPush.unregister();
+            }
+        };
+    }
+
+    /**
+     * Stops the components of a replaced chain, unless that happened already.
+     */
+    private void stopRetired(Runnable chain) {
+        if (retiring.remove(chain)) {
+            chain.run();
+        }
+    }
+
+    /**
+     * Keeps the snapshots of players who left in direct memory, so lookups
+     * for recently seen players neither reach the backend nor fill the heap.
+     */
+    private void startOffHeapTier(CachedPermissionProvider cache) {
+        long maxMb = config.getLong("off-heap-cache.max-size-mb", 256);
+        long ttl = TimeUnit.SECONDS.toMillis(config.getLong("off-heap-cache.ttl", 900));
+        try {
+            offHeapTier = new OffHeapSnapshotTier(maxMb * 1024L * 1024L, ttl);
+        } catch (IllegalArgumentException e) {
+            ProxyServer.getInstance().getLogger().warning("Ungültige off-heap-cache-Einstellungen, "
+                    + "der Off-Heap-Cache bleibt aus: " + e.getMessage());
+            return;
+        }
+        cache.setOffHeapTier(offHeapTier);
+        ProxyServer.getInstance().getLogger().info("Off-Heap-Cache aktiv (" + maxMb + " MB)");
+    }
+
+    /**
+     * Connects the proxy cache to the servers. Pending invalidations are
+     * sent every 50 ms, matching the tick rate of the servers.
+     */
+    private void startSync(CachedPermissionProvider cache) {
+        transport = new BungeeMessagingTransport(this);
+        transport.register();
+        invalidationBus = new InvalidationBus(cache, transport, getLogger());
+        invalidationBus.start();
+        tasks.add(getProxy().getScheduler().schedule(this, invalidationBus::flush, 50L, 50L, TimeUnit.MILLISECONDS));
+        ProxyServer.getInstance().getLogger().info("Cache-Synchronisation aktiv (Kanal "
+                + BungeeMessagingTransport.CHANNEL + ")");
+    }
+
+    /**
+     * Restores the cache from disk and keeps the stored state up to date.
+     * Restored players are refreshed from the backend once it had time to
+     * load them.
+     */
+    private void startPersistence(CachedPermissionProvider cache, Configuration config) {
+        long maxAge = TimeUnit.SECONDS.toMillis(config.getLong("persistent-cache.max-age", 300));
+        long interval = config.getLong("persistent-cache.save-interval", 60);
+        SnapshotStore store = new SnapshotStore(getDataFolder().toPath().resolve("snapshots.bin"));
+        persistence = new CachePersistence(cache, store, maxAge, getLogger());
+
+        int restored = persistence.restore();
+        if (restored > 0) {
+            ProxyServer.getInstance().getLogger().info(restored + " Spieler aus dem gespeicherten Cache geladen");
+        }
+        tasks.add(getProxy().getScheduler().schedule(this, persistence::revalidate, 5L, TimeUnit.SECONDS));
+        tasks.add(getProxy().getScheduler().schedule(this, persistence::save, interval, interval, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Pushes permission snapshots to the servers players connect to.
+     */
+    private void startSnapshotPush(PermissionProvider provider, String secret) {
+        if (!(provider instanceof SnapshotSource)) {
+            ProxyServer.getInstance().getLogger().warning("snapshot-push wird von " + provider.getProviderName()
+                    + " nicht unterstützt.");
+            return;
+        }
+        if (secret == null || secret.isEmpty()) {
+            ProxyServer.getInstance().getLogger().warning("snapshot-push ist aktiv, aber kein secret gesetzt.");
+            return;
+        }
+        snapshotPush = new SnapshotPushListener(this, (SnapshotSource) provider, secret.getBytes(StandardCharsets.UTF_8));
+        snapshotPush.register();
+        ProxyServer.getInstance().getLogger().info("Permission-Snapshots aktiv (Kanal "
+                + SnapshotCodec.CHANNEL + ")");
+    }
+
+    /**
+     * Adds temporary permissions for backends without native expiry. The
+     * scheduler is shared by every provider chain, so the journal is only
+     * opened once. If it cannot be loaded, temporary permissions stay
+     * unsupported.
+     */
+    private PermissionProvider startExpiry(PermissionProvider provider) {
+        if (expiry != null) {
+            return new ExpiringPermissionProvider(provider, expiry, getLogger());
+        }
+        ExpiringPermissionProvider wrapped = new ExpiringPermissionProvider(provider,
+                getDataFolder().toPath().resolve("expiry.journal"), getLogger());
+        try {
+            wrapped.start();
+        } catch (IOException e) {
+            getLogger().log(Level.WARNING, "Ablauf-Journal konnte nicht geladen werden, "
+                    + "temporäre Rechte sind deaktiviert", e);
+            return provider;
+        }
+        expiry = wrapped.getScheduler();
+        return wrapped;
+    }
+
+    /**
+     * Opens the audit journal. It is shared by every provider chain, so it
+     * stays open across backend switches. If it cannot be opened, changes
+     * are not audited.
+     */
+    private void startAudit() {
+        AuditLog log;
+        try {
+            log = new AuditLog(getDataFolder().toPath().resolve("audit"),
+                    config.getLong("audit.segment-size-mb", 16) * 1024L * 1024L,
+                    config.getInt("audit.max-segments", 16),
+                    FsyncPolicy.parse(config.getString("audit.fsync", "periodic")),
+                    Duration.ofMillis(config.getLong("audit.fsync-interval-ms", 1000)), getLogger());
+            log.start();
+        } catch (IOException | IllegalArgumentException e) {
+            getLogger().log(Level.WARNING, "Audit-Journal konnte nicht geöffnet werden, "
+                    + "Änderungen werden nicht protokolliert", e);
+            return;
+        }
+        auditLog = log;
+    }
+
+    /**
+     * Limits pending asynchronous changes per plugin and in total. The
+     * limits are shared by every provider chain, so changes still running
+     * on a replaced chain keep their slots.
+     */
+    private void startAdmission() {
+        try {
+            admission = new AdmissionController(config.getInt("admission.max-in-flight", 256),
+                    config.getInt("admission.max-per-plugin", 64), config.getInt("admission.max-queued", 4096),
+                    OverflowPolicy.parse(config.getString("admission.policy", "queue")));
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("Ungültige admission-Einstellungen, asynchrone Änderungen sind unbegrenzt: "
+                    + e.getMessage());
+        }
+    }
+
+    /**
+     * Loads config.yml from the data folder, copying the default on first start.
+     * Falls back to an empty configuration if the file cannot be read.
+     */
+    private Configuration loadConfig() {
+        File file = new File(getDataFolder(), "config.yml");
+        try {
+            if (!file.exists()) {
+                Files.createDirectories(getDataFolder().toPath());
+                try (InputStream in = getResourceAsStream("config.yml")) {
+                    Files.copy(in, file.toPath());
+                }
+            }
+            return ConfigurationProvider.getProvider(YamlConfiguration.class).load(file);
+        } catch (IOException e) {
+            ProxyServer.getInstance().getLogger().warning("Konfiguration konnte nicht geladen werden: " + e.getMessage());
+            return new Configuration();
+        }
+    }
+
+    /**
+     * Returns the name of the plugin a class loader belongs to.
+     */
+    private @Nullable String pluginOf(ClassLoader loader) {
+        for (Plugin plugin : getProxy().getPluginManager().getPlugins()) {
+            if (plugin.getClass().getClassLoader() == loader) {
+                return plugin.getDescription().getName();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,268 @@
+package net.opsucht.permission.bungee.command;
+
+import net.md_5.bungee.api.CommandSender;
+import net.md_5.bungee.api.chat.TextComponent;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.Command;
+import net.opsucht.permission.bungee.Bungee;
+import net.opsucht.permission.common.admission.AdmissionController;
+import net.opsucht.permission.common.audit.AuditLog;
+import net.opsucht.permission.common.audit.AuditRecord;
+import net.opsucht.permission.common.cache.OffHeapSnapshotTier;
+import net.opsucht.permission.common.metrics.CallSampler;
+import net.opsucht.permission.common.metrics.PermissionMetrics;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * The {@code /opsperm} admin command of the proxy.
+ * 
+ * <ul>
+ * <li>{@code /opsperm stats [reset]} shows or clears call counts, latencies,
+ * cache statistics and the state of admission control.</li>
+ * <li>{@code /opsperm sample <on|off|rate <n>|report [n]|clear>} controls
+ * caller sampling and shows the top callers and nodes.</li>
+ * <li>{@code /opsperm provider [name]} shows the available backends or
+ * switches to another one without a restart.</li>
+ * <li>{@code /opsperm cache <on|off>} puts a cache in front of the active
+ * backend or removes it.</li>
+ * <li>{@code /opsperm audit <player|uuid> [n]} shows the latest recorded
+ * permission changes of a player. The journal is read asynchronously.</li>
+ * </ul>
+ * 
+ * @since 1.0.0
+ */
+public final class OpspermCommand extends Command {
+
+    private static final int DEFAULT_REPORT_SIZE = 10;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")
+            .withZone(ZoneId.systemDefault());
+
+    private final Bungee plugin;
+    private final @Nullable PermissionMetrics metrics;
+    private final @Nullable CallSampler sampler;
+
+    /**
+     * @param plugin  the plugin that owns the provider chain
+     * @param metrics the metrics to report, or null if metrics are disabled
+     * @param sampler the caller sampler, or null if metrics are disabled
+     */
+    public OpspermCommand(@NotNull Bungee plugin, @Nullable PermissionMetrics metrics,
+            @Nullable CallSampler sampler) {
+        super("opsperm", "opsperm.admin");
+        this.plugin = plugin;
+        this.metrics = metrics;
+        this.sampler = sampler;
+    }
+
+    @Override
+    public void execute(CommandSender sender, String[] args) {
+        if (args.length > 0 && args[0].equalsIgnoreCase("stats")) {
+            stats(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("sample")) {
+            sample(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("provider")) {
+            provider(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("cache")) {
+            cache(sender, args);
+        } else if (args.length > 0 && args[0].equalsIgnoreCase("audit")) {
+            audit(sender, args);
+        } else {
+            send(sender, "§cVerwendung: /opsperm <stats [reset]|sample <on|off|rate|report|clear>"
+                    + "|provider [name]|cache <on|off>|audit <spieler> [anzahl]>");
+        }
+    }
+
+    private void stats(CommandSender sender, String[] args) {
+        if (metrics == null) {
+            send(sender, "§cMetriken sind deaktiviert (metrics.enabled in der config.yml).");
+            return;
+        }
+        if (args.length > 1 && args[1].equalsIgnoreCase("reset")) {
+            metrics.reset();
+            send(sender, "§aStatistiken zurückgesetzt.");
+            return;
+        }
+        send(sender, "§6OPSucht Permission-Statistiken");
+        for (String line : metrics.report()) {
+            send(sender, "§7" + line);
+        }
+        OffHeapSnapshotTier tier = plugin.getOffHeapTier();
+        if (tier != null) {
+            send(sender, String.format(Locale.ROOT, "§7Off-Heap-Cache: %d Spieler, %.1f von %d MB belegt, "
+                    + "%d Treffer, %d Fehlschläge, %d verdrängt", tier.size(), tier.getUsedBytes() / 1048576.0,
+                    tier.getMaxBytes() / 1048576, tier.getHits(), tier.getMisses(), tier.getEvictions()));
+        }
+        AdmissionController admission = plugin.getAdmission();
+        if (admission != null) {
+            for (String line : admission.report()) {
+                send(sender, "§7" + line);
+            }
+        }
+    }
+
+    private void sample(CommandSender sender, String[] args) {
+        if (sampler == null) {
+            send(sender, "§cMetriken sind deaktiviert (metrics.enabled in der config.yml).");
+            return;
+        }
+        String action = args.length > 1 ? args[1].toLowerCase() : "report";
+        switch (action) {
+            case "on":
+                sampler.setEnabled(true);
+                send(sender, "§aSampling aktiviert (1 von " + sampler.getRate() + " Aufrufen).");
+                break;
+            case "off":
+                sampler.setEnabled(false);
+                send(sender, "§aSampling deaktiviert.");
+                break;
+            case "clear":
+                sampler.clear();
+                send(sender, "§aSamples gelöscht.");
+                break;
+            case "rate":
+                try {
+                    sampler.setRate(Integer.parseInt(args.length > 2 ? args[2] : ""));
+                    send(sender, "§aSampling-Rate: 1 von " + sampler.getRate() + " Aufrufen.");
+                } catch (IllegalArgumentException e) {
+                    send(sender, "§cDie Rate muss eine Zweierpotenz sein, z. B. 1024.");
+                }
+                break;
+            case "report":
+                int limit = DEFAULT_REPORT_SIZE;
+                if (args.length > 2) {
+                    try {
+                        limit = Math.max(1, Integer.parseInt(args[2]));
+                    } catch (NumberFormatException e) {
+                        send(sender, "§cUngültige Anzahl: " + args[2]);
+                        return;
+                    }
+                }
+                send(sender, "§6OPSucht Aufrufer-Sampling");
+                for (String line : sampler.report(limit)) {
+                    send(sender, "§7" + line);
+                }
+                break;
+            default:
+                send(sender, "§cVerwendung: /opsperm sample <on|off|rate <n>|report [n]|clear>");
+        }
+    }
+
+    private void provider(CommandSender sender, String[] args) {
+        if (args.length < 2) {
+            send(sender, "§6Aktiver Provider: §f" + plugin.getBackend().getName()
+                    + (plugin.isCacheEnabled() ? " (mit Cache)" : ""));
+            for (PermissionProviderFactory factory : plugin.getRegistry().getFactories()) {
+                send(sender, "§7  " + factory.getName() + (factory.isAvailable() ? "" : " §c(nicht verfügbar)"));
+            }
+            return;
+        }
+        PermissionProviderFactory factory = plugin.getRegistry().getFactory(args[1]);
+        if (factory == null) {
+            send(sender, "§cUnbekannter Provider: " + args[1]);
+            return;
+        }
+        if (!factory.isAvailable()) {
+            send(sender, "§c" + factory.getName() + " ist nicht verfügbar.");
+            return;
+        }
+        switchTo(sender, factory, plugin.isCacheEnabled());
+    }
+
+    private void cache(CommandSender sender, String[] args) {
+        String action = args.length > 1 ? args[1].toLowerCase() : "";
+        switch (action) {
+            case "on":
+                switchTo(sender, plugin.getBackend(), true);
+                break;
+            case "off":
+                switchTo(sender, plugin.getBackend(), false);
+                break;
+            default:
+                send(sender, "§cVerwendung: /opsperm cache <on|off>");
+        }
+    }
+
+    private void audit(CommandSender sender, String[] args) {
+        AuditLog log = plugin.getAuditLog();
+        if (log == null) {
+            send(sender, "§cDas Audit-Journal ist deaktiviert (audit.enabled in der config.yml).");
+            return;
+        }
+        if (args.length < 2) {
+            send(sender, "§cVerwendung: /opsperm audit <spieler|uuid> [anzahl]");
+            return;
+        }
+        UUID uuid = resolvePlayer(args[1]);
+        if (uuid == null) {
+            send(sender, "§cUnbekannter Spieler: " + args[1]);
+            return;
+        }
+        int limit = DEFAULT_REPORT_SIZE;
+        if (args.length > 2) {
+            try {
+                limit = Math.max(1, Integer.parseInt(args[2]));
+            } catch (NumberFormatException e) {
+                send(sender, "§cUngültige Anzahl: " + args[2]);
+                return;
+            }
+        }
+
+        int count = limit;
+        plugin.getProxy().getScheduler().runAsync(plugin, () -> {
+            List<AuditRecord> records;
+            try {
+                records = log.reader().tail(uuid, count);
+            } catch (IOException e) {
+                send(sender, "§cAudit-Journal konnte nicht gelesen werden: " + e.getMessage());
+                return;
+            }
+            send(sender, "§6Letzte Änderungen von " + args[1] + " (" + records.size() + ")");
+            for (AuditRecord record : records) {
+                send(sender, "§7" + TIME.format(Instant.ofEpochMilli(record.getTimestamp())) + " §f"
+                        + record.getAction().getDisplayName() + " " + record.getPermission()
+                        + (record.getExpiresAt() != 0
+                                ? " §7bis " + TIME.format(Instant.ofEpochMilli(record.getExpiresAt())) : "")
+                        + " §8[" + record.getThread() + "]");
+            }
+        });
+    }
+
+    /**
+     * Resolves an online player or a UUID.
+     */
+    private @Nullable UUID resolvePlayer(String name) {
+        ProxiedPlayer online = plugin.getProxy().getPlayer(name);
+        if (online != null) {
+            return online.getUniqueId();
+        }
+        try {
+            return UUID.fromString(name);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private void switchTo(CommandSender sender, PermissionProviderFactory factory, boolean cache) {
+        try {
+            plugin.activate(factory, cache);
+        } catch (RuntimeException e) {
+            send(sender, "§cWechsel fehlgeschlagen: " + e.getMessage());
+            return;
+        }
+        send(sender, "§aAktiver Provider: " + factory.getName() + (cache ? " (mit Cache)" : ""));
+    }
+
+    private static void send(CommandSender sender, String message) {
+        sender.sendMessage(TextComponent.fromLegacy(message));
+    }
+}
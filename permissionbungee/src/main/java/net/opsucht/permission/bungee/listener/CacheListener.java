@@ -0,0 +1,38 @@
+package net.opsucht.permission.bungee.listener;
+
+import net.md_5.bungee.api.event.PlayerDisconnectEvent;
+import net.md_5.bungee.api.event.PostLoginEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Drops cached state of players leaving the network and keeps the group
+ * index of the cache in step with the players online.
+ * 
+ * <p>With an off-heap tier, the snapshot of a leaving player is kept there
+ * instead of being dropped, and moved back to the heap on the next login.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CacheListener implements Listener {
+
+    private final CachedPermissionProvider cache;
+
+    public CacheListener(@NotNull CachedPermissionProvider cache) {
+        this.cache = cache;
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onPostLogin(PostLoginEvent event) {
+        cache.trackMember(event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onDisconnect(PlayerDisconnectEvent event) {
+        cache.untrackMember(event.getPlayer().getUniqueId());
+        cache.demoteUser(event.getPlayer().getUniqueId());
+    }
+}
@@ -1,9 +1,15 @@
 package net.opsucht.permission.bungee.provider;
 
 import net.luckperms.api.LuckPerms;
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
 import net.opsucht.permission.common.provider.AbstractLPProvider;
 import org.jetbrains.annotations.NotNull;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 /**
@@ -35,4 +41,13 @@ public final class LPProvider extends AbstractLPProvider {
     protected Logger getLogger() {
         return logger;
     }
+
+    @Override
+    protected @NotNull Collection<UUID> getOnlinePlayers() {
+        List<UUID> uuids = new ArrayList<>();
+        for (ProxiedPlayer player : ProxyServer.getInstance().getPlayers()) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
 }
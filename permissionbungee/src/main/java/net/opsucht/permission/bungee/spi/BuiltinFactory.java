@@ -0,0 +1,48 @@
+package net.opsucht.permission.bungee.spi;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.opsucht.permission.common.builtin.BuiltinPermissionProvider;
+import net.opsucht.permission.common.builtin.BuiltinProviderFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Creates the {@link BuiltinPermissionProvider}, which keeps its data in
+ * the {@code builtin} folder of the plugin. Always available, so it serves
+ * as the fallback of a proxy without LuckPerms.
+ * 
+ * @since 1.0.0
+ */
+public final class BuiltinFactory extends BuiltinProviderFactory {
+
+    @Override
+    protected @NotNull Path getDirectory() {
+        return plugin().getDataFolder().toPath().resolve("builtin");
+    }
+
+    @Override
+    protected @NotNull Logger getLogger() {
+        return plugin().getLogger();
+    }
+
+    @Override
+    protected @NotNull Collection<UUID> getOnlinePlayers() {
+        List<UUID> uuids = new ArrayList<>();
+        for (ProxiedPlayer player : ProxyServer.getInstance().getPlayers()) {
+            uuids.add(player.getUniqueId());
+        }
+        return uuids;
+    }
+
+    private static Plugin plugin() {
+        return ProxyServer.getInstance().getPluginManager().getPlugin("opsucht-permission");
+    }
+}
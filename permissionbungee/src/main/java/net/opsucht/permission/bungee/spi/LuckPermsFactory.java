@@ -0,0 +1,34 @@
+package net.opsucht.permission.bungee.spi;
+
+import net.luckperms.api.LuckPermsProvider;
+import net.md_5.bungee.api.ProxyServer;
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.bungee.provider.LPProvider;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the {@link LPProvider} of the proxy.
+ * 
+ * @since 1.0.0
+ */
+public final class LuckPermsFactory implements PermissionProviderFactory {
+
+    @Override
+    public @NotNull String getName() {
+        return "LuckPerms";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return ProxyServer.getInstance().getPluginManager().getPlugin("LuckPerms") != null;
+    }
+
+    /**
+     * @throws IllegalStateException if LuckPerms has not finished loading
+     */
+    @Override
+    public @NotNull PermissionProvider create() {
+        return new LPProvider(LuckPermsProvider.get(), ProxyServer.getInstance().getLogger());
+    }
+}
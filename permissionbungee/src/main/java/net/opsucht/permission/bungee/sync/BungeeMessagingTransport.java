@@ -0,0 +1,89 @@
+package net.opsucht.permission.bungee.sync;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.PluginMessageEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+import net.opsucht.permission.common.sync.InvalidationTransport;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.function.Consumer;
+
+/**
+ * Invalidation transport over the BungeeCord plugin messaging channel.
+ * 
+ * <p>
+ * The proxy is the hub of the network: frames from a server are applied to
+ * the proxy's cache and relayed to every other server. Frames on the channel
+ * are never passed through, and frames sent by clients are ignored.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class BungeeMessagingTransport implements InvalidationTransport, Listener {
+
+    private final Plugin plugin;
+    private volatile Consumer<byte[]> receiver = frame -> {
+    };
+
+    public BungeeMessagingTransport(@NotNull Plugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Registers the channel and the message listener.
+     */
+    public void register() {
+        ProxyServer.getInstance().registerChannel(CHANNEL);
+        ProxyServer.getInstance().getPluginManager().registerListener(plugin, this);
+    }
+
+    /**
+     * Unregisters the message listener. The channel stays registered, since
+     * the transport of a new provider chain may already be using it.
+     */
+    public void unregister() {
+        ProxyServer.getInstance().getPluginManager().unregisterListener(this);
+    }
+
+    @Override
+    public void send(byte @NotNull [] frame) {
+        relay(frame, null);
+    }
+
+    @Override
+    public void setReceiver(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+    }
+
+    @EventHandler
+    public void onPluginMessage(PluginMessageEvent event) {
+        if (!CHANNEL.equals(event.getTag())) {
+            return;
+        }
+        event.setCancelled(true);
+
+        if (!(event.getSender() instanceof Server)) {
+            return;
+        }
+        byte[] frame = event.getData();
+        receiver.accept(frame);
+        relay(frame, ((Server) event.getSender()).getInfo());
+    }
+
+    /**
+     * Sends a frame to all servers with players, except its origin.
+     * Servers without players have nothing cached for online players.
+     */
+    private void relay(byte[] frame, @Nullable ServerInfo origin) {
+        for (ServerInfo server : ProxyServer.getInstance().getServers().values()) {
+            if (!server.equals(origin) && !server.getPlayers().isEmpty()) {
+                server.sendData(CHANNEL, frame, false);
+            }
+        }
+    }
+}
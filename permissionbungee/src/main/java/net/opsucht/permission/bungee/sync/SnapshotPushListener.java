@@ -0,0 +1,83 @@
+package net.opsucht.permission.bungee.sync;
+
+import net.md_5.bungee.api.ProxyServer;
+import net.md_5.bungee.api.event.PluginMessageEvent;
+import net.md_5.bungee.api.event.ServerConnectedEvent;
+import net.md_5.bungee.api.plugin.Listener;
+import net.md_5.bungee.api.plugin.Plugin;
+import net.md_5.bungee.event.EventHandler;
+import net.md_5.bungee.event.EventPriority;
+import net.opsucht.permission.common.snapshot.SnapshotCodec;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import net.opsucht.permission.common.sync.InvalidationCodec;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Pushes the resolved permissions of a player to the server the player
+ * connects to.
+ * 
+ * <p>
+ * The proxy has already loaded the player, so the snapshot is available
+ * without I/O. It is resolved for the context of the target server, which
+ * installs it provisionally into its cache and can answer the first
+ * permission checks before its own backend has loaded the player. The
+ * frame is sent over the player's own connection once it is established,
+ * since the server only accepts the snapshot of the player whose connection
+ * carried it. Frames are signed with the shared secret, and the channel is never passed
+ * through between clients and servers.
+ * </p>
+ * 
+ * @since 1.0.0
+ */
+public final class SnapshotPushListener implements Listener {
+
+    private final Plugin plugin;
+    private final SnapshotSource source;
+    private final byte[] key;
+
+    public SnapshotPushListener(@NotNull Plugin plugin, @NotNull SnapshotSource source, byte @NotNull [] key) {
+        this.plugin = plugin;
+        this.source = source;
+        this.key = key.clone();
+    }
+
+    /**
+     * Registers the channel and the listener.
+     */
+    public void register() {
+        ProxyServer.getInstance().registerChannel(SnapshotCodec.CHANNEL);
+        ProxyServer.getInstance().getPluginManager().registerListener(plugin, this);
+    }
+
+    /**
+     * Unregisters the listener. The channel stays registered, so it is
+     * still never passed through, and the listener of a new provider chain
+     * may already be using it.
+     */
+    public void unregister() {
+        ProxyServer.getInstance().getPluginManager().unregisterListener(this);
+    }
+
+    @EventHandler(priority = EventPriority.HIGHEST)
+    public void onServerConnected(ServerConnectedEvent event) {
+        UserSnapshot snapshot = source.snapshot(event.getPlayer().getUniqueId(), event.getServer().getInfo().getName());
+        if (snapshot == null) {
+            return;
+        }
+        byte[] frame = SnapshotCodec.encodeSigned(snapshot, key);
+        if (frame.length > InvalidationCodec.MAX_FRAME_SIZE) {
+            plugin.getLogger().fine("Snapshot of " + snapshot.getUuid() + " too large to push (" + frame.length + " bytes)");
+            return;
+        }
+        event.getServer().sendData(SnapshotCodec.CHANNEL, frame);
+    }
+
+    @EventHandler
+    public void onPluginMessage(PluginMessageEvent event) {
+        if (SnapshotCodec.CHANNEL.equals(event.getTag())) {
+            // Snapshots only flow from the proxy to servers
+            event.setCancelled(true);
+        }
+    }
+}
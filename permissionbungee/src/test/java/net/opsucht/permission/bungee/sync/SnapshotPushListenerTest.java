@@ -0,0 +1,103 @@
+package net.opsucht.permission.bungee.sync;
+
+import net.md_5.bungee.api.config.ServerInfo;
+import net.md_5.bungee.api.connection.ProxiedPlayer;
+import net.md_5.bungee.api.connection.Server;
+import net.md_5.bungee.api.event.ServerConnectedEvent;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.SnapshotCodec;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for pushing snapshots to the server a player connects to.
+ */
+class SnapshotPushListenerTest {
+
+    private static final UUID PLAYER = new UUID(0L, 1L);
+    private static final UUID OTHER = new UUID(0L, 2L);
+    private static final byte[] KEY = "secret".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldPushThroughPlayersOwnConnectionToPopulatedServer() {
+        List<byte[]> viaConnection = new ArrayList<>();
+        List<byte[]> viaServer = new ArrayList<>();
+        List<String> resolvedFor = new ArrayList<>();
+
+        ProxiedPlayer player = player(PLAYER);
+        ServerInfo lobby = fake(ServerInfo.class, (method, args) -> {
+            switch (method) {
+                case "getName":
+                    return "lobby";
+                case "getPlayers":
+                    return List.of(player(OTHER));
+                case "sendData":
+                    viaServer.add((byte[]) args[1]);
+                    return true;
+                default:
+                    return null;
+            }
+        });
+        Server connection = fake(Server.class, (method, args) -> {
+            switch (method) {
+                case "getInfo":
+                    return lobby;
+                case "sendData":
+                    viaConnection.add((byte[]) args[1]);
+                    return null;
+                default:
+                    return null;
+            }
+        });
+        SnapshotSource source = new SnapshotSource() {
+            @Override
+            public UserSnapshot snapshot(UUID uuid) {
+                return snapshot(uuid, "proxy");
+            }
+
+            @Override
+            public UserSnapshot snapshot(UUID uuid, String server) {
+                resolvedFor.add(server);
+                return new UserSnapshot(uuid, PermissionSet.of(Map.of("lobby.fly", true)), Set.of("default"),
+                        "default", System.currentTimeMillis());
+            }
+        };
+
+        // The plugin is only needed to register the listener
+        SnapshotPushListener listener = new SnapshotPushListener(null, source, KEY);
+        listener.onServerConnected(new ServerConnectedEvent(player, connection));
+
+        assertEquals(List.of("lobby"), resolvedFor, "The snapshot should be resolved for the target server");
+        assertTrue(viaServer.isEmpty(), "ServerInfo.sendData may go through any other player on the server");
+        assertEquals(1, viaConnection.size());
+        assertEquals(PLAYER, SnapshotCodec.decodeSigned(viaConnection.get(0), KEY).getUuid());
+    }
+
+    private static ProxiedPlayer player(UUID uuid) {
+        return fake(ProxiedPlayer.class, (method, args) -> method.equals("getUniqueId") ? uuid : null);
+    }
+
+    private static <T> T fake(Class<T> type, Answer answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> answer.answer(method.getName(), args)));
+    }
+
+    /**
+     * Answers a call on a fake by method name.
+     */
+    private interface Answer {
+
+        Object answer(String method, Object[] args);
+    }
+}
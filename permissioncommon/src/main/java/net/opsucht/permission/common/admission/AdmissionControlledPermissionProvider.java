@@ -0,0 +1,72 @@
+package net.opsucht.permission.common.admission;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.metrics.CallerLookup;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Passes asynchronous permission changes through an
+ * {@link AdmissionController}, attributing each to the calling plugin.
+ * 
+ * <p>Synchronous changes are not limited: they already hold the calling
+ * thread until they are done. Permission checks are not affected.</p>
+ * 
+ * @since 1.0.0
+ */
+public class AdmissionControlledPermissionProvider extends ForwardingPermissionProvider {
+
+    private final AdmissionController controller;
+    private final CallerLookup callers;
+
+    /**
+     * @param delegate the provider to forward to
+     * @param controller the limits to apply
+     * @param callers finds the plugin a change comes from
+     */
+    public AdmissionControlledPermissionProvider(@NotNull PermissionProvider delegate,
+            @NotNull AdmissionController controller, @NotNull CallerLookup callers) {
+        super(delegate);
+        this.controller = controller;
+        this.callers = callers;
+    }
+
+    public @NotNull AdmissionController getController() {
+        return controller;
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return controller.submit(callers.find(), uuid, permission, () -> delegate.addAsync(uuid, permission));
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return controller.submit(callers.find(), uuid, permission,
+                () -> delegate.addAsync(uuid, permission, timeout));
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return controller.submit(callers.find(), uuid, permission,
+                () -> delegate.addTemporaryAsync(uuid, permission, duration));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return controller.submit(callers.find(), uuid, permission, () -> delegate.removeAsync(uuid, permission));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return controller.submit(callers.find(), uuid, permission,
+                () -> delegate.removeAsync(uuid, permission, timeout));
+    }
+}
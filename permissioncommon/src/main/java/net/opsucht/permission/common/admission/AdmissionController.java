@@ -0,0 +1,261 @@
+package net.opsucht.permission.common.admission;
+
+import net.opsucht.permission.api.PermissionRejectedException;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Limits the number of asynchronous permission changes that are pending at
+ * the same time.
+ * 
+ * <p>A change holds a slot from the moment it is started until its future
+ * completes. Two limits apply: one for all changes together and one per
+ * calling plugin, so a single plugin cannot use up every slot. A change
+ * beyond either limit is handled according to the {@link OverflowPolicy}.
+ * Queued changes are held per plugin and started in turns, one per plugin
+ * and round, whenever slots free up, so a plugin with a long queue does not
+ * delay the changes of others.</p>
+ * 
+ * <p>Admission is lock-free: a change that fits costs two atomic increments
+ * and a map lookup. Changes whose future never completes keep their slot,
+ * so the backend should apply a deadline.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class AdmissionController {
+
+    private final int maxInFlight;
+    private final int maxPerCaller;
+    private final int maxQueued;
+    private final OverflowPolicy policy;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger drainRequests = new AtomicInteger();
+    private final Map<String, Caller> callers = new ConcurrentHashMap<>();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder delayed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder ranByCaller = new LongAdder();
+
+    /**
+     * @param maxInFlight the maximum number of pending changes
+     * @param maxPerCaller the maximum number of pending changes per plugin
+     * @param maxQueued the maximum number of queued changes, used by
+     *                  {@link OverflowPolicy#QUEUE}
+     * @param policy what to do with changes beyond a limit
+     * @throws IllegalArgumentException if a limit is not positive
+     */
+    public AdmissionController(int maxInFlight, int maxPerCaller, int maxQueued, @NotNull OverflowPolicy policy) {
+        if (maxInFlight < 1 || maxPerCaller < 1 || maxQueued < 0) {
+            throw new IllegalArgumentException("Limits must be positive");
+        }
+        this.maxInFlight = maxInFlight;
+        this.maxPerCaller = maxPerCaller;
+        this.maxQueued = maxQueued;
+        this.policy = policy;
+    }
+
+    /**
+     * Starts a change if the limits allow it, and otherwise queues,
+     * rejects or runs it on the calling thread.
+     * 
+     * @param caller the plugin the change is attributed to
+     * @param uuid the player whose permission is changed
+     * @param permission the permission node
+     * @param change starts the change on the backend
+     * @return completes when the change is done; completes exceptionally
+     *         with a {@link PermissionRejectedException} if it was rejected
+     */
+    public @NotNull CompletableFuture<Void> submit(@NotNull String caller, @NotNull UUID uuid,
+            @NotNull String permission, @NotNull Supplier<CompletableFuture<Void>> change) {
+        Caller state = callers.computeIfAbsent(caller, Caller::new);
+        // Queued changes of the same plugin go first
+        if (state.queue.isEmpty() && tryAcquire(state)) {
+            admitted.increment();
+            return start(state, change);
+        }
+
+        switch (policy) {
+            case QUEUE:
+                if (queued.incrementAndGet() > maxQueued) {
+                    queued.decrementAndGet();
+                    return reject(caller, uuid, permission, "queue full (" + maxQueued + ")");
+                }
+                Pending pending = new Pending(change);
+                state.queue.add(pending);
+                delayed.increment();
+                drain();
+                return pending.result;
+            case CALLER_RUNS:
+                ranByCaller.increment();
+                try {
+                    change.get().join();
+                    return CompletableFuture.completedFuture(null);
+                } catch (CompletionException e) {
+                    return CompletableFuture.failedFuture(e.getCause());
+                } catch (RuntimeException e) {
+                    return CompletableFuture.failedFuture(e);
+                }
+            default:
+                return reject(caller, uuid, permission, state.inFlight.get() >= maxPerCaller
+                        ? "per-plugin limit (" + maxPerCaller + ")"
+                        : "limit (" + maxInFlight + ")");
+        }
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Formats the limits and counters for the stats command.
+     * 
+     * @return the report lines
+     */
+    public @NotNull List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "Async-Änderungen: %d laufend (max. %d, %d pro Plugin), "
+                + "%d wartend, Richtlinie %s", getInFlight(), maxInFlight, maxPerCaller, getQueued(),
+                policy.name().toLowerCase(Locale.ROOT)));
+        lines.add(String.format(Locale.ROOT, "  %d sofort, %d verzögert, %d abgelehnt, %d im Aufrufer",
+                admitted.sum(), delayed.sum(), getRejected(), ranByCaller.sum()));
+        for (Caller state : callers.values()) {
+            int running = state.inFlight.get();
+            int waiting = state.queue.size();
+            if (running > 0 || waiting > 0) {
+                lines.add(String.format(Locale.ROOT, "  %s: %d laufend, %d wartend", state.name, running, waiting));
+            }
+        }
+        return lines;
+    }
+
+    private boolean tryAcquire(Caller state) {
+        if (state.inFlight.incrementAndGet() > maxPerCaller) {
+            state.inFlight.decrementAndGet();
+            return false;
+        }
+        if (inFlight.incrementAndGet() > maxInFlight) {
+            inFlight.decrementAndGet();
+            state.inFlight.decrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    private void release(Caller state) {
+        state.inFlight.decrementAndGet();
+        inFlight.decrementAndGet();
+        if (queued.get() > 0) {
+            drain();
+        }
+    }
+
+    private CompletableFuture<Void> start(Caller state, Supplier<CompletableFuture<Void>> change) {
+        CompletableFuture<Void> future;
+        try {
+            future = change.get();
+        } catch (RuntimeException e) {
+            release(state);
+            return CompletableFuture.failedFuture(e);
+        }
+        future.whenComplete((ignored, error) -> release(state));
+        return future;
+    }
+
+    /**
+     * Starts queued changes while slots are free, taking one change per
+     * plugin and round. Only one thread drains at a time; a request made
+     * meanwhile, including one from a change that completed right away,
+     * makes it run another pass instead of recursing.
+     */
+    private void drain() {
+        if (drainRequests.getAndIncrement() != 0) {
+            return;
+        }
+        int missed = 1;
+        do {
+            drainPass();
+            missed = drainRequests.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private void drainPass() {
+        boolean progress = true;
+        while (progress && queued.get() > 0) {
+            progress = false;
+            for (Caller state : callers.values()) {
+                if (state.queue.isEmpty() || !tryAcquire(state)) {
+                    continue;
+                }
+                Pending pending = state.queue.poll();
+                if (pending == null) {
+                    // Another thread took it in the meantime
+                    release(state);
+                    continue;
+                }
+                queued.decrementAndGet();
+                progress = true;
+                start(state, pending.change).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        pending.result.completeExceptionally(error instanceof CompletionException
+                                ? error.getCause() : error);
+                    } else {
+                        pending.result.complete(null);
+                    }
+                });
+            }
+        }
+    }
+
+    private CompletableFuture<Void> reject(String caller, UUID uuid, String permission, String reason) {
+        rejected.increment();
+        return CompletableFuture.failedFuture(new PermissionRejectedException(uuid, permission, caller, reason));
+    }
+
+    /**
+     * The slots and queue of one plugin.
+     */
+    private static final class Caller {
+        private final String name;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+
+        Caller(String name) {
+            this.name = name;
+        }
+    }
+
+    /**
+     * A queued change and the future handed to its caller.
+     */
+    private static final class Pending {
+        private final Supplier<CompletableFuture<Void>> change;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        Pending(Supplier<CompletableFuture<Void>> change) {
+            this.change = change;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package net.opsucht.permission.common.admission;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * What an {@link AdmissionController} does with a change that exceeds a
+ * limit.
+ * 
+ * @since 1.0.0
+ */
+public enum OverflowPolicy {
+
+    /**
+     * Fail the change right away with a
+     * {@link net.opsucht.permission.api.PermissionRejectedException}.
+     */
+    REJECT,
+
+    /**
+     * Hold the change until a slot is free. Only a bounded number of
+     * changes is held; beyond that, changes are rejected.
+     */
+    QUEUE,
+
+    /**
+     * Apply the change on the calling thread and wait for it, which slows
+     * the caller down to the speed of the storage. Blocks the server's main
+     * thread if called from there.
+     */
+    CALLER_RUNS;
+
+    /**
+     * Parses a policy name as used in the configuration, such as
+     * {@code caller-runs}.
+     * 
+     * @param name the name, case-insensitive
+     * @return the policy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static @NotNull OverflowPolicy parse(@NotNull String name) {
+        return valueOf(name.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+    }
+}
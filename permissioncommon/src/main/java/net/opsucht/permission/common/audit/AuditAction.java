@@ -0,0 +1,66 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The mutations recorded in the audit journal.
+ * 
+ * @since 1.0.0
+ */
+public enum AuditAction {
+
+    ADD(1, "add"),
+    ADD_ASYNC(2, "addAsync"),
+    ADD_TEMPORARY(3, "addTemporary"),
+    REMOVE(4, "remove"),
+    REMOVE_ASYNC(5, "removeAsync");
+
+    private static final AuditAction[] BY_ID = new AuditAction[6];
+
+    static {
+        for (AuditAction action : values()) {
+            BY_ID[action.id] = action;
+        }
+    }
+
+    private final int id;
+    private final String displayName;
+
+    AuditAction(int id, String displayName) {
+        this.id = id;
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the stable ID written to the journal.
+     * 
+     * @return the ID
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the name of the provider method, as shown in query results.
+     * 
+     * @return the display name
+     */
+    public @NotNull String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * Returns the action with a journal ID.
+     * 
+     * @param id the ID
+     * @return the action
+     * @throws IllegalArgumentException if the ID is unknown
+     */
+    public static @NotNull AuditAction byId(int id) {
+        AuditAction action = id >= 0 && id < BY_ID.length ? BY_ID[id] : null;
+        if (action == null) {
+            throw new IllegalArgumentException("Unknown audit action: " + id);
+        }
+        return action;
+    }
+}
@@ -0,0 +1,238 @@
+package net.opsucht.permission.common.audit;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only audit journal, split into numbered segment files.
+ * 
+ * <p>Records are framed like the expiry journal: length, CRC32, body. A
+ * record torn by a crash is cut off when the journal is opened again, so
+ * new records never follow a torn one. Once a segment has reached the
+ * configured size, the next batch starts a new segment and the oldest
+ * segments beyond the configured count are deleted. A segment can exceed
+ * the size by one batch.</p>
+ * 
+ * <p>Not thread-safe; only the writer thread of {@link AuditLog} uses it.</p>
+ * 
+ * @since 1.0.0
+ */
+final class AuditJournal implements AutoCloseable {
+
+    static final int MAGIC = 0x4F505341; // "OPSA"
+    static final byte VERSION = 1;
+    static final int HEADER_SIZE = 5;
+    static final int RECORD_HEADER_SIZE = 8;
+    static final int MAX_RECORD_SIZE = 64 * 1024;
+
+    private static final String PREFIX = "audit-";
+    private static final String SUFFIX = ".log";
+
+    private final Path directory;
+    private final long segmentSize;
+    private final int maxSegments;
+    private final BinaryWriter pending = new BinaryWriter(8192);
+    private FileChannel channel;
+    private long position;
+    private int sequence;
+    private boolean dirty;
+
+    AuditJournal(@NotNull Path directory, long segmentSize, int maxSegments) {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.maxSegments = maxSegments;
+    }
+
+    /**
+     * Opens the newest segment for appending, cutting off a torn tail, or
+     * starts the first segment.
+     * 
+     * @throws IOException if the directory or segment cannot be opened
+     */
+    void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> segments = segments(directory);
+        if (segments.isEmpty()) {
+            startSegment(1);
+            return;
+        }
+
+        Path last = segments.get(segments.size() - 1);
+        sequence = sequenceOf(last);
+        long valid;
+        try (SegmentCursor cursor = SegmentCursor.open(last)) {
+            while (cursor.next() != null) {
+                // Only the end of the last complete record is needed
+            }
+            valid = cursor.getOffset();
+        } catch (IOException e) {
+            // Not a readable segment; leave it for inspection and start over
+            startSegment(sequence + 1);
+            return;
+        }
+        channel = FileChannel.open(last, StandardOpenOption.WRITE);
+        channel.truncate(valid);
+        channel.position(valid);
+        position = valid;
+    }
+
+    /**
+     * Buffers a record.
+     * 
+     * @param record the record
+     * @return false if the record is too large to be journaled
+     */
+    boolean append(@NotNull AuditRecord record) {
+        byte[] body = encode(record);
+        if (body.length > MAX_RECORD_SIZE) {
+            return false;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        pending.writeInt(body.length).writeInt((int) crc.getValue()).writeBytes(body);
+        return true;
+    }
+
+    /**
+     * Writes all buffered records with one write, starting a new segment
+     * first if the current one is full. Buffered records are dropped if
+     * the write fails.
+     * 
+     * @throws IOException if the journal cannot be written
+     */
+    void write() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(pending.toByteArray());
+        pending.reset();
+        if (position > HEADER_SIZE && position + data.remaining() > segmentSize) {
+            rotate();
+        }
+        while (data.hasRemaining()) {
+            position += channel.write(data);
+        }
+        dirty = true;
+    }
+
+    /**
+     * Forces written records to disk, if any were written since the last call.
+     * 
+     * @throws IOException if the journal cannot be forced
+     */
+    void force() throws IOException {
+        if (dirty && channel != null) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            try {
+                write();
+                force();
+            } finally {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+    private void rotate() throws IOException {
+        force();
+        channel.close();
+        channel = null;
+        startSegment(sequence + 1);
+
+        List<Path> segments = segments(directory);
+        for (int i = 0; i < segments.size() - maxSegments; i++) {
+            Files.deleteIfExists(segments.get(i));
+        }
+    }
+
+    private void startSegment(int next) throws IOException {
+        Path file = directory.resolve(String.format(Locale.ROOT, "%s%08d%s", PREFIX, next, SUFFIX));
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        position = HEADER_SIZE;
+        sequence = next;
+        dirty = true;
+    }
+
+    /**
+     * Returns the segment files of a journal directory, oldest first.
+     * 
+     * @param directory the journal directory
+     * @return the segments, empty if the directory does not exist
+     * @throws IOException if the directory cannot be listed
+     */
+    static @NotNull List<Path> segments(@NotNull Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return segments;
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, PREFIX + "*" + SUFFIX)) {
+            for (Path file : files) {
+                if (sequenceOf(file) > 0) {
+                    segments.add(file);
+                }
+            }
+        }
+        segments.sort((a, b) -> Integer.compare(sequenceOf(a), sequenceOf(b)));
+        return segments;
+    }
+
+    private static int sequenceOf(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    static byte @NotNull [] encode(@NotNull AuditRecord record) {
+        return new BinaryWriter(96)
+                .writeByte(record.getAction().getId())
+                .writeLong(record.getTimestamp())
+                .writeUuid(record.getUuid())
+                .writeString(record.getPermission())
+                .writeLong(record.getExpiresAt())
+                .writeString(record.getThread())
+                .toByteArray();
+    }
+
+    /**
+     * Decodes a record body.
+     * 
+     * @param body the body
+     * @return the record
+     * @throws IllegalArgumentException if the body is malformed
+     */
+    static @NotNull AuditRecord decode(byte @NotNull [] body) {
+        BinaryReader in = new BinaryReader(body);
+        AuditAction action = AuditAction.byId(in.readByte());
+        long timestamp = in.readLong();
+        return new AuditRecord(timestamp, action, in.readUuid(), in.readString(), in.readLong(), in.readString());
+    }
+}
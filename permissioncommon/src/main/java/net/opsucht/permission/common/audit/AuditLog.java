@@ -0,0 +1,195 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Asynchronous audit log of permission mutations.
+ * 
+ * <p>{@link #record} creates the record and offers it to a lock-free queue;
+ * that is all the mutating thread pays. A single writer thread drains the
+ * queue and group-commits everything it finds with one write to an
+ * {@link AuditJournal}, then applies the {@link FsyncPolicy}. When the
+ * queue is empty the writer parks for a few milliseconds, so a record
+ * reaches the file at most that late under light load, and bursts are
+ * written in large batches under heavy load.</p>
+ * 
+ * <p>On {@link #close()} the writer drains the queue once more and forces
+ * the journal to disk. Records offered after that are dropped.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class AuditLog implements AutoCloseable {
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+    private static final int MAX_BATCH = 4096;
+
+    private final Path directory;
+    private final AuditJournal journal;
+    private final FsyncPolicy fsync;
+    private final long fsyncIntervalNanos;
+    private final Logger logger;
+    private final ConcurrentLinkedQueue<AuditRecord> queue = new ConcurrentLinkedQueue<>();
+    private volatile boolean running;
+    private volatile long written;
+    private @Nullable Thread writer;
+
+    /**
+     * Creates the log. Call {@link #start()} to open the journal.
+     * 
+     * @param directory the journal directory
+     * @param segmentSize the size in bytes after which a new segment is started
+     * @param maxSegments the number of segments kept; older ones are deleted
+     * @param fsync when records are forced to disk
+     * @param fsyncInterval the interval of {@link FsyncPolicy#PERIODIC}
+     * @param logger the logger for journal errors
+     */
+    public AuditLog(@NotNull Path directory, long segmentSize, int maxSegments, @NotNull FsyncPolicy fsync,
+            @NotNull Duration fsyncInterval, @NotNull Logger logger) {
+        if (segmentSize <= AuditJournal.HEADER_SIZE || maxSegments < 1) {
+            throw new IllegalArgumentException("Segment size and count must be positive");
+        }
+        this.directory = directory;
+        this.journal = new AuditJournal(directory, segmentSize, maxSegments);
+        this.fsync = fsync;
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.logger = logger;
+    }
+
+    /**
+     * Opens the journal and starts the writer thread.
+     * 
+     * @throws IOException if the journal cannot be opened
+     * @throws IllegalStateException if the log is already running
+     */
+    public synchronized void start() throws IOException {
+        if (writer != null) {
+            throw new IllegalStateException("Audit log is already running");
+        }
+        journal.open();
+        running = true;
+        Thread thread = new Thread(this::run, "opsucht-permission-audit");
+        thread.setDaemon(true);
+        thread.start();
+        writer = thread;
+    }
+
+    /**
+     * Records a mutation. Never blocks and never touches the disk.
+     * 
+     * @param action the mutation
+     * @param uuid the player's UUID
+     * @param permission the node
+     * @param expiresAt expiry time in epoch milliseconds for temporary grants, otherwise 0
+     */
+    public void record(@NotNull AuditAction action, @NotNull UUID uuid, @NotNull String permission,
+            long expiresAt) {
+        if (running) {
+            queue.offer(new AuditRecord(System.currentTimeMillis(), action, uuid, permission, expiresAt,
+                    Thread.currentThread().getName()));
+        }
+    }
+
+    /**
+     * Returns a reader over the journal of this log.
+     * 
+     * @return the reader
+     */
+    public @NotNull AuditReader reader() {
+        return new AuditReader(directory);
+    }
+
+    /**
+     * Returns the number of records written since the log was started.
+     * 
+     * @return the record count
+     */
+    public long getWritten() {
+        return written;
+    }
+
+    private void run() {
+        long lastForce = System.nanoTime();
+        while (true) {
+            // Read before draining, so records offered before close() are still written
+            boolean stopping = !running;
+            int batch = 0;
+            int dropped = 0;
+            AuditRecord record;
+            while (batch < MAX_BATCH && (record = queue.poll()) != null) {
+                if (!journal.append(record)) {
+                    dropped++;
+                }
+                batch++;
+            }
+            if (dropped > 0) {
+                logger.warning(dropped + " Audit-Einträge waren zu groß und wurden verworfen");
+            }
+
+            if (batch > 0) {
+                try {
+                    journal.write();
+                    written += batch - dropped;
+                    if (fsync == FsyncPolicy.BATCH) {
+                        journal.force();
+                    }
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, batch + " Audit-Einträge konnten nicht geschrieben werden", e);
+                }
+            }
+            if (fsync == FsyncPolicy.PERIODIC && System.nanoTime() - lastForce >= fsyncIntervalNanos) {
+                try {
+                    journal.force();
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Audit-Journal konnte nicht gesichert werden", e);
+                }
+                lastForce = System.nanoTime();
+            }
+
+            if (batch == 0) {
+                if (stopping) {
+                    break;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+            }
+        }
+
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Audit-Journal konnte nicht geschlossen werden", e);
+        }
+    }
+
+    /**
+     * Writes the remaining records, forces them to disk and stops the
+     * writer thread.
+     */
+    @Override
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            thread = writer;
+            writer = null;
+            running = false;
+        }
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads an audit journal, oldest record first.
+ * 
+ * <p>Segments are read one record at a time, so a journal of any size can
+ * be queried with constant memory. Reading while the {@link AuditLog} is
+ * writing is safe: a record that is only partly written yet ends the
+ * segment, and a segment deleted by rotation in the meantime or without a
+ * valid header is skipped.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class AuditReader {
+
+    private final Path directory;
+
+    /**
+     * @param directory the journal directory
+     */
+    public AuditReader(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Streams every record of the journal. The stream holds an open file
+     * and must be closed.
+     * 
+     * @return the records, oldest first
+     * @throws IOException if the journal directory cannot be listed
+     */
+    public @NotNull Stream<AuditRecord> stream() throws IOException {
+        Records records = new Records(AuditJournal.segments(directory));
+        return StreamSupport.stream(records, false).onClose(records::close);
+    }
+
+    /**
+     * Returns the newest records that match a filter.
+     * 
+     * @param filter selects the records
+     * @param limit the maximum number of records
+     * @return the matching records, oldest first
+     * @throws IOException if the journal cannot be read
+     */
+    public @NotNull List<AuditRecord> tail(@NotNull Predicate<AuditRecord> filter, int limit) throws IOException {
+        Deque<AuditRecord> newest = new ArrayDeque<>(Math.min(limit, 1024));
+        try (Stream<AuditRecord> records = stream()) {
+            records.filter(filter).forEach(record -> {
+                if (newest.size() == limit) {
+                    newest.removeFirst();
+                }
+                newest.addLast(record);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return new ArrayList<>(newest);
+    }
+
+    /**
+     * Returns the newest records of one player.
+     * 
+     * @param uuid the player's UUID
+     * @param limit the maximum number of records
+     * @return the player's records, oldest first
+     * @throws IOException if the journal cannot be read
+     */
+    public @NotNull List<AuditRecord> tail(@NotNull UUID uuid, int limit) throws IOException {
+        return tail(record -> record.getUuid().equals(uuid), limit);
+    }
+
+    /**
+     * Walks the segments in order, opening each one when the previous one
+     * is exhausted.
+     */
+    private static final class Records extends Spliterators.AbstractSpliterator<AuditRecord> {
+        private final List<Path> segments;
+        private int next;
+        private SegmentCursor cursor;
+
+        Records(List<Path> segments) {
+            super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+            this.segments = segments;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super AuditRecord> action) {
+            try {
+                while (true) {
+                    if (cursor == null) {
+                        if (next == segments.size()) {
+                            return false;
+                        }
+                        try {
+                            cursor = SegmentCursor.open(segments.get(next++));
+                        } catch (IOException e) {
+                            continue; // Deleted by rotation, or not a segment
+                        }
+                    }
+                    AuditRecord record = cursor.next();
+                    if (record != null) {
+                        action.accept(record);
+                        return true;
+                    }
+                    cursor.close();
+                    cursor = null;
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            if (cursor != null) {
+                try {
+                    cursor.close();
+                } catch (IOException ignored) {
+                    // Read-only file
+                }
+                cursor = null;
+            }
+        }
+    }
+}
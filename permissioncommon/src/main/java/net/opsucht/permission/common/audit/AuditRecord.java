@@ -0,0 +1,80 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One permission mutation in the audit journal.
+ * 
+ * @since 1.0.0
+ */
+public final class AuditRecord {
+
+    private final long timestamp;
+    private final AuditAction action;
+    private final UUID uuid;
+    private final String permission;
+    private final long expiresAt;
+    private final String thread;
+
+    /**
+     * @param timestamp when the mutation was requested, in epoch milliseconds
+     * @param action the mutation
+     * @param uuid the player's UUID
+     * @param permission the node
+     * @param expiresAt expiry time in epoch milliseconds for temporary grants, otherwise 0
+     * @param thread the name of the thread that requested the mutation
+     */
+    public AuditRecord(long timestamp, @NotNull AuditAction action, @NotNull UUID uuid, @NotNull String permission,
+            long expiresAt, @NotNull String thread) {
+        this.timestamp = timestamp;
+        this.action = action;
+        this.uuid = uuid;
+        this.permission = permission;
+        this.expiresAt = expiresAt;
+        this.thread = thread;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public @NotNull AuditAction getAction() {
+        return action;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull String getPermission() {
+        return permission;
+    }
+
+    /**
+     * Returns when a temporary grant expires.
+     * 
+     * @return expiry time in epoch milliseconds, or 0 for permanent mutations
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    /**
+     * Returns the thread that requested the mutation. On Bukkit and
+     * BungeeCord, the names of scheduler threads often name the plugin.
+     * 
+     * @return the thread name
+     */
+    public @NotNull String getThread() {
+        return thread;
+    }
+
+    @Override
+    public String toString() {
+        return Instant.ofEpochMilli(timestamp) + " " + action.getDisplayName() + " " + uuid + " " + permission
+                + (expiresAt != 0 ? " bis " + Instant.ofEpochMilli(expiresAt) : "") + " [" + thread + "]";
+    }
+}
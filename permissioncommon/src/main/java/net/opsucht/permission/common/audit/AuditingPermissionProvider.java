@@ -0,0 +1,84 @@
+package net.opsucht.permission.common.audit;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records every permission mutation in an {@link AuditLog} before passing
+ * it on.
+ * 
+ * <p>Mutations are recorded when they are requested, so failed ones are
+ * recorded too. Removals that happen below this provider, such as the end
+ * of a temporary grant by an expiry scheduler, are not recorded.</p>
+ * 
+ * @since 1.0.0
+ */
+public class AuditingPermissionProvider extends ForwardingPermissionProvider {
+
+    private final AuditLog log;
+
+    /**
+     * @param delegate the provider to forward to
+     * @param log the log to record mutations in
+     */
+    public AuditingPermissionProvider(@NotNull PermissionProvider delegate, @NotNull AuditLog log) {
+        super(delegate);
+        this.log = log;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        log.record(AuditAction.ADD, uuid, permission, 0L);
+        delegate.add(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        log.record(AuditAction.ADD_ASYNC, uuid, permission, 0L);
+        return delegate.addAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        log.record(AuditAction.ADD_ASYNC, uuid, permission, 0L);
+        return delegate.addAsync(uuid, permission, timeout);
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        log.record(AuditAction.ADD_TEMPORARY, uuid, permission, System.currentTimeMillis() + duration.toMillis());
+        delegate.addTemporary(uuid, permission, duration);
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        log.record(AuditAction.ADD_TEMPORARY, uuid, permission, System.currentTimeMillis() + duration.toMillis());
+        return delegate.addTemporaryAsync(uuid, permission, duration);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        log.record(AuditAction.REMOVE, uuid, permission, 0L);
+        delegate.remove(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        log.record(AuditAction.REMOVE_ASYNC, uuid, permission, 0L);
+        return delegate.removeAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        log.record(AuditAction.REMOVE_ASYNC, uuid, permission, 0L);
+        return delegate.removeAsync(uuid, permission, timeout);
+    }
+}
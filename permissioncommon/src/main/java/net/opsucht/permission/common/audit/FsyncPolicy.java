@@ -0,0 +1,43 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Locale;
+
+/**
+ * When the audit journal forces written records to disk.
+ * 
+ * <p>Records are always written to the file as soon as the writer thread
+ * picks them up, so they survive a crash of the server process under every
+ * policy. The policy only decides how much a power loss can take.</p>
+ * 
+ * @since 1.0.0
+ */
+public enum FsyncPolicy {
+
+    /**
+     * Never force; the operating system decides when records reach the disk.
+     */
+    NEVER,
+
+    /**
+     * Force after every group commit. Slowest, loses nothing that was written.
+     */
+    BATCH,
+
+    /**
+     * Force at most once per configured interval, and on close.
+     */
+    PERIODIC;
+
+    /**
+     * Parses a policy name as used in the configuration.
+     * 
+     * @param name the name, case-insensitive
+     * @return the policy
+     * @throws IllegalArgumentException if the name is unknown
+     */
+    public static @NotNull FsyncPolicy parse(@NotNull String name) {
+        return valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+}
@@ -0,0 +1,102 @@
+package net.opsucht.permission.common.audit;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.CRC32;
+
+/**
+ * Reads the records of one journal segment in order, without loading the
+ * segment into memory. Reading stops at the first torn or corrupted record.
+ * 
+ * @since 1.0.0
+ */
+final class SegmentCursor implements Closeable {
+
+    private final DataInputStream in;
+    private long offset = AuditJournal.HEADER_SIZE;
+    private boolean done;
+
+    private SegmentCursor(DataInputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Opens a segment and checks its header.
+     * 
+     * @param file the segment file
+     * @return the cursor, positioned before the first record
+     * @throws IOException if the file cannot be read or is not a segment
+     */
+    static @NotNull SegmentCursor open(@NotNull Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024));
+        try {
+            if (in.readInt() != AuditJournal.MAGIC) {
+                throw new IOException("Not an audit journal: " + file);
+            }
+            byte version = in.readByte();
+            if (version != AuditJournal.VERSION) {
+                throw new IOException("Unsupported audit journal version: " + version);
+            }
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        return new SegmentCursor(in);
+    }
+
+    /**
+     * Reads the next record.
+     * 
+     * @return the record, or null at the end of the segment or at a torn record
+     * @throws IOException if the file cannot be read
+     */
+    @Nullable AuditRecord next() throws IOException {
+        if (done) {
+            return null;
+        }
+        try {
+            int length = in.readInt();
+            int checksum = in.readInt();
+            if (length < 1 || length > AuditJournal.MAX_RECORD_SIZE) {
+                done = true;
+                return null;
+            }
+            byte[] body = new byte[length];
+            in.readFully(body);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                done = true;
+                return null;
+            }
+            AuditRecord record = AuditJournal.decode(body);
+            offset += AuditJournal.RECORD_HEADER_SIZE + length;
+            return record;
+        } catch (EOFException | IllegalArgumentException e) {
+            done = true;
+            return null;
+        }
+    }
+
+    /**
+     * Returns the file offset after the last record read.
+     * 
+     * @return the offset in bytes
+     */
+    long getOffset() {
+        return offset;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
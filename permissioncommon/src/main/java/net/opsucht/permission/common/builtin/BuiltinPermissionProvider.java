@@ -0,0 +1,808 @@
+package net.opsucht.permission.common.builtin;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.NodeDictionary;
+import net.opsucht.permission.common.group.GroupHierarchy;
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.jfr.PermissionMutationEvent;
+import net.opsucht.permission.common.migration.MigrationGroup;
+import net.opsucht.permission.common.migration.MigrationSource;
+import net.opsucht.permission.common.migration.MigrationTarget;
+import net.opsucht.permission.common.migration.MigrationUser;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.PermissionSetInterner;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Permission backend of this plugin for servers without a permission
+ * plugin.
+ * 
+ * <p>All users and groups are kept in memory. Nodes are interned to int IDs
+ * and stored per user or group as a sorted int array; each user's
+ * effective permissions are resolved once into a {@link PermissionSet},
+ * shared between users with the same result, and reused until the user or
+ * any group changes. A check is a map lookup plus the set's check and does
+ * not lock: writers replace immutable holders and publish group changes
+ * through a volatile version.</p>
+ * 
+ * <p>Every change is appended to a {@link MutationLog} before it is applied,
+ * and the whole data is compacted into a {@link StateFile} once the log
+ * holds more records than there are users and groups, and when the
+ * provider is closed. On startup the state file is read and the log is
+ * replayed from the last sequence the state file contains.</p>
+ * 
+ * <p>Every user belongs to the group {@value #DEFAULT_GROUP}. A user's own
+ * nodes win over those of its groups. Groups are resolved breadth-first,
+ * starting with the primary group, then the other groups in the order the
+ * user joined them and {@value #DEFAULT_GROUP} last, each followed by its
+ * parents; the first group that sets a node decides. Nodes, group names and
+ * meta keys are case-insensitive. The prefix and suffix are the meta keys
+ * {@code prefix} and {@code suffix}.</p>
+ * 
+ * <p>Changes made through the methods of this class, rather than through
+ * a provider chain in front of it, are reported to {@link ChangeListener}s
+ * so that caches can drop what they resolved before.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class BuiltinPermissionProvider implements PermissionProvider, SnapshotSource, GroupHierarchy,
+        MigrationSource, MigrationTarget, AutoCloseable {
+
+    /**
+     * The group every user belongs to.
+     */
+    public static final String DEFAULT_GROUP = "default";
+
+    private static final String PREFIX = "prefix";
+    private static final String SUFFIX = "suffix";
+    private static final int COMPACT_MIN_RECORDS = 4096;
+
+    private static final byte USER_NODE = 1;
+    private static final byte USER_GROUP = 2;
+    private static final byte USER_PRIMARY_GROUP = 3;
+    private static final byte USER_META = 4;
+    private static final byte GROUP_CREATE = 5;
+    private static final byte GROUP_DELETE = 6;
+    private static final byte GROUP_NODE = 7;
+    private static final byte GROUP_PARENTS = 8;
+    private static final byte GROUP_META = 9;
+
+    private final StateFile stateFile;
+    private final MutationLog log;
+    private final Logger logger;
+    private final Supplier<? extends Collection<UUID>> onlinePlayers;
+    private final NodeDictionary nodes = new NodeDictionary();
+    private final Map<UUID, Holder> users = new ConcurrentHashMap<>();
+    private final Map<String, Holder> groups = new ConcurrentHashMap<>();
+    private final Map<UUID, Resolved> resolved = new ConcurrentHashMap<>();
+    private final PermissionSetInterner interner = new PermissionSetInterner();
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile long groupVersion;
+    private volatile @Nullable Resolved defaults;
+    private long sequence;
+    private boolean closed;
+
+    private BuiltinPermissionProvider(Path directory, Logger logger,
+            Supplier<? extends Collection<UUID>> onlinePlayers) {
+        this.stateFile = new StateFile(directory.resolve("permissions.state"));
+        this.log = new MutationLog(directory.resolve("permissions.log"));
+        this.logger = logger;
+        this.onlinePlayers = onlinePlayers;
+    }
+
+    /**
+     * Loads the data of a directory and opens it for changes. The provider
+     * knows no online players, so {@link #getOnlineMembers(String)} is
+     * always empty.
+     * 
+     * @param directory the directory of the state file and the mutation log,
+     *                  created if needed
+     * @param logger    the logger for failed compactions
+     * @return the provider
+     * @throws IOException if the data cannot be read or the log cannot be opened
+     */
+    public static @NotNull BuiltinPermissionProvider open(@NotNull Path directory, @NotNull Logger logger)
+            throws IOException {
+        return open(directory, logger, List::of);
+    }
+
+    /**
+     * Loads the data of a directory and opens it for changes.
+     * 
+     * @param directory     the directory of the state file and the mutation log,
+     *                      created if needed
+     * @param logger        the logger for failed compactions
+     * @param onlinePlayers supplies the UUIDs of the players online on this
+     *                      platform
+     * @return the provider
+     * @throws IOException if the data cannot be read or the log cannot be opened
+     */
+    public static @NotNull BuiltinPermissionProvider open(@NotNull Path directory, @NotNull Logger logger,
+            @NotNull Supplier<? extends Collection<UUID>> onlinePlayers) throws IOException {
+        BuiltinPermissionProvider provider = new BuiltinPermissionProvider(directory, logger, onlinePlayers);
+        synchronized (provider) {
+            long last = provider.stateFile.read(provider.nodes, provider.groups, provider.users);
+            provider.sequence = provider.log.open(last, provider::apply);
+            provider.groups.putIfAbsent(DEFAULT_GROUP, Holder.EMPTY);
+            if (provider.log.getRecords() >= provider.compactThreshold()) {
+                provider.compact();
+            }
+        }
+        return provider;
+    }
+
+    @Override
+    public @NotNull String getProviderName() {
+        return "Builtin";
+    }
+
+    @Override
+    public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionCheckEvent event = PermissionCheckEvent.start();
+        boolean result = resolve(uuid).permissions.test(permission);
+        event.finish(uuid, permission, this, result, false);
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        setPermission(uuid, permission, true);
+        event.finish(uuid, permission, this, true, false, false);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        setPermission(uuid, permission, null);
+        event.finish(uuid, permission, this, false, false, false);
+    }
+
+    /**
+     * Sets or unsets a node of a user.
+     * 
+     * @param uuid       the user's UUID
+     * @param permission the node
+     * @param value      true to grant, false to deny, null to unset
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setPermission(@NotNull UUID uuid, @NotNull String permission, @Nullable Boolean value) {
+        mutate(new BinaryWriter(48).writeByte(USER_NODE).writeUuid(uuid)
+                .writeString(normalize(permission)).writeByte(encode(value)));
+        userChanged(uuid);
+    }
+
+    /**
+     * Adds a user to a group or removes it from one. Membership in
+     * {@value #DEFAULT_GROUP} cannot be removed.
+     * 
+     * @param uuid   the user's UUID
+     * @param group  the group name
+     * @param member whether the user should belong to the group
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setMember(@NotNull UUID uuid, @NotNull String group, boolean member) {
+        mutate(new BinaryWriter(48).writeByte(USER_GROUP).writeUuid(uuid)
+                .writeString(normalize(group)).writeByte(member ? 1 : 0));
+        userChanged(uuid);
+    }
+
+    /**
+     * Sets the primary group of a user. It is resolved before the user's
+     * other groups.
+     * 
+     * @param uuid  the user's UUID
+     * @param group the group name, or null to unset it
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setPrimaryGroup(@NotNull UUID uuid, @Nullable String group) {
+        mutate(new BinaryWriter(48).writeByte(USER_PRIMARY_GROUP).writeUuid(uuid)
+                .writeNullableString(group != null ? normalize(group) : null));
+        userChanged(uuid);
+    }
+
+    /**
+     * Sets or unsets a meta value of a user, such as its {@code prefix}.
+     * 
+     * @param uuid  the user's UUID
+     * @param key   the meta key
+     * @param value the value, or null to unset it
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setMeta(@NotNull UUID uuid, @NotNull String key, @Nullable String value) {
+        mutate(new BinaryWriter(64).writeByte(USER_META).writeUuid(uuid)
+                .writeString(normalize(key)).writeNullableString(value));
+        userChanged(uuid);
+    }
+
+    /**
+     * Creates a group without nodes or parents, if it does not exist yet.
+     * 
+     * @param group the group name
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void createGroup(@NotNull String group) {
+        mutate(new BinaryWriter(32).writeByte(GROUP_CREATE).writeString(normalize(group)));
+        groupChanged(group);
+    }
+
+    /**
+     * Deletes a group with its nodes, parents and meta. Users and groups that
+     * refer to it keep the reference, which resolves to nothing until a
+     * group of that name is created again.
+     * 
+     * @param group the group name
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void deleteGroup(@NotNull String group) {
+        mutate(new BinaryWriter(32).writeByte(GROUP_DELETE).writeString(normalize(group)));
+        groupChanged(group);
+    }
+
+    /**
+     * Sets or unsets a node of a group, creating the group if needed.
+     * 
+     * @param group      the group name
+     * @param permission the node
+     * @param value      true to grant, false to deny, null to unset
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setGroupPermission(@NotNull String group, @NotNull String permission, @Nullable Boolean value) {
+        mutate(new BinaryWriter(64).writeByte(GROUP_NODE).writeString(normalize(group))
+                .writeString(normalize(permission)).writeByte(encode(value)));
+        groupChanged(group);
+    }
+
+    /**
+     * Replaces the parents of a group, creating the group if needed.
+     * 
+     * @param group   the group name
+     * @param parents the groups it inherits from, in the order they are resolved
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setParents(@NotNull String group, @NotNull Collection<String> parents) {
+        BinaryWriter mutation = new BinaryWriter(64).writeByte(GROUP_PARENTS).writeString(normalize(group))
+                .writeVarInt(parents.size());
+        for (String parent : parents) {
+            mutation.writeString(normalize(parent));
+        }
+        mutate(mutation);
+        groupChanged(group);
+    }
+
+    /**
+     * Sets or unsets a meta value of a group, creating the group if needed.
+     * 
+     * @param group the group name
+     * @param key   the meta key
+     * @param value the value, or null to unset it
+     * @throws UncheckedIOException if the change cannot be written to the log
+     */
+    public void setGroupMeta(@NotNull String group, @NotNull String key, @Nullable String value) {
+        mutate(new BinaryWriter(64).writeByte(GROUP_META).writeString(normalize(group))
+                .writeString(normalize(key)).writeNullableString(value));
+        groupChanged(group);
+    }
+
+    /**
+     * Registers a listener for changes made through this provider.
+     * 
+     * @param listener the listener
+     */
+    public void addChangeListener(@NotNull ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a listener.
+     * 
+     * @param listener the listener
+     */
+    public void removeChangeListener(@NotNull ChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+        return resolve(uuid).groups;
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups() {
+        return Collections.unmodifiableSet(new HashSet<>(groups.keySet()));
+    }
+
+    @Override
+    public boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        return resolve(uuid).groups.contains(normalize(group));
+    }
+
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        Set<UUID> members = new HashSet<>();
+        for (UUID uuid : onlinePlayers.get()) {
+            if (isMember(uuid, group)) {
+                members.add(uuid);
+            }
+        }
+        return members;
+    }
+
+    @Override
+    public boolean inheritsFrom(@NotNull UUID uuid, @NotNull String group) {
+        return resolve(uuid).inherited.contains(normalize(group));
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        return getMeta(uuid, PREFIX);
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        return getMeta(uuid, SUFFIX);
+    }
+
+    /**
+     * Returns the user's own value of a meta key, or else the value of the
+     * first group that sets it, in the order nodes are resolved.
+     */
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        String normalized = normalize(key);
+        Resolved current = resolve(uuid);
+        if (current.holder != null) {
+            String value = current.holder.meta.get(normalized);
+            if (value != null) {
+                return value;
+            }
+        }
+        for (String group : current.inherited) {
+            Holder data = groups.get(group);
+            String value = data != null ? data.meta.get(normalized) : null;
+            if (value != null) {
+                return value;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public @NotNull String getPrimaryGroup(@NotNull UUID uuid) {
+        return resolve(uuid).groups.iterator().next();
+    }
+
+    @Override
+    public @NotNull UserSnapshot snapshot(@NotNull UUID uuid) {
+        Resolved current = resolve(uuid);
+        return new UserSnapshot(uuid, current.permissions, current.groups, current.groups.iterator().next(),
+                System.currentTimeMillis());
+    }
+
+    @Override
+    public @NotNull Map<String, Set<String>> getGroupParents() {
+        Map<String, Set<String>> parents = new HashMap<>();
+        for (Map.Entry<String, Holder> entry : groups.entrySet()) {
+            parents.put(entry.getKey(), entry.getValue().groups);
+        }
+        return parents;
+    }
+
+    @Override
+    public @Nullable Set<String> getParents(@NotNull String group) {
+        Holder data = groups.get(normalize(group));
+        return data != null ? data.groups : null;
+    }
+
+    @Override
+    public @NotNull Collection<UUID> readUserIds() {
+        return new ArrayList<>(users.keySet());
+    }
+
+    @Override
+    public @Nullable MigrationUser readUser(@NotNull UUID uuid) {
+        Holder holder = users.get(uuid);
+        if (holder == null) {
+            return null;
+        }
+        return new MigrationUser(uuid, nodesOf(holder), holder.groups, holder.primaryGroup,
+                holder.meta.get(PREFIX), holder.meta.get(SUFFIX));
+    }
+
+    @Override
+    public @NotNull List<MigrationGroup> readGroups() {
+        List<MigrationGroup> result = new ArrayList<>();
+        for (Map.Entry<String, Holder> entry : groups.entrySet()) {
+            Holder data = entry.getValue();
+            result.add(new MigrationGroup(entry.getKey(), nodesOf(data), data.groups,
+                    data.meta.get(PREFIX), data.meta.get(SUFFIX)));
+        }
+        return result;
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> writeGroup(@NotNull MigrationGroup group) {
+        try {
+            createGroup(group.getName());
+            for (Map.Entry<String, Boolean> node : group.getNodes().entrySet()) {
+                setGroupPermission(group.getName(), node.getKey(), node.getValue());
+            }
+            if (!group.getParents().isEmpty()) {
+                Set<String> parents = new LinkedHashSet<>(getParents(group.getName()));
+                parents.addAll(group.getParents());
+                setParents(group.getName(), parents);
+            }
+            if (group.getPrefix() != null) {
+                setGroupMeta(group.getName(), PREFIX, group.getPrefix());
+            }
+            if (group.getSuffix() != null) {
+                setGroupMeta(group.getName(), SUFFIX, group.getSuffix());
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> writeUsers(@NotNull List<MigrationUser> users) {
+        try {
+            for (MigrationUser user : users) {
+                for (Map.Entry<String, Boolean> node : user.getNodes().entrySet()) {
+                    setPermission(user.getUuid(), node.getKey(), node.getValue());
+                }
+                for (String group : user.getGroups()) {
+                    setMember(user.getUuid(), group, true);
+                }
+                if (user.getPrimaryGroup() != null) {
+                    setPrimaryGroup(user.getUuid(), user.getPrimaryGroup());
+                }
+                if (user.getPrefix() != null) {
+                    setMeta(user.getUuid(), PREFIX, user.getPrefix());
+                }
+                if (user.getSuffix() != null) {
+                    setMeta(user.getUuid(), SUFFIX, user.getSuffix());
+                }
+            }
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    /**
+     * Writes all data to the state file and empties the mutation log.
+     * 
+     * @throws IOException if the state file or the log cannot be written
+     */
+    public synchronized void compact() throws IOException {
+        stateFile.write(sequence, nodes, groups, users);
+        log.clear();
+    }
+
+    /**
+     * Compacts the data one last time and closes the mutation log. Changes
+     * afterwards fail with an {@link IllegalStateException}.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        try {
+            if (log.getRecords() > 0) {
+                compact();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Berechtigungsdaten konnten nicht komprimiert werden", e);
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Änderungsprotokoll konnte nicht geschlossen werden", e);
+        }
+    }
+
+    /**
+     * Writes a change to the log and applies it. Compacts the data once the
+     * log has grown larger than the data itself.
+     */
+    private synchronized void mutate(BinaryWriter mutation) {
+        if (closed) {
+            throw new IllegalStateException("Builtin provider is closed");
+        }
+        byte[] bytes = mutation.toByteArray();
+        try {
+            log.append(sequence + 1, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write permission change", e);
+        }
+        sequence++;
+        apply(new BinaryReader(bytes));
+
+        if (log.getRecords() >= compactThreshold()) {
+            try {
+                compact();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Berechtigungsdaten konnten nicht komprimiert werden", e);
+            }
+        }
+    }
+
+    private void userChanged(UUID uuid) {
+        for (ChangeListener listener : listeners) {
+            listener.onUserChange(uuid);
+        }
+    }
+
+    private void groupChanged(String group) {
+        String name = normalize(group);
+        for (ChangeListener listener : listeners) {
+            listener.onGroupChange(name);
+        }
+    }
+
+    private int compactThreshold() {
+        return Math.max(COMPACT_MIN_RECORDS, users.size() + groups.size());
+    }
+
+    /**
+     * Applies one change, either a new one or one replayed from the log.
+     */
+    private void apply(BinaryReader in) {
+        byte type = in.readByte();
+        switch (type) {
+            case USER_NODE: {
+                UUID uuid = in.readUuid();
+                int id = nodes.register(in.readString());
+                Boolean value = decode(in.readByte());
+                updateUser(uuid, holder -> holder.withNode(id, value));
+                break;
+            }
+            case USER_GROUP: {
+                UUID uuid = in.readUuid();
+                String group = in.readString();
+                boolean member = in.readByte() != 0;
+                updateUser(uuid, holder -> holder.withGroup(group, member));
+                break;
+            }
+            case USER_PRIMARY_GROUP: {
+                UUID uuid = in.readUuid();
+                String group = in.readNullableString();
+                updateUser(uuid, holder -> holder.withPrimaryGroup(group));
+                break;
+            }
+            case USER_META: {
+                UUID uuid = in.readUuid();
+                String key = in.readString();
+                String value = in.readNullableString();
+                updateUser(uuid, holder -> holder.withMeta(key, value));
+                break;
+            }
+            case GROUP_CREATE:
+                updateGroup(in.readString(), holder -> holder);
+                break;
+            case GROUP_DELETE:
+                groups.remove(in.readString());
+                groupVersion++;
+                break;
+            case GROUP_NODE: {
+                String group = in.readString();
+                int id = nodes.register(in.readString());
+                Boolean value = decode(in.readByte());
+                updateGroup(group, holder -> holder.withNode(id, value));
+                break;
+            }
+            case GROUP_PARENTS: {
+                String group = in.readString();
+                int count = in.readCount(1);
+                List<String> parents = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    parents.add(in.readString());
+                }
+                updateGroup(group, holder -> holder.withGroups(parents));
+                break;
+            }
+            case GROUP_META: {
+                String group = in.readString();
+                String key = in.readString();
+                String value = in.readNullableString();
+                updateGroup(group, holder -> holder.withMeta(key, value));
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Unknown permission change: " + type);
+        }
+    }
+
+    private void updateUser(UUID uuid, UnaryOperator<Holder> change) {
+        Holder next = change.apply(users.getOrDefault(uuid, Holder.EMPTY));
+        if (next.isEmpty()) {
+            users.remove(uuid);
+        } else {
+            users.put(uuid, next);
+        }
+        resolved.remove(uuid);
+    }
+
+    private void updateGroup(String group, UnaryOperator<Holder> change) {
+        groups.put(group, change.apply(groups.getOrDefault(group, Holder.EMPTY)));
+        // Published after the group, so readers of the new version see it
+        groupVersion++;
+    }
+
+    /**
+     * Returns the resolved state of a user, resolving it again if the user
+     * or any group changed since.
+     */
+    private Resolved resolve(UUID uuid) {
+        // Read before the data, so a change during the resolution leaves it outdated
+        long version = groupVersion;
+        Holder holder = users.get(uuid);
+        if (holder == null) {
+            Resolved current = defaults;
+            if (current == null || current.version != version) {
+                current = compute(null, version);
+                defaults = current;
+            }
+            return current;
+        }
+        Resolved current = resolved.get(uuid);
+        if (current == null || current.version != version || current.holder != holder) {
+            current = compute(holder, version);
+            resolved.put(uuid, current);
+        }
+        return current;
+    }
+
+    private Resolved compute(@Nullable Holder holder, long version) {
+        Set<String> direct = new LinkedHashSet<>();
+        if (holder != null) {
+            if (holder.primaryGroup != null) {
+                direct.add(holder.primaryGroup);
+            }
+            direct.addAll(holder.groups);
+        }
+        direct.add(DEFAULT_GROUP);
+
+        Set<String> inherited = new LinkedHashSet<>();
+        Deque<String> pending = new ArrayDeque<>(direct);
+        while (!pending.isEmpty()) {
+            String group = pending.poll();
+            if (inherited.add(group)) {
+                Holder data = groups.get(group);
+                if (data != null) {
+                    pending.addAll(data.groups);
+                }
+            }
+        }
+
+        Map<String, Boolean> permissions = new HashMap<>();
+        if (holder != null) {
+            putAll(permissions, holder);
+        }
+        for (String group : inherited) {
+            Holder data = groups.get(group);
+            if (data != null) {
+                putAll(permissions, data);
+            }
+        }
+        return new Resolved(version, holder, interner.intern(PermissionSet.of(permissions)),
+                Collections.unmodifiableSet(direct), Collections.unmodifiableSet(inherited));
+    }
+
+    /**
+     * Adds the nodes of a holder that are not set yet.
+     */
+    private void putAll(Map<String, Boolean> permissions, Holder holder) {
+        for (int entry : holder.nodes) {
+            permissions.putIfAbsent(nodes.nameOf(entry >>> 1), (entry & 1) != 0);
+        }
+    }
+
+    private Map<String, Boolean> nodesOf(Holder holder) {
+        Map<String, Boolean> result = new HashMap<>();
+        putAll(result, holder);
+        return result;
+    }
+
+    private static String normalize(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+
+    private static int encode(@Nullable Boolean value) {
+        return value == null ? 0 : value ? 2 : 1;
+    }
+
+    private static @Nullable Boolean decode(byte value) {
+        switch (value) {
+            case 0:
+                return null;
+            case 1:
+                return false;
+            case 2:
+                return true;
+            default:
+                throw new IllegalArgumentException("Invalid node value: " + value);
+        }
+    }
+
+    /**
+     * Listener for changes made through a {@link BuiltinPermissionProvider}.
+     * 
+     * <p>Listeners are called on the thread that made the change, after it
+     * was written and applied, and not for changes replayed on startup.</p>
+     * 
+     * @since 1.0.0
+     */
+    public interface ChangeListener {
+
+        /**
+         * Called after the nodes, groups or meta of a user changed.
+         * 
+         * @param uuid the user's UUID
+         */
+        void onUserChange(@NotNull UUID uuid);
+
+        /**
+         * Called after a group was created, deleted or changed. Every user
+         * inheriting the group may be affected.
+         * 
+         * @param group the lower-case group name
+         */
+        void onGroupChange(@NotNull String group);
+    }
+
+    /**
+     * The effective permissions and groups of a user, valid while the user's
+     * holder and the group version are the same.
+     */
+    private static final class Resolved {
+        private final long version;
+        private final @Nullable Holder holder;
+        private final PermissionSet permissions;
+        // Primary group first, DEFAULT_GROUP last
+        private final Set<String> groups;
+        // In the order nodes are resolved
+        private final Set<String> inherited;
+
+        Resolved(long version, @Nullable Holder holder, PermissionSet permissions, Set<String> groups,
+                Set<String> inherited) {
+            this.version = version;
+            this.holder = holder;
+            this.permissions = permissions;
+            this.groups = groups;
+            this.inherited = inherited;
+        }
+    }
+}
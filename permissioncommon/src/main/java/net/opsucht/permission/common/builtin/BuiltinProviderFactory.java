@@ -0,0 +1,85 @@
+package net.opsucht.permission.common.builtin;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.spi.PermissionProviderFactory;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Base class for the factories of the {@link BuiltinPermissionProvider}.
+ * The backend is always available; each platform supplies the directory
+ * of its data.
+ * 
+ * <p>The provider owns its files, so unlike other factories this one opens
+ * it on the first call to {@link #create()} and returns the same instance
+ * afterwards, also when the cache is switched on or off. It stays open
+ * until {@link #close()}.</p>
+ * 
+ * @since 1.0.0
+ */
+public abstract class BuiltinProviderFactory implements PermissionProviderFactory, AutoCloseable {
+
+    private BuiltinPermissionProvider provider;
+
+    @Override
+    public @NotNull String getName() {
+        return "Builtin";
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return true;
+    }
+
+    /**
+     * @throws IllegalStateException if the data cannot be read
+     */
+    @Override
+    public synchronized @NotNull PermissionProvider create() {
+        if (provider == null) {
+            try {
+                provider = BuiltinPermissionProvider.open(getDirectory(), getLogger(), this::getOnlinePlayers);
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not load the builtin permission data", e);
+            }
+        }
+        return provider;
+    }
+
+    /**
+     * Closes the provider if it was opened, writing its data one last time.
+     */
+    @Override
+    public synchronized void close() {
+        if (provider != null) {
+            provider.close();
+            provider = null;
+        }
+    }
+
+    /**
+     * Returns the directory of the provider's data.
+     * 
+     * @return the directory, created if needed
+     */
+    protected abstract @NotNull Path getDirectory();
+
+    /**
+     * Returns the logger for failed writes of the data.
+     * 
+     * @return the logger
+     */
+    protected abstract @NotNull Logger getLogger();
+
+    /**
+     * Returns the players currently online on this platform.
+     * 
+     * @return the UUIDs of the online players
+     */
+    protected abstract @NotNull Collection<UUID> getOnlinePlayers();
+}
@@ -0,0 +1,42 @@
+package net.opsucht.permission.common.builtin;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.cache.GroupRecomputer;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * Keeps a cache in front of the {@link BuiltinPermissionProvider} in step
+ * with changes made on the provider directly, for example by a migration.
+ * 
+ * <p>A changed user is dropped from the cache and, if online, resolved
+ * into the group index again. A changed group is handed to a
+ * {@link GroupRecomputer}, which recomputes the players depending on it.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CacheRefresher implements BuiltinPermissionProvider.ChangeListener {
+
+    private final CachedPermissionProvider cache;
+    private final GroupRecomputer recomputer;
+
+    /**
+     * @param cache      the cache whose delegate chain ends in the built-in provider
+     * @param recomputer the recomputer of that cache
+     */
+    public CacheRefresher(@NotNull CachedPermissionProvider cache, @NotNull GroupRecomputer recomputer) {
+        this.cache = cache;
+        this.recomputer = recomputer;
+    }
+
+    @Override
+    public void onUserChange(@NotNull UUID uuid) {
+        cache.invalidateUser(uuid);
+    }
+
+    @Override
+    public void onGroupChange(@NotNull String group) {
+        recomputer.groupChanged(group);
+    }
+}
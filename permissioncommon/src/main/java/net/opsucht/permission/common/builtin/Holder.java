@@ -0,0 +1,114 @@
+package net.opsucht.permission.common.builtin;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The stored data of one user or group. Never modified after construction;
+ * every change creates a new holder.
+ * 
+ * <p>Nodes are kept as a sorted int array of {@code nodeId << 1 | value},
+ * with IDs from the provider's node dictionary, so a holder with many
+ * nodes is a single array instead of a map of boxed entries. For a user,
+ * {@link #groups} are the groups it belongs to; for a group, the groups it
+ * inherits from. Group names are lower case.</p>
+ * 
+ * @since 1.0.0
+ */
+final class Holder {
+
+    static final Holder EMPTY = new Holder(new int[0], Collections.emptySet(), null, Collections.emptyMap());
+
+    final int[] nodes;
+    final Set<String> groups;
+    final @Nullable String primaryGroup;
+    final Map<String, String> meta;
+
+    Holder(int @NotNull [] nodes, @NotNull Set<String> groups, @Nullable String primaryGroup,
+            @NotNull Map<String, String> meta) {
+        this.nodes = nodes;
+        this.groups = groups;
+        this.primaryGroup = primaryGroup;
+        this.meta = meta;
+    }
+
+    /**
+     * Returns a holder with a node set to a value, or without the node.
+     * 
+     * @param id    the node ID
+     * @param value the value, or null to unset the node
+     * @return the changed holder, or this one if nothing changes
+     */
+    @NotNull Holder withNode(int id, @Nullable Boolean value) {
+        int index = Arrays.binarySearch(nodes, id << 1);
+        int at = index >= 0 ? index : -index - 1;
+        boolean present = index >= 0 || (at < nodes.length && nodes[at] == (id << 1 | 1));
+        int[] next;
+        if (value == null) {
+            if (!present) {
+                return this;
+            }
+            next = new int[nodes.length - 1];
+            System.arraycopy(nodes, 0, next, 0, at);
+            System.arraycopy(nodes, at + 1, next, at, nodes.length - at - 1);
+        } else if (present) {
+            next = nodes.clone();
+            next[at] = id << 1 | (value ? 1 : 0);
+        } else {
+            next = new int[nodes.length + 1];
+            System.arraycopy(nodes, 0, next, 0, at);
+            next[at] = id << 1 | (value ? 1 : 0);
+            System.arraycopy(nodes, at, next, at + 1, nodes.length - at);
+        }
+        return new Holder(next, groups, primaryGroup, meta);
+    }
+
+    @NotNull Holder withGroup(@NotNull String group, boolean member) {
+        if (groups.contains(group) == member) {
+            return this;
+        }
+        Set<String> next = new LinkedHashSet<>(groups);
+        if (member) {
+            next.add(group);
+        } else {
+            next.remove(group);
+        }
+        return new Holder(nodes, Collections.unmodifiableSet(next), primaryGroup, meta);
+    }
+
+    @NotNull Holder withGroups(@NotNull Collection<String> groups) {
+        return new Holder(nodes, Collections.unmodifiableSet(new LinkedHashSet<>(groups)), primaryGroup, meta);
+    }
+
+    @NotNull Holder withPrimaryGroup(@Nullable String primaryGroup) {
+        return new Holder(nodes, groups, primaryGroup, meta);
+    }
+
+    @NotNull Holder withMeta(@NotNull String key, @Nullable String value) {
+        Map<String, String> next = new HashMap<>(meta);
+        if (value == null) {
+            next.remove(key);
+        } else {
+            next.put(key, value);
+        }
+        return new Holder(nodes, groups, primaryGroup, Collections.unmodifiableMap(next));
+    }
+
+    /**
+     * Checks whether the holder stores anything, so that an empty user can
+     * be dropped.
+     * 
+     * @return true if there is no node, group, primary group or meta
+     */
+    boolean isEmpty() {
+        return nodes.length == 0 && groups.isEmpty() && primaryGroup == null && meta.isEmpty();
+    }
+}
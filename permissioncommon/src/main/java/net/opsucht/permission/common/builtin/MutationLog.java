@@ -0,0 +1,176 @@
+package net.opsucht.permission.common.builtin;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of the changes to the built-in provider's data.
+ * 
+ * <p>Every change is one record with its own length and CRC32, numbered
+ * with a sequence that keeps growing across compactions. The state file
+ * remembers the last sequence it contains, so records that made it into
+ * the state file before a crash are skipped on replay. A record torn by a
+ * crash ends the replay, and the file is cut back to the last complete
+ * record before anything new is appended.</p>
+ * 
+ * <p>Records are written without forcing them to disk. They survive a crash
+ * of the server process, but not necessarily a power loss.</p>
+ * 
+ * <p>Not thread-safe; the owner has to synchronize access.</p>
+ * 
+ * @since 1.0.0
+ */
+final class MutationLog implements AutoCloseable {
+
+    private static final int MAGIC = 0x4F50534C; // "OPSL"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final BinaryWriter record = new BinaryWriter();
+    private FileChannel channel;
+    private int records;
+
+    MutationLog(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays the log and opens it for appending.
+     * 
+     * @param after  the last sequence already contained in the state file
+     * @param replay receives the changes after that sequence, in order
+     * @return the last sequence in the log, or {@code after} if there is none
+     * @throws IOException if the log cannot be read or written
+     */
+    long open(long after, @NotNull Consumer<BinaryReader> replay) throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        long last = after;
+        long valid = HEADER_SIZE;
+        // Shorter than the header means the log was cut while it was created
+        if (Files.isRegularFile(file) && Files.size(file) >= HEADER_SIZE) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a mutation log: " + file);
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported mutation log version: " + version);
+            }
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length < 9 || length > MAX_RECORD_SIZE || length > buffer.remaining()) {
+                    break; // Torn tail
+                }
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                CRC32 crc = new CRC32();
+                crc.update(bytes);
+                if ((int) crc.getValue() != checksum) {
+                    break; // Torn tail
+                }
+                valid = buffer.position();
+                records++;
+
+                BinaryReader in = new BinaryReader(bytes);
+                long sequence = in.readLong();
+                if (sequence > last) {
+                    try {
+                        replay.accept(in);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Malformed mutation log record " + sequence, e);
+                    }
+                    last = sequence;
+                }
+            }
+            channel = FileChannel.open(file, StandardOpenOption.WRITE);
+            channel.truncate(valid);
+            channel.position(valid);
+        } else {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            writeHeader();
+        }
+        return last;
+    }
+
+    /**
+     * Appends a change with one write.
+     * 
+     * @param sequence the sequence of the change, higher than every earlier one
+     * @param mutation the encoded change
+     * @throws IOException if the log cannot be written
+     * @throws IllegalStateException if the log has not been opened
+     */
+    void append(long sequence, byte @NotNull [] mutation) throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Mutation log is not open");
+        }
+        CRC32 crc = new CRC32();
+        ByteBuffer body = ByteBuffer.allocate(8 + mutation.length).putLong(sequence).put(mutation);
+        crc.update(body.array());
+        record.reset();
+        record.writeInt(body.capacity()).writeInt((int) crc.getValue()).writeBytes(body.array());
+        ByteBuffer data = ByteBuffer.wrap(record.toByteArray());
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+        records++;
+    }
+
+    /**
+     * Returns the number of records since the log was last cleared.
+     * 
+     * @return the number of records
+     */
+    int getRecords() {
+        return records;
+    }
+
+    /**
+     * Empties the log once the state file contains all of its changes.
+     * 
+     * @throws IOException if the log cannot be written
+     */
+    void clear() throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Mutation log is not open");
+        }
+        channel.truncate(0);
+        channel.position(0);
+        writeHeader();
+        records = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).put(VERSION);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+    }
+}
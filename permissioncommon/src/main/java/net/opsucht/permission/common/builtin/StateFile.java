@@ -0,0 +1,266 @@
+package net.opsucht.permission.common.builtin;
+
+import net.opsucht.permission.common.cache.NodeDictionary;
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Compacted copy of all data of the built-in provider, up to a sequence of
+ * the {@link MutationLog}.
+ * 
+ * <p>Layout of format version 1:</p>
+ * <pre>
+ * int     magic "OPSB"
+ * byte    version
+ * long    last sequence of the mutation log contained in this file
+ * int     body length
+ * int     CRC32 of the body
+ * body:
+ * varint  node count, then per node a length-prefixed UTF-8 string
+ * varint  group count, then per group: name, holder
+ * varint  user count, then per user: uuid, holder
+ * holder:
+ *         varint node count, then per node: node id &lt;&lt; 1 | value
+ *         varint group count, then per group its name
+ *         nullable primary group
+ *         varint meta count, then per entry: key, value
+ * </pre>
+ * 
+ * <p>Only nodes still held by someone are written, renumbered from zero.
+ * The file is read through a memory-mapped channel and rejected as a whole
+ * if the header or the checksum does not match. Writes go to a temporary
+ * file that replaces the old one, so a crash never leaves a half-written
+ * state behind.</p>
+ * 
+ * @since 1.0.0
+ */
+final class StateFile {
+
+    private static final int MAGIC = 0x4F505342; // "OPSB"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 4 + 4;
+
+    private final Path file;
+
+    StateFile(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Writes the data, replacing the previous contents of the file.
+     * 
+     * @param sequence the last sequence of the mutation log contained in the data
+     * @param nodes    the dictionary the node IDs of the holders refer to
+     * @param groups   the groups by lower-case name
+     * @param users    the users
+     * @throws IOException if the file cannot be written
+     */
+    void write(long sequence, @NotNull NodeDictionary nodes, @NotNull Map<String, Holder> groups,
+            @NotNull Map<UUID, Holder> users) throws IOException {
+        int[] remap = new int[nodes.size()];
+        Arrays.fill(remap, -1);
+        BinaryWriter table = new BinaryWriter(1024);
+        int used = 0;
+        for (Holder holder : groups.values()) {
+            used = collect(holder, nodes, remap, used, table);
+        }
+        for (Holder holder : users.values()) {
+            used = collect(holder, nodes, remap, used, table);
+        }
+
+        BinaryWriter body = new BinaryWriter(1024);
+        body.writeVarInt(used).writeBytes(table.toByteArray());
+        body.writeVarInt(groups.size());
+        for (Map.Entry<String, Holder> entry : groups.entrySet()) {
+            body.writeString(entry.getKey());
+            writeHolder(body, entry.getValue(), remap);
+        }
+        body.writeVarInt(users.size());
+        for (Map.Entry<UUID, Holder> entry : users.entrySet()) {
+            body.writeUuid(entry.getKey());
+            writeHolder(body, entry.getValue(), remap);
+        }
+        byte[] bytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putLong(sequence)
+                .putInt(bytes.length)
+                .putInt((int) crc.getValue());
+        header.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Reads the data into empty maps.
+     * 
+     * @param nodes  the dictionary to register the nodes in
+     * @param groups receives the groups by lower-case name
+     * @param users  receives the users
+     * @return the last sequence of the mutation log contained in the file, 0 if there is no file
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    long read(@NotNull NodeDictionary nodes, @NotNull Map<String, Holder> groups,
+            @NotNull Map<UUID, Holder> users) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return 0;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid state file size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a state file: " + file);
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported state file version: " + version);
+            }
+            long sequence = buffer.getLong();
+            int bodyLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (bodyLength != size - HEADER_SIZE) {
+                throw new IOException("State file is truncated");
+            }
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("State file checksum mismatch");
+            }
+
+            try {
+                readBody(new BinaryReader(buffer), nodes, groups, users);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed state file", e);
+            }
+            return sequence;
+        }
+    }
+
+    /**
+     * Assigns new IDs to the nodes of a holder that were not seen yet and
+     * writes their names to the table.
+     */
+    private static int collect(Holder holder, NodeDictionary nodes, int[] remap, int used, BinaryWriter table) {
+        for (int entry : holder.nodes) {
+            int id = entry >>> 1;
+            if (remap[id] < 0) {
+                remap[id] = used++;
+                table.writeString(nodes.nameOf(id));
+            }
+        }
+        return used;
+    }
+
+    private static void writeHolder(BinaryWriter out, Holder holder, int[] remap) {
+        out.writeVarInt(holder.nodes.length);
+        for (int entry : holder.nodes) {
+            out.writeVarInt(remap[entry >>> 1] << 1 | (entry & 1));
+        }
+        out.writeVarInt(holder.groups.size());
+        for (String group : holder.groups) {
+            out.writeString(group);
+        }
+        out.writeNullableString(holder.primaryGroup);
+        out.writeVarInt(holder.meta.size());
+        for (Map.Entry<String, String> entry : holder.meta.entrySet()) {
+            out.writeString(entry.getKey()).writeString(entry.getValue());
+        }
+    }
+
+    private static void readBody(BinaryReader in, NodeDictionary nodes, Map<String, Holder> groups,
+            Map<UUID, Holder> users) {
+        int[] ids = new int[in.readCount(1)];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = nodes.register(in.readString());
+        }
+        int groupCount = in.readCount(5);
+        for (int i = 0; i < groupCount; i++) {
+            String name = in.readString();
+            groups.put(name, readHolder(in, ids));
+        }
+        int userCount = in.readCount(16 + 4);
+        for (int i = 0; i < userCount; i++) {
+            UUID uuid = in.readUuid();
+            users.put(uuid, readHolder(in, ids));
+        }
+        if (in.remaining() != 0) {
+            throw new IllegalArgumentException("Trailing data after users");
+        }
+    }
+
+    private static Holder readHolder(BinaryReader in, int[] ids) {
+        int[] entries = new int[in.readCount(1)];
+        for (int i = 0; i < entries.length; i++) {
+            int value = in.readVarInt();
+            int index = value >>> 1;
+            if (index >= ids.length) {
+                throw new IllegalArgumentException("Unknown node id: " + index);
+            }
+            entries[i] = ids[index] << 1 | (value & 1);
+        }
+        // Registration may have numbered the nodes in a different order
+        Arrays.sort(entries);
+
+        int groupCount = in.readCount(1);
+        Set<String> memberOf = new LinkedHashSet<>();
+        for (int i = 0; i < groupCount; i++) {
+            memberOf.add(in.readString());
+        }
+        String primaryGroup = in.readNullableString();
+        int metaCount = in.readCount(2);
+        Map<String, String> meta = new HashMap<>();
+        for (int i = 0; i < metaCount; i++) {
+            meta.put(in.readString(), in.readString());
+        }
+        return new Holder(entries, Collections.unmodifiableSet(memberOf), primaryGroup,
+                Collections.unmodifiableMap(meta));
+    }
+}
@@ -0,0 +1,81 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.common.snapshot.SnapshotStore;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Saves the snapshots of a {@link CachedPermissionProvider} to a
+ * {@link SnapshotStore} and restores them on the next start.
+ * 
+ * <p>Platforms call {@link #restore()} while enabling, {@link #save()}
+ * periodically and on disable, and {@link #revalidate()} shortly after
+ * startup to replace restored state with what the backend has loaded by
+ * then. Failures are logged and never prevent the plugin from starting.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CachePersistence {
+
+    private final CachedPermissionProvider cache;
+    private final SnapshotStore store;
+    private final long maxAgeMs;
+    private final Logger logger;
+
+    /**
+     * @param cache the cache to persist
+     * @param store the store to use
+     * @param maxAgeMs the maximum age of a store that is still restored
+     * @param logger the logger for failures
+     */
+    public CachePersistence(@NotNull CachedPermissionProvider cache, @NotNull SnapshotStore store, long maxAgeMs,
+            @NotNull Logger logger) {
+        this.cache = cache;
+        this.store = store;
+        this.maxAgeMs = maxAgeMs;
+        this.logger = logger;
+    }
+
+    /**
+     * Installs the stored snapshots into the cache.
+     * 
+     * @return the number of restored players
+     */
+    public int restore() {
+        try {
+            List<UserSnapshot> snapshots = store.read(maxAgeMs);
+            for (UserSnapshot snapshot : snapshots) {
+                cache.install(snapshot);
+            }
+            return snapshots.size();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Gespeicherter Cache konnte nicht geladen werden: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Writes the current snapshots of the cache to the store.
+     */
+    public void save() {
+        try {
+            store.write(cache.snapshots());
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Cache konnte nicht gespeichert werden", e);
+        }
+    }
+
+    /**
+     * Refreshes restored snapshots from the backend.
+     * 
+     * @return the number of refreshed players
+     */
+    public int revalidate() {
+        return cache.revalidate();
+    }
+}
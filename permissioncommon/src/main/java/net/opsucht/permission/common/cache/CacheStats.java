@@ -0,0 +1,81 @@
+package net.opsucht.permission.common.cache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hit, miss, eviction and load time counters of a
+ * {@link CachedPermissionProvider}.
+ * 
+ * <p>Counters are {@link LongAdder}s, so recording from many threads does
+ * not contend. Evictions count both expired entries that were replaced and
+ * entries dropped by invalidation.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CacheStats {
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder loadNanos = new LongAdder();
+
+    void recordHit() {
+        hits.increment();
+    }
+
+    void recordMiss(long loadTimeNanos) {
+        misses.increment();
+        loadNanos.add(loadTimeNanos);
+    }
+
+    void recordEviction() {
+        evictions.increment();
+    }
+
+    void recordEvictions(int count) {
+        evictions.add(count);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the share of lookups answered from the cache.
+     * 
+     * @return the hit rate between 0 and 1, 0 if there were no lookups
+     */
+    public double getHitRate() {
+        long hitCount = getHits();
+        long total = hitCount + getMisses();
+        return total == 0 ? 0.0 : (double) hitCount / total;
+    }
+
+    /**
+     * Returns the mean time the delegate took to answer a miss.
+     * 
+     * @return the mean load time in nanoseconds, 0 if there were no misses
+     */
+    public double getMeanLoadNanos() {
+        long missCount = getMisses();
+        return missCount == 0 ? 0.0 : (double) loadNanos.sum() / missCount;
+    }
+
+    /**
+     * Clears all counters.
+     */
+    public void reset() {
+        hits.reset();
+        misses.reset();
+        evictions.reset();
+        loadNanos.reset();
+    }
+}
@@ -1,14 +1,35 @@
 package net.opsucht.permission.common.cache;
 
 import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.group.GroupGraph;
+import net.opsucht.permission.common.group.GroupHierarchy;
+import net.opsucht.permission.common.jfr.CacheEvictionEvent;
+import net.opsucht.permission.common.jfr.CacheLoadEvent;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.PermissionSetInterner;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.Tristate;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * A caching wrapper for PermissionProvider implementations.
@@ -17,19 +38,77 @@ import java.util.concurrent.TimeUnit;
  * It's particularly useful when permissions are checked frequently for
  * the same player and permission node.</p>
  * 
+ * <p>Prefix, suffix, primary group and meta values are cached as one
+ * immutable snapshot per player. The snapshot expires after the same
+ * duration as permission results and is dropped whenever a permission of
+ * that player is changed through this provider.</p>
+ * 
+ * <p>All state is kept per player, so a single node or a whole player can
+ * be invalidated without scanning the cache. Changes made through this
+ * provider are reported to registered {@link InvalidationListener}s, which
+ * is how other servers in the network learn about them.</p>
+ * 
+ * <p>A resolved {@link UserSnapshot} can be installed for a player. While it
+ * is valid, permission checks and group lookups for that player are answered
+ * from the snapshot without asking the delegate. Nodes that are not part of
+ * the snapshot count as not granted. A snapshot resolved elsewhere, such as
+ * one pushed by the proxy before the player arrives, is installed
+ * provisionally instead: nodes it does not define are checked as usual, and
+ * it is replaced as soon as the delegate has loaded the player. Any
+ * invalidation of the player drops the snapshot. Installed permission sets
+ * are interned, so players with the same resolved permissions share one
+ * {@link PermissionSet}.</p>
+ * 
+ * <p>Online players are kept in a {@link GroupIndex}: the platform calls
+ * {@link #trackMember(UUID)} on join and {@link #untrackMember(UUID)} on
+ * quit, and the index is refreshed whenever a player is invalidated, so
+ * {@link #getOnlineMembers(String)} and {@link #isMember(UUID, String)} do
+ * not resolve any player.</p>
+ * 
+ * <p>If the delegate is a {@link GroupHierarchy}, a {@link GroupGraph} with
+ * the closure of group inheritance is built as well. The platform keeps it
+ * current through {@link #refreshGroup(String)}. Each online player's
+ * inherited groups are cached as one bit set, so
+ * {@link #inheritsFrom(UUID, String)} is a single bit test until the
+ * player's groups or the graph change.</p>
+ * 
+ * <p>When a group changes, {@link #invalidateGroup(String)} finds the
+ * players that depend on it: the members of the group and of every group
+ * inheriting from it. Only their state is dropped or, for online players,
+ * recomputed with {@link #recomputeUser(UUID)}, usually in batches by a
+ * {@link GroupRecomputer}.</p>
+ * 
+ * <p>An {@link OffHeapSnapshotTier} can be attached as a second tier for
+ * players that are not online. The platform calls {@link #demoteUser(UUID)}
+ * when a player leaves, which moves the player's snapshot off the heap, and
+ * {@link #trackMember(UUID)} moves it back when the player returns. Checks
+ * and group lookups for players without a snapshot on the heap are answered
+ * from the tier before asking the delegate. Invalidations drop the player
+ * from both tiers.</p>
+ * 
+ * <p>Checks, loads from the delegate and evictions are reported as JFR
+ * events, see {@link PermissionCheckEvent}.</p>
+ * 
  * <p><b>Note:</b> This is a simple time-based cache. For production use,
  * consider integrating with the underlying permission system's cache
  * invalidation mechanisms.</p>
  * 
  * @since 1.0.0
  */
-public class CachedPermissionProvider implements PermissionProvider {
+public class CachedPermissionProvider implements PermissionProvider, SnapshotSource {
 
     private static final long DEFAULT_CACHE_DURATION_MS = TimeUnit.SECONDS.toMillis(30);
 
     private final PermissionProvider delegate;
-    private final Map<CacheKey, CachedValue> cache;
+    private final Map<UUID, UserEntry> users;
+    private final List<InvalidationListener> listeners;
     private final long cacheDurationMs;
+    private final CacheStats stats = new CacheStats();
+    private final GroupIndex groupIndex = new GroupIndex();
+    private final PermissionSetInterner interner = new PermissionSetInterner();
+    private final @Nullable GroupGraph groupGraph;
+    private final Map<UUID, Inheritance> inheritance = new ConcurrentHashMap<>();
+    private volatile @Nullable OffHeapSnapshotTier offHeap;
 
     /**
      * Creates a new cached provider with the default cache duration (30 seconds).
@@ -48,8 +127,15 @@ public class CachedPermissionProvider implements PermissionProvider {
      */
     public CachedPermissionProvider(@NotNull PermissionProvider delegate, long cacheDurationMs) {
         this.delegate = delegate;
-        this.cache = new ConcurrentHashMap<>();
+        this.users = new ConcurrentHashMap<>();
+        this.listeners = new CopyOnWriteArrayList<>();
         this.cacheDurationMs = cacheDurationMs;
+        if (delegate instanceof GroupHierarchy) {
+            this.groupGraph = new GroupGraph();
+            this.groupGraph.rebuild(((GroupHierarchy) delegate).getGroupParents());
+        } else {
+            this.groupGraph = null;
+        }
     }
 
     @Override
@@ -59,15 +145,55 @@ public class CachedPermissionProvider implements PermissionProvider {
 
     @Override
     public boolean has(@NotNull UUID uuid, @NotNull String permission) {
-        CacheKey key = new CacheKey(uuid, permission);
-        CachedValue cached = cache.get(key);
+        PermissionCheckEvent event = PermissionCheckEvent.start();
+        UserEntry entry = users.get(uuid);
+        CachedSnapshot snapshot = validSnapshot(entry);
+        if (snapshot != null && !snapshot.provisional) {
+            stats.recordHit();
+            boolean result = snapshot.value.getPermissions().test(permission);
+            event.finish(uuid, permission, this, result, true);
+            return result;
+        }
+        Tristate pushed = snapshot != null ? snapshot.value.getPermissions().check(permission) : Tristate.UNDEFINED;
+        if (pushed != Tristate.UNDEFINED) {
+            // A provisional snapshot only answers the nodes it defines
+            stats.recordHit();
+            boolean result = pushed.asBoolean();
+            event.finish(uuid, permission, this, result, true);
+            return result;
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        Tristate stored = tier != null ? tier.check(uuid, permission) : null;
+        if (stored != null) {
+            // No heap entry is created, so offline players stay off the heap
+            stats.recordHit();
+            boolean result = stored.asBoolean();
+            event.finish(uuid, permission, this, result, true);
+            return result;
+        }
+        if (entry == null) {
+            entry = users.computeIfAbsent(uuid, UserEntry::new);
+        }
 
-        if (cached != null && !cached.isExpired()) {
-            return cached.value;
+        CachedValue cached = entry.permissions.get(permission);
+
+        if (cached != null) {
+            if (!cached.isExpired()) {
+                stats.recordHit();
+                event.finish(uuid, permission, this, cached.value, true);
+                return cached.value;
+            }
+            stats.recordEviction();
+            CacheEvictionEvent.emit(uuid, permission, 1, CacheEvictionEvent.EXPIRED);
         }
 
+        CacheLoadEvent load = CacheLoadEvent.start();
+        long start = System.nanoTime();
         boolean result = delegate.has(uuid, permission);
-        cache.put(key, new CachedValue(result, System.currentTimeMillis() + cacheDurationMs));
+        stats.recordMiss(System.nanoTime() - start);
+        load.finish(uuid, permission, delegate, result);
+        entry.permissions.put(permission, new CachedValue(result, System.currentTimeMillis() + cacheDurationMs));
+        event.finish(uuid, permission, this, result, false);
         return result;
     }
 
@@ -75,29 +201,82 @@ public class CachedPermissionProvider implements PermissionProvider {
     public void add(@NotNull UUID uuid, @NotNull String permission) {
         delegate.add(uuid, permission);
         invalidateCache(uuid, permission);
+        fireInvalidation(uuid, permission);
     }
 
     @Override
     public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
         return delegate.addAsync(uuid, permission)
-                .thenRun(() -> invalidateCache(uuid, permission));
+                .thenRun(() -> {
+                    invalidateCache(uuid, permission);
+                    fireInvalidation(uuid, permission);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        // A timed out change may still be applied, so invalidate either way
+        return delegate.addAsync(uuid, permission, timeout)
+                .whenComplete((ignored, error) -> {
+                    invalidateCache(uuid, permission);
+                    fireInvalidation(uuid, permission);
+                });
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        delegate.addTemporary(uuid, permission, duration);
+        invalidateCache(uuid, permission);
+        fireInvalidation(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return delegate.addTemporaryAsync(uuid, permission, duration)
+                .thenRun(() -> {
+                    invalidateCache(uuid, permission);
+                    fireInvalidation(uuid, permission);
+                });
     }
 
     @Override
     public void remove(@NotNull UUID uuid, @NotNull String permission) {
         delegate.remove(uuid, permission);
         invalidateCache(uuid, permission);
+        fireInvalidation(uuid, permission);
     }
 
     @Override
     public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
         return delegate.removeAsync(uuid, permission)
-                .thenRun(() -> invalidateCache(uuid, permission));
+                .thenRun(() -> {
+                    invalidateCache(uuid, permission);
+                    fireInvalidation(uuid, permission);
+                });
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        // A timed out change may still be applied, so invalidate either way
+        return delegate.removeAsync(uuid, permission, timeout)
+                .whenComplete((ignored, error) -> {
+                    invalidateCache(uuid, permission);
+                    fireInvalidation(uuid, permission);
+                });
     }
 
     @Override
     public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
-        return delegate.getGroups(uuid);
+        CachedSnapshot snapshot = validSnapshot(users.get(uuid));
+        if (snapshot != null) {
+            return snapshot.value.getGroups();
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        Set<String> stored = tier != null ? tier.getGroups(uuid) : null;
+        return stored != null ? stored : delegate.getGroups(uuid);
     }
 
     @Override
@@ -105,46 +284,611 @@ public class CachedPermissionProvider implements PermissionProvider {
         return delegate.getGroups();
     }
 
+    @Override
+    public boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        if (groupIndex.isTracked(uuid)) {
+            return groupIndex.isMember(uuid, group);
+        }
+        return PermissionProvider.super.isMember(uuid, group);
+    }
+
+    @Override
+    public boolean inheritsFrom(@NotNull UUID uuid, @NotNull String group) {
+        GroupGraph graph = groupGraph;
+        if (graph == null) {
+            return delegate.inheritsFrom(uuid, group);
+        }
+        int id = graph.idOf(group);
+        if (id < 0) {
+            // Not part of any hierarchy, so only direct membership counts
+            return isMember(uuid, group);
+        }
+        Set<String> direct = groupIndex.getGroups(uuid);
+        if (direct == null) {
+            return graph.closureOf(delegate.getGroups(uuid)).get(id);
+        }
+        long version = graph.getVersion();
+        Inheritance cached = inheritance.get(uuid);
+        if (cached == null || cached.groups != direct || cached.version != version) {
+            cached = new Inheritance(direct, version, graph.closureOf(direct));
+            inheritance.put(uuid, cached);
+            if (!groupIndex.isTracked(uuid)) {
+                inheritance.remove(uuid);
+            }
+        }
+        return cached.closure.get(id);
+    }
+
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        return groupIndex.getMembers(group);
+    }
+
+    /**
+     * Reloads the parents of a group into the group graph after its
+     * definition changed. Does nothing if the delegate has no group
+     * hierarchy.
+     * 
+     * @param group the name of the changed or deleted group
+     */
+    public void refreshGroup(@NotNull String group) {
+        if (groupGraph != null) {
+            groupGraph.update(group, ((GroupHierarchy) delegate).getParents(group));
+        }
+    }
+
     /**
-     * Invalidates the cache entry for the given player and permission.
+     * Drops the cached state that depends on a group after its nodes,
+     * parents or meta changed, and returns the online players whose state
+     * needs to be recomputed.
+     * 
+     * <p>A player depends on the group if one of their direct groups is the
+     * group or inherits from it according to the group graph. Online players
+     * are found through the group index and keep their state until they are
+     * passed to {@link #recomputeUser(UUID)}. Other cached players are dropped
+     * right away, unless their groups are known from a snapshot and show that
+     * they are not affected. Without a group hierarchy, every cached player
+     * counts as affected.</p>
+     * 
+     * @param group the name of the changed or deleted group
+     * @return the affected online players
+     */
+    public @NotNull Set<UUID> invalidateGroup(@NotNull String group) {
+        refreshGroup(group);
+        Set<String> affected = groupGraph != null ? groupGraph.getDescendants(group) : null;
+        Set<UUID> online = new HashSet<>();
+        if (affected != null) {
+            for (String descendant : affected) {
+                online.addAll(groupIndex.getMembers(descendant));
+            }
+        }
+        for (UserEntry entry : users.values()) {
+            if (groupIndex.isTracked(entry.uuid)) {
+                if (affected == null) {
+                    online.add(entry.uuid);
+                }
+                continue;
+            }
+            CachedSnapshot snapshot = entry.snapshot;
+            if (affected == null || snapshot == null || dependsOn(snapshot.value.getGroups(), affected)) {
+                invalidateUser(entry.uuid);
+            }
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        if (tier != null) {
+            if (affected != null) {
+                tier.removeMembers(affected);
+            } else {
+                tier.clear();
+            }
+        }
+        return online;
+    }
+
+    private static boolean dependsOn(Set<String> groups, Set<String> affected) {
+        for (String group : groups) {
+            if (affected.contains(group.toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Replaces all cached state of a player with freshly resolved state.
+     * If the delegate is a {@link SnapshotSource}, the new snapshot is
+     * installed in the same step, so the player never misses the cache;
+     * otherwise this is the same as {@link #invalidateUser(UUID)}.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void recomputeUser(@NotNull UUID uuid) {
+        if (!(delegate instanceof SnapshotSource)) {
+            invalidateUser(uuid);
+            return;
+        }
+        UserSnapshot loaded = ((SnapshotSource) delegate).snapshot(uuid);
+        UserEntry entry = new UserEntry(uuid);
+        if (loaded != null) {
+            entry.snapshot = new CachedSnapshot(intern(loaded), System.currentTimeMillis() + cacheDurationMs, false);
+        }
+        UserEntry previous = users.put(uuid, entry);
+        if (previous != null) {
+            int evicted = previous.permissions.size();
+            stats.recordEvictions(evicted);
+            CacheEvictionEvent.emit(uuid, null, evicted, CacheEvictionEvent.USER);
+        }
+        refreshMember(uuid);
+    }
+
+    /**
+     * Returns the closure of group inheritance.
+     * 
+     * @return the graph, or null if the delegate has no group hierarchy
+     */
+    public @Nullable GroupGraph getGroupGraph() {
+        return groupGraph;
+    }
+
+    /**
+     * Adds a player that joined to the group index and installs the player's
+     * snapshot, taken from the off-heap tier or, like in
+     * {@link #recomputeUser(UUID)}, resolved by the delegate.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void trackMember(@NotNull UUID uuid) {
+        OffHeapSnapshotTier tier = offHeap;
+        UserSnapshot stored = tier != null ? tier.get(uuid) : null;
+        if (stored != null) {
+            tier.remove(uuid);
+            store(stored);
+        } else if (delegate instanceof SnapshotSource) {
+            UserSnapshot loaded = ((SnapshotSource) delegate).snapshot(uuid);
+            if (loaded != null) {
+                store(loaded);
+            }
+        }
+        groupIndex.track(uuid, delegate.getGroups(uuid));
+    }
+
+    /**
+     * Removes a player that left from the group index.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void untrackMember(@NotNull UUID uuid) {
+        groupIndex.untrack(uuid);
+        inheritance.remove(uuid);
+    }
+
+    /**
+     * Resolves the groups of an online player again, for example after the
+     * permission system recalculated the player's data. Does nothing for
+     * players that are not in the group index.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void refreshMember(@NotNull UUID uuid) {
+        if (groupIndex.isTracked(uuid)) {
+            groupIndex.refresh(uuid, delegate.getGroups(uuid));
+        }
+    }
+
+    /**
+     * Returns the index from groups to online players.
+     * 
+     * @return the group index
+     */
+    public @NotNull GroupIndex getGroupIndex() {
+        return groupIndex;
+    }
+
+    /**
+     * Returns the interner shared by all installed permission sets.
+     * 
+     * @return the interner
+     */
+    public @NotNull PermissionSetInterner getInterner() {
+        return interner;
+    }
+
+    /**
+     * Attaches a second tier for players that are not online, or detaches
+     * it. Snapshots stored in a detached tier are not moved back.
+     * 
+     * @param tier the tier, or null to use the heap only
+     */
+    public void setOffHeapTier(@Nullable OffHeapSnapshotTier tier) {
+        this.offHeap = tier;
+    }
+
+    public @Nullable OffHeapSnapshotTier getOffHeapTier() {
+        return offHeap;
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        return meta(uuid).prefix;
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        return meta(uuid).suffix;
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        UserEntry entry = users.computeIfAbsent(uuid, UserEntry::new);
+        MetaSnapshot snapshot = meta(entry);
+        if (snapshot.values.containsKey(key)) {
+            return snapshot.values.get(key);
+        }
+
+        String value = delegate.getMeta(uuid, key);
+        // Only extend the snapshot we read; a concurrent invalidation wins
+        entry.meta.compareAndSet(snapshot, snapshot.withValue(key, value));
+        return value;
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        return meta(uuid).primaryGroup;
+    }
+
+    /**
+     * Returns the meta snapshot of a player, loading it from the delegate
+     * if it is missing or expired.
+     * 
+     * @param uuid the player's UUID
+     * @return the current snapshot
+     */
+    private @NotNull MetaSnapshot meta(@NotNull UUID uuid) {
+        return meta(users.computeIfAbsent(uuid, UserEntry::new));
+    }
+
+    private @NotNull MetaSnapshot meta(@NotNull UserEntry entry) {
+        MetaSnapshot cached = entry.meta.get();
+        if (cached != null && !cached.isExpired()) {
+            return cached;
+        }
+
+        MetaSnapshot loaded = new MetaSnapshot(
+                delegate.getPrefix(entry.uuid),
+                delegate.getSuffix(entry.uuid),
+                delegate.getPrimaryGroup(entry.uuid),
+                Collections.emptyMap(),
+                System.currentTimeMillis() + cacheDurationMs);
+        entry.meta.set(loaded);
+        return loaded;
+    }
+
+    /**
+     * Returns the installed snapshot of a player, or resolves and installs
+     * one if the delegate is a {@link SnapshotSource}.
+     * 
+     * @param uuid the player's UUID
+     * @return the snapshot, or null if none is available
+     */
+    @Override
+    public @Nullable UserSnapshot snapshot(@NotNull UUID uuid) {
+        CachedSnapshot cached = validSnapshot(users.get(uuid));
+        if (cached != null) {
+            return cached.value;
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        UserSnapshot stored = tier != null ? tier.get(uuid) : null;
+        if (stored != null) {
+            return stored;
+        }
+        if (!(delegate instanceof SnapshotSource)) {
+            return null;
+        }
+
+        UserSnapshot loaded = ((SnapshotSource) delegate).snapshot(uuid);
+        return loaded != null ? store(loaded) : null;
+    }
+
+    /**
+     * Resolves a snapshot of a loaded player for another server of the
+     * network. The result comes from the delegate and is not cached, since
+     * it does not describe the player on this node.
+     * 
+     * @param uuid   the player's UUID
+     * @param server the name of the other server
+     * @return the snapshot, or null if none is available
+     */
+    @Override
+    public @Nullable UserSnapshot snapshot(@NotNull UUID uuid, @NotNull String server) {
+        if (delegate instanceof SnapshotSource) {
+            return ((SnapshotSource) delegate).snapshot(uuid, server);
+        }
+        return snapshot(uuid);
+    }
+
+    /**
+     * Installs a resolved snapshot for a player. It is used for permission
+     * checks and group lookups until it expires or the player is invalidated.
+     * 
+     * @param snapshot the snapshot to install
+     */
+    public void install(@NotNull UserSnapshot snapshot) {
+        store(snapshot);
+    }
+
+    /**
+     * Installs a snapshot resolved elsewhere, for example pushed by the proxy,
+     * as a stop-gap until the delegate has loaded the player.
+     * 
+     * <p>Unlike {@link #install(UserSnapshot)}, nodes missing from the
+     * snapshot are not denied but checked as usual, since the other node may
+     * have resolved the player in different contexts. As soon as the
+     * delegate can resolve a snapshot of its own, it replaces this one.</p>
+     * 
+     * @param snapshot the snapshot to install
+     */
+    public void installProvisional(@NotNull UserSnapshot snapshot) {
+        UserEntry entry = users.computeIfAbsent(snapshot.getUuid(), UserEntry::new);
+        entry.snapshot = new CachedSnapshot(intern(snapshot), System.currentTimeMillis() + cacheDurationMs, true);
+    }
+
+    private @NotNull UserSnapshot store(@NotNull UserSnapshot snapshot) {
+        snapshot = intern(snapshot);
+        UserEntry entry = users.computeIfAbsent(snapshot.getUuid(), UserEntry::new);
+        entry.snapshot = new CachedSnapshot(snapshot, System.currentTimeMillis() + cacheDurationMs, false);
+        return snapshot;
+    }
+
+    /**
+     * Returns the unexpired snapshot of a player. A provisional snapshot is
+     * replaced by the delegate's own once the delegate has loaded the player.
+     */
+    private @Nullable CachedSnapshot validSnapshot(@Nullable UserEntry entry) {
+        CachedSnapshot snapshot = entry != null ? entry.snapshot : null;
+        if (snapshot == null || snapshot.isExpired()) {
+            return null;
+        }
+        if (snapshot.provisional && delegate instanceof SnapshotSource) {
+            UserSnapshot loaded = ((SnapshotSource) delegate).snapshot(entry.uuid);
+            if (loaded != null) {
+                CachedSnapshot replaced = new CachedSnapshot(intern(loaded),
+                        System.currentTimeMillis() + cacheDurationMs, false);
+                entry.snapshot = replaced;
+                return replaced;
+            }
+        }
+        return snapshot;
+    }
+
+    private @NotNull UserSnapshot intern(@NotNull UserSnapshot snapshot) {
+        PermissionSet permissions = interner.intern(snapshot.getPermissions());
+        if (permissions == snapshot.getPermissions()) {
+            return snapshot;
+        }
+        return new UserSnapshot(snapshot.getUuid(), permissions, snapshot.getGroups(),
+                snapshot.getPrimaryGroup(), snapshot.getCreatedAt());
+    }
+
+    /**
+     * Returns a snapshot of every cached player for which one is available,
+     * for example to persist the cache.
+     * 
+     * @return the snapshots
+     */
+    public @NotNull List<UserSnapshot> snapshots() {
+        List<UserSnapshot> snapshots = new ArrayList<>(users.size());
+        for (UUID uuid : users.keySet()) {
+            UserSnapshot snapshot = snapshot(uuid);
+            if (snapshot != null) {
+                snapshots.add(snapshot);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Replaces installed snapshots with freshly resolved ones where the
+     * delegate can provide them. Snapshots the delegate cannot resolve yet
+     * stay in place until they expire.
+     * 
+     * @return the number of refreshed snapshots
+     */
+    public int revalidate() {
+        if (!(delegate instanceof SnapshotSource)) {
+            return 0;
+        }
+        int refreshed = 0;
+        for (UserEntry entry : users.values()) {
+            if (entry.snapshot == null) {
+                continue;
+            }
+            UserSnapshot loaded = ((SnapshotSource) delegate).snapshot(entry.uuid);
+            if (loaded != null) {
+                install(loaded);
+                refreshed++;
+            }
+        }
+        return refreshed;
+    }
+
+    /**
+     * Drops the cached result of one permission of a player, along with the
+     * player's meta snapshot. For a wildcard or group node, all state of the
+     * player is dropped, as in {@link #invalidateUser(UUID)}.
+     * 
+     * <p>Unlike a change made through {@link #add} or {@link #remove}, this
+     * is not reported to the {@link InvalidationListener}s. It is meant for
+     * applying changes that were made elsewhere.</p>
+     * 
+     * @param uuid the player's UUID
+     * @param permission the permission node
+     */
+    public void invalidate(@NotNull UUID uuid, @NotNull String permission) {
+        invalidateCache(uuid, permission);
+    }
+
+    /**
+     * Drops all cached state of a player. An online player stays in the
+     * group index with freshly resolved groups.
+     * 
+     * <p>Like {@link #invalidate(UUID, String)}, this is not reported to the
+     * {@link InvalidationListener}s.</p>
+     * 
+     * @param uuid the player's UUID
+     */
+    public void invalidateUser(@NotNull UUID uuid) {
+        UserEntry entry = users.remove(uuid);
+        if (entry != null) {
+            int evicted = entry.permissions.size();
+            stats.recordEvictions(evicted);
+            CacheEvictionEvent.emit(uuid, null, evicted, CacheEvictionEvent.USER);
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        if (tier != null) {
+            tier.remove(uuid);
+        }
+        refreshMember(uuid);
+    }
+
+    /**
+     * Moves a player who left into the off-heap tier: the player's snapshot
+     * is stored there, resolved from the delegate if there is none on the
+     * heap, and all heap state of the player is dropped. Without a tier,
+     * this is the same as {@link #invalidateUser(UUID)}.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void demoteUser(@NotNull UUID uuid) {
+        OffHeapSnapshotTier tier = offHeap;
+        UserSnapshot snapshot = null;
+        if (tier != null) {
+            UserEntry entry = users.get(uuid);
+            CachedSnapshot cached = entry != null ? entry.snapshot : null;
+            if (cached != null && !cached.isExpired()) {
+                snapshot = cached.value;
+            } else if (delegate instanceof SnapshotSource) {
+                snapshot = ((SnapshotSource) delegate).snapshot(uuid);
+            }
+        }
+        invalidateUser(uuid);
+        if (snapshot != null) {
+            tier.put(snapshot);
+        }
+    }
+
+    /**
+     * Registers a listener for changes made through this provider.
+     * 
+     * @param listener the listener to add
+     */
+    public void addInvalidationListener(@NotNull InvalidationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Unregisters a previously added listener.
+     * 
+     * @param listener the listener to remove
+     */
+    public void removeInvalidationListener(@NotNull InvalidationListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Invalidates the cache entry for the given player and permission. A
+     * wildcard or group node can change the result of any other node, so it
+     * invalidates the whole player.
      * 
      * @param uuid the player's UUID
      * @param permission the permission node
      */
     private void invalidateCache(@NotNull UUID uuid, @NotNull String permission) {
-        cache.remove(new CacheKey(uuid, permission));
+        if (affectsOtherNodes(permission)) {
+            invalidateUser(uuid);
+            return;
+        }
+        refreshMember(uuid);
+        UserEntry entry = users.get(uuid);
+        OffHeapSnapshotTier tier = offHeap;
+        if (tier != null) {
+            tier.remove(uuid);
+        }
+        if (entry == null) {
+            return;
+        }
+        if (entry.permissions.remove(permission) != null) {
+            stats.recordEviction();
+            CacheEvictionEvent.emit(uuid, permission, 1, CacheEvictionEvent.INVALIDATED);
+        }
+        // Any node may carry prefix, suffix or meta data, or change the groups
+        entry.meta.set(null);
+        entry.snapshot = null;
+    }
+
+    private void fireInvalidation(@NotNull UUID uuid, @Nullable String permission) {
+        String node = permission != null && affectsOtherNodes(permission) ? null : permission;
+        for (InvalidationListener listener : listeners) {
+            listener.onInvalidate(uuid, node);
+        }
+    }
+
+    /**
+     * Returns whether changing a node can change the result of other nodes:
+     * wildcards such as {@code foo.*} or {@code *}, and group memberships.
+     */
+    private static boolean affectsOtherNodes(@NotNull String permission) {
+        return permission.indexOf('*') >= 0 || permission.regionMatches(true, 0, "group.", 0, 6);
     }
 
     /**
      * Clears all cached entries.
      */
     public void clearCache() {
-        cache.clear();
+        for (UUID uuid : users.keySet()) {
+            invalidateUser(uuid);
+        }
+        OffHeapSnapshotTier tier = offHeap;
+        if (tier != null) {
+            tier.clear();
+        }
     }
 
     /**
-     * Cache key combining UUID and permission.
+     * Returns the hit, miss and eviction counters of permission checks.
+     * 
+     * @return the statistics of this cache
      */
-    private static class CacheKey {
-        private final UUID uuid;
-        private final String permission;
+    public @NotNull CacheStats getStats() {
+        return stats;
+    }
 
-        CacheKey(UUID uuid, String permission) {
-            this.uuid = uuid;
-            this.permission = permission;
-        }
+    /**
+     * The inherited groups of an online player, valid while the player's
+     * groups and the graph version are unchanged.
+     */
+    private static class Inheritance {
+        private final Set<String> groups;
+        private final long version;
+        private final BitSet closure;
 
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (!(o instanceof CacheKey)) return false;
-            CacheKey cacheKey = (CacheKey) o;
-            return uuid.equals(cacheKey.uuid) && permission.equals(cacheKey.permission);
+        Inheritance(Set<String> groups, long version, BitSet closure) {
+            this.groups = groups;
+            this.version = version;
+            this.closure = closure;
         }
+    }
 
-        @Override
-        public int hashCode() {
-            return 31 * uuid.hashCode() + permission.hashCode();
+    /**
+     * All cached state of a single player.
+     */
+    private static class UserEntry {
+        private final UUID uuid;
+        private final Map<String, CachedValue> permissions = new ConcurrentHashMap<>();
+        private final AtomicReference<MetaSnapshot> meta = new AtomicReference<>();
+        private volatile CachedSnapshot snapshot;
+
+        UserEntry(UUID uuid) {
+            this.uuid = uuid;
         }
     }
 
@@ -164,4 +908,55 @@ public class CachedPermissionProvider implements PermissionProvider {
             return System.currentTimeMillis() > expiresAt;
         }
     }
+
+    /**
+     * Installed user snapshot with expiration time. A provisional snapshot
+     * was resolved elsewhere and only answers the nodes it defines.
+     */
+    private static class CachedSnapshot {
+        private final UserSnapshot value;
+        private final long expiresAt;
+        private final boolean provisional;
+
+        CachedSnapshot(UserSnapshot value, long expiresAt, boolean provisional) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.provisional = provisional;
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
+
+    /**
+     * Immutable snapshot of a player's prefix, suffix, primary group and
+     * the meta keys requested so far. Meta keys are added copy-on-write.
+     */
+    private static class MetaSnapshot {
+        private final @Nullable String prefix;
+        private final @Nullable String suffix;
+        private final @Nullable String primaryGroup;
+        private final Map<String, String> values;
+        private final long expiresAt;
+
+        MetaSnapshot(@Nullable String prefix, @Nullable String suffix, @Nullable String primaryGroup,
+                Map<String, String> values, long expiresAt) {
+            this.prefix = prefix;
+            this.suffix = suffix;
+            this.primaryGroup = primaryGroup;
+            this.values = values;
+            this.expiresAt = expiresAt;
+        }
+
+        MetaSnapshot withValue(String key, @Nullable String value) {
+            Map<String, String> copy = new HashMap<>(values);
+            copy.put(key, value);
+            return new MetaSnapshot(prefix, suffix, primaryGroup, Collections.unmodifiableMap(copy), expiresAt);
+        }
+
+        boolean isExpired() {
+            return System.currentTimeMillis() > expiresAt;
+        }
+    }
 }
@@ -0,0 +1,174 @@
+package net.opsucht.permission.common.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Index from groups to the online players that belong to them.
+ * 
+ * <p>Players are added when they join and removed when they leave. In
+ * between, their entry is replaced whenever their groups may have changed.
+ * Each update only touches the groups that were added or removed, so the
+ * index is maintained incrementally and a membership query never resolves
+ * any player: {@link #getMembers(String)} costs time proportional to the
+ * number of members, {@link #isMember(UUID, String)} is constant.</p>
+ * 
+ * <p>Updates of one player are serialized, updates of different players run
+ * concurrently. Group names are stored in lower case.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class GroupIndex {
+
+    private final Map<String, Set<UUID>> members = new ConcurrentHashMap<>();
+    private final Map<UUID, Set<String>> groups = new ConcurrentHashMap<>();
+
+    /**
+     * Adds a player to the index, or replaces their groups if already present.
+     * 
+     * @param uuid   the player's UUID
+     * @param groups the player's current groups
+     */
+    public void track(@NotNull UUID uuid, @NotNull Collection<String> groups) {
+        Set<String> next = normalize(groups);
+        this.groups.compute(uuid, (key, previous) -> apply(uuid, previous, next));
+    }
+
+    /**
+     * Replaces the groups of a player, unless the player left in the meantime.
+     * 
+     * @param uuid   the player's UUID
+     * @param groups the player's current groups
+     * @return true if the player is tracked
+     */
+    public boolean refresh(@NotNull UUID uuid, @NotNull Collection<String> groups) {
+        Set<String> next = normalize(groups);
+        return this.groups.computeIfPresent(uuid, (key, previous) -> apply(uuid, previous, next)) != null;
+    }
+
+    /**
+     * Removes a player from the index.
+     * 
+     * @param uuid the player's UUID
+     */
+    public void untrack(@NotNull UUID uuid) {
+        groups.computeIfPresent(uuid, (key, previous) -> {
+            for (String group : previous) {
+                leave(group, uuid);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Checks whether a player is in the index.
+     * 
+     * @param uuid the player's UUID
+     * @return true if the player is tracked
+     */
+    public boolean isTracked(@NotNull UUID uuid) {
+        return groups.containsKey(uuid);
+    }
+
+    /**
+     * Returns the groups of a tracked player. The set is replaced, never
+     * modified, when the player's groups change.
+     * 
+     * @param uuid the player's UUID
+     * @return the lower-case groups, or null if the player is not tracked
+     */
+    public @Nullable Set<String> getGroups(@NotNull UUID uuid) {
+        return groups.get(uuid);
+    }
+
+    /**
+     * Checks whether a tracked player belongs to a group.
+     * 
+     * @param uuid  the player's UUID
+     * @param group the group name, case-insensitive
+     * @return true if the player is tracked and a member of the group
+     */
+    public boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        Set<UUID> uuids = members.get(group.toLowerCase(Locale.ROOT));
+        return uuids != null && uuids.contains(uuid);
+    }
+
+    /**
+     * Returns the tracked members of a group.
+     * 
+     * @param group the group name, case-insensitive
+     * @return a copy of the members
+     */
+    public @NotNull Set<UUID> getMembers(@NotNull String group) {
+        Set<UUID> uuids = members.get(group.toLowerCase(Locale.ROOT));
+        return uuids == null ? Set.of() : Set.copyOf(uuids);
+    }
+
+    /**
+     * Returns the number of tracked players.
+     * 
+     * @return the number of players
+     */
+    public int size() {
+        return groups.size();
+    }
+
+    /**
+     * Removes all players.
+     */
+    public void clear() {
+        for (UUID uuid : groups.keySet()) {
+            untrack(uuid);
+        }
+    }
+
+    private Set<String> apply(UUID uuid, Set<String> previous, Set<String> next) {
+        if (previous != null) {
+            for (String group : previous) {
+                if (!next.contains(group)) {
+                    leave(group, uuid);
+                }
+            }
+        }
+        for (String group : next) {
+            if (previous == null || !previous.contains(group)) {
+                join(group, uuid);
+            }
+        }
+        return next;
+    }
+
+    private void join(String group, UUID uuid) {
+        members.compute(group, (key, uuids) -> {
+            if (uuids == null) {
+                uuids = ConcurrentHashMap.newKeySet();
+            }
+            uuids.add(uuid);
+            return uuids;
+        });
+    }
+
+    private void leave(String group, UUID uuid) {
+        members.computeIfPresent(group, (key, uuids) -> {
+            uuids.remove(uuid);
+            return uuids.isEmpty() ? null : uuids;
+        });
+    }
+
+    private static Set<String> normalize(Collection<String> groups) {
+        Set<String> normalized = new HashSet<>(groups.size() * 2);
+        for (String group : groups) {
+            normalized.add(group.toLowerCase(Locale.ROOT));
+        }
+        return Collections.unmodifiableSet(normalized);
+    }
+}
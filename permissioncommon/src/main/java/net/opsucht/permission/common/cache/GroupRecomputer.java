@@ -0,0 +1,95 @@
+package net.opsucht.permission.common.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Applies group changes to a {@link CachedPermissionProvider} without
+ * clearing it.
+ * 
+ * <p>{@link #groupChanged(String)} only queues the group, so it is cheap
+ * to call from event threads. Each {@link #run()}, which the platform
+ * schedules off the main thread once per tick, first resolves the queued
+ * groups to the players that depend on them with
+ * {@link CachedPermissionProvider#invalidateGroup(String)}, then recomputes
+ * at most one batch of those players. A change to a group with many online
+ * members is thus spread over several runs instead of turning into one
+ * burst of cache misses. Until its turn, a player keeps the state cached
+ * before the change.</p>
+ * 
+ * <p>A player queued several times is recomputed once.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class GroupRecomputer implements Runnable {
+
+    private final CachedPermissionProvider cache;
+    private final int batchSize;
+    private final Queue<String> groups = new ConcurrentLinkedQueue<>();
+    private final Queue<UUID> pending = new ConcurrentLinkedQueue<>();
+    private final Set<UUID> queued = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param cache     the cache to keep current
+     * @param batchSize the maximum number of players recomputed per run
+     */
+    public GroupRecomputer(@NotNull CachedPermissionProvider cache, int batchSize) {
+        this.cache = cache;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queues a group whose nodes, parents or meta changed, or that was
+     * deleted.
+     * 
+     * @param group the group name
+     */
+    public void groupChanged(@NotNull String group) {
+        groups.add(group);
+    }
+
+    /**
+     * Resolves the queued groups and recomputes one batch of the affected
+     * players.
+     */
+    @Override
+    public synchronized void run() {
+        String group;
+        while ((group = groups.poll()) != null) {
+            for (UUID uuid : cache.invalidateGroup(group)) {
+                if (queued.add(uuid)) {
+                    pending.add(uuid);
+                }
+            }
+        }
+        for (int i = 0; i < batchSize; i++) {
+            UUID uuid = pending.poll();
+            if (uuid == null) {
+                return;
+            }
+            // Removed first, so a change during the recomputation queues the player again
+            queued.remove(uuid);
+            if (cache.getGroupIndex().isTracked(uuid)) {
+                cache.recomputeUser(uuid);
+            } else {
+                // Left in the meantime, so there is nothing to warm up
+                cache.invalidateUser(uuid);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of players waiting to be recomputed, not counting
+     * groups that were not resolved yet.
+     * 
+     * @return the number of players
+     */
+    public int getPending() {
+        return queued.size();
+    }
+}
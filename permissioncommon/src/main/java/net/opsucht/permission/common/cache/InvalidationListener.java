@@ -0,0 +1,28 @@
+package net.opsucht.permission.common.cache;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Listener for permission changes made through a {@link CachedPermissionProvider}.
+ * 
+ * <p>Listeners are called on the thread that completed the change. They
+ * should return quickly and hand off any I/O.</p>
+ * 
+ * @since 1.0.0
+ */
+@FunctionalInterface
+public interface InvalidationListener {
+
+    /**
+     * Called after cached state of a player became stale.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the changed permission node, or null if all state
+     *                   of the player is affected, as after changing a
+     *                   wildcard or group node
+     */
+    void onInvalidate(@NotNull UUID uuid, @Nullable String permission);
+}
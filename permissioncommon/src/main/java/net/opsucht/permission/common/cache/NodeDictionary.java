@@ -0,0 +1,86 @@
+package net.opsucht.permission.common.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Assigns dense int IDs to strings such as permission nodes or group names.
+ * 
+ * <p>The off-heap tier and the built-in provider store IDs instead of
+ * strings, so each distinct node is kept on the heap once no matter how
+ * many players hold it. IDs are never reused; the dictionary grows with the
+ * number of distinct strings, which is small compared to the number of
+ * players.</p>
+ * 
+ * <p>Lookups do not lock. New strings are registered under a lock.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class NodeDictionary {
+
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[64];
+    private int size;
+
+    /**
+     * Returns the ID of a string.
+     * 
+     * @param name the string
+     * @return the ID, or -1 if the string was never registered
+     */
+    public int idOf(@NotNull String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Returns the ID of a string, registering it if needed.
+     * 
+     * @param name the string
+     * @return the ID
+     */
+    public int register(@NotNull String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        synchronized (this) {
+            id = ids.get(name);
+            if (id != null) {
+                return id;
+            }
+            String[] current = names;
+            if (size == current.length) {
+                current = Arrays.copyOf(current, size * 2);
+            }
+            current[size] = name;
+            names = current;
+            // Published after the name, so whoever sees the ID can resolve it
+            ids.put(name, size);
+            return size++;
+        }
+    }
+
+    /**
+     * Returns the string of an ID handed out by this dictionary.
+     * 
+     * @param id the ID
+     * @return the string
+     */
+    public @NotNull String nameOf(int id) {
+        return names[id];
+    }
+
+    /**
+     * Returns the number of registered strings. IDs range from 0 to this
+     * number minus one.
+     * 
+     * @return the number of strings
+     */
+    public synchronized int size() {
+        return size;
+    }
+}
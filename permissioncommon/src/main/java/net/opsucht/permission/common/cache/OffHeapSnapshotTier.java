@@ -0,0 +1,632 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.Tristate;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Second cache tier that keeps snapshots of players off the Java heap.
+ * 
+ * <p>A proxy sees far more players than are online at any time. Keeping
+ * the resolved state of every recently seen player in
+ * {@link CachedPermissionProvider} would fill the old generation with
+ * millions of small objects that every full collection has to trace. This
+ * tier stores them in direct {@link ByteBuffer} slabs instead, where the
+ * garbage collector only sees the few buffer objects.</p>
+ * 
+ * <p>Each snapshot is one contiguous record: the UUID, the expiry, the
+ * groups as a bit set over group IDs and the nodes as a sorted array of
+ * node IDs with their value in the lowest bit. Node and group names are
+ * kept once on the heap in a dictionary. A permission check looks up the
+ * record in an off-heap {@link UuidIndex} and binary searches the node,
+ * then its wildcards, directly in the slab without decoding the record.</p>
+ * 
+ * <p>Records are appended to the slabs as a log. When the last free slab
+ * is taken, the oldest slab is reclaimed: like the hand of a clock, the
+ * reclaim visits each record in it, gives records that were read since
+ * the last visit a second chance by moving them to the head and evicts the
+ * rest. Replaced and removed records are dropped the same way. The memory
+ * used is bounded by the configured size plus the index.</p>
+ * 
+ * <p>Reads share a read lock and only set the referenced bit of a record;
+ * writes take the write lock.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class OffHeapSnapshotTier {
+
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+    private static final String WILDCARD_SUFFIX = ".*";
+    private static final String ROOT_WILDCARD = "*";
+
+    // Record layout
+    private static final int LENGTH = 0;
+    private static final int FLAGS = 4;
+    private static final int SHAPE = 5;
+    private static final int GROUP_WORDS = 6;
+    private static final int MSB = 8;
+    private static final int LSB = 16;
+    private static final int EXPIRES_AT = 24;
+    private static final int CREATED_AT = 32;
+    private static final int PRIMARY_GROUP = 40;
+    private static final int NODE_COUNT = 44;
+    private static final int HEADER = 48;
+
+    // FLAGS is written by readers, so the bits fixed at encoding live in SHAPE
+    private static final byte REFERENCED = 1;
+    private static final byte HAS_WILDCARDS = 1;
+    private static final byte HAS_ROOT = 2;
+
+    private final int slabSize;
+    private final long ttlMs;
+    private final ByteBuffer[] slabs;
+    private final int[] slabEnds;
+    private final ArrayDeque<Integer> free = new ArrayDeque<>();
+    // Slabs holding records, oldest first; the last one is the head
+    private final ArrayDeque<Integer> filled = new ArrayDeque<>();
+    private final UuidIndex index = new UuidIndex(1024);
+    private final NodeDictionary nodes = new NodeDictionary();
+    private final NodeDictionary groups = new NodeDictionary();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private int head = -1;
+    private int headOffset;
+    private long liveBytes;
+    private long evictions;
+    private long rejected;
+
+    /**
+     * Creates a tier with slabs of 1 MiB.
+     * 
+     * @param maxBytes the memory for records, at least two slabs
+     * @param ttlMs    how long a snapshot stays valid after it was stored
+     */
+    public OffHeapSnapshotTier(long maxBytes, long ttlMs) {
+        this(maxBytes, DEFAULT_SLAB_SIZE, ttlMs);
+    }
+
+    /**
+     * Creates a tier.
+     * 
+     * @param maxBytes the memory for records, at least two slabs
+     * @param slabSize the size of a slab in bytes, which is also the size
+     *                 limit of a record
+     * @param ttlMs    how long a snapshot stays valid after it was stored
+     * @throws IllegalArgumentException if fewer than two slabs fit
+     */
+    public OffHeapSnapshotTier(long maxBytes, int slabSize, long ttlMs) {
+        if (slabSize < HEADER || maxBytes / slabSize < 2 || maxBytes / slabSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Off-heap tier needs at least two slabs of " + slabSize + " bytes");
+        }
+        this.slabSize = slabSize;
+        this.ttlMs = ttlMs;
+        int count = (int) (maxBytes / slabSize);
+        this.slabs = new ByteBuffer[count];
+        this.slabEnds = new int[count];
+        for (int i = 0; i < count; i++) {
+            free.addLast(i);
+        }
+    }
+
+    /**
+     * Stores the snapshot of a player, replacing a stored one.
+     * 
+     * @param snapshot the snapshot
+     * @return false if the snapshot is larger than a slab and was not stored
+     */
+    public boolean put(@NotNull UserSnapshot snapshot) {
+        Map<String, Boolean> permissions = snapshot.getPermissions().asMap();
+        int[] entries = new int[permissions.size()];
+        byte shape = 0;
+        int i = 0;
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            String node = entry.getKey();
+            if (node.equals(ROOT_WILDCARD)) {
+                shape |= HAS_ROOT;
+            } else if (node.endsWith(WILDCARD_SUFFIX)) {
+                shape |= HAS_WILDCARDS;
+            }
+            entries[i++] = nodes.register(node) << 1 | (entry.getValue() ? 1 : 0);
+        }
+        // IDs are distinct, so sorting the entries sorts them by ID
+        Arrays.sort(entries);
+
+        long[] words = new long[0];
+        for (String group : snapshot.getGroups()) {
+            int id = groups.register(group);
+            if (id / Long.SIZE >= words.length) {
+                words = Arrays.copyOf(words, id / Long.SIZE + 1);
+            }
+            words[id / Long.SIZE] |= 1L << id;
+        }
+        String primaryGroup = snapshot.getPrimaryGroup();
+        int primaryId = primaryGroup != null ? groups.register(primaryGroup) : -1;
+
+        long length = HEADER + (long) words.length * Long.BYTES + (long) entries.length * Integer.BYTES;
+        UUID uuid = snapshot.getUuid();
+        lock.writeLock().lock();
+        try {
+            if (length > slabSize) {
+                rejected++;
+                drop(index.remove(uuid));
+                return false;
+            }
+            long address = reserve((int) length);
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            slab.putInt(offset + LENGTH, (int) length);
+            slab.put(offset + FLAGS, (byte) 0);
+            slab.put(offset + SHAPE, shape);
+            slab.putShort(offset + GROUP_WORDS, (short) words.length);
+            slab.putLong(offset + MSB, uuid.getMostSignificantBits());
+            slab.putLong(offset + LSB, uuid.getLeastSignificantBits());
+            slab.putLong(offset + EXPIRES_AT, System.currentTimeMillis() + ttlMs);
+            slab.putLong(offset + CREATED_AT, snapshot.getCreatedAt());
+            slab.putInt(offset + PRIMARY_GROUP, primaryId);
+            slab.putInt(offset + NODE_COUNT, entries.length);
+            int position = offset + HEADER;
+            for (long word : words) {
+                slab.putLong(position, word);
+                position += Long.BYTES;
+            }
+            for (int entry : entries) {
+                slab.putInt(position, entry);
+                position += Integer.BYTES;
+            }
+            drop(index.put(uuid, address));
+            liveBytes += length;
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Resolves a permission against the stored snapshot of a player, with
+     * the same wildcard rules as {@link PermissionSet#check(String)}.
+     * 
+     * @param uuid       the player's UUID
+     * @param permission the node to check
+     * @return the resolved state, or null if no valid snapshot is stored
+     */
+    public @Nullable Tristate check(@NotNull UUID uuid, @NotNull String permission) {
+        String node = permission.toLowerCase(Locale.ROOT);
+        lock.readLock().lock();
+        try {
+            long address = find(uuid);
+            if (address == UuidIndex.MISSING) {
+                return null;
+            }
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            int count = slab.getInt(offset + NODE_COUNT);
+            int start = offset + HEADER + slab.getShort(offset + GROUP_WORDS) * Long.BYTES;
+            Tristate exact = search(slab, start, count, nodes.idOf(node));
+            if (exact != null) {
+                return exact;
+            }
+            byte shape = slab.get(offset + SHAPE);
+            if ((shape & HAS_WILDCARDS) != 0) {
+                for (int dot = node.lastIndexOf('.'); dot > 0; dot = node.lastIndexOf('.', dot - 1)) {
+                    Tristate wildcard = search(slab, start, count,
+                            nodes.idOf(node.substring(0, dot) + WILDCARD_SUFFIX));
+                    if (wildcard != null) {
+                        return wildcard;
+                    }
+                }
+            }
+            if ((shape & HAS_ROOT) != 0) {
+                Tristate root = search(slab, start, count, nodes.idOf(ROOT_WILDCARD));
+                if (root != null) {
+                    return root;
+                }
+            }
+            return Tristate.UNDEFINED;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the direct groups of a player from the stored snapshot.
+     * 
+     * @param uuid the player's UUID
+     * @return the groups, or null if no valid snapshot is stored
+     */
+    public @Nullable Set<String> getGroups(@NotNull UUID uuid) {
+        lock.readLock().lock();
+        try {
+            long address = find(uuid);
+            if (address == UuidIndex.MISSING) {
+                return null;
+            }
+            return Collections.unmodifiableSet(readGroups(slabs[slabOf(address)], offsetOf(address)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Decodes the stored snapshot of a player.
+     * 
+     * @param uuid the player's UUID
+     * @return the snapshot, or null if no valid snapshot is stored
+     */
+    public @Nullable UserSnapshot get(@NotNull UUID uuid) {
+        Map<String, Boolean> permissions;
+        Set<String> groupNames;
+        String primaryGroup;
+        long createdAt;
+        lock.readLock().lock();
+        try {
+            long address = find(uuid);
+            if (address == UuidIndex.MISSING) {
+                return null;
+            }
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            groupNames = readGroups(slab, offset);
+            int primaryId = slab.getInt(offset + PRIMARY_GROUP);
+            primaryGroup = primaryId >= 0 ? groups.nameOf(primaryId) : null;
+            createdAt = slab.getLong(offset + CREATED_AT);
+            int count = slab.getInt(offset + NODE_COUNT);
+            int position = offset + HEADER + slab.getShort(offset + GROUP_WORDS) * Long.BYTES;
+            permissions = new HashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                int entry = slab.getInt(position + i * Integer.BYTES);
+                permissions.put(nodes.nameOf(entry >>> 1), (entry & 1) != 0);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return new UserSnapshot(uuid, PermissionSet.of(permissions), groupNames, primaryGroup, createdAt);
+    }
+
+    /**
+     * Drops the stored snapshot of a player.
+     * 
+     * @param uuid the player's UUID
+     * @return whether a snapshot was stored
+     */
+    public boolean remove(@NotNull UUID uuid) {
+        lock.writeLock().lock();
+        try {
+            long address = index.remove(uuid);
+            drop(address);
+            return address != UuidIndex.MISSING;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops every stored snapshot. Slabs already allocated are kept for
+     * reuse.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            free.clear();
+            filled.clear();
+            for (int i = 0; i < slabs.length; i++) {
+                slabEnds[i] = 0;
+                free.addLast(i);
+            }
+            head = -1;
+            headOffset = 0;
+            liveBytes = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Drops the stored snapshots of all players who belong directly to one
+     * of the given groups, for example after the groups changed. The group
+     * bits of each record are tested in place, without decoding it.
+     * 
+     * @param names the group names, case-insensitive
+     * @return the number of dropped snapshots
+     */
+    public int removeMembers(@NotNull Collection<String> names) {
+        Set<String> wanted = new HashSet<>();
+        for (String name : names) {
+            wanted.add(name.toLowerCase(Locale.ROOT));
+        }
+        lock.writeLock().lock();
+        try {
+            BitSet ids = new BitSet();
+            for (int id = groups.size() - 1; id >= 0; id--) {
+                if (wanted.contains(groups.nameOf(id).toLowerCase(Locale.ROOT))) {
+                    ids.set(id);
+                }
+            }
+            if (ids.isEmpty()) {
+                return 0;
+            }
+            int removed = 0;
+            for (int slab : filled) {
+                ByteBuffer buffer = slabs[slab];
+                int end = slab == head ? headOffset : slabEnds[slab];
+                for (int offset = 0; offset < end; ) {
+                    int length = buffer.getInt(offset + LENGTH);
+                    long msb = buffer.getLong(offset + MSB);
+                    long lsb = buffer.getLong(offset + LSB);
+                    long address = addressOf(slab, offset);
+                    if (index.get(msb, lsb) == address && inAny(buffer, offset, ids)) {
+                        index.remove(msb, lsb);
+                        drop(address);
+                        removed++;
+                    }
+                    offset += length;
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Looks up the record of a player and marks it as referenced. Must be
+     * called with a lock held.
+     * 
+     * @return the address of a valid record, or {@link UuidIndex#MISSING}
+     */
+    private long find(UUID uuid) {
+        long address = index.get(uuid);
+        if (address != UuidIndex.MISSING) {
+            ByteBuffer slab = slabs[slabOf(address)];
+            int offset = offsetOf(address);
+            if (slab.getLong(offset + EXPIRES_AT) > System.currentTimeMillis()) {
+                // Racing readers all write the same value
+                slab.put(offset + FLAGS, REFERENCED);
+                hits.increment();
+                return address;
+            }
+        }
+        misses.increment();
+        return UuidIndex.MISSING;
+    }
+
+    private Set<String> readGroups(ByteBuffer slab, int offset) {
+        int count = slab.getShort(offset + GROUP_WORDS);
+        Set<String> names = new LinkedHashSet<>();
+        for (int word = 0; word < count; word++) {
+            long bits = slab.getLong(offset + HEADER + word * Long.BYTES);
+            while (bits != 0) {
+                names.add(groups.nameOf(word * Long.SIZE + Long.numberOfTrailingZeros(bits)));
+                bits &= bits - 1;
+            }
+        }
+        return names;
+    }
+
+    private static boolean inAny(ByteBuffer slab, int offset, BitSet ids) {
+        int count = slab.getShort(offset + GROUP_WORDS);
+        for (int id = ids.nextSetBit(0); id >= 0 && id / Long.SIZE < count; id = ids.nextSetBit(id + 1)) {
+            if ((slab.getLong(offset + HEADER + id / Long.SIZE * Long.BYTES) & 1L << id) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static @Nullable Tristate search(ByteBuffer slab, int start, int count, int id) {
+        if (id < 0) {
+            return null;
+        }
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = slab.getInt(start + middle * Integer.BYTES);
+            int entryId = entry >>> 1;
+            if (entryId < id) {
+                low = middle + 1;
+            } else if (entryId > id) {
+                high = middle - 1;
+            } else {
+                return Tristate.of((entry & 1) != 0);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reserves space for a record at the head of the log.
+     */
+    private long reserve(int length) {
+        // Records surviving a reclaim may leave too little room in the new head
+        while (head < 0 || headOffset + length > slabSize) {
+            advance();
+        }
+        long address = addressOf(head, headOffset);
+        headOffset += length;
+        return address;
+    }
+
+    /**
+     * Starts a new head slab. Taking the last free slab reclaims the oldest
+     * one, whose surviving records fit into the still empty head.
+     */
+    private void advance() {
+        if (head >= 0) {
+            slabEnds[head] = headOffset;
+        }
+        head = free.pollFirst();
+        headOffset = 0;
+        if (slabs[head] == null) {
+            slabs[head] = ByteBuffer.allocateDirect(slabSize);
+        }
+        filled.addLast(head);
+        if (free.isEmpty()) {
+            reclaim(filled.pollFirst());
+        }
+    }
+
+    /**
+     * Visits every record of a slab: records read since the last visit are
+     * moved to the head with their referenced bit cleared, records no longer
+     * in the index are dropped, the rest are evicted.
+     */
+    private void reclaim(int slab) {
+        ByteBuffer buffer = slabs[slab];
+        long now = System.currentTimeMillis();
+        int end = slabEnds[slab];
+        for (int offset = 0; offset < end; ) {
+            int length = buffer.getInt(offset + LENGTH);
+            long msb = buffer.getLong(offset + MSB);
+            long lsb = buffer.getLong(offset + LSB);
+            if (index.get(msb, lsb) == addressOf(slab, offset)) {
+                if (buffer.get(offset + FLAGS) == REFERENCED && buffer.getLong(offset + EXPIRES_AT) > now) {
+                    long target = reserve(length);
+                    ByteBuffer headSlab = slabs[slabOf(target)];
+                    headSlab.put(offsetOf(target), buffer, offset, length);
+                    headSlab.put(offsetOf(target) + FLAGS, (byte) 0);
+                    index.put(msb, lsb, target);
+                } else {
+                    index.remove(msb, lsb);
+                    liveBytes -= length;
+                    evictions++;
+                }
+            }
+            offset += length;
+        }
+        slabEnds[slab] = 0;
+        free.addLast(slab);
+    }
+
+    /**
+     * Accounts for a record that is no longer referenced by the index. Its
+     * space is reused once its slab is reclaimed.
+     */
+    private void drop(long address) {
+        if (address != UuidIndex.MISSING) {
+            liveBytes -= slabs[slabOf(address)].getInt(offsetOf(address) + LENGTH);
+        }
+    }
+
+    private static long addressOf(int slab, int offset) {
+        return (long) slab << 32 | offset;
+    }
+
+    private static int slabOf(long address) {
+        return (int) (address >>> 32);
+    }
+
+    private static int offsetOf(long address) {
+        return (int) address;
+    }
+
+    /**
+     * Returns the number of stored snapshots, including expired ones that
+     * were not reclaimed yet.
+     * 
+     * @return the number of snapshots
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the bytes taken by stored snapshots.
+     * 
+     * @return the size of all live records
+     */
+    public long getUsedBytes() {
+        lock.readLock().lock();
+        try {
+            return liveBytes;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the direct memory allocated so far, slabs and index.
+     * 
+     * @return the allocated bytes
+     */
+    public long getAllocatedBytes() {
+        lock.readLock().lock();
+        try {
+            long allocated = index.getBytes();
+            for (ByteBuffer slab : slabs) {
+                if (slab != null) {
+                    allocated += slab.capacity();
+                }
+            }
+            return allocated;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long getMaxBytes() {
+        return (long) slabs.length * slabSize;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of snapshots dropped to make room or because they
+     * expired.
+     * 
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        lock.readLock().lock();
+        try {
+            return evictions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of snapshots that were too large for a slab.
+     * 
+     * @return the number of rejected snapshots
+     */
+    public long getRejected() {
+        lock.readLock().lock();
+        try {
+            return rejected;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
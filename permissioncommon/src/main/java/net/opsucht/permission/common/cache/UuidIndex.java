@@ -0,0 +1,210 @@
+package net.opsucht.permission.common.cache;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Open-addressed hash table from UUIDs to long values, stored in a direct
+ * {@link ByteBuffer}.
+ * 
+ * <p>Each bucket holds the two halves of the UUID and the value, 24 bytes
+ * without any object per entry. Collisions are resolved by linear probing;
+ * removal shifts later entries of the probe sequence back instead of
+ * leaving tombstones, so lookups never slow down with churn. The table
+ * doubles once it is more than 60 % full.</p>
+ * 
+ * <p>Not thread-safe; the off-heap tier guards it with its lock.</p>
+ * 
+ * @since 1.0.0
+ */
+final class UuidIndex {
+
+    /**
+     * Value returned for missing keys.
+     */
+    static final long MISSING = -1L;
+
+    private static final int BUCKET_BYTES = 24;
+    private static final int MSB = 0;
+    private static final int LSB = 8;
+    // Stored as value + 1, so an all-zero bucket is empty
+    private static final int VALUE = 16;
+
+    private ByteBuffer buckets;
+    private int mask;
+    private int size;
+
+    /**
+     * @param capacity the initial number of buckets, rounded up to a power of two
+     */
+    UuidIndex(int capacity) {
+        allocate(Math.max(16, Integer.highestOneBit(Math.max(1, capacity) - 1) << 1));
+    }
+
+    private void allocate(int capacity) {
+        buckets = ByteBuffer.allocateDirect(capacity * BUCKET_BYTES);
+        mask = capacity - 1;
+        size = 0;
+    }
+
+    /**
+     * Returns the value of a UUID.
+     * 
+     * @param uuid the key
+     * @return the value, or {@link #MISSING}
+     */
+    long get(@NotNull UUID uuid) {
+        return get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    long get(long msb, long lsb) {
+        for (int bucket = bucketOf(msb, lsb); ; bucket = (bucket + 1) & mask) {
+            int offset = bucket * BUCKET_BYTES;
+            long stored = buckets.getLong(offset + VALUE);
+            if (stored == 0) {
+                return MISSING;
+            }
+            if (buckets.getLong(offset + MSB) == msb && buckets.getLong(offset + LSB) == lsb) {
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Sets the value of a UUID.
+     * 
+     * @param uuid  the key
+     * @param value the value, not negative
+     * @return the previous value, or {@link #MISSING}
+     */
+    long put(@NotNull UUID uuid, long value) {
+        return put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+    }
+
+    long put(long msb, long lsb, long value) {
+        if ((size + 1) * 10L > (mask + 1) * 6L) {
+            grow();
+        }
+        for (int bucket = bucketOf(msb, lsb); ; bucket = (bucket + 1) & mask) {
+            int offset = bucket * BUCKET_BYTES;
+            long stored = buckets.getLong(offset + VALUE);
+            if (stored == 0) {
+                buckets.putLong(offset + MSB, msb);
+                buckets.putLong(offset + LSB, lsb);
+                buckets.putLong(offset + VALUE, value + 1);
+                size++;
+                return MISSING;
+            }
+            if (buckets.getLong(offset + MSB) == msb && buckets.getLong(offset + LSB) == lsb) {
+                buckets.putLong(offset + VALUE, value + 1);
+                return stored - 1;
+            }
+        }
+    }
+
+    /**
+     * Removes a UUID.
+     * 
+     * @param msb the most significant bits of the key
+     * @param lsb the least significant bits of the key
+     * @return the removed value, or {@link #MISSING}
+     */
+    long remove(long msb, long lsb) {
+        int bucket = bucketOf(msb, lsb);
+        while (true) {
+            int offset = bucket * BUCKET_BYTES;
+            long stored = buckets.getLong(offset + VALUE);
+            if (stored == 0) {
+                return MISSING;
+            }
+            if (buckets.getLong(offset + MSB) == msb && buckets.getLong(offset + LSB) == lsb) {
+                shiftBack(bucket);
+                size--;
+                return stored - 1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    long remove(@NotNull UUID uuid) {
+        return remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Closes the gap left at a bucket by moving back every later entry of
+     * the run whose home bucket is at or before the gap.
+     */
+    private void shiftBack(int gap) {
+        int bucket = gap;
+        while (true) {
+            bucket = (bucket + 1) & mask;
+            int offset = bucket * BUCKET_BYTES;
+            if (buckets.getLong(offset + VALUE) == 0) {
+                break;
+            }
+            int home = bucketOf(buckets.getLong(offset + MSB), buckets.getLong(offset + LSB));
+            // Distance from home must cover the gap, measured around the wrap
+            if (((bucket - home) & mask) >= ((bucket - gap) & mask)) {
+                copy(bucket, gap);
+                gap = bucket;
+            }
+        }
+        clearBucket(gap);
+    }
+
+    private void copy(int from, int to) {
+        int source = from * BUCKET_BYTES;
+        int target = to * BUCKET_BYTES;
+        buckets.putLong(target + MSB, buckets.getLong(source + MSB));
+        buckets.putLong(target + LSB, buckets.getLong(source + LSB));
+        buckets.putLong(target + VALUE, buckets.getLong(source + VALUE));
+    }
+
+    private void clearBucket(int bucket) {
+        int offset = bucket * BUCKET_BYTES;
+        buckets.putLong(offset + MSB, 0);
+        buckets.putLong(offset + LSB, 0);
+        buckets.putLong(offset + VALUE, 0);
+    }
+
+    private void grow() {
+        ByteBuffer old = buckets;
+        int capacity = mask + 1;
+        allocate(capacity * 2);
+        for (int bucket = 0; bucket < capacity; bucket++) {
+            int offset = bucket * BUCKET_BYTES;
+            long stored = old.getLong(offset + VALUE);
+            if (stored != 0) {
+                put(old.getLong(offset + MSB), old.getLong(offset + LSB), stored - 1);
+            }
+        }
+    }
+
+    private int bucketOf(long msb, long lsb) {
+        // MurmurHash3 finalizer; version and variant bits of the UUID are constant
+        long hash = msb ^ (lsb * 0x9e3779b97f4a7c15L);
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) hash & mask;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the memory held by the table.
+     * 
+     * @return the size of the bucket buffer in bytes
+     */
+    long getBytes() {
+        return buckets.capacity();
+    }
+
+    void clear() {
+        allocate(16);
+    }
+}
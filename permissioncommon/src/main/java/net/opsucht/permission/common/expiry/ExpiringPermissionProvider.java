@@ -0,0 +1,173 @@
+package net.opsucht.permission.common.expiry;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Adds temporary permissions to a provider whose permission system has no
+ * native expiry, such as GroupManager, PermissionsEx or Bukkit's own
+ * permissions.
+ * 
+ * <p>A temporary grant is added as a normal permission and removed again
+ * by an {@link ExpiryScheduler}. Expired permissions are removed through
+ * the delegate, so when this provider wraps a cache, the cache entries of
+ * exactly the expired nodes are invalidated and other servers are told
+ * about it. Adding or removing a node through this provider cancels its
+ * pending expiry.</p>
+ * 
+ * <p>A node that is added permanently by other means while it is granted
+ * temporarily is still removed when the grant expires.</p>
+ * 
+ * @since 1.0.0
+ */
+public class ExpiringPermissionProvider extends ForwardingPermissionProvider implements AutoCloseable {
+
+    private final ExpiryScheduler scheduler;
+    private final Logger logger;
+
+    /**
+     * Creates the provider. Call {@link #start()} to load pending grants.
+     * 
+     * @param delegate the provider to add and remove permissions with
+     * @param journalFile the file that keeps pending grants across restarts
+     * @param logger the logger for removal and journal errors
+     */
+    public ExpiringPermissionProvider(@NotNull PermissionProvider delegate, @NotNull Path journalFile,
+            @NotNull Logger logger) {
+        super(delegate);
+        this.logger = logger;
+        this.scheduler = new ExpiryScheduler(journalFile, this::expire, logger);
+    }
+
+    /**
+     * Creates the provider on an existing scheduler, which removes expired
+     * permissions through this provider from now on. This keeps pending
+     * grants and the journal when the provider chain is rebuilt, while the
+     * previous provider can still schedule and cancel grants.
+     * 
+     * @param delegate the provider to add and remove permissions with
+     * @param scheduler the scheduler of the previous provider
+     * @param logger the logger for removal errors
+     */
+    public ExpiringPermissionProvider(@NotNull PermissionProvider delegate, @NotNull ExpiryScheduler scheduler,
+            @NotNull Logger logger) {
+        super(delegate);
+        this.logger = logger;
+        this.scheduler = scheduler;
+        scheduler.setExpirer(this::expire);
+    }
+
+    /**
+     * Loads pending grants and starts expiring them.
+     * 
+     * @throws IOException if the journal cannot be read or written
+     */
+    public void start() throws IOException {
+        scheduler.start();
+    }
+
+    public @NotNull ExpiryScheduler getScheduler() {
+        return scheduler;
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        // Schedule first, so a running expiry of an earlier grant sees the renewal
+        boolean renewed = scheduler.getGrant(uuid, permission) != null;
+        scheduler.schedule(uuid, permission, System.currentTimeMillis() + duration.toMillis());
+        try {
+            delegate.add(uuid, permission);
+        } catch (RuntimeException e) {
+            if (!renewed) {
+                scheduler.cancel(uuid, permission);
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        boolean renewed = scheduler.getGrant(uuid, permission) != null;
+        scheduler.schedule(uuid, permission, System.currentTimeMillis() + duration.toMillis());
+        return delegate.addAsync(uuid, permission)
+                .whenComplete((ignored, error) -> {
+                    if (error != null && !renewed) {
+                        scheduler.cancel(uuid, permission);
+                    }
+                });
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        scheduler.cancel(uuid, permission);
+        delegate.add(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        scheduler.cancel(uuid, permission);
+        return delegate.addAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        scheduler.cancel(uuid, permission);
+        return delegate.addAsync(uuid, permission, timeout);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        scheduler.cancel(uuid, permission);
+        delegate.remove(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        scheduler.cancel(uuid, permission);
+        return delegate.removeAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        scheduler.cancel(uuid, permission);
+        return delegate.removeAsync(uuid, permission, timeout);
+    }
+
+    private void expire(List<TemporaryGrant> batch) {
+        int removed = 0;
+        for (TemporaryGrant grant : batch) {
+            if (scheduler.getGrant(grant.getUuid(), grant.getPermission()) != null) {
+                continue; // Renewed while this batch was collected
+            }
+            try {
+                delegate.remove(grant.getUuid(), grant.getPermission());
+                removed++;
+            } catch (RuntimeException e) {
+                logger.log(Level.WARNING, "Temporäres Recht konnte nicht entfernt werden: " + grant, e);
+            }
+        }
+        logger.fine(removed + " temporäre Rechte abgelaufen");
+    }
+
+    /**
+     * Stops expiring grants. Pending grants are kept for the next start. A
+     * scheduler shared with other providers is stopped for them as well.
+     */
+    @Override
+    public void close() {
+        scheduler.close();
+    }
+}
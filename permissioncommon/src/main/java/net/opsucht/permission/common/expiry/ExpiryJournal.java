@@ -0,0 +1,239 @@
+package net.opsucht.permission.common.expiry;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of temporary grants.
+ * 
+ * <p>Every grant and every end of a grant is appended as a record with its
+ * own length and CRC32, so a record torn by a crash is detected and the
+ * journal is replayed up to the last complete record. On {@link #open()}
+ * the journal is compacted to the grants that are still active, and again
+ * whenever ended grants make up most of it.</p>
+ * 
+ * <p>Records are written without forcing them to disk. They survive a crash
+ * of the server process, but not necessarily a power loss.</p>
+ * 
+ * <p>Not thread-safe; the owner has to synchronize access.</p>
+ * 
+ * @since 1.0.0
+ */
+final class ExpiryJournal implements AutoCloseable {
+
+    private static final int MAGIC = 0x4F50534A; // "OPSJ"
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 5;
+    private static final int RECORD_HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 64 * 1024;
+    private static final byte GRANT = 1;
+    private static final byte END = 2;
+    private static final int COMPACT_MIN_RECORDS = 1024;
+
+    private final Path file;
+    private final BinaryWriter pending = new BinaryWriter();
+    private FileChannel channel;
+    private int records;
+    private int live;
+
+    ExpiryJournal(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Replays and compacts the journal and opens it for appending.
+     * 
+     * @return the grants that have not ended, including expired ones
+     * @throws IOException if the journal cannot be read or written
+     */
+    @NotNull List<TemporaryGrant> open() throws IOException {
+        Map<String, TemporaryGrant> grants = new HashMap<>();
+        if (Files.isRegularFile(file)) {
+            replay(ByteBuffer.wrap(Files.readAllBytes(file)), grants);
+        }
+        List<TemporaryGrant> active = new ArrayList<>(grants.values());
+        rewrite(active);
+        return active;
+    }
+
+    /**
+     * Buffers a new grant. It replaces an earlier grant of the same node.
+     * 
+     * @param grant the grant
+     */
+    void grant(@NotNull TemporaryGrant grant) {
+        BinaryWriter body = new BinaryWriter(64)
+                .writeByte(GRANT)
+                .writeUuid(grant.getUuid())
+                .writeString(grant.getPermission())
+                .writeLong(grant.getExpiresAt());
+        append(body);
+        live++;
+    }
+
+    /**
+     * Buffers the end of a grant, because it expired or was cancelled.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the node
+     */
+    void end(@NotNull UUID uuid, @NotNull String permission) {
+        BinaryWriter body = new BinaryWriter(48)
+                .writeByte(END)
+                .writeUuid(uuid)
+                .writeString(permission);
+        append(body);
+        live = Math.max(0, live - 1);
+    }
+
+    /**
+     * Writes all buffered records with one write.
+     * 
+     * @throws IOException if the journal cannot be written
+     * @throws IllegalStateException if the journal has not been opened
+     */
+    void flush() throws IOException {
+        if (channel == null) {
+            throw new IllegalStateException("Expiry journal is not open");
+        }
+        if (pending.size() == 0) {
+            return;
+        }
+        ByteBuffer data = ByteBuffer.wrap(pending.toByteArray());
+        pending.reset();
+        while (data.hasRemaining()) {
+            channel.write(data);
+        }
+    }
+
+    /**
+     * Returns whether ended grants make up most of the journal, so that it
+     * should be rewritten with {@link #compact(Collection)}.
+     * 
+     * @return true if compaction is worthwhile
+     */
+    boolean needsCompaction() {
+        return records > COMPACT_MIN_RECORDS && records > live * 4;
+    }
+
+    /**
+     * Rewrites the journal with only the given grants.
+     * 
+     * @param active the grants that have not ended
+     * @throws IOException if the journal cannot be written
+     */
+    void compact(@NotNull Collection<TemporaryGrant> active) throws IOException {
+        flush();
+        rewrite(active);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            flush();
+            channel.close();
+            channel = null;
+        }
+    }
+
+    private void append(BinaryWriter body) {
+        byte[] bytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        pending.writeInt(bytes.length).writeInt((int) crc.getValue()).writeBytes(bytes);
+        records++;
+    }
+
+    private void replay(ByteBuffer buffer, Map<String, TemporaryGrant> grants) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not an expiry journal: " + file);
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported expiry journal version: " + version);
+        }
+
+        while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > MAX_RECORD_SIZE || length > buffer.remaining()) {
+                return; // Torn tail
+            }
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            CRC32 crc = new CRC32();
+            crc.update(bytes);
+            if ((int) crc.getValue() != checksum) {
+                return; // Torn tail
+            }
+
+            BinaryReader in = new BinaryReader(bytes);
+            byte type = in.readByte();
+            UUID uuid = in.readUuid();
+            String permission = in.readString();
+            if (type == GRANT) {
+                grants.put(key(uuid, permission), new TemporaryGrant(uuid, permission, in.readLong()));
+            } else if (type == END) {
+                grants.remove(key(uuid, permission));
+            } else {
+                throw new IOException("Unknown expiry journal record: " + type);
+            }
+        }
+    }
+
+    private void rewrite(Collection<TemporaryGrant> active) throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        records = 0;
+        live = 0;
+        pending.reset();
+        pending.writeInt(MAGIC).writeByte(VERSION);
+        for (TemporaryGrant grant : active) {
+            grant(grant);
+        }
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(pending.toByteArray());
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+            out.force(true);
+        }
+        pending.reset();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private static String key(UUID uuid, String permission) {
+        return uuid + " " + permission;
+    }
+}
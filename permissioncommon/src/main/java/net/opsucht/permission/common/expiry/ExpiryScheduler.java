@@ -0,0 +1,292 @@
+package net.opsucht.permission.common.expiry;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Ends temporary grants when they expire, for permission systems without
+ * native expiry.
+ * 
+ * <p>Grants wait in a {@link TimingWheel} and are written to an
+ * {@link ExpiryJournal}, so they survive restarts; grants that expired
+ * while the server was down are ended on the first tick after
+ * {@link #start()}. Once per tick, all grants that have become due are
+ * handed to the expirer as one batch on the scheduler's own thread, and
+ * their end is written to the journal with a single write.</p>
+ * 
+ * <p>Grants are ended at least once: if the server stops between removing
+ * a permission and journaling it, the removal is repeated after the
+ * restart.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class ExpiryScheduler implements AutoCloseable {
+
+    /**
+     * Default tick length; grants end at most this late.
+     */
+    public static final long DEFAULT_TICK_MILLIS = 1000;
+
+    private static final int SLOTS = 512;
+
+    private final long tickMillis;
+    private volatile Consumer<List<TemporaryGrant>> expirer;
+    private final Logger logger;
+    private final ExpiryJournal journal;
+    private final TimingWheel<TemporaryGrant> wheel;
+    private final Map<UUID, Map<String, TemporaryGrant>> grants = new HashMap<>();
+    private @Nullable ScheduledExecutorService executor;
+
+    /**
+     * Creates a scheduler with the default tick length.
+     * 
+     * @param journalFile the journal file
+     * @param expirer removes the permissions of a batch of expired grants
+     * @param logger the logger for journal errors
+     */
+    public ExpiryScheduler(@NotNull Path journalFile, @NotNull Consumer<List<TemporaryGrant>> expirer,
+            @NotNull Logger logger) {
+        this(journalFile, DEFAULT_TICK_MILLIS, expirer, logger);
+    }
+
+    /**
+     * Creates a scheduler.
+     * 
+     * @param journalFile the journal file
+     * @param tickMillis the tick length in milliseconds
+     * @param expirer removes the permissions of a batch of expired grants
+     * @param logger the logger for journal errors
+     */
+    public ExpiryScheduler(@NotNull Path journalFile, long tickMillis,
+            @NotNull Consumer<List<TemporaryGrant>> expirer, @NotNull Logger logger) {
+        this.tickMillis = tickMillis;
+        this.expirer = expirer;
+        this.logger = logger;
+        this.journal = new ExpiryJournal(journalFile);
+        this.wheel = new TimingWheel<>(tickMillis, SLOTS, System.currentTimeMillis());
+    }
+
+    /**
+     * Loads the journal and starts ticking.
+     * 
+     * @throws IOException if the journal cannot be read or written
+     * @throws IllegalStateException if the scheduler is already running
+     */
+    public synchronized void start() throws IOException {
+        if (executor != null) {
+            throw new IllegalStateException("Expiry scheduler is already running");
+        }
+        for (TemporaryGrant grant : journal.open()) {
+            grants.computeIfAbsent(grant.getUuid(), key -> new HashMap<>()).put(grant.getPermission(), grant);
+            wheel.add(grant, grant.getExpiresAt());
+        }
+        ScheduledExecutorService started = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "opsucht-permission-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        started.scheduleAtFixedRate(this::tick, tickMillis, tickMillis, TimeUnit.MILLISECONDS);
+        executor = started;
+    }
+
+    /**
+     * Replaces the expirer, for example when the provider chain that removes
+     * expired permissions is rebuilt. A batch that is being expired right now
+     * still goes to the previous expirer.
+     * 
+     * @param expirer removes the permissions of a batch of expired grants
+     */
+    public void setExpirer(@NotNull Consumer<List<TemporaryGrant>> expirer) {
+        this.expirer = expirer;
+    }
+
+    /**
+     * Schedules the end of a grant. If the node is already granted
+     * temporarily, the later expiry time is kept.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the node
+     * @param expiresAt expiry time in epoch milliseconds
+     * @return the grant that is now in effect
+     */
+    public synchronized @NotNull TemporaryGrant schedule(@NotNull UUID uuid, @NotNull String permission,
+            long expiresAt) {
+        Map<String, TemporaryGrant> nodes = grants.computeIfAbsent(uuid, key -> new HashMap<>());
+        TemporaryGrant existing = nodes.get(permission);
+        if (existing != null && existing.getExpiresAt() >= expiresAt) {
+            return existing;
+        }
+        TemporaryGrant grant = new TemporaryGrant(uuid, permission, expiresAt);
+        nodes.put(permission, grant);
+        wheel.add(grant, expiresAt);
+        journal.grant(grant);
+        flush();
+        return grant;
+    }
+
+    /**
+     * Ends a grant without expiring it, for example because the node was
+     * added permanently or removed.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the node
+     * @return true if a grant was pending
+     */
+    public synchronized boolean cancel(@NotNull UUID uuid, @NotNull String permission) {
+        Map<String, TemporaryGrant> nodes = grants.get(uuid);
+        if (nodes == null || nodes.remove(permission) == null) {
+            return false;
+        }
+        if (nodes.isEmpty()) {
+            grants.remove(uuid);
+        }
+        journal.end(uuid, permission);
+        flush();
+        return true;
+    }
+
+    /**
+     * Returns the pending grant of a node.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the node
+     * @return the grant, or null if the node is not granted temporarily
+     */
+    public synchronized @Nullable TemporaryGrant getGrant(@NotNull UUID uuid, @NotNull String permission) {
+        Map<String, TemporaryGrant> nodes = grants.get(uuid);
+        return nodes != null ? nodes.get(permission) : null;
+    }
+
+    /**
+     * Returns the pending grants of a player.
+     * 
+     * @param uuid the player's UUID
+     * @return the grants, empty if there are none
+     */
+    public synchronized @NotNull List<TemporaryGrant> getGrants(@NotNull UUID uuid) {
+        Map<String, TemporaryGrant> nodes = grants.get(uuid);
+        return nodes != null ? new ArrayList<>(nodes.values()) : Collections.emptyList();
+    }
+
+    /**
+     * Returns the number of pending grants.
+     * 
+     * @return the grant count
+     */
+    public synchronized int size() {
+        int size = 0;
+        for (Map<String, TemporaryGrant> nodes : grants.values()) {
+            size += nodes.size();
+        }
+        return size;
+    }
+
+    /**
+     * Ends all grants that are due at the given time.
+     * 
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the number of expired grants
+     */
+    int expireDue(long nowMillis) {
+        List<TemporaryGrant> batch = new ArrayList<>();
+        synchronized (this) {
+            for (TemporaryGrant grant : wheel.advance(nowMillis)) {
+                // Renewed or cancelled grants leave their old entry in the wheel
+                Map<String, TemporaryGrant> nodes = grants.get(grant.getUuid());
+                if (nodes != null && nodes.get(grant.getPermission()) == grant) {
+                    nodes.remove(grant.getPermission());
+                    if (nodes.isEmpty()) {
+                        grants.remove(grant.getUuid());
+                    }
+                    batch.add(grant);
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        expirer.accept(batch);
+
+        synchronized (this) {
+            for (TemporaryGrant grant : batch) {
+                // A grant renewed meanwhile has a newer journal record that must survive
+                if (getGrant(grant.getUuid(), grant.getPermission()) == null) {
+                    journal.end(grant.getUuid(), grant.getPermission());
+                }
+            }
+            flush();
+            if (journal.needsCompaction()) {
+                List<TemporaryGrant> active = new ArrayList<>();
+                for (Map<String, TemporaryGrant> nodes : grants.values()) {
+                    active.addAll(nodes.values());
+                }
+                try {
+                    journal.compact(active);
+                } catch (IOException e) {
+                    logger.log(Level.WARNING, "Ablauf-Journal konnte nicht komprimiert werden", e);
+                }
+            }
+        }
+        return batch.size();
+    }
+
+    private void tick() {
+        try {
+            expireDue(System.currentTimeMillis());
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Temporäre Rechte konnten nicht entfernt werden", e);
+        }
+    }
+
+    private void flush() {
+        try {
+            journal.flush();
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Ablauf-Journal konnte nicht geschrieben werden", e);
+        }
+    }
+
+    /**
+     * Stops ticking and closes the journal. Pending grants stay in the
+     * journal and are picked up again by the next {@link #start()}.
+     */
+    @Override
+    public void close() {
+        ScheduledExecutorService running;
+        synchronized (this) {
+            running = executor;
+            executor = null;
+        }
+        if (running != null) {
+            running.shutdown();
+            try {
+                running.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            try {
+                journal.close();
+            } catch (IOException e) {
+                logger.log(Level.WARNING, "Ablauf-Journal konnte nicht geschlossen werden", e);
+            }
+        }
+    }
+}
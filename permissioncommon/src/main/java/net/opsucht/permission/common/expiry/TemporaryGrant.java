@@ -0,0 +1,50 @@
+package net.opsucht.permission.common.expiry;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * A permission granted to a player until a point in time.
+ * 
+ * @since 1.0.0
+ */
+public final class TemporaryGrant {
+
+    private final UUID uuid;
+    private final String permission;
+    private final long expiresAt;
+
+    /**
+     * @param uuid the player's UUID
+     * @param permission the granted node
+     * @param expiresAt expiry time in epoch milliseconds
+     */
+    public TemporaryGrant(@NotNull UUID uuid, @NotNull String permission, long expiresAt) {
+        this.uuid = uuid;
+        this.permission = permission;
+        this.expiresAt = expiresAt;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull String getPermission() {
+        return permission;
+    }
+
+    /**
+     * Returns when the grant expires.
+     * 
+     * @return expiry time in epoch milliseconds
+     */
+    public long getExpiresAt() {
+        return expiresAt;
+    }
+
+    @Override
+    public String toString() {
+        return uuid + " " + permission + " bis " + expiresAt;
+    }
+}
@@ -0,0 +1,128 @@
+package net.opsucht.permission.common.expiry;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel.
+ * 
+ * <p>Time is divided into ticks, and an item is put into the slot of the
+ * tick it is due in, modulo the number of slots. Adding an item is O(1),
+ * and advancing the wheel only looks at the slots of the ticks that have
+ * passed, no matter how many items are waiting further in the future.
+ * Items due more than one revolution ahead share a slot with nearer ones
+ * and are skipped until their tick comes around.</p>
+ * 
+ * <p>Not thread-safe; the owner has to synchronize access.</p>
+ * 
+ * @param <T> the item type
+ * @since 1.0.0
+ */
+final class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final List<List<Timeout<T>>> slots;
+    private final int mask;
+    private final List<T> overdue = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    /**
+     * Creates an empty wheel.
+     * 
+     * @param tickMillis the length of a tick
+     * @param slotCount the number of slots; must be a power of two
+     * @param nowMillis the current time in epoch milliseconds
+     */
+    TimingWheel(long tickMillis, int slotCount, long nowMillis) {
+        if (tickMillis < 1) {
+            throw new IllegalArgumentException("Tick must be positive: " + tickMillis);
+        }
+        if (slotCount < 1 || Integer.bitCount(slotCount) != 1) {
+            throw new IllegalArgumentException("Slot count must be a power of two: " + slotCount);
+        }
+        this.tickMillis = tickMillis;
+        this.mask = slotCount - 1;
+        this.slots = new ArrayList<>(slotCount);
+        for (int i = 0; i < slotCount; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * Adds an item. Items that are already due are returned by the next
+     * {@link #advance(long)}.
+     * 
+     * @param item the item
+     * @param deadlineMillis when the item is due, in epoch milliseconds
+     */
+    void add(@NotNull T item, long deadlineMillis) {
+        // Round up, so an item is never returned before its deadline
+        long tick = Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis);
+        if (tick <= currentTick) {
+            overdue.add(item);
+        } else {
+            slots.get((int) (tick & mask)).add(new Timeout<>(item, tick));
+        }
+        size++;
+    }
+
+    /**
+     * Moves the wheel forward and removes the items that are due.
+     * 
+     * @param nowMillis the current time in epoch milliseconds
+     * @return the due items, in no particular order
+     */
+    @NotNull List<T> advance(long nowMillis) {
+        List<T> due = new ArrayList<>(overdue);
+        overdue.clear();
+
+        long target = nowMillis / tickMillis;
+        if (target > currentTick) {
+            // After a pause longer than a revolution, every slot is visited once
+            long last = Math.min(target, currentTick + slots.size());
+            for (long tick = currentTick + 1; tick <= last; tick++) {
+                expire(slots.get((int) (tick & mask)), target, due);
+            }
+            currentTick = target;
+        }
+        size -= due.size();
+        return due;
+    }
+
+    private static <T> void expire(List<Timeout<T>> slot, long target, List<T> due) {
+        for (int i = slot.size() - 1; i >= 0; i--) {
+            Timeout<T> timeout = slot.get(i);
+            if (timeout.tick <= target) {
+                // Swap-remove; order within a slot does not matter
+                Timeout<T> last = slot.remove(slot.size() - 1);
+                if (i < slot.size()) {
+                    slot.set(i, last);
+                }
+                due.add(timeout.item);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of items waiting in the wheel.
+     * 
+     * @return the item count
+     */
+    int size() {
+        return size;
+    }
+
+    private static final class Timeout<T> {
+        private final T item;
+        private final long tick;
+
+        Timeout(T item, long tick) {
+            this.item = item;
+            this.tick = tick;
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package net.opsucht.permission.common.expression;
+
+import net.opsucht.permission.api.PermissionExpression;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of compiled {@link PermissionExpression}s keyed by their
+ * source text.
+ * 
+ * <p>Conditions read from configuration files are usually a small, fixed
+ * set of strings evaluated over and over, for example once per menu item
+ * and viewer. This cache compiles each of them once. When it is full, the
+ * least recently used expression is dropped. Invalid expressions are not
+ * cached.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class ExpressionCache {
+
+    private final int maximumSize;
+    private final Map<String, PermissionExpression> expressions;
+
+    /**
+     * Creates an empty cache.
+     * 
+     * @param maximumSize the maximum number of compiled expressions kept
+     */
+    public ExpressionCache(int maximumSize) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("Maximum size must be positive: " + maximumSize);
+        }
+        this.maximumSize = maximumSize;
+        this.expressions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PermissionExpression> eldest) {
+                return size() > ExpressionCache.this.maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Returns the compiled expression for a source text, compiling it on
+     * first use.
+     * 
+     * @param source the expression text
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public @NotNull PermissionExpression get(@NotNull String source) {
+        synchronized (expressions) {
+            PermissionExpression cached = expressions.get(source);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        // Compile outside the lock; a concurrent duplicate compile is harmless
+        PermissionExpression compiled = PermissionExpression.compile(source);
+        synchronized (expressions) {
+            expressions.put(source, compiled);
+        }
+        return compiled;
+    }
+
+    public int size() {
+        synchronized (expressions) {
+            return expressions.size();
+        }
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Drops all compiled expressions.
+     */
+    public void clear() {
+        synchronized (expressions) {
+            expressions.clear();
+        }
+    }
+}
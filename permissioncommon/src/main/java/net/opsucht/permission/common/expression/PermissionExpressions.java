@@ -0,0 +1,105 @@
+package net.opsucht.permission.common.expression;
+
+import net.opsucht.permission.api.Permission;
+import net.opsucht.permission.api.PermissionExpression;
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * Evaluates {@link PermissionExpression}s against the fastest available
+ * view of a player's permissions.
+ * 
+ * <p>If the provider is, or wraps, a {@link CachedPermissionProvider} that
+ * holds a {@link UserSnapshot} for the player, the snapshot is looked up
+ * once and every node of the expression is resolved against it without
+ * further provider calls. Otherwise each node is checked through the
+ * provider. Either way evaluation short-circuits. Snapshot evaluations do
+ * not show up in call metrics, since they never reach the provider.</p>
+ * 
+ * <p>Expressions given as text are compiled once and kept in a shared
+ * {@link ExpressionCache} of {@value #DEFAULT_CACHE_SIZE} entries.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionExpressions {
+
+    /**
+     * Size of the shared expression cache.
+     */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    private static final ExpressionCache CACHE = new ExpressionCache(DEFAULT_CACHE_SIZE);
+
+    @ApiStatus.Internal
+    private PermissionExpressions() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * Evaluates an expression for a player using the active provider.
+     * 
+     * @param uuid the player's UUID
+     * @param source the expression text
+     * @return the result of the expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     * @throws IllegalStateException if no provider has been set
+     */
+    public static boolean test(@NotNull UUID uuid, @NotNull String source) {
+        return test(Permission.get(), uuid, CACHE.get(source));
+    }
+
+    /**
+     * Evaluates a compiled expression for a player.
+     * 
+     * @param provider the provider to resolve nodes with
+     * @param uuid the player's UUID
+     * @param expression the compiled expression
+     * @return the result of the expression
+     */
+    public static boolean test(@NotNull PermissionProvider provider, @NotNull UUID uuid,
+            @NotNull PermissionExpression expression) {
+        UserSnapshot snapshot = snapshotOf(provider, uuid);
+        if (snapshot != null) {
+            return expression.test(snapshot.getPermissions());
+        }
+        return expression.test(provider, uuid);
+    }
+
+    /**
+     * Returns the compiled expression for a source text from the shared cache.
+     * 
+     * @param source the expression text
+     * @return the compiled expression
+     * @throws IllegalArgumentException if the text is not a valid expression
+     */
+    public static @NotNull PermissionExpression compile(@NotNull String source) {
+        return CACHE.get(source);
+    }
+
+    /**
+     * Returns the shared expression cache.
+     * 
+     * @return the cache
+     */
+    public static @NotNull ExpressionCache getCache() {
+        return CACHE;
+    }
+
+    private static @Nullable UserSnapshot snapshotOf(PermissionProvider provider, UUID uuid) {
+        PermissionProvider current = provider;
+        while (current instanceof ForwardingPermissionProvider) {
+            current = ((ForwardingPermissionProvider) current).getDelegate();
+        }
+        if (current instanceof CachedPermissionProvider) {
+            return ((CachedPermissionProvider) current).snapshot(uuid);
+        }
+        return null;
+    }
+}
@@ -0,0 +1,304 @@
+package net.opsucht.permission.common.group;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The transitive closure of group inheritance.
+ * 
+ * <p>Every group name is interned to a small integer ID. For each group,
+ * the graph keeps a {@link BitSet} of the IDs of the group itself and all
+ * groups it inherits from, directly or indirectly. Whether a group inherits
+ * from another is then a single bit test, and the groups a player inherits
+ * are the union of the closures of their direct groups.</p>
+ * 
+ * <p>When the parents of a group change, only the closures of that group and
+ * of the groups inheriting from it are recomputed. Readers see an immutable
+ * state published through a volatile field and never block; writers are
+ * serialized. Cycles are tolerated: all groups on a cycle inherit from each
+ * other. Group names are compared case-insensitively.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class GroupGraph {
+
+    private final Map<String, Set<String>> parents = new HashMap<>();
+    private volatile State state = new State(0, Collections.emptyMap(), new BitSet[0]);
+
+    /**
+     * Replaces the whole graph.
+     * 
+     * @param groups every group with its direct parents
+     */
+    public synchronized void rebuild(@NotNull Map<String, ? extends Collection<String>> groups) {
+        parents.clear();
+        for (Map.Entry<String, ? extends Collection<String>> entry : groups.entrySet()) {
+            parents.put(normalize(entry.getKey()), normalize(entry.getValue()));
+        }
+        Map<String, Integer> ids = new HashMap<>(state.ids);
+        List<String> all = new ArrayList<>();
+        for (Map.Entry<String, Set<String>> entry : parents.entrySet()) {
+            all.add(entry.getKey());
+            all.addAll(entry.getValue());
+        }
+        for (String group : all) {
+            ids.computeIfAbsent(group, key -> ids.size());
+        }
+        BitSet[] closures = new BitSet[ids.size()];
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            closures[entry.getValue()] = reach(entry.getKey(), ids);
+        }
+        state = new State(state.version + 1, ids, closures);
+    }
+
+    /**
+     * Updates the parents of one group. The closures of the group and of all
+     * groups that inherit from it are recomputed.
+     * 
+     * @param group   the group name
+     * @param parents the new direct parents, or null if the group was deleted
+     */
+    public synchronized void update(@NotNull String group, @Nullable Collection<String> parents) {
+        String name = normalize(group);
+        Set<String> next = parents == null ? null : normalize(parents);
+        if (next == null ? !this.parents.containsKey(name) : next.equals(this.parents.get(name))) {
+            return;
+        }
+        if (next == null) {
+            this.parents.remove(name);
+        } else {
+            this.parents.put(name, next);
+        }
+
+        State current = state;
+        Map<String, Integer> ids = new HashMap<>(current.ids);
+        ids.computeIfAbsent(name, key -> ids.size());
+        if (next != null) {
+            for (String parent : next) {
+                ids.computeIfAbsent(parent, key -> ids.size());
+            }
+        }
+        BitSet[] closures = Arrays.copyOf(current.closures, ids.size());
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            int id = entry.getValue();
+            if (id >= current.closures.length) {
+                closures[id] = reach(entry.getKey(), ids);
+            }
+        }
+
+        // Every group whose closure contained the changed group may change
+        int changed = ids.get(name);
+        for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+            int id = entry.getValue();
+            if (id == changed || (id < current.closures.length && current.closures[id].get(changed))) {
+                closures[id] = reach(entry.getKey(), ids);
+            }
+        }
+        state = new State(current.version + 1, ids, closures);
+    }
+
+    /**
+     * Checks whether a group inherits from another one. A group inherits
+     * from itself.
+     * 
+     * @param group    the group name
+     * @param ancestor the name of the possible ancestor
+     * @return true if {@code group} is or inherits from {@code ancestor}
+     */
+    public boolean inherits(@NotNull String group, @NotNull String ancestor) {
+        State current = state;
+        Integer id = current.ids.get(normalize(group));
+        Integer ancestorId = current.ids.get(normalize(ancestor));
+        if (id == null || ancestorId == null) {
+            return normalize(group).equals(normalize(ancestor));
+        }
+        return current.closures[id].get(ancestorId);
+    }
+
+    /**
+     * Returns the ID of a group.
+     * 
+     * @param group the group name
+     * @return the ID, or -1 if the group is not in the graph
+     */
+    public int idOf(@NotNull String group) {
+        Integer id = state.ids.get(normalize(group));
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the IDs of the given groups and of all groups they inherit
+     * from. Groups that are not in the graph yet are added without parents,
+     * so a player's own groups are always part of the result.
+     * 
+     * @param groups the direct groups, for example those of a player
+     * @return a new bit set of group IDs
+     */
+    public @NotNull BitSet closureOf(@NotNull Collection<String> groups) {
+        State current = state;
+        BitSet result = new BitSet(current.closures.length);
+        for (String group : groups) {
+            Integer id = current.ids.get(normalize(group));
+            if (id == null) {
+                current = intern(normalize(group));
+                id = current.ids.get(normalize(group));
+            }
+            result.or(current.closures[id]);
+        }
+        return result;
+    }
+
+    /**
+     * Returns the names of all groups a group inherits from, including itself.
+     * 
+     * @param group the group name
+     * @return the lower-case names
+     */
+    public @NotNull Set<String> getAncestors(@NotNull String group) {
+        State current = state;
+        Integer id = current.ids.get(normalize(group));
+        if (id == null) {
+            return Set.of(normalize(group));
+        }
+        String[] names = current.names();
+        Set<String> ancestors = new LinkedHashSet<>();
+        BitSet closure = current.closures[id];
+        for (int bit = closure.nextSetBit(0); bit >= 0; bit = closure.nextSetBit(bit + 1)) {
+            ancestors.add(names[bit]);
+        }
+        return ancestors;
+    }
+
+    /**
+     * Returns the names of all groups that inherit from a group, directly or
+     * indirectly, including the group itself. A player whose direct groups
+     * contain none of them is not affected by a change of the group.
+     * 
+     * @param group the group name
+     * @return the lower-case names
+     */
+    public @NotNull Set<String> getDescendants(@NotNull String group) {
+        State current = state;
+        Integer id = current.ids.get(normalize(group));
+        if (id == null) {
+            return Set.of(normalize(group));
+        }
+        String[] names = current.names();
+        Set<String> descendants = new LinkedHashSet<>();
+        for (int i = 0; i < current.closures.length; i++) {
+            if (current.closures[i].get(id)) {
+                descendants.add(names[i]);
+            }
+        }
+        return descendants;
+    }
+
+    /**
+     * Returns a number that changes whenever a closure changes. Closures
+     * computed with an older version may be stale.
+     * 
+     * @return the version
+     */
+    public long getVersion() {
+        return state.version;
+    }
+
+    /**
+     * Returns the number of interned groups.
+     * 
+     * @return the number of groups
+     */
+    public int size() {
+        return state.ids.size();
+    }
+
+    /**
+     * Adds a group without parents. The version stays the same, since no
+     * existing closure changes.
+     */
+    private synchronized State intern(String name) {
+        State current = state;
+        if (current.ids.containsKey(name)) {
+            return current;
+        }
+        Map<String, Integer> ids = new HashMap<>(current.ids);
+        int id = ids.size();
+        ids.put(name, id);
+        BitSet[] closures = Arrays.copyOf(current.closures, id + 1);
+        closures[id] = reach(name, ids);
+        State next = new State(current.version, ids, closures);
+        state = next;
+        return next;
+    }
+
+    /**
+     * Collects the IDs of a group and everything reachable over its parents.
+     */
+    private BitSet reach(String group, Map<String, Integer> ids) {
+        BitSet closure = new BitSet(ids.size());
+        Set<String> seen = new HashSet<>();
+        Deque<String> pending = new ArrayDeque<>();
+        pending.add(group);
+        seen.add(group);
+        while (!pending.isEmpty()) {
+            String current = pending.poll();
+            closure.set(ids.get(current));
+            for (String parent : parents.getOrDefault(current, Set.of())) {
+                if (seen.add(parent)) {
+                    pending.add(parent);
+                }
+            }
+        }
+        return closure;
+    }
+
+    private static String normalize(String group) {
+        return group.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<String> normalize(Collection<String> groups) {
+        Set<String> normalized = new HashSet<>();
+        for (String group : groups) {
+            normalized.add(normalize(group));
+        }
+        return normalized;
+    }
+
+    /**
+     * One published version of the graph. Never modified after construction.
+     */
+    private static final class State {
+        private final long version;
+        private final Map<String, Integer> ids;
+        private final BitSet[] closures;
+
+        State(long version, Map<String, Integer> ids, BitSet[] closures) {
+            this.version = version;
+            this.ids = ids;
+            this.closures = closures;
+        }
+
+        String[] names() {
+            String[] names = new String[closures.length];
+            for (Map.Entry<String, Integer> entry : ids.entrySet()) {
+                names[entry.getValue()] = entry.getKey();
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package net.opsucht.permission.common.group;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A permission system that can describe how its groups inherit from each
+ * other.
+ * 
+ * <p>Implemented by providers whose backend has group inheritance. A
+ * {@link GroupGraph} is built from it once and then updated group by group
+ * as definitions change.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface GroupHierarchy {
+
+    /**
+     * Returns every known group with its direct parents.
+     * 
+     * @return group name to the names of its parents
+     */
+    @NotNull Map<String, Set<String>> getGroupParents();
+
+    /**
+     * Returns the direct parents of one group.
+     * 
+     * @param group the group name
+     * @return the names of its parents, or null if the group does not exist
+     */
+    @Nullable Set<String> getParents(@NotNull String group);
+}
@@ -0,0 +1,125 @@
+package net.opsucht.permission.common.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Reads the values written by {@link BinaryWriter}.
+ * 
+ * <p>Input is treated as untrusted: truncated data, oversized lengths and
+ * malformed varints raise an {@link IllegalArgumentException} instead of
+ * allocating or reading out of bounds.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class BinaryReader {
+
+    private final ByteBuffer in;
+
+    public BinaryReader(byte @NotNull [] bytes) {
+        this(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Creates a reader over the remaining bytes of a buffer. The buffer may
+     * be direct or memory-mapped.
+     * 
+     * @param in the buffer to read from
+     */
+    public BinaryReader(@NotNull ByteBuffer in) {
+        this.in = in;
+    }
+
+    public byte readByte() {
+        try {
+            return in.get();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    public int readInt() {
+        try {
+            return in.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    public long readLong() {
+        try {
+            return in.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated(e);
+        }
+    }
+
+    public @NotNull UUID readUuid() {
+        return new UUID(readLong(), readLong());
+    }
+
+    public int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IllegalArgumentException("Negative varint");
+                }
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Varint too long");
+    }
+
+    /**
+     * Reads a count or length and checks that at least
+     * {@code count * minBytesEach} bytes remain.
+     * 
+     * @param minBytesEach the minimum encoded size of one element
+     * @return the count
+     */
+    public int readCount(int minBytesEach) {
+        int count = readVarInt();
+        if ((long) count * minBytesEach > in.remaining()) {
+            throw new IllegalArgumentException("Count " + count + " exceeds remaining data");
+        }
+        return count;
+    }
+
+    public byte @NotNull [] readBytes(int length) {
+        if (length < 0 || length > in.remaining()) {
+            throw new IllegalArgumentException("Length " + length + " exceeds remaining data");
+        }
+        byte[] out = new byte[length];
+        in.get(out);
+        return out;
+    }
+
+    public @NotNull String readString() {
+        return new String(readBytes(readVarInt()), StandardCharsets.UTF_8);
+    }
+
+    public @Nullable String readNullableString() {
+        int length = readVarInt() - 1;
+        return length < 0 ? null : new String(readBytes(length), StandardCharsets.UTF_8);
+    }
+
+    public int remaining() {
+        return in.remaining();
+    }
+
+    public int position() {
+        return in.position();
+    }
+
+    private static IllegalArgumentException truncated(BufferUnderflowException e) {
+        return new IllegalArgumentException("Truncated data", e);
+    }
+}
@@ -0,0 +1,147 @@
+package net.opsucht.permission.common.io;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Growable big-endian buffer for the binary formats of this project.
+ * 
+ * <p>Integers that are usually small (counts, lengths, IDs) are written as
+ * unsigned LEB128 varints. Strings are written as a varint byte length
+ * followed by their UTF-8 bytes.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class BinaryWriter {
+
+    private ByteBuffer buffer;
+
+    public BinaryWriter() {
+        this(256);
+    }
+
+    public BinaryWriter(int initialCapacity) {
+        this.buffer = ByteBuffer.allocate(Math.max(16, initialCapacity));
+    }
+
+    public @NotNull BinaryWriter writeByte(int value) {
+        ensure(1).put((byte) value);
+        return this;
+    }
+
+    public @NotNull BinaryWriter writeInt(int value) {
+        ensure(4).putInt(value);
+        return this;
+    }
+
+    public @NotNull BinaryWriter writeLong(long value) {
+        ensure(8).putLong(value);
+        return this;
+    }
+
+    public @NotNull BinaryWriter writeUuid(@NotNull UUID uuid) {
+        ensure(16).putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+        return this;
+    }
+
+    /**
+     * Writes a non-negative int as varint.
+     * 
+     * @param value the value, must not be negative
+     * @return this writer
+     */
+    public @NotNull BinaryWriter writeVarInt(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Negative varint: " + value);
+        }
+        ByteBuffer out = ensure(5);
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+        return this;
+    }
+
+    public @NotNull BinaryWriter writeBytes(byte @NotNull [] bytes) {
+        ensure(bytes.length).put(bytes);
+        return this;
+    }
+
+    public @NotNull BinaryWriter writeString(@NotNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return writeVarInt(bytes.length).writeBytes(bytes);
+    }
+
+    /**
+     * Writes a string that may be null, encoding the length plus one so that
+     * zero marks null.
+     * 
+     * @param value the string or null
+     * @return this writer
+     */
+    public @NotNull BinaryWriter writeNullableString(@Nullable String value) {
+        if (value == null) {
+            return writeVarInt(0);
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        return writeVarInt(bytes.length + 1).writeBytes(bytes);
+    }
+
+    /**
+     * Returns the number of bytes written so far.
+     * 
+     * @return the size in bytes
+     */
+    public int size() {
+        return buffer.position();
+    }
+
+    /**
+     * Discards everything written so far, keeping the allocated buffer.
+     */
+    public void reset() {
+        buffer.clear();
+    }
+
+    /**
+     * Returns a copy of the bytes written so far.
+     * 
+     * @return the written bytes
+     */
+    public byte @NotNull [] toByteArray() {
+        byte[] out = new byte[buffer.position()];
+        System.arraycopy(buffer.array(), 0, out, 0, out.length);
+        return out;
+    }
+
+    private ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) {
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + bytes);
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns the encoded size of a varint.
+     * 
+     * @param value a non-negative value
+     * @return the number of bytes {@link #writeVarInt} would write
+     */
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,78 @@
+package net.opsucht.permission.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * JFR event for cached permission results being dropped.
+ * 
+ * <p>Evictions are instant and have no duration to filter on, so this
+ * event is disabled by default and has to be enabled explicitly, for
+ * example with {@code net.opsucht.permission.CacheEviction#enabled=true}.</p>
+ * 
+ * @since 1.0.0
+ */
+@Name("net.opsucht.permission.CacheEviction")
+@Label("Permission Cache Eviction")
+@Category({"OPSucht", "Permissions", "Cache"})
+@Description("Cached permission results of a player dropped")
+@StackTrace(false)
+@Enabled(false)
+public final class CacheEvictionEvent extends Event {
+
+    /**
+     * Reason used when a cached result had expired.
+     */
+    public static final String EXPIRED = "expired";
+
+    /**
+     * Reason used when a single node was invalidated.
+     */
+    public static final String INVALIDATED = "invalidated";
+
+    /**
+     * Reason used when all cached state of a player was dropped.
+     */
+    public static final String USER = "user";
+
+    @Label("UUID")
+    String uuid;
+
+    @Label("Node")
+    @Description("The evicted node, or empty if the whole player was evicted")
+    String node;
+
+    @Label("Entries")
+    long entries;
+
+    @Label("Reason")
+    String reason;
+
+    /**
+     * Commits an eviction event if the event is enabled.
+     * 
+     * @param uuid the player's UUID
+     * @param node the evicted node, or null if the whole player was evicted
+     * @param entries the number of dropped results
+     * @param reason why the results were dropped
+     */
+    public static void emit(@NotNull UUID uuid, @Nullable String node, long entries, @NotNull String reason) {
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (event.isEnabled()) {
+            event.uuid = uuid.toString();
+            event.node = node;
+            event.entries = entries;
+            event.reason = reason;
+            event.commit();
+        }
+    }
+}
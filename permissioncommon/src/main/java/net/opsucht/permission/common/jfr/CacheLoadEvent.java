@@ -0,0 +1,74 @@
+package net.opsucht.permission.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * JFR event for a cache miss that had to ask the underlying provider.
+ * 
+ * <p>Only loads slower than one millisecond are recorded by default.</p>
+ * 
+ * @since 1.0.0
+ */
+@Name("net.opsucht.permission.CacheLoad")
+@Label("Permission Cache Load")
+@Category({"OPSucht", "Permissions", "Cache"})
+@Description("A permission result loaded into the cache from the underlying provider")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class CacheLoadEvent extends Event {
+
+    @Label("UUID")
+    String uuid;
+
+    @Label("Node")
+    String node;
+
+    @Label("Provider")
+    @Description("The provider the result was loaded from")
+    String provider;
+
+    @Label("Granted")
+    boolean granted;
+
+    /**
+     * Creates the event and starts its timing.
+     * 
+     * @return the started event
+     */
+    public static @NotNull CacheLoadEvent start() {
+        CacheLoadEvent event = new CacheLoadEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops the timing and commits the event if it is enabled and slower
+     * than its threshold.
+     * 
+     * @param uuid the player's UUID
+     * @param node the loaded node
+     * @param provider the provider the result was loaded from
+     * @param granted the loaded result
+     */
+    public void finish(@NotNull UUID uuid, @NotNull String node, @NotNull PermissionProvider provider,
+            boolean granted) {
+        end();
+        if (shouldCommit()) {
+            this.uuid = uuid.toString();
+            this.node = node;
+            this.provider = provider.getProviderName();
+            this.granted = granted;
+            commit();
+        }
+    }
+}
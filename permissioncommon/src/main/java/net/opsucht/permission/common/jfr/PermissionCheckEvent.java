@@ -0,0 +1,82 @@
+package net.opsucht.permission.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * JFR event for a single permission check.
+ * 
+ * <p>Only checks slower than one millisecond are recorded by default. The
+ * threshold can be lowered in a JFR settings file, for example
+ * {@code net.opsucht.permission.PermissionCheck#threshold=0 ms}.</p>
+ * 
+ * @since 1.0.0
+ */
+@Name("net.opsucht.permission.PermissionCheck")
+@Label("Permission Check")
+@Category({"OPSucht", "Permissions"})
+@Description("A permission check answered by a provider")
+@StackTrace(false)
+@Threshold("1 ms")
+public final class PermissionCheckEvent extends Event {
+
+    @Label("UUID")
+    String uuid;
+
+    @Label("Node")
+    String node;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Granted")
+    boolean granted;
+
+    @Label("Cache Hit")
+    @Description("Whether the result was served from the cache")
+    boolean cacheHit;
+
+    /**
+     * Creates the event and starts its timing.
+     * 
+     * @return the started event
+     */
+    public static @NotNull PermissionCheckEvent start() {
+        PermissionCheckEvent event = new PermissionCheckEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops the timing and commits the event if it is enabled and slower
+     * than its threshold.
+     * 
+     * @param uuid the player's UUID
+     * @param node the checked node
+     * @param provider the answering provider; its name is only read if
+     *                 the event is committed
+     * @param granted the result of the check
+     * @param cacheHit whether the result came from a cache
+     */
+    public void finish(@NotNull UUID uuid, @NotNull String node, @NotNull PermissionProvider provider,
+            boolean granted, boolean cacheHit) {
+        end();
+        if (shouldCommit()) {
+            this.uuid = uuid.toString();
+            this.node = node;
+            this.provider = provider.getProviderName();
+            this.granted = granted;
+            this.cacheHit = cacheHit;
+            commit();
+        }
+    }
+}
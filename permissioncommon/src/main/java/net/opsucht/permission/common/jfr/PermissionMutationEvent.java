@@ -0,0 +1,86 @@
+package net.opsucht.permission.common.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+
+/**
+ * JFR event for adding or removing a permission.
+ * 
+ * <p>For asynchronous changes the event spans from the call until the
+ * returned future completes, including time spent queued and saving. Only
+ * changes slower than ten milliseconds are recorded by default.</p>
+ * 
+ * @since 1.0.0
+ */
+@Name("net.opsucht.permission.PermissionMutation")
+@Label("Permission Mutation")
+@Category({"OPSucht", "Permissions"})
+@Description("A permission added to or removed from a player")
+@StackTrace(false)
+@Threshold("10 ms")
+public final class PermissionMutationEvent extends Event {
+
+    @Label("UUID")
+    String uuid;
+
+    @Label("Node")
+    String node;
+
+    @Label("Provider")
+    String provider;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("Asynchronous")
+    boolean async;
+
+    @Label("Failed")
+    @Description("Whether the change failed or passed its deadline")
+    boolean failed;
+
+    /**
+     * Creates the event and starts its timing.
+     * 
+     * @return the started event
+     */
+    public static @NotNull PermissionMutationEvent start() {
+        PermissionMutationEvent event = new PermissionMutationEvent();
+        event.begin();
+        return event;
+    }
+
+    /**
+     * Stops the timing and commits the event if it is enabled and slower
+     * than its threshold.
+     * 
+     * @param uuid the player's UUID
+     * @param node the changed node
+     * @param provider the provider that made the change
+     * @param add true for an add, false for a remove
+     * @param async whether the change was asynchronous
+     * @param failed whether the change failed
+     */
+    public void finish(@NotNull UUID uuid, @NotNull String node, @NotNull PermissionProvider provider,
+            boolean add, boolean async, boolean failed) {
+        end();
+        if (shouldCommit()) {
+            this.uuid = uuid.toString();
+            this.node = node;
+            this.provider = provider.getProviderName();
+            this.operation = add ? "add" : "remove";
+            this.async = async;
+            this.failed = failed;
+            commit();
+        }
+    }
+}
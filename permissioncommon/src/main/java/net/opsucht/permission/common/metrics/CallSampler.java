@@ -0,0 +1,209 @@
+package net.opsucht.permission.common.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+/**
+ * Samples provider calls and attributes them to the calling plugin.
+ * 
+ * <p>One in {@link #getRate()} calls is recorded into a fixed-size ring
+ * buffer, overwriting the oldest samples. The caller is found with a
+ * {@link CallerLookup}. Only sampled calls pay for the stack walk; all
+ * others cost one volatile read and one random number, so the sampler can
+ * stay on in production and be switched on and off at runtime.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CallSampler {
+
+    /**
+     * Caller name used when no frame could be attributed.
+     */
+    public static final String UNKNOWN_CALLER = CallerLookup.UNKNOWN_CALLER;
+
+    private final CallerLookup callers;
+    private final AtomicReferenceArray<Sample> ring;
+    private final int ringMask;
+    private final AtomicLong next = new AtomicLong();
+    private volatile boolean enabled;
+    private volatile int rateMask;
+
+    /**
+     * Creates a disabled sampler.
+     * 
+     * @param capacity the number of samples kept; must be a power of two
+     * @param rate record one in this many calls; must be a power of two
+     * @param resolver names the plugin of a class loader, or returns null
+     *                 if the loader does not belong to a plugin
+     */
+    public CallSampler(int capacity, int rate, @NotNull Function<ClassLoader, String> resolver) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.ringMask = capacity - 1;
+        this.callers = new CallerLookup(resolver);
+        setRate(rate);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public int getRate() {
+        return rateMask + 1;
+    }
+
+    /**
+     * Changes the sampling rate.
+     * 
+     * @param rate record one in this many calls; must be a power of two
+     */
+    public void setRate(int rate) {
+        if (rate < 1 || Integer.bitCount(rate) != 1) {
+            throw new IllegalArgumentException("Rate must be a power of two: " + rate);
+        }
+        this.rateMask = rate - 1;
+    }
+
+    /**
+     * Decides whether the current call should be sampled.
+     * 
+     * @return true if the caller should measure the call and {@link #record} it
+     */
+    public boolean shouldSample() {
+        return enabled && (ThreadLocalRandom.current().nextInt() & rateMask) == 0;
+    }
+
+    /**
+     * Records a sampled call. Must be called on the thread that made the
+     * call, so the caller can be found on the stack.
+     * 
+     * @param node the checked node, or the operation for calls without one
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(@NotNull String node, long nanos) {
+        Sample sample = new Sample(callers.find(), node, nanos);
+        ring.set((int) (next.getAndIncrement() & ringMask), sample);
+    }
+
+    /**
+     * Drops all samples.
+     */
+    public void clear() {
+        for (int i = 0; i < ring.length(); i++) {
+            ring.set(i, null);
+        }
+    }
+
+    /**
+     * Returns the callers with the most samples.
+     * 
+     * @param limit the maximum number of entries
+     * @return caller name to sample count, most frequent first
+     */
+    public @NotNull List<Map.Entry<String, Long>> topCallers(int limit) {
+        return counts(top(sample -> sample.caller, limit));
+    }
+
+    /**
+     * Returns the nodes with the most samples.
+     * 
+     * @param limit the maximum number of entries
+     * @return node to sample count, most frequent first
+     */
+    public @NotNull List<Map.Entry<String, Long>> topNodes(int limit) {
+        return counts(top(sample -> sample.node, limit));
+    }
+
+    /**
+     * Formats the top callers and nodes for the sample command.
+     * 
+     * @param limit the number of entries per list
+     * @return the report lines
+     */
+    public @NotNull List<String> report(int limit) {
+        List<String> lines = new ArrayList<>();
+        int samples = 0;
+        for (int i = 0; i < ring.length(); i++) {
+            if (ring.get(i) != null) {
+                samples++;
+            }
+        }
+        lines.add(String.format(Locale.ROOT, "Sampling %s, 1 von %d Aufrufen, %d Samples",
+                enabled ? "aktiv" : "inaktiv", getRate(), samples));
+        lines.add("Top-Aufrufer:");
+        for (Map.Entry<String, long[]> entry : top(sample -> sample.caller, limit)) {
+            lines.add(format(entry));
+        }
+        lines.add("Top-Nodes:");
+        for (Map.Entry<String, long[]> entry : top(sample -> sample.node, limit)) {
+            lines.add(format(entry));
+        }
+        return lines;
+    }
+
+    private static String format(Map.Entry<String, long[]> entry) {
+        long[] value = entry.getValue();
+        return String.format(Locale.ROOT, "  %s: %d Samples, Ø %.1f µs", entry.getKey(), value[0],
+                value[1] / (double) value[0] / 1000.0);
+    }
+
+    /**
+     * Groups the samples and returns the largest groups.
+     * 
+     * @return key to {sample count, total nanoseconds}, most frequent first
+     */
+    private List<Map.Entry<String, long[]>> top(Function<Sample, String> key, int limit) {
+        Map<String, long[]> groups = new HashMap<>();
+        for (int i = 0; i < ring.length(); i++) {
+            Sample sample = ring.get(i);
+            if (sample != null) {
+                long[] value = groups.computeIfAbsent(key.apply(sample), k -> new long[2]);
+                value[0]++;
+                value[1] += sample.nanos;
+            }
+        }
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(groups.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed());
+        return entries.subList(0, Math.min(limit, entries.size()));
+    }
+
+    private static List<Map.Entry<String, Long>> counts(List<Map.Entry<String, long[]>> entries) {
+        List<Map.Entry<String, Long>> counts = new ArrayList<>(entries.size());
+        for (Map.Entry<String, long[]> entry : entries) {
+            counts.add(new AbstractMap.SimpleImmutableEntry<>(entry.getKey(), entry.getValue()[0]));
+        }
+        return counts;
+    }
+
+    /**
+     * One sampled call.
+     */
+    private static final class Sample {
+        private final String caller;
+        private final String node;
+        private final long nanos;
+
+        Sample(String caller, String node, long nanos) {
+            this.caller = caller;
+            this.node = node;
+            this.nanos = nanos;
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.opsucht.permission.common.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Function;
+
+/**
+ * Finds the plugin that called into this library.
+ * 
+ * <p>Walks the stack of the current thread with a {@link StackWalker}: the
+ * first frame outside this library whose class loader the resolver
+ * recognizes names the caller. The plugin of each class is resolved once
+ * and remembered for as long as the class is loaded, so a lookup costs one
+ * stack walk of a few microseconds. It is meant for sampled or rare calls,
+ * not for every permission check.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class CallerLookup {
+
+    /**
+     * Caller name used when no frame could be attributed.
+     */
+    public static final String UNKNOWN_CALLER = "unbekannt";
+
+    private static final String OWN_PACKAGE = "net.opsucht.permission.";
+    private static final String NO_PLUGIN = "";
+
+    private final StackWalker walker = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    private final Function<ClassLoader, String> resolver;
+    // Does not keep the classes of unloaded plugins alive
+    private final ClassValue<String> plugins = new ClassValue<String>() {
+        @Override
+        protected String computeValue(Class<?> type) {
+            ClassLoader loader = type.getClassLoader();
+            String name = loader == null ? null : resolver.apply(loader);
+            return name != null ? name : NO_PLUGIN;
+        }
+    };
+
+    /**
+     * @param resolver names the plugin of a class loader, or returns null
+     *                 if the loader does not belong to a plugin
+     */
+    public CallerLookup(@NotNull Function<ClassLoader, String> resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Names the plugin that made the current call.
+     * 
+     * @return the plugin name, or {@link #UNKNOWN_CALLER}
+     */
+    public @NotNull String find() {
+        return walker.walk(frames -> frames
+                .map(StackWalker.StackFrame::getDeclaringClass)
+                .filter(type -> !type.getName().startsWith(OWN_PACKAGE))
+                .map(plugins::get)
+                .filter(name -> !name.isEmpty())
+                .findFirst()
+                .orElse(UNKNOWN_CALLER));
+    }
+}
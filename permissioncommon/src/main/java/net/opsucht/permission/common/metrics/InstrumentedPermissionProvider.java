@@ -0,0 +1,167 @@
+package net.opsucht.permission.common.metrics;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Records {@link PermissionMetrics} for the calls made to a provider.
+ * 
+ * <p>Asynchronous changes are measured until their future completes.
+ * Synchronous calls can additionally be attributed to the calling plugin
+ * by a {@link CallSampler}.</p>
+ * 
+ * @since 1.0.0
+ */
+public class InstrumentedPermissionProvider extends ForwardingPermissionProvider {
+
+    private static final String GET_GROUPS_NODE = "<getGroups>";
+
+    private final PermissionMetrics metrics;
+    private final @Nullable CallSampler sampler;
+
+    /**
+     * @param delegate the provider to measure
+     * @param metrics the metrics to record into
+     */
+    public InstrumentedPermissionProvider(@NotNull PermissionProvider delegate, @NotNull PermissionMetrics metrics) {
+        this(delegate, metrics, null);
+    }
+
+    /**
+     * @param delegate the provider to measure
+     * @param metrics the metrics to record into
+     * @param sampler attributes sampled synchronous calls to their callers, or null
+     */
+    public InstrumentedPermissionProvider(@NotNull PermissionProvider delegate, @NotNull PermissionMetrics metrics,
+            @Nullable CallSampler sampler) {
+        super(delegate);
+        this.metrics = metrics;
+        this.sampler = sampler;
+    }
+
+    public @NotNull PermissionMetrics getMetrics() {
+        return metrics;
+    }
+
+    @Override
+    public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        boolean timed = metrics.count(Operation.HAS);
+        boolean sampled = sampler != null && sampler.shouldSample();
+        if (!timed && !sampled) {
+            return delegate.has(uuid, permission);
+        }
+        long start = System.nanoTime();
+        boolean result = delegate.has(uuid, permission);
+        record(Operation.HAS, permission, timed, sampled, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+        boolean timed = metrics.count(Operation.GET_GROUPS);
+        boolean sampled = sampler != null && sampler.shouldSample();
+        if (!timed && !sampled) {
+            return delegate.getGroups(uuid);
+        }
+        long start = System.nanoTime();
+        Set<String> result = delegate.getGroups(uuid);
+        record(Operation.GET_GROUPS, GET_GROUPS_NODE, timed, sampled, System.nanoTime() - start);
+        return result;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        boolean timed = metrics.count(Operation.ADD);
+        boolean sampled = sampler != null && sampler.shouldSample();
+        if (!timed && !sampled) {
+            delegate.add(uuid, permission);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.add(uuid, permission);
+        record(Operation.ADD, permission, timed, sampled, System.nanoTime() - start);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return measure(Operation.ADD, System.nanoTime(), metrics.count(Operation.ADD),
+                delegate.addAsync(uuid, permission));
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return measure(Operation.ADD, System.nanoTime(), metrics.count(Operation.ADD),
+                delegate.addAsync(uuid, permission, timeout));
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        boolean timed = metrics.count(Operation.ADD);
+        boolean sampled = sampler != null && sampler.shouldSample();
+        if (!timed && !sampled) {
+            delegate.addTemporary(uuid, permission, duration);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.addTemporary(uuid, permission, duration);
+        record(Operation.ADD, permission, timed, sampled, System.nanoTime() - start);
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return measure(Operation.ADD, System.nanoTime(), metrics.count(Operation.ADD),
+                delegate.addTemporaryAsync(uuid, permission, duration));
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        boolean timed = metrics.count(Operation.REMOVE);
+        boolean sampled = sampler != null && sampler.shouldSample();
+        if (!timed && !sampled) {
+            delegate.remove(uuid, permission);
+            return;
+        }
+        long start = System.nanoTime();
+        delegate.remove(uuid, permission);
+        record(Operation.REMOVE, permission, timed, sampled, System.nanoTime() - start);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return measure(Operation.REMOVE, System.nanoTime(), metrics.count(Operation.REMOVE),
+                delegate.removeAsync(uuid, permission));
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return measure(Operation.REMOVE, System.nanoTime(), metrics.count(Operation.REMOVE),
+                delegate.removeAsync(uuid, permission, timeout));
+    }
+
+    private void record(Operation operation, String node, boolean timed, boolean sampled, long nanos) {
+        if (timed) {
+            metrics.record(operation, nanos);
+        }
+        if (sampled) {
+            sampler.record(node, nanos);
+        }
+    }
+
+    private CompletableFuture<Void> measure(Operation operation, long start, boolean sampled,
+            CompletableFuture<Void> future) {
+        if (sampled) {
+            future.whenComplete((ignored, error) -> metrics.record(operation, System.nanoTime() - start));
+        }
+        return future;
+    }
+}
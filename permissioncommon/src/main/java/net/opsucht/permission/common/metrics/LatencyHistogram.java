@@ -0,0 +1,100 @@
+package net.opsucht.permission.common.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with power-of-two buckets.
+ * 
+ * <p>Bucket {@code i} counts latencies in {@code [2^(i-1), 2^i)} nanoseconds,
+ * so recording is a leading-zero count and one {@link LongAdder} increment.
+ * Percentiles are reported as the upper bound of the bucket they fall into,
+ * which overestimates by less than a factor of two.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class LatencyHistogram {
+
+    private static final int BUCKETS = 48;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder totalNanos = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Records one latency.
+     * 
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+        buckets[bucket].increment();
+        totalNanos.add(value);
+    }
+
+    /**
+     * Returns the number of recorded latencies.
+     * 
+     * @return the count
+     */
+    public long getCount() {
+        long count = 0;
+        for (LongAdder bucket : buckets) {
+            count += bucket.sum();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded latencies.
+     * 
+     * @return the mean in nanoseconds, 0 if nothing was recorded
+     */
+    public double getMeanNanos() {
+        long count = getCount();
+        return count == 0 ? 0.0 : (double) totalNanos.sum() / count;
+    }
+
+    /**
+     * Returns an upper bound of a percentile of the recorded latencies.
+     * 
+     * @param percentile the percentile between 0 and 100
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        if (total == 0) {
+            return 0L;
+        }
+
+        long threshold = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+        long cumulative = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            cumulative += counts[i];
+            if (cumulative >= threshold && counts[i] > 0) {
+                return 1L << i;
+            }
+        }
+        return 1L << (BUCKETS - 1);
+    }
+
+    /**
+     * Clears all recorded latencies.
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        totalNanos.reset();
+    }
+}
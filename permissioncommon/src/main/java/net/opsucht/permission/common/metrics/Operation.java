@@ -0,0 +1,31 @@
+package net.opsucht.permission.common.metrics;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The provider operations that are measured by {@link PermissionMetrics}.
+ * 
+ * @since 1.0.0
+ */
+public enum Operation {
+
+    HAS("has"),
+    GET_GROUPS("getGroups"),
+    ADD("add"),
+    REMOVE("remove");
+
+    private final String displayName;
+
+    Operation(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * Returns the name of the provider method, as shown in reports.
+     * 
+     * @return the display name
+     */
+    public @NotNull String getDisplayName() {
+        return displayName;
+    }
+}
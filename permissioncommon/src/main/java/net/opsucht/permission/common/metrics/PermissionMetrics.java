@@ -0,0 +1,158 @@
+package net.opsucht.permission.common.metrics;
+
+import net.opsucht.permission.common.cache.CacheStats;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Call counters and latency histograms of one provider.
+ * 
+ * <p>Every call is counted. Latencies are only measured for a sample of
+ * calls, since reading the clock twice costs more than the rest of the
+ * recording. With the default rate of 1 in 16, recording adds a couple of
+ * nanoseconds to a call on average.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionMetrics {
+
+    /**
+     * Default sampling rate of latency measurements.
+     */
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private volatile String providerName;
+    private final int sampleMask;
+    private final Map<Operation, LongAdder> calls = new EnumMap<>(Operation.class);
+    private final Map<Operation, LatencyHistogram> latencies = new EnumMap<>(Operation.class);
+    private volatile @Nullable CacheStats cacheStats;
+
+    /**
+     * Creates metrics with the default sampling rate.
+     * 
+     * @param providerName the name of the measured provider
+     */
+    public PermissionMetrics(@NotNull String providerName) {
+        this(providerName, DEFAULT_SAMPLE_RATE);
+    }
+
+    /**
+     * Creates metrics.
+     * 
+     * @param providerName the name of the measured provider
+     * @param sampleRate measure the latency of one in this many calls; must be a power of two
+     */
+    public PermissionMetrics(@NotNull String providerName, int sampleRate) {
+        if (sampleRate < 1 || Integer.bitCount(sampleRate) != 1) {
+            throw new IllegalArgumentException("Sample rate must be a power of two: " + sampleRate);
+        }
+        this.providerName = providerName;
+        this.sampleMask = sampleRate - 1;
+        for (Operation operation : Operation.values()) {
+            calls.put(operation, new LongAdder());
+            latencies.put(operation, new LatencyHistogram());
+        }
+    }
+
+    public @NotNull String getProviderName() {
+        return providerName;
+    }
+
+    /**
+     * Renames the measured provider after the backend was switched.
+     * 
+     * @param providerName the name of the new provider
+     */
+    public void setProviderName(@NotNull String providerName) {
+        this.providerName = providerName;
+    }
+
+    /**
+     * Counts a call and decides whether its latency should be measured.
+     * 
+     * @param operation the called operation
+     * @return true if the caller should measure and {@link #record} the latency
+     */
+    public boolean count(@NotNull Operation operation) {
+        calls.get(operation).increment();
+        return (ThreadLocalRandom.current().nextInt() & sampleMask) == 0;
+    }
+
+    /**
+     * Records the latency of a sampled call.
+     * 
+     * @param operation the called operation
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(@NotNull Operation operation, long nanos) {
+        latencies.get(operation).record(nanos);
+    }
+
+    public long getCalls(@NotNull Operation operation) {
+        return calls.get(operation).sum();
+    }
+
+    public @NotNull LatencyHistogram getLatency(@NotNull Operation operation) {
+        return latencies.get(operation);
+    }
+
+    /**
+     * Attaches the statistics of the cache in front of the provider, so they
+     * are reported together.
+     * 
+     * @param cacheStats the cache statistics, or null if there is no cache
+     */
+    public void setCacheStats(@Nullable CacheStats cacheStats) {
+        this.cacheStats = cacheStats;
+    }
+
+    public @Nullable CacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * Clears all counters, including the attached cache statistics.
+     */
+    public void reset() {
+        for (Operation operation : Operation.values()) {
+            calls.get(operation).reset();
+            latencies.get(operation).reset();
+        }
+        CacheStats cache = cacheStats;
+        if (cache != null) {
+            cache.reset();
+        }
+    }
+
+    /**
+     * Formats the current values for the stats command.
+     * 
+     * @return the report lines
+     */
+    public @NotNull List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("Provider: " + providerName);
+        for (Operation operation : Operation.values()) {
+            LatencyHistogram latency = latencies.get(operation);
+            lines.add(String.format(Locale.ROOT, "%s: %d Aufrufe, Ø %.1f µs, p99 ≤ %.1f µs",
+                    operation.getDisplayName(), getCalls(operation), latency.getMeanNanos() / 1000.0,
+                    latency.getPercentileNanos(99.0) / 1000.0));
+        }
+
+        CacheStats cache = cacheStats;
+        if (cache != null) {
+            lines.add(String.format(Locale.ROOT, "Cache: %d Treffer, %d Fehlgriffe (%.1f %%), %d verworfen, Ø Laden %.1f µs",
+                    cache.getHits(), cache.getMisses(), cache.getHitRate() * 100.0, cache.getEvictions(),
+                    cache.getMeanLoadNanos() / 1000.0));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,130 @@
+package net.opsucht.permission.common.metrics;
+
+import net.opsucht.permission.common.cache.CacheStats;
+import org.jetbrains.annotations.NotNull;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Publishes {@link PermissionMetrics} as a platform MXBean named
+ * {@code net.opsucht.permission:type=Stats}.
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionStats implements PermissionStatsMXBean {
+
+    private static final String OBJECT_NAME = "net.opsucht.permission:type=Stats";
+
+    private final PermissionMetrics metrics;
+
+    public PermissionStats(@NotNull PermissionMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Registers the MXBean, replacing one left behind by a previous load of
+     * the plugin. Failures are logged and otherwise ignored.
+     * 
+     * @param logger the logger for failures
+     */
+    public void register(@NotNull Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            try {
+                server.registerMBean(this, name);
+            } catch (InstanceAlreadyExistsException e) {
+                server.unregisterMBean(name);
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            logger.log(Level.WARNING, "JMX-Statistiken konnten nicht registriert werden", e);
+        }
+    }
+
+    /**
+     * Unregisters the MXBean if it is registered.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(new ObjectName(OBJECT_NAME));
+        } catch (JMException ignored) {
+            // Not registered, nothing to clean up
+        }
+    }
+
+    @Override
+    public String getProviderName() {
+        return metrics.getProviderName();
+    }
+
+    @Override
+    public Map<String, Long> getCalls() {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.getDisplayName(), metrics.getCalls(operation));
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getMeanLatencyMicros() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.getDisplayName(), metrics.getLatency(operation).getMeanNanos() / 1000.0);
+        }
+        return values;
+    }
+
+    @Override
+    public Map<String, Double> getP99LatencyMicros() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Operation operation : Operation.values()) {
+            values.put(operation.getDisplayName(), metrics.getLatency(operation).getPercentileNanos(99.0) / 1000.0);
+        }
+        return values;
+    }
+
+    @Override
+    public long getCacheHits() {
+        CacheStats cache = metrics.getCacheStats();
+        return cache != null ? cache.getHits() : 0L;
+    }
+
+    @Override
+    public long getCacheMisses() {
+        CacheStats cache = metrics.getCacheStats();
+        return cache != null ? cache.getMisses() : 0L;
+    }
+
+    @Override
+    public long getCacheEvictions() {
+        CacheStats cache = metrics.getCacheStats();
+        return cache != null ? cache.getEvictions() : 0L;
+    }
+
+    @Override
+    public double getCacheHitRate() {
+        CacheStats cache = metrics.getCacheStats();
+        return cache != null ? cache.getHitRate() : 0.0;
+    }
+
+    @Override
+    public double getCacheMeanLoadMicros() {
+        CacheStats cache = metrics.getCacheStats();
+        return cache != null ? cache.getMeanLoadNanos() / 1000.0 : 0.0;
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -0,0 +1,37 @@
+package net.opsucht.permission.common.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of {@link PermissionMetrics}.
+ * 
+ * <p>Per-operation values are keyed by the name of the provider method.
+ * Cache values are 0 if no cache is attached.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface PermissionStatsMXBean {
+
+    String getProviderName();
+
+    Map<String, Long> getCalls();
+
+    Map<String, Double> getMeanLatencyMicros();
+
+    Map<String, Double> getP99LatencyMicros();
+
+    long getCacheHits();
+
+    long getCacheMisses();
+
+    long getCacheEvictions();
+
+    double getCacheHitRate();
+
+    double getCacheMeanLoadMicros();
+
+    /**
+     * Clears all counters.
+     */
+    void reset();
+}
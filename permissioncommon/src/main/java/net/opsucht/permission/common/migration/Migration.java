@@ -0,0 +1,484 @@
+package net.opsucht.permission.common.migration;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Copies the stored users and groups of one backend into another.
+ * 
+ * <p>The source must be a {@link MigrationSource} and the target a
+ * {@link MigrationTarget}. Groups are written first. Users are sorted by
+ * UUID and split into batches of {@code batchSize}; a pool of
+ * {@code readers} threads reads one batch at a time from the source, hands
+ * it to the target, which saves each user once, and waits for the saves
+ * before taking the next batch. At most {@code readers * batchSize} users
+ * are therefore held in memory, however many the backend stores; only the
+ * list of UUIDs is kept in full.</p>
+ * 
+ * <p>Every finished batch is recorded in a checkpoint file. A migration
+ * that was cancelled, failed on some batches or stopped with the server
+ * continues with the remaining batches when it is started again with the
+ * same backends and batch size. Batches that failed are logged and left
+ * out of the checkpoint, so they are retried on the next run.</p>
+ * 
+ * <p>If the target can also be read as a {@link MigrationSource},
+ * {@link #verify()} reads every user back from both backends in parallel
+ * and counts the users whose data did not fully arrive.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class Migration {
+
+    /**
+     * The stages of a migration.
+     */
+    public enum Phase {
+        PENDING("Wartet"),
+        GROUPS("Gruppen"),
+        USERS("Spieler"),
+        VERIFY("Prüfung"),
+        DONE("Fertig"),
+        CANCELLED("Abgebrochen"),
+        FAILED("Fehlgeschlagen");
+
+        private final String displayName;
+
+        Phase(String displayName) {
+            this.displayName = displayName;
+        }
+
+        public @NotNull String getDisplayName() {
+            return displayName;
+        }
+    }
+
+    private static final int MAX_LOGGED_MISMATCHES = 20;
+
+    private final PermissionProvider sourceProvider;
+    private final PermissionProvider targetProvider;
+    private final MigrationSource source;
+    private final MigrationTarget target;
+    private final Path checkpointFile;
+    private final int readers;
+    private final int batchSize;
+    private final Logger logger;
+
+    private final LongAdder migrated = new LongAdder();
+    private final LongAdder skipped = new LongAdder();
+    private final LongAdder failedBatches = new LongAdder();
+    private final LongAdder verified = new LongAdder();
+    private final LongAdder mismatches = new LongAdder();
+    private final List<UUID> mismatched = Collections.synchronizedList(new ArrayList<>());
+    private volatile Phase phase = Phase.PENDING;
+    private volatile boolean cancelled;
+    private volatile int total;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+
+    /**
+     * @param source the backend to read from
+     * @param target the backend to write into
+     * @param checkpointFile where finished batches are recorded
+     * @param readers the number of batches processed in parallel
+     * @param batchSize the number of users read and written together
+     * @param logger the logger for progress and failures
+     * @throws IllegalArgumentException if a backend does not support
+     *                                  migrations or a number is not positive
+     */
+    public Migration(@NotNull PermissionProvider source, @NotNull PermissionProvider target,
+            @NotNull Path checkpointFile, int readers, int batchSize, @NotNull Logger logger) {
+        if (!(source instanceof MigrationSource)) {
+            throw new IllegalArgumentException(source.getProviderName() + " cannot be migrated from");
+        }
+        if (!(target instanceof MigrationTarget)) {
+            throw new IllegalArgumentException(target.getProviderName() + " cannot be migrated to");
+        }
+        if (readers < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("readers and batchSize must be positive");
+        }
+        this.sourceProvider = source;
+        this.targetProvider = target;
+        this.source = (MigrationSource) source;
+        this.target = (MigrationTarget) target;
+        this.checkpointFile = checkpointFile;
+        this.readers = readers;
+        this.batchSize = batchSize;
+        this.logger = logger;
+    }
+
+    /**
+     * Migrates the groups and all remaining batches of users. Blocks until
+     * every batch was processed or the migration was cancelled.
+     * 
+     * @throws IOException if the checkpoint cannot be read
+     */
+    public void run() throws IOException {
+        startedAt = System.currentTimeMillis();
+        try {
+            List<UUID> users = sortedUsers();
+            total = users.size();
+            MigrationCheckpoint checkpoint = MigrationCheckpoint.open(checkpointFile,
+                    sourceProvider.getProviderName(), targetProvider.getProviderName(), fingerprint(users),
+                    users.size(), batchSize);
+
+            if (!checkpoint.isGroupsDone()) {
+                phase = Phase.GROUPS;
+                if (migrateGroups()) {
+                    checkpoint.markGroupsDone();
+                    save(checkpoint);
+                }
+            }
+
+            phase = Phase.USERS;
+            int batches = batchCount(users.size());
+            logger.info(String.format(Locale.ROOT, "Migration %s -> %s: %d Spieler in %d Paketen, %d bereits erledigt",
+                    sourceProvider.getProviderName(), targetProvider.getProviderName(), users.size(), batches,
+                    checkpoint.getDoneCount()));
+            forEachBatch(batches, batch -> {
+                List<UUID> uuids = batch(users, batch);
+                if (checkpoint.isDone(batch)) {
+                    skipped.add(uuids.size());
+                    return;
+                }
+                migrateBatch(uuids);
+                checkpoint.markDone(batch);
+                save(checkpoint);
+            });
+        } catch (IOException | RuntimeException e) {
+            phase = Phase.FAILED;
+            throw e;
+        } finally {
+            finishedAt = System.currentTimeMillis();
+        }
+        phase = cancelled ? Phase.CANCELLED : Phase.DONE;
+    }
+
+    /**
+     * Reads every user and group back from both backends and compares
+     * them. Blocks until done or cancelled.
+     * 
+     * @return the number of users and groups whose data did not fully arrive
+     * @throws IllegalStateException if the target cannot be read back
+     */
+    public long verify() {
+        if (!canVerify()) {
+            throw new IllegalStateException(targetProvider.getProviderName() + " cannot be read back");
+        }
+        MigrationSource copy = (MigrationSource) targetProvider;
+        if (startedAt == 0) {
+            startedAt = System.currentTimeMillis();
+        }
+        try {
+            phase = Phase.VERIFY;
+            Map<String, MigrationGroup> copiedGroups = new HashMap<>();
+            for (MigrationGroup group : copy.readGroups()) {
+                copiedGroups.put(group.getName(), group);
+            }
+            for (MigrationGroup group : source.readGroups()) {
+                MigrationGroup copied = copiedGroups.get(group.getName());
+                if (copied == null || !group.isCoveredBy(copied)) {
+                    mismatches.increment();
+                    logger.warning("Gruppe nicht vollständig migriert: " + group.getName());
+                }
+            }
+
+            List<UUID> users = sortedUsers();
+            total = users.size();
+            forEachBatch(batchCount(users.size()), batch -> {
+                for (UUID uuid : batch(users, batch)) {
+                    MigrationUser expected = source.readUser(uuid);
+                    if (expected == null) {
+                        continue;
+                    }
+                    MigrationUser actual = copy.readUser(uuid);
+                    verified.increment();
+                    if (actual == null || !expected.isCoveredBy(actual)) {
+                        mismatches.increment();
+                        if (mismatched.size() < MAX_LOGGED_MISMATCHES) {
+                            mismatched.add(uuid);
+                        }
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            phase = Phase.FAILED;
+            throw e;
+        } finally {
+            finishedAt = System.currentTimeMillis();
+        }
+        phase = cancelled ? Phase.CANCELLED : Phase.DONE;
+        return mismatches.sum();
+    }
+
+    /**
+     * Checks whether {@link #verify()} is supported by the target.
+     * 
+     * @return true if the target can be read as a {@link MigrationSource}
+     */
+    public boolean canVerify() {
+        return targetProvider instanceof MigrationSource;
+    }
+
+    /**
+     * Stops the migration after the batches that are currently being
+     * written. Those are still recorded, so the next run continues after
+     * them.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public @NotNull Phase getPhase() {
+        return phase;
+    }
+
+    public boolean isRunning() {
+        Phase current = phase;
+        return current == Phase.GROUPS || current == Phase.USERS || current == Phase.VERIFY;
+    }
+
+    /**
+     * Returns the number of users the source stores.
+     * 
+     * @return the number of users, 0 until the source was listed
+     */
+    public int getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of users written in this run.
+     * 
+     * @return the number of users
+     */
+    public long getMigrated() {
+        return migrated.sum();
+    }
+
+    /**
+     * Returns the number of users skipped because a previous run already
+     * migrated their batch.
+     * 
+     * @return the number of users
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.sum();
+    }
+
+    public long getMismatches() {
+        return mismatches.sum();
+    }
+
+    /**
+     * Returns the first users found to differ by {@link #verify()}.
+     * 
+     * @return up to 20 UUIDs
+     */
+    public @NotNull List<UUID> getMismatchedUsers() {
+        synchronized (mismatched) {
+            return new ArrayList<>(mismatched);
+        }
+    }
+
+    /**
+     * Formats the progress for the migrate command.
+     * 
+     * @return the report lines
+     */
+    public @NotNull List<String> report() {
+        List<String> lines = new ArrayList<>();
+        long end = isRunning() ? System.currentTimeMillis() : finishedAt;
+        double seconds = startedAt == 0 ? 0 : (end - startedAt) / 1000.0;
+        long done = getMigrated() + getSkipped();
+        lines.add(String.format(Locale.ROOT, "Migration %s -> %s: %s",
+                sourceProvider.getProviderName(), targetProvider.getProviderName(), phase.getDisplayName()));
+        lines.add(String.format(Locale.ROOT, "Spieler: %d von %d (%d neu, %d aus Checkpoint), %.0f Spieler/s",
+                done, total, getMigrated(), getSkipped(), seconds > 0 ? getMigrated() / seconds : 0.0));
+        lines.add(String.format(Locale.ROOT, "Fehlgeschlagene Pakete: %d, Laufzeit: %.1f s",
+                getFailedBatches(), seconds));
+        if (verified.sum() > 0 || mismatches.sum() > 0) {
+            lines.add(String.format(Locale.ROOT, "Geprüft: %d, Abweichungen: %d", verified.sum(), getMismatches()));
+            for (UUID uuid : getMismatchedUsers()) {
+                lines.add("  " + uuid);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Parses nodes in the notation of GroupManager and PermissionsEx, where
+     * a leading {@code -} denies a node. GroupManager's {@code +} for
+     * exceptions is dropped, as the node is granted either way.
+     * 
+     * @param nodes the stored nodes
+     * @return node to value, in the given order
+     */
+    public static @NotNull Map<String, Boolean> parseNodes(@NotNull Collection<String> nodes) {
+        Map<String, Boolean> parsed = new LinkedHashMap<>(nodes.size() * 4 / 3 + 1);
+        for (String node : nodes) {
+            if (node == null || node.isEmpty()) {
+                continue;
+            }
+            if (node.charAt(0) == '-') {
+                parsed.put(node.substring(1), false);
+            } else if (node.charAt(0) == '+') {
+                parsed.put(node.substring(1), true);
+            } else {
+                parsed.put(node, true);
+            }
+        }
+        return parsed;
+    }
+
+    /**
+     * Writes all groups in parallel.
+     * 
+     * @return true if every group was written
+     */
+    private boolean migrateGroups() {
+        List<MigrationGroup> groups = source.readGroups();
+        List<CompletableFuture<Void>> writes = new ArrayList<>(groups.size());
+        for (MigrationGroup group : groups) {
+            writes.add(target.writeGroup(group));
+        }
+        boolean complete = true;
+        for (int i = 0; i < groups.size(); i++) {
+            try {
+                writes.get(i).join();
+            } catch (RuntimeException e) {
+                complete = false;
+                logger.log(Level.WARNING, "Gruppe " + groups.get(i).getName() + " konnte nicht migriert werden", e);
+            }
+        }
+        logger.info("Migration: " + groups.size() + " Gruppen geschrieben");
+        return complete;
+    }
+
+    private void migrateBatch(List<UUID> uuids) {
+        List<MigrationUser> users = new ArrayList<>(uuids.size());
+        for (UUID uuid : uuids) {
+            MigrationUser user = source.readUser(uuid);
+            if (user != null) {
+                users.add(user);
+            }
+        }
+        target.writeUsers(users).join();
+        migrated.add(users.size());
+    }
+
+    /**
+     * Runs a task for every batch on a pool of {@code readers} threads and
+     * waits for all of them. A failing batch is logged and counted; the
+     * others continue.
+     */
+    private void forEachBatch(int batches, IntConsumer task) {
+        ExecutorService pool = Executors.newFixedThreadPool(readers, new MigrationThreadFactory());
+        try {
+            List<Future<?>> futures = new ArrayList<>(batches);
+            for (int i = 0; i < batches; i++) {
+                int batch = i;
+                futures.add(pool.submit(() -> {
+                    if (cancelled) {
+                        return;
+                    }
+                    try {
+                        task.accept(batch);
+                    } catch (RuntimeException e) {
+                        failedBatches.increment();
+                        logger.log(Level.WARNING, "Migrationspaket " + batch + " fehlgeschlagen", e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            cancelled = true;
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Migration task failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void save(MigrationCheckpoint checkpoint) {
+        try {
+            checkpoint.save();
+        } catch (IOException e) {
+            // The data is written; a later run only repeats this batch
+            logger.log(Level.WARNING, "Migrations-Checkpoint konnte nicht gespeichert werden", e);
+        }
+    }
+
+    private List<UUID> sortedUsers() {
+        List<UUID> users = new ArrayList<>(source.readUserIds());
+        Collections.sort(users);
+        return users;
+    }
+
+    private int batchCount(int users) {
+        return (users + batchSize - 1) / batchSize;
+    }
+
+    private List<UUID> batch(List<UUID> users, int batch) {
+        int from = batch * batchSize;
+        return users.subList(from, Math.min(users.size(), from + batchSize));
+    }
+
+    /**
+     * Hashes the sorted user list, so a checkpoint is not applied to a
+     * backend whose users changed in the meantime.
+     */
+    private static long fingerprint(List<UUID> users) {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        for (UUID uuid : users) {
+            buffer.clear();
+            buffer.putLong(uuid.getMostSignificantBits()).putLong(uuid.getLeastSignificantBits());
+            buffer.flip();
+            crc.update(buffer);
+        }
+        return (long) users.size() << 32 | crc.getValue();
+    }
+
+    private static final class MigrationThreadFactory implements ThreadFactory {
+        private final AtomicInteger next = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "opsucht-permission-migration-" + next.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
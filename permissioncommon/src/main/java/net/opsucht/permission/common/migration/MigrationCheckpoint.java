@@ -0,0 +1,192 @@
+package net.opsucht.permission.common.migration;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.zip.CRC32;
+
+/**
+ * Remembers which batches of a {@link Migration} are done, so an
+ * interrupted migration continues where it stopped.
+ * 
+ * <p>Layout of format version 1:</p>
+ * <pre>
+ * int     magic "OPSM"
+ * byte    version
+ * int     body length
+ * int     CRC32 of the body
+ * body:
+ * string  source name, string target name
+ * long    fingerprint of the sorted user list
+ * varint  user count, varint batch size
+ * byte    1 if the groups are done
+ * varint  word count, then the words of the bit set of done batches
+ * </pre>
+ * 
+ * <p>A checkpoint only applies to the run it was written for: if the
+ * backends, the batch size or the users of the source changed, it is
+ * discarded and the migration starts over. Writes go to a temporary file
+ * that replaces the old one.</p>
+ */
+final class MigrationCheckpoint {
+
+    private static final int MAGIC = 0x4F50534D;
+    private static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 1 + 4 + 4;
+
+    private final Path file;
+    private final String source;
+    private final String target;
+    private final long fingerprint;
+    private final int users;
+    private final int batchSize;
+    private final BitSet done;
+    private boolean groupsDone;
+
+    private MigrationCheckpoint(Path file, String source, String target, long fingerprint, int users, int batchSize,
+            BitSet done, boolean groupsDone) {
+        this.file = file;
+        this.source = source;
+        this.target = target;
+        this.fingerprint = fingerprint;
+        this.users = users;
+        this.batchSize = batchSize;
+        this.done = done;
+        this.groupsDone = groupsDone;
+    }
+
+    /**
+     * Loads the checkpoint of a run, or starts a new one if the file does
+     * not exist or belongs to a different run.
+     * 
+     * @return the checkpoint
+     * @throws IOException if the file exists but cannot be read
+     */
+    static @NotNull MigrationCheckpoint open(@NotNull Path file, @NotNull String source, @NotNull String target,
+            long fingerprint, int users, int batchSize) throws IOException {
+        MigrationCheckpoint stored = read(file);
+        if (stored != null && stored.source.equals(source) && stored.target.equals(target)
+                && stored.fingerprint == fingerprint && stored.users == users && stored.batchSize == batchSize) {
+            return stored;
+        }
+        return new MigrationCheckpoint(file, source, target, fingerprint, users, batchSize, new BitSet(), false);
+    }
+
+    synchronized boolean isGroupsDone() {
+        return groupsDone;
+    }
+
+    synchronized void markGroupsDone() {
+        groupsDone = true;
+    }
+
+    synchronized boolean isDone(int batch) {
+        return done.get(batch);
+    }
+
+    synchronized void markDone(int batch) {
+        done.set(batch);
+    }
+
+    synchronized int getDoneCount() {
+        return done.cardinality();
+    }
+
+    /**
+     * Writes the checkpoint, replacing the previous file.
+     * 
+     * @throws IOException if the file cannot be written
+     */
+    synchronized void save() throws IOException {
+        long[] words = done.toLongArray();
+        BinaryWriter body = new BinaryWriter(64 + words.length * Long.BYTES);
+        body.writeString(source).writeString(target).writeLong(fingerprint)
+                .writeVarInt(users).writeVarInt(batchSize).writeByte(groupsDone ? 1 : 0)
+                .writeVarInt(words.length);
+        for (long word : words) {
+            body.writeLong(word);
+        }
+        byte[] bytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + bytes.length)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putInt(bytes.length)
+                .putInt((int) crc.getValue())
+                .put(bytes);
+        data.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static @Nullable MigrationCheckpoint read(Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a migration checkpoint: " + file);
+        }
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported migration checkpoint version: " + version);
+        }
+        int bodyLength = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (bodyLength != buffer.remaining()) {
+            throw new IOException("Migration checkpoint is truncated");
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Migration checkpoint checksum mismatch");
+        }
+
+        try {
+            BinaryReader in = new BinaryReader(buffer);
+            String source = in.readString();
+            String target = in.readString();
+            long fingerprint = in.readLong();
+            int users = in.readVarInt();
+            int batchSize = in.readVarInt();
+            boolean groupsDone = in.readByte() != 0;
+            long[] words = new long[in.readCount(Long.BYTES)];
+            for (int i = 0; i < words.length; i++) {
+                words[i] = in.readLong();
+            }
+            return new MigrationCheckpoint(file, source, target, fingerprint, users, batchSize,
+                    BitSet.valueOf(words), groupsDone);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Malformed migration checkpoint", e);
+        }
+    }
+}
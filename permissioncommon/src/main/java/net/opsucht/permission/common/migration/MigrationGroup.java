@@ -0,0 +1,98 @@
+package net.opsucht.permission.common.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The data of one group as stored by a backend, without anything inherited
+ * from its parents.
+ * 
+ * @since 1.0.0
+ */
+public final class MigrationGroup {
+
+    private final String name;
+    private final Map<String, Boolean> nodes;
+    private final Set<String> parents;
+    private final @Nullable String prefix;
+    private final @Nullable String suffix;
+
+    /**
+     * @param name the group name
+     * @param nodes the group's own nodes and their values
+     * @param parents the groups this group directly inherits from
+     * @param prefix the group's prefix, or null
+     * @param suffix the group's suffix, or null
+     */
+    public MigrationGroup(@NotNull String name, @NotNull Map<String, Boolean> nodes,
+            @NotNull Collection<String> parents, @Nullable String prefix, @Nullable String suffix) {
+        this.name = name.toLowerCase(Locale.ROOT);
+        this.nodes = MigrationUser.lowerCaseKeys(nodes);
+        this.parents = MigrationUser.lowerCase(parents);
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public @NotNull Map<String, Boolean> getNodes() {
+        return nodes;
+    }
+
+    public @NotNull Set<String> getParents() {
+        return parents;
+    }
+
+    public @Nullable String getPrefix() {
+        return prefix;
+    }
+
+    public @Nullable String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Checks whether another backend's copy of this group holds everything
+     * this one does.
+     * 
+     * @param copy the group as read from the other backend
+     * @return true if every node, parent, prefix and suffix was carried over
+     */
+    public boolean isCoveredBy(@NotNull MigrationGroup copy) {
+        return copy.nodes.entrySet().containsAll(nodes.entrySet())
+                && copy.parents.containsAll(parents)
+                && (prefix == null || prefix.equals(copy.prefix))
+                && (suffix == null || suffix.equals(copy.suffix));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MigrationGroup)) {
+            return false;
+        }
+        MigrationGroup other = (MigrationGroup) o;
+        return name.equals(other.name) && nodes.equals(other.nodes) && parents.equals(other.parents)
+                && Objects.equals(prefix, other.prefix) && Objects.equals(suffix, other.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(name, nodes, parents, prefix, suffix);
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationGroup{" + name + ", " + nodes.size() + " nodes, parents=" + parents + "}";
+    }
+}
@@ -0,0 +1,46 @@
+package net.opsucht.permission.common.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A provider whose stored users and groups can be read for a
+ * {@link Migration}.
+ * 
+ * <p>Methods read from storage and are called off the main thread.
+ * {@link #readUser(UUID)} is called from several threads at once and must
+ * be safe to do so.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface MigrationSource {
+
+    /**
+     * Lists every user the backend stores data for.
+     * 
+     * @return the UUIDs, in any order
+     */
+    @NotNull
+    Collection<UUID> readUserIds();
+
+    /**
+     * Reads the stored data of one user.
+     * 
+     * @param uuid the user's UUID
+     * @return the user, or null if the backend stores nothing for it
+     */
+    @Nullable
+    MigrationUser readUser(@NotNull UUID uuid);
+
+    /**
+     * Reads every group.
+     * 
+     * @return the groups
+     */
+    @NotNull
+    List<MigrationGroup> readGroups();
+}
@@ -0,0 +1,38 @@
+package net.opsucht.permission.common.migration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A provider that users and groups can be written into by a
+ * {@link Migration}.
+ * 
+ * <p>Writes add to what the backend already stores and must be idempotent,
+ * as a resumed migration writes the users of an interrupted batch again.
+ * Methods are called from several threads at once.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface MigrationTarget {
+
+    /**
+     * Creates a group if needed and adds the given data to it.
+     * 
+     * @param group the group to write
+     * @return completes once the group is saved
+     */
+    @NotNull
+    CompletableFuture<Void> writeGroup(@NotNull MigrationGroup group);
+
+    /**
+     * Adds the given data to a batch of users, saving each user once.
+     * 
+     * @param users the users to write
+     * @return completes once every user of the batch is saved, or
+     *         exceptionally if any of them could not be saved
+     */
+    @NotNull
+    CompletableFuture<Void> writeUsers(@NotNull List<MigrationUser> users);
+}
@@ -0,0 +1,131 @@
+package net.opsucht.permission.common.migration;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * The data of one user as stored by a backend, without anything inherited
+ * from groups.
+ * 
+ * <p>Nodes and group names are lower-cased, so users read from backends
+ * with different conventions compare equal.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class MigrationUser {
+
+    private final UUID uuid;
+    private final Map<String, Boolean> nodes;
+    private final Set<String> groups;
+    private final @Nullable String primaryGroup;
+    private final @Nullable String prefix;
+    private final @Nullable String suffix;
+
+    /**
+     * @param uuid the user's UUID
+     * @param nodes the user's own nodes and their values
+     * @param groups the groups the user directly belongs to
+     * @param primaryGroup the primary group, or null if the backend has none
+     * @param prefix the user's own prefix, or null
+     * @param suffix the user's own suffix, or null
+     */
+    public MigrationUser(@NotNull UUID uuid, @NotNull Map<String, Boolean> nodes, @NotNull Collection<String> groups,
+            @Nullable String primaryGroup, @Nullable String prefix, @Nullable String suffix) {
+        this.uuid = uuid;
+        this.nodes = lowerCaseKeys(nodes);
+        this.groups = lowerCase(groups);
+        this.primaryGroup = primaryGroup != null ? primaryGroup.toLowerCase(Locale.ROOT) : null;
+        this.prefix = prefix;
+        this.suffix = suffix;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull Map<String, Boolean> getNodes() {
+        return nodes;
+    }
+
+    public @NotNull Set<String> getGroups() {
+        return groups;
+    }
+
+    public @Nullable String getPrimaryGroup() {
+        return primaryGroup;
+    }
+
+    public @Nullable String getPrefix() {
+        return prefix;
+    }
+
+    public @Nullable String getSuffix() {
+        return suffix;
+    }
+
+    /**
+     * Checks whether another backend's copy of this user holds everything
+     * this one does. The copy may hold more, such as the default group
+     * LuckPerms gives every user. The primary group is not compared, as
+     * LuckPerms may calculate it instead of storing it.
+     * 
+     * @param copy the user as read from the other backend
+     * @return true if every node, group, prefix and suffix was carried over
+     */
+    public boolean isCoveredBy(@NotNull MigrationUser copy) {
+        return copy.nodes.entrySet().containsAll(nodes.entrySet())
+                && copy.groups.containsAll(groups)
+                && (prefix == null || prefix.equals(copy.prefix))
+                && (suffix == null || suffix.equals(copy.suffix));
+    }
+
+    static Map<String, Boolean> lowerCaseKeys(Map<String, Boolean> nodes) {
+        Map<String, Boolean> result = new LinkedHashMap<>(nodes.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Boolean> entry : nodes.entrySet()) {
+            result.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+        return Collections.unmodifiableMap(result);
+    }
+
+    static Set<String> lowerCase(Collection<String> values) {
+        Set<String> result = new LinkedHashSet<>();
+        for (String value : values) {
+            result.add(value.toLowerCase(Locale.ROOT));
+        }
+        return Collections.unmodifiableSet(result);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MigrationUser)) {
+            return false;
+        }
+        MigrationUser other = (MigrationUser) o;
+        return uuid.equals(other.uuid) && nodes.equals(other.nodes) && groups.equals(other.groups)
+                && Objects.equals(primaryGroup, other.primaryGroup) && Objects.equals(prefix, other.prefix)
+                && Objects.equals(suffix, other.suffix);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(uuid, nodes, groups, primaryGroup, prefix, suffix);
+    }
+
+    @Override
+    public String toString() {
+        return "MigrationUser{" + uuid + ", " + nodes.size() + " nodes, groups=" + groups + "}";
+    }
+}
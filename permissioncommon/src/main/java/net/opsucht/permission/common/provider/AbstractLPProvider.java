@@ -1,15 +1,66 @@
 package net.opsucht.permission.common.provider;
 
 import net.luckperms.api.LuckPerms;
+import net.luckperms.api.cacheddata.CachedMetaData;
+import net.luckperms.api.context.DefaultContextKeys;
+import net.luckperms.api.context.ImmutableContextSet;
+import net.luckperms.api.event.EventSubscription;
+import net.luckperms.api.event.group.GroupDataRecalculateEvent;
+import net.luckperms.api.event.group.GroupDeleteEvent;
+import net.luckperms.api.event.user.UserDataRecalculateEvent;
+import net.luckperms.api.model.PermissionHolder;
+import net.luckperms.api.model.data.TemporaryNodeMergeStrategy;
 import net.luckperms.api.model.group.Group;
 import net.luckperms.api.model.user.User;
 import net.luckperms.api.node.Node;
+import net.luckperms.api.node.NodeType;
+import net.luckperms.api.node.matcher.NodeMatcher;
+import net.luckperms.api.node.types.ChatMetaNode;
+import net.luckperms.api.node.types.InheritanceNode;
+import net.luckperms.api.node.types.PermissionNode;
+import net.luckperms.api.node.types.PrefixNode;
+import net.luckperms.api.node.types.SuffixNode;
+import net.luckperms.api.query.QueryOptions;
 import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.api.PermissionTimeoutException;
+import net.opsucht.permission.common.group.GroupHierarchy;
+import net.opsucht.permission.common.jfr.PermissionCheckEvent;
+import net.opsucht.permission.common.jfr.PermissionMutationEvent;
+import net.opsucht.permission.common.migration.MigrationGroup;
+import net.opsucht.permission.common.migration.MigrationSource;
+import net.opsucht.permission.common.migration.MigrationTarget;
+import net.opsucht.permission.common.migration.MigrationUser;
+import net.opsucht.permission.common.query.QueryPublisher;
+import net.opsucht.permission.common.query.UserQuery;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -22,15 +73,40 @@ import java.util.stream.Collectors;
  * <p>Implementations should provide a logger via {@link #getLogger()}
  * for error reporting.</p>
  * 
+ * <p>As a {@link SnapshotSource}, the resolved permission map LuckPerms
+ * keeps for a loaded user can be exported in one call.</p>
+ * 
+ * <p>As a {@link UserQuery}, offline users are found through LuckPerms'
+ * storage search. Only nodes and group memberships set directly on users
+ * and groups are matched: contexts are ignored and wildcards are not
+ * expanded.</p>
+ * 
+ * <p>As a {@link MigrationTarget}, users and groups of another backend are
+ * written with global context, each user with a single save. As a
+ * {@link MigrationSource}, the same data is read back for verification;
+ * nodes with a context or an expiry are left out.</p>
+ * 
  * @since 1.0.0
  */
-public abstract class AbstractLPProvider implements PermissionProvider {
+public abstract class AbstractLPProvider implements PermissionProvider, SnapshotSource, UserQuery, GroupHierarchy,
+        MigrationSource, MigrationTarget {
 
     private static final String INHERITANCE_TYPE = "inheritance";
     private static final String GROUP_PREFIX = "group.";
 
+    /**
+     * Priorities of migrated prefixes and suffixes. A user's own prefix
+     * wins over the prefixes of its groups.
+     */
+    private static final int USER_META_PRIORITY = 100;
+    private static final int GROUP_META_PRIORITY = 50;
+
     protected final LuckPerms api;
 
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final LongAdder timedOut = new LongAdder();
+    private volatile @Nullable Duration defaultTimeout;
+
     /**
      * Constructs a new AbstractLPProvider.
      * 
@@ -40,6 +116,42 @@ public abstract class AbstractLPProvider implements PermissionProvider {
         this.api = api;
     }
 
+    /**
+     * Calls the given handler whenever LuckPerms recalculated the data of a
+     * loaded user, which happens after every change, including those made
+     * in-game or through the web editor. The handler runs on a LuckPerms
+     * thread.
+     * 
+     * @param handler receives the UUID of the recalculated user
+     * @return the subscription; close it to stop receiving events
+     */
+    public @NotNull EventSubscription<UserDataRecalculateEvent> onRecalculate(@NotNull Consumer<UUID> handler) {
+        return api.getEventBus().subscribe(UserDataRecalculateEvent.class,
+                event -> handler.accept(event.getUser().getUniqueId()));
+    }
+
+    /**
+     * Calls the given handler whenever LuckPerms recalculated the data of a
+     * group, for example after its parents changed.
+     * 
+     * @param handler receives the name of the recalculated group
+     * @return the subscription; close it to stop receiving events
+     */
+    public @NotNull EventSubscription<GroupDataRecalculateEvent> onGroupRecalculate(@NotNull Consumer<String> handler) {
+        return api.getEventBus().subscribe(GroupDataRecalculateEvent.class,
+                event -> handler.accept(event.getGroup().getName()));
+    }
+
+    /**
+     * Calls the given handler whenever a group is deleted.
+     * 
+     * @param handler receives the name of the deleted group
+     * @return the subscription; close it to stop receiving events
+     */
+    public @NotNull EventSubscription<GroupDeleteEvent> onGroupDelete(@NotNull Consumer<String> handler) {
+        return api.getEventBus().subscribe(GroupDeleteEvent.class, event -> handler.accept(event.getGroupName()));
+    }
+
     /**
      * Returns the logger for this provider.
      * Implementations should provide their platform-specific logger.
@@ -48,6 +160,13 @@ public abstract class AbstractLPProvider implements PermissionProvider {
      */
     protected abstract Logger getLogger();
 
+    /**
+     * Returns the players currently online on this platform.
+     * 
+     * @return the UUIDs of the online players
+     */
+    protected abstract @NotNull Collection<UUID> getOnlinePlayers();
+
     @Override
     public @NotNull String getProviderName() {
         return "LuckPerms";
@@ -55,72 +174,208 @@ public abstract class AbstractLPProvider implements PermissionProvider {
 
     @Override
     public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionCheckEvent event = PermissionCheckEvent.start();
         User user = api.getUserManager().getUser(uuid);
         if (user == null) {
             getLogger().fine("User not loaded for permission check: " + uuid);
+            event.finish(uuid, permission, this, false, false);
             return false;
         }
 
-        return user.getCachedData()
+        boolean result = user.getCachedData()
                 .getPermissionData()
                 .checkPermission(permission)
                 .asBoolean();
+        event.finish(uuid, permission, this, result, false);
+        return result;
     }
 
     @Override
     public void add(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         User user = api.getUserManager().getUser(uuid);
         if (user == null) {
             getLogger().warning("Cannot add permission - user not loaded: " + uuid);
+            event.finish(uuid, permission, this, true, false, true);
             return;
         }
 
         Node node = Node.builder(permission).build();
         user.data().add(node);
         api.getUserManager().saveUser(user);
+        event.finish(uuid, permission, this, true, false, false);
     }
 
     @Override
     public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.supplyAsync(() -> api.getUserManager().getUser(uuid))
-                .thenCompose(user -> {
-                    if (user == null) {
-                        getLogger().warning("Cannot add permission - user not loaded: " + uuid);
-                        return CompletableFuture.completedFuture(null);
-                    }
-                    
-                    Node node = Node.builder(permission).build();
-                    user.data().add(node);
-                    return api.getUserManager().saveUser(user);
-                });
+        return modifyAsync(uuid, permission, true, null, defaultTimeout);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return modifyAsync(uuid, permission, true, null, timeout);
+    }
+
+    /**
+     * Adds the permission as a LuckPerms expiry node, which LuckPerms
+     * removes by itself once it has expired.
+     */
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        User user = api.getUserManager().getUser(uuid);
+        if (user == null) {
+            getLogger().warning("Cannot add temporary permission - user not loaded: " + uuid);
+            event.finish(uuid, permission, this, true, false, true);
+            return;
+        }
+
+        user.data().add(temporaryNode(permission, duration),
+                TemporaryNodeMergeStrategy.REPLACE_EXISTING_IF_DURATION_LONGER);
+        api.getUserManager().saveUser(user);
+        event.finish(uuid, permission, this, true, false, false);
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return modifyAsync(uuid, permission, true, duration, defaultTimeout);
     }
 
     @Override
     public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
         User user = api.getUserManager().getUser(uuid);
         if (user == null) {
             getLogger().warning("Cannot remove permission - user not loaded: " + uuid);
+            event.finish(uuid, permission, this, false, false, true);
             return;
         }
 
         Node node = Node.builder(permission).build();
         user.data().remove(node);
         api.getUserManager().saveUser(user);
+        event.finish(uuid, permission, this, false, false, false);
     }
 
     @Override
     public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
-        return CompletableFuture.supplyAsync(() -> api.getUserManager().getUser(uuid))
+        return modifyAsync(uuid, permission, false, null, defaultTimeout);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return modifyAsync(uuid, permission, false, null, timeout);
+    }
+
+    /**
+     * Sets the deadline applied to {@link #addAsync(UUID, String)} and
+     * {@link #removeAsync(UUID, String)}.
+     * 
+     * @param timeout the deadline, or null to wait indefinitely
+     */
+    public void setDefaultTimeout(@Nullable Duration timeout) {
+        this.defaultTimeout = timeout;
+    }
+
+    /**
+     * Returns the number of asynchronous changes that have not completed yet,
+     * including those waiting for a save.
+     * 
+     * @return the number of pending changes
+     */
+    public int getInFlightOperations() {
+        return inFlight.get();
+    }
+
+    /**
+     * Returns how many asynchronous changes have failed with a
+     * {@link PermissionTimeoutException} since the provider was created.
+     * 
+     * @return the number of timed out changes
+     */
+    public long getTimedOutOperations() {
+        return timedOut.sum();
+    }
+
+    /**
+     * Adds or removes a node asynchronously. A non-null expiry adds the
+     * node as a temporary one.
+     * 
+     * <p>If a deadline is given and passes, the returned future fails with a
+     * {@link PermissionTimeoutException}. A change that has not started by
+     * then is skipped, so queued work does not pile up behind a slow
+     * storage. A save that is already running cannot be cancelled.</p>
+     */
+    private CompletableFuture<Void> modifyAsync(UUID uuid, String permission, boolean add,
+            @Nullable Duration expiry, @Nullable Duration timeout) {
+        PermissionMutationEvent event = PermissionMutationEvent.start();
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        inFlight.incrementAndGet();
+        result.whenComplete((ignored, error) -> {
+            event.finish(uuid, permission, this, add, true, error != null);
+        });
+
+        CompletableFuture.supplyAsync(() -> result.isDone() ? null : api.getUserManager().getUser(uuid))
                 .thenCompose(user -> {
+                    if (result.isDone()) {
+                        return CompletableFuture.completedFuture(null);
+                    }
                     if (user == null) {
-                        getLogger().warning("Cannot remove permission - user not loaded: " + uuid);
+                        getLogger().warning("Cannot " + (add ? "add" : "remove")
+                                + " permission - user not loaded: " + uuid);
                         return CompletableFuture.completedFuture(null);
                     }
-                    
-                    Node node = Node.builder(permission).build();
-                    user.data().remove(node);
+
+                    if (add && expiry != null) {
+                        user.data().add(temporaryNode(permission, expiry),
+                                TemporaryNodeMergeStrategy.REPLACE_EXISTING_IF_DURATION_LONGER);
+                    } else if (add) {
+                        user.data().add(Node.builder(permission).build());
+                    } else {
+                        user.data().remove(Node.builder(permission).build());
+                    }
                     return api.getUserManager().saveUser(user);
+                })
+                .whenComplete((ignored, error) -> {
+                    // Counted until the save ends, even if the deadline completed the result
+                    inFlight.decrementAndGet();
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(null);
+                    }
                 });
+
+        if (timeout != null) {
+            CompletableFuture.delayedExecutor(timeout.toNanos(), TimeUnit.NANOSECONDS).execute(() -> {
+                if (result.completeExceptionally(new PermissionTimeoutException(uuid, permission, timeout))) {
+                    timedOut.increment();
+                }
+            });
+        }
+        return result;
+    }
+
+    private static Node temporaryNode(String permission, Duration duration) {
+        return Node.builder(permission).expiry(duration).build();
+    }
+
+    /**
+     * Checks every online player, since LuckPerms has no index from groups
+     * to players. The caching layer answers from its own index instead.
+     */
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        Set<UUID> members = new HashSet<>();
+        for (UUID uuid : getOnlinePlayers()) {
+            if (isMember(uuid, group)) {
+                members.add(uuid);
+            }
+        }
+        return members;
     }
 
     @Override
@@ -131,10 +386,7 @@ public abstract class AbstractLPProvider implements PermissionProvider {
             return Set.of();
         }
 
-        return user.getNodes().stream()
-                .filter(node -> node.getType().name().equalsIgnoreCase(INHERITANCE_TYPE))
-                .map(node -> node.getKey().replace(GROUP_PREFIX, ""))
-                .collect(Collectors.toSet());
+        return groupsOf(user);
     }
 
     @Override
@@ -145,4 +397,348 @@ public abstract class AbstractLPProvider implements PermissionProvider {
                 .map(Group::getName)
                 .collect(Collectors.toSet());
     }
+
+    @Override
+    public @NotNull Map<String, Set<String>> getGroupParents() {
+        Map<String, Set<String>> parents = new HashMap<>();
+        for (Group group : api.getGroupManager().getLoadedGroups()) {
+            parents.put(group.getName(), parentsOf(group));
+        }
+        return parents;
+    }
+
+    @Override
+    public @Nullable Set<String> getParents(@NotNull String group) {
+        Group loaded = api.getGroupManager().getGroup(group);
+        return loaded != null ? parentsOf(loaded) : null;
+    }
+
+    private static Set<String> parentsOf(Group group) {
+        Set<String> parents = new HashSet<>();
+        for (InheritanceNode parent : group.getNodes(NodeType.INHERITANCE)) {
+            parents.add(parent.getGroupName());
+        }
+        return parents;
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        CachedMetaData meta = metaData(uuid);
+        return meta != null ? meta.getPrefix() : null;
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        CachedMetaData meta = metaData(uuid);
+        return meta != null ? meta.getSuffix() : null;
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        CachedMetaData meta = metaData(uuid);
+        return meta != null ? meta.getMetaValue(key) : null;
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        User user = api.getUserManager().getUser(uuid);
+        if (user == null) {
+            getLogger().fine("User not loaded for primary group lookup: " + uuid);
+            return null;
+        }
+        return user.getPrimaryGroup();
+    }
+
+    @Override
+    public @Nullable UserSnapshot snapshot(@NotNull UUID uuid) {
+        User user = api.getUserManager().getUser(uuid);
+        if (user == null) {
+            getLogger().fine("User not loaded for snapshot: " + uuid);
+            return null;
+        }
+
+        Map<String, Boolean> permissions = user.getCachedData().getPermissionData().getPermissionMap();
+        return new UserSnapshot(uuid, PermissionSet.of(permissions), groupsOf(user), user.getPrimaryGroup(),
+                System.currentTimeMillis());
+    }
+
+    /**
+     * Resolves the permissions in the context {@code server=<server>} only,
+     * rather than in the player's contexts on this node. Nodes bound to
+     * other contexts, such as worlds, are missing from the result.
+     */
+    @Override
+    public @Nullable UserSnapshot snapshot(@NotNull UUID uuid, @NotNull String server) {
+        User user = api.getUserManager().getUser(uuid);
+        if (user == null) {
+            getLogger().fine("User not loaded for snapshot: " + uuid);
+            return null;
+        }
+
+        QueryOptions options = QueryOptions.contextual(ImmutableContextSet.of(DefaultContextKeys.SERVER_KEY, server));
+        Map<String, Boolean> permissions = user.getCachedData().getPermissionData(options).getPermissionMap();
+        return new UserSnapshot(uuid, PermissionSet.of(permissions), groupsOf(user), user.getPrimaryGroup(),
+                System.currentTimeMillis());
+    }
+
+    @Override
+    public @NotNull Flow.Publisher<UUID> findUsersWith(@NotNull String node) {
+        return QueryPublisher.of(out -> api.getGroupManager().searchAll(NodeMatcher.key(node))
+                .thenCompose(groups -> {
+                    Set<String> granting = inheritorsOf(grantingKeys(groups));
+                    Set<UUID> seen = ConcurrentHashMap.newKeySet();
+                    return api.getUserManager().searchAll(NodeMatcher.key(node)).thenComposeAsync(direct -> {
+                        for (Map.Entry<UUID, ? extends Collection<Node>> entry : direct.entrySet()) {
+                            // A direct node wins over anything inherited
+                            seen.add(entry.getKey());
+                            if (isGranted(entry.getValue()) && !emit(out, entry.getKey())) {
+                                return CompletableFuture.completedFuture(null);
+                            }
+                        }
+                        return emitMembers(out, granting.iterator(), seen);
+                    });
+                })
+                .whenComplete((ignored, error) -> close(out, error)));
+    }
+
+    @Override
+    public @NotNull Flow.Publisher<UUID> findGroupMembers(@NotNull String group) {
+        return QueryPublisher.of(out -> api.getUserManager()
+                .searchAll(NodeMatcher.key(InheritanceNode.builder(group).build()))
+                .thenAcceptAsync(members -> {
+                    for (UUID uuid : members.keySet()) {
+                        if (!emit(out, uuid)) {
+                            return;
+                        }
+                    }
+                })
+                .whenComplete((ignored, error) -> close(out, error)));
+    }
+
+    /**
+     * Emits the members of the given groups one group at a time, skipping
+     * users that were already emitted or decided.
+     */
+    private CompletableFuture<Void> emitMembers(SubmissionPublisher<UUID> out, Iterator<String> groups,
+            Set<UUID> seen) {
+        if (!groups.hasNext() || !out.hasSubscribers()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String group = groups.next();
+        return api.getUserManager().searchAll(NodeMatcher.key(InheritanceNode.builder(group).build()))
+                .thenComposeAsync(members -> {
+                    for (UUID uuid : members.keySet()) {
+                        if (seen.add(uuid) && !emit(out, uuid)) {
+                            return CompletableFuture.completedFuture(null);
+                        }
+                    }
+                    return emitMembers(out, groups, seen);
+                });
+    }
+
+    /**
+     * Returns the given groups and every group that inherits from one of
+     * them, based on the loaded groups.
+     */
+    private Set<String> inheritorsOf(Set<String> groups) {
+        Map<String, Set<String>> children = new HashMap<>();
+        for (Group group : api.getGroupManager().getLoadedGroups()) {
+            for (InheritanceNode parent : group.getNodes(NodeType.INHERITANCE)) {
+                children.computeIfAbsent(parent.getGroupName().toLowerCase(Locale.ROOT), key -> new HashSet<>())
+                        .add(group.getName());
+            }
+        }
+
+        Set<String> result = new HashSet<>(groups);
+        Deque<String> pending = new ArrayDeque<>(groups);
+        while (!pending.isEmpty()) {
+            for (String child : children.getOrDefault(pending.poll(), Set.of())) {
+                if (result.add(child)) {
+                    pending.add(child);
+                }
+            }
+        }
+        return result;
+    }
+
+    private static Set<String> grantingKeys(Map<String, ? extends Collection<Node>> holders) {
+        Set<String> granting = new HashSet<>();
+        for (Map.Entry<String, ? extends Collection<Node>> entry : holders.entrySet()) {
+            if (isGranted(entry.getValue())) {
+                granting.add(entry.getKey().toLowerCase(Locale.ROOT));
+            }
+        }
+        return granting;
+    }
+
+    private static boolean isGranted(Collection<Node> nodes) {
+        for (Node node : nodes) {
+            if (node.getValue() && !node.hasExpired()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Submits one result, blocking while the subscriber is not keeping up.
+     * Results are emitted on the common pool rather than on LuckPerms'
+     * storage threads, so a slow subscriber never stalls storage access.
+     * 
+     * @return false if the subscription has ended
+     */
+    private static boolean emit(SubmissionPublisher<UUID> out, UUID uuid) {
+        if (!out.hasSubscribers() || out.isClosed()) {
+            return false;
+        }
+        out.submit(uuid);
+        return true;
+    }
+
+    private static void close(SubmissionPublisher<UUID> out, @Nullable Throwable error) {
+        if (error != null) {
+            out.closeExceptionally(error);
+        } else {
+            out.close();
+        }
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> writeGroup(@NotNull MigrationGroup group) {
+        return api.getGroupManager().modifyGroup(group.getName(), loaded -> {
+            for (Map.Entry<String, Boolean> node : group.getNodes().entrySet()) {
+                loaded.data().add(Node.builder(node.getKey()).value(node.getValue()).build());
+            }
+            for (String parent : group.getParents()) {
+                loaded.data().add(InheritanceNode.builder(parent).build());
+            }
+            if (group.getPrefix() != null) {
+                loaded.data().add(PrefixNode.builder(group.getPrefix(), GROUP_META_PRIORITY).build());
+            }
+            if (group.getSuffix() != null) {
+                loaded.data().add(SuffixNode.builder(group.getSuffix(), GROUP_META_PRIORITY).build());
+            }
+        });
+    }
+
+    @Override
+    public @NotNull CompletableFuture<Void> writeUsers(@NotNull List<MigrationUser> users) {
+        CompletableFuture<?>[] saves = new CompletableFuture<?>[users.size()];
+        for (int i = 0; i < saves.length; i++) {
+            MigrationUser user = users.get(i);
+            // modifyUser loads, changes and saves the user in one go
+            saves[i] = api.getUserManager().modifyUser(user.getUuid(), loaded -> {
+                for (Map.Entry<String, Boolean> node : user.getNodes().entrySet()) {
+                    loaded.data().add(Node.builder(node.getKey()).value(node.getValue()).build());
+                }
+                for (String group : user.getGroups()) {
+                    loaded.data().add(InheritanceNode.builder(group).build());
+                }
+                if (user.getPrimaryGroup() != null) {
+                    loaded.setPrimaryGroup(user.getPrimaryGroup());
+                }
+                if (user.getPrefix() != null) {
+                    loaded.data().add(PrefixNode.builder(user.getPrefix(), USER_META_PRIORITY).build());
+                }
+                if (user.getSuffix() != null) {
+                    loaded.data().add(SuffixNode.builder(user.getSuffix(), USER_META_PRIORITY).build());
+                }
+            });
+        }
+        return CompletableFuture.allOf(saves);
+    }
+
+    @Override
+    public @NotNull Collection<UUID> readUserIds() {
+        return api.getUserManager().getUniqueUsers().join();
+    }
+
+    @Override
+    public @Nullable MigrationUser readUser(@NotNull UUID uuid) {
+        User user = api.getUserManager().loadUser(uuid).join();
+        try {
+            Set<String> groups = new HashSet<>();
+            for (InheritanceNode node : user.getNodes(NodeType.INHERITANCE)) {
+                if (isPlain(node)) {
+                    groups.add(node.getGroupName());
+                }
+            }
+            return new MigrationUser(uuid, plainNodes(user), groups, user.getPrimaryGroup(),
+                    highest(user.getNodes(NodeType.PREFIX)), highest(user.getNodes(NodeType.SUFFIX)));
+        } finally {
+            // Unloads the user again unless it is online
+            api.getUserManager().cleanupUser(user);
+        }
+    }
+
+    @Override
+    public @NotNull List<MigrationGroup> readGroups() {
+        api.getGroupManager().loadAllGroups().join();
+        List<MigrationGroup> groups = new ArrayList<>();
+        for (Group group : api.getGroupManager().getLoadedGroups()) {
+            Set<String> parents = new HashSet<>();
+            for (InheritanceNode node : group.getNodes(NodeType.INHERITANCE)) {
+                if (isPlain(node)) {
+                    parents.add(node.getGroupName());
+                }
+            }
+            groups.add(new MigrationGroup(group.getName(), plainNodes(group), parents,
+                    highest(group.getNodes(NodeType.PREFIX)), highest(group.getNodes(NodeType.SUFFIX))));
+        }
+        return groups;
+    }
+
+    /**
+     * Returns the permission nodes of a holder that apply everywhere and
+     * do not expire.
+     */
+    private static Map<String, Boolean> plainNodes(PermissionHolder holder) {
+        Map<String, Boolean> nodes = new LinkedHashMap<>();
+        for (PermissionNode node : holder.getNodes(NodeType.PERMISSION)) {
+            if (isPlain(node)) {
+                nodes.put(node.getPermission(), node.getValue());
+            }
+        }
+        return nodes;
+    }
+
+    private static boolean isPlain(Node node) {
+        return node.getContexts().isEmpty() && !node.hasExpiry();
+    }
+
+    private static @Nullable String highest(Collection<? extends ChatMetaNode<?, ?>> nodes) {
+        return nodes.stream()
+                .filter(AbstractLPProvider::isPlain)
+                .max(Comparator.comparingInt(ChatMetaNode::getPriority))
+                .map(ChatMetaNode::getMetaValue)
+                .orElse(null);
+    }
+
+    /**
+     * Returns the groups a user directly inherits from.
+     * 
+     * @param user the loaded user
+     * @return the group names
+     */
+    private static Set<String> groupsOf(@NotNull User user) {
+        return user.getNodes().stream()
+                .filter(node -> node.getType().name().equalsIgnoreCase(INHERITANCE_TYPE))
+                .map(node -> node.getKey().replace(GROUP_PREFIX, ""))
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns LuckPerms' cached meta data for a loaded user.
+     * 
+     * @param uuid the player's UUID
+     * @return the cached meta data, or null if the user is not loaded
+     */
+    private @Nullable CachedMetaData metaData(@NotNull UUID uuid) {
+        User user = api.getUserManager().getUser(uuid);
+        if (user == null) {
+            getLogger().fine("User not loaded for meta lookup: " + uuid);
+            return null;
+        }
+        return user.getCachedData().getMetaData();
+    }
 }
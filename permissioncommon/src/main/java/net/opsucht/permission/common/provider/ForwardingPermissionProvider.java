@@ -0,0 +1,138 @@
+package net.opsucht.permission.common.provider;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A {@link PermissionProvider} that forwards every call to another provider.
+ * 
+ * <p>Base class for decorators that only need to intercept some methods.
+ * Default methods of the interface are forwarded as well, so the
+ * delegate's own implementations are used.</p>
+ * 
+ * @since 1.0.0
+ */
+public abstract class ForwardingPermissionProvider implements PermissionProvider {
+
+    protected final PermissionProvider delegate;
+
+    /**
+     * @param delegate the provider to forward to
+     */
+    protected ForwardingPermissionProvider(@NotNull PermissionProvider delegate) {
+        this.delegate = delegate;
+    }
+
+    /**
+     * Returns the provider calls are forwarded to.
+     * 
+     * @return the delegate
+     */
+    public @NotNull PermissionProvider getDelegate() {
+        return delegate;
+    }
+
+    @Override
+    public @NotNull String getProviderName() {
+        return delegate.getProviderName();
+    }
+
+    @Override
+    public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        return delegate.has(uuid, permission);
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        delegate.add(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return delegate.addAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return delegate.addAsync(uuid, permission, timeout);
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        delegate.addTemporary(uuid, permission, duration);
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        return delegate.addTemporaryAsync(uuid, permission, duration);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        delegate.remove(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        return delegate.removeAsync(uuid, permission);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        return delegate.removeAsync(uuid, permission, timeout);
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+        return delegate.getGroups(uuid);
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups() {
+        return delegate.getGroups();
+    }
+
+    @Override
+    public boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        return delegate.isMember(uuid, group);
+    }
+
+    @Override
+    public boolean inheritsFrom(@NotNull UUID uuid, @NotNull String group) {
+        return delegate.inheritsFrom(uuid, group);
+    }
+
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        return delegate.getOnlineMembers(group);
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        return delegate.getPrefix(uuid);
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        return delegate.getSuffix(uuid);
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        return delegate.getMeta(uuid, key);
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        return delegate.getPrimaryGroup(uuid);
+    }
+}
@@ -0,0 +1,52 @@
+package net.opsucht.permission.common.query;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.function.Consumer;
+
+/**
+ * A cold {@link Flow.Publisher} that starts a new producer for every
+ * subscriber.
+ * 
+ * <p>The producer receives a {@link SubmissionPublisher} with the
+ * subscriber attached. {@link SubmissionPublisher#submit} blocks while the
+ * subscriber's buffer is full, which throttles the producer to the rate
+ * the subscriber requests. Producers must stop once
+ * {@link SubmissionPublisher#hasSubscribers()} turns false (the
+ * subscription was cancelled), and must close the publisher when done.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class QueryPublisher implements Flow.Publisher<UUID> {
+
+    private final Consumer<SubmissionPublisher<UUID>> producer;
+
+    private QueryPublisher(Consumer<SubmissionPublisher<UUID>> producer) {
+        this.producer = producer;
+    }
+
+    /**
+     * Creates a publisher. The producer is called on the subscribing thread
+     * and must hand off any blocking work.
+     * 
+     * @param producer starts producing into the given publisher
+     * @return the publisher
+     */
+    public static @NotNull Flow.Publisher<UUID> of(@NotNull Consumer<SubmissionPublisher<UUID>> producer) {
+        return new QueryPublisher(producer);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super UUID> subscriber) {
+        SubmissionPublisher<UUID> out = new SubmissionPublisher<>();
+        out.subscribe(subscriber);
+        try {
+            producer.accept(out);
+        } catch (RuntimeException e) {
+            out.closeExceptionally(e);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package net.opsucht.permission.common.query;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * {@link UserQuery} for backends without a search API.
+ * 
+ * <p>The known users are split into chunks that are checked in parallel
+ * against the provider. Workers block while the subscriber is not keeping
+ * up, so a slow consumer slows the scan down instead of buffering results.
+ * The provider must be able to answer {@code has} and {@code getGroups}
+ * for offline users and be safe to call from several threads.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class ScanningUserQuery implements UserQuery {
+
+    private static final int DEFAULT_CHUNK_SIZE = 512;
+
+    private final PermissionProvider provider;
+    private final Supplier<? extends Collection<UUID>> users;
+    private final Executor executor;
+    private final int chunkSize;
+    private final int parallelism;
+
+    /**
+     * Creates a query that scans on the common pool.
+     * 
+     * @param provider the provider to check users against
+     * @param users supplies the UUIDs of all known users
+     */
+    public ScanningUserQuery(@NotNull PermissionProvider provider, @NotNull Supplier<? extends Collection<UUID>> users) {
+        this(provider, users, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE,
+                Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a query.
+     * 
+     * @param provider the provider to check users against
+     * @param users supplies the UUIDs of all known users
+     * @param executor runs the scan
+     * @param chunkSize the number of users per chunk
+     * @param parallelism the maximum number of chunks checked at once
+     */
+    public ScanningUserQuery(@NotNull PermissionProvider provider, @NotNull Supplier<? extends Collection<UUID>> users,
+            @NotNull Executor executor, int chunkSize, int parallelism) {
+        if (chunkSize < 1 || parallelism < 1) {
+            throw new IllegalArgumentException("chunkSize and parallelism must be positive");
+        }
+        this.provider = provider;
+        this.users = users;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    public @NotNull Flow.Publisher<UUID> findUsersWith(@NotNull String node) {
+        return scan(uuid -> provider.has(uuid, node));
+    }
+
+    @Override
+    public @NotNull Flow.Publisher<UUID> findGroupMembers(@NotNull String group) {
+        return scan(uuid -> {
+            for (String candidate : provider.getGroups(uuid)) {
+                if (candidate.equalsIgnoreCase(group)) {
+                    return true;
+                }
+            }
+            return false;
+        });
+    }
+
+    private Flow.Publisher<UUID> scan(Predicate<UUID> filter) {
+        return QueryPublisher.of(out -> executor.execute(() -> {
+            List<UUID> all;
+            try {
+                all = new ArrayList<>(users.get());
+            } catch (RuntimeException e) {
+                out.closeExceptionally(e);
+                return;
+            }
+
+            int chunks = (all.size() + chunkSize - 1) / chunkSize;
+            if (chunks == 0) {
+                out.close();
+                return;
+            }
+            int workers = Math.min(parallelism, chunks);
+            AtomicInteger nextChunk = new AtomicInteger();
+            AtomicInteger running = new AtomicInteger(workers);
+            for (int i = 0; i < workers; i++) {
+                executor.execute(() -> {
+                    try {
+                        scanChunks(all, chunks, nextChunk, filter, out);
+                    } catch (RuntimeException e) {
+                        out.closeExceptionally(e);
+                    } finally {
+                        if (running.decrementAndGet() == 0) {
+                            out.close();
+                        }
+                    }
+                });
+            }
+        }));
+    }
+
+    private void scanChunks(List<UUID> all, int chunks, AtomicInteger nextChunk, Predicate<UUID> filter,
+            SubmissionPublisher<UUID> out) {
+        int chunk;
+        while (out.hasSubscribers() && (chunk = nextChunk.getAndIncrement()) < chunks) {
+            int end = Math.min(all.size(), (chunk + 1) * chunkSize);
+            for (int i = chunk * chunkSize; i < end; i++) {
+                UUID uuid = all.get(i);
+                if (filter.test(uuid)) {
+                    if (out.isClosed()) {
+                        return;
+                    }
+                    out.submit(uuid);
+                }
+            }
+        }
+    }
+}
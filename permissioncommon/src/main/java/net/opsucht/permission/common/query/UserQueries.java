@@ -0,0 +1,71 @@
+package net.opsucht.permission.common.query;
+
+import org.jetbrains.annotations.ApiStatus;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Static access to the {@link UserQuery} of the active permission system.
+ * 
+ * <p>The platform plugin sets it while enabling, next to the
+ * {@link net.opsucht.permission.api.Permission} provider.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class UserQueries {
+
+    private static volatile @Nullable UserQuery instance = null;
+
+    @ApiStatus.Internal
+    private UserQueries() {
+        throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * Returns the active query.
+     * 
+     * @return the query
+     * @throws IllegalStateException if the permission system does not support queries
+     */
+    public static @NotNull UserQuery get() {
+        UserQuery current = instance;
+        if (current == null) {
+            throw new IllegalStateException("User queries are not available");
+        }
+        return current;
+    }
+
+    /**
+     * Checks whether a query has been set.
+     * 
+     * @return true if queries are available
+     */
+    public static boolean isAvailable() {
+        return instance != null;
+    }
+
+    /**
+     * Sets the active query. Can only be called once.
+     * 
+     * @param query the query to use
+     * @throws IllegalStateException if a query has already been set
+     */
+    @ApiStatus.Internal
+    public static synchronized void set(@NotNull UserQuery query) {
+        if (instance != null) {
+            throw new IllegalStateException("User query has already been initialized");
+        }
+        instance = query;
+    }
+
+    /**
+     * Replaces the active query, for example after the permission backend
+     * was switched at runtime.
+     * 
+     * @param query the query to use from now on
+     */
+    @ApiStatus.Internal
+    public static void replace(@NotNull UserQuery query) {
+        instance = query;
+    }
+}
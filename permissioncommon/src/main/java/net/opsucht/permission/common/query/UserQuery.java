@@ -0,0 +1,41 @@
+package net.opsucht.permission.common.query;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.UUID;
+import java.util.concurrent.Flow;
+
+/**
+ * Finds users by permission or group, including users that are not online.
+ * 
+ * <p>Results are streamed: every subscription starts a new query and
+ * delivers matching UUIDs as they are found, at the rate the subscriber
+ * requests them. A query never builds the whole result in memory before
+ * delivering the first element, and cancelling the subscription stops it.</p>
+ * 
+ * <p>Implementations may read from storage and must not be used on a
+ * server's main thread for anything but subscribing.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface UserQuery {
+
+    /**
+     * Finds all users that are granted a permission, either directly or
+     * through one of their groups.
+     * 
+     * @param node the permission node
+     * @return a publisher of matching user UUIDs, each delivered once
+     */
+    @NotNull
+    Flow.Publisher<UUID> findUsersWith(@NotNull String node);
+
+    /**
+     * Finds all direct members of a group.
+     * 
+     * @param group the group name
+     * @return a publisher of member UUIDs, each delivered once
+     */
+    @NotNull
+    Flow.Publisher<UUID> findGroupMembers(@NotNull String group);
+}
@@ -0,0 +1,276 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * Immutable set of resolved permission nodes of a player.
+ * 
+ * <p>Nodes are case-insensitive and stored in lower case. A check resolves,
+ * in this order: the exact node, wildcard parents from the most specific one
+ * ({@code a.b.*} before {@code a.*}), and the root wildcard {@code *}. This
+ * matches the wildcard handling of LuckPerms and Bukkit.</p>
+ * 
+ * <p>Checks do not allocate for lower-case nodes. Wildcards are kept in a
+ * separate array sorted by specificity and matched by prefix comparison
+ * instead of building parent node strings.</p>
+ * 
+ * <p>Each set also carries a Bloom filter over the granted nodes and the
+ * prefixes of granted wildcards. Most checks on a server are for nodes a
+ * player does not have, and {@link #test(String)} answers those from the
+ * filter in one pass over the node, without the map lookup or the wildcard
+ * scan. A set that grants the root wildcard has no filter.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionSet implements Predicate<String> {
+
+    /**
+     * A set without any nodes.
+     */
+    public static final PermissionSet EMPTY = new PermissionSet(Collections.emptyMap());
+
+    private static final String ROOT_WILDCARD = "*";
+    private static final String WILDCARD_SUFFIX = ".*";
+
+    // 16 bits and 4 probes per entry keep false positives at about 0.25 %
+    private static final int FILTER_BITS_PER_ENTRY = 16;
+    private static final int FILTER_PROBES = 4;
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    // Separates the prefix of a granted wildcard from a granted node with the same text
+    private static final long WILDCARD_SALT = 0x9e3779b97f4a7c15L;
+
+    private final Map<String, Boolean> permissions;
+    private final String[] wildcardPrefixes;
+    private final boolean[] wildcardValues;
+    private final Tristate root;
+    private final long @Nullable [] filter;
+    private final int filterMask;
+    private final int hash;
+
+    private PermissionSet(Map<String, Boolean> permissions) {
+        this.permissions = permissions;
+
+        List<String> prefixes = new ArrayList<>();
+        for (String node : permissions.keySet()) {
+            if (node.endsWith(WILDCARD_SUFFIX) && node.length() > WILDCARD_SUFFIX.length()) {
+                prefixes.add(node.substring(0, node.length() - WILDCARD_SUFFIX.length()));
+            }
+        }
+        prefixes.sort((a, b) -> Integer.compare(b.length(), a.length()));
+
+        this.wildcardPrefixes = prefixes.toArray(new String[0]);
+        this.wildcardValues = new boolean[wildcardPrefixes.length];
+        for (int i = 0; i < wildcardPrefixes.length; i++) {
+            wildcardValues[i] = permissions.get(wildcardPrefixes[i] + WILDCARD_SUFFIX);
+        }
+
+        Boolean rootValue = permissions.get(ROOT_WILDCARD);
+        this.root = rootValue != null ? Tristate.of(rootValue) : Tristate.UNDEFINED;
+        this.filter = root == Tristate.TRUE ? null : buildFilter();
+        this.filterMask = filter == null ? 0 : filter.length * Long.SIZE - 1;
+        this.hash = permissions.hashCode();
+    }
+
+    private long[] buildFilter() {
+        int entries = 0;
+        for (boolean value : permissions.values()) {
+            if (value) {
+                entries++;
+            }
+        }
+        for (boolean value : wildcardValues) {
+            if (value) {
+                entries++;
+            }
+        }
+
+        // A power of two of at least one word, so a probe is a mask instead of a modulo
+        int bits = Integer.highestOneBit(Math.max(Long.SIZE, entries * FILTER_BITS_PER_ENTRY) - 1) << 1;
+        long[] words = new long[bits / Long.SIZE];
+        int mask = bits - 1;
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            if (entry.getValue()) {
+                put(words, mask, hash(entry.getKey()));
+            }
+        }
+        for (int i = 0; i < wildcardPrefixes.length; i++) {
+            if (wildcardValues[i]) {
+                put(words, mask, hash(wildcardPrefixes[i]) ^ WILDCARD_SALT);
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Creates a set from resolved node values.
+     * 
+     * @param permissions node to value; true grants, false denies
+     * @return the set
+     */
+    public static @NotNull PermissionSet of(@NotNull Map<String, Boolean> permissions) {
+        if (permissions.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, Boolean> normalized = new HashMap<>(permissions.size() * 4 / 3 + 1);
+        for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+            normalized.put(entry.getKey().toLowerCase(Locale.ROOT), entry.getValue());
+        }
+        return new PermissionSet(Collections.unmodifiableMap(normalized));
+    }
+
+    /**
+     * Resolves a permission.
+     * 
+     * @param permission the node to check
+     * @return the resolved state
+     */
+    public @NotNull Tristate check(@NotNull String permission) {
+        // Returns the same instance if the node is already lower case
+        String node = permission.toLowerCase(Locale.ROOT);
+
+        Boolean exact = permissions.get(node);
+        if (exact != null) {
+            return Tristate.of(exact);
+        }
+
+        for (int i = 0; i < wildcardPrefixes.length; i++) {
+            String prefix = wildcardPrefixes[i];
+            int length = prefix.length();
+            if (node.length() > length && node.charAt(length) == '.' && node.startsWith(prefix)) {
+                return Tristate.of(wildcardValues[i]);
+            }
+        }
+        return root;
+    }
+
+    /**
+     * Returns whether a permission is granted. Undefined counts as not
+     * granted, as in {@link Tristate#asBoolean()}.
+     * 
+     * @param permission the node to check
+     * @return true if the node resolves to {@link Tristate#TRUE}
+     */
+    @Override
+    public boolean test(@NotNull String permission) {
+        return mightGrant(permission) && check(permission).asBoolean();
+    }
+
+    /**
+     * Returns whether a permission may be granted, using only the filter.
+     * A false result is definite; a true result still needs {@link #check}.
+     * 
+     * @param permission the node to check
+     * @return false if the node cannot resolve to {@link Tristate#TRUE}
+     */
+    public boolean mightGrant(@NotNull String permission) {
+        long[] words = filter;
+        if (words == null) {
+            return true;
+        }
+        long hash = FNV_OFFSET;
+        for (int i = 0, length = permission.length(); i < length; i++) {
+            char c = permission.charAt(i);
+            if (c >= 0x80) {
+                // Lower-casing outside ASCII can change the length; leave it to check()
+                return true;
+            }
+            if (c == '.' && contains(words, filterMask, hash ^ WILDCARD_SALT)) {
+                return true;
+            }
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+        }
+        return contains(words, filterMask, hash);
+    }
+
+    /**
+     * Returns the size of the negative check filter.
+     * 
+     * @return the filter size in bytes, 0 if the root wildcard is granted
+     */
+    public int getFilterBytes() {
+        return filter == null ? 0 : filter.length * Long.BYTES;
+    }
+
+    private static long hash(String node) {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < node.length(); i++) {
+            hash = (hash ^ node.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static void put(long[] words, int mask, long hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < FILTER_PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            words[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private static boolean contains(long[] words, int mask, long hash) {
+        long mixed = mix(hash);
+        int h1 = (int) mixed;
+        int h2 = (int) (mixed >>> 32) | 1;
+        for (int i = 0; i < FILTER_PROBES; i++) {
+            int bit = (h1 + i * h2) & mask;
+            if ((words[bit >>> 6] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3, spreading FNV's weak low bits
+     * over the whole word before probe positions are taken from it.
+     */
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * Returns the nodes of this set.
+     * 
+     * @return an unmodifiable map of lower-case node to value
+     */
+    public @NotNull Map<String, Boolean> asMap() {
+        return permissions;
+    }
+
+    public int size() {
+        return permissions.size();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PermissionSet)) return false;
+        PermissionSet that = (PermissionSet) o;
+        return hash == that.hash && permissions.equals(that.permissions);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
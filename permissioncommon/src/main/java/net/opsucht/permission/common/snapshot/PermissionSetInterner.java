@@ -0,0 +1,78 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Weak interner for {@link PermissionSet}s.
+ * 
+ * <p>Players of the same rank without personal nodes resolve to equal sets.
+ * Interning maps every equal set to one canonical instance, so memory grows
+ * with the number of distinct permission profiles instead of the number of
+ * players. Sets compare by content; their hash is computed once when they
+ * are built, so a lookup costs one map access and, on a match, one
+ * comparison of the nodes.</p>
+ * 
+ * <p>Canonical sets are held weakly and disappear once no player refers to
+ * them anymore, so no reference counting is needed. Interning happens when
+ * a snapshot is installed, not on permission checks, so a single lock is
+ * enough.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class PermissionSetInterner {
+
+    // The value must not hold the key strongly, or entries would never be cleared
+    private final Map<PermissionSet, WeakReference<PermissionSet>> canonical = new WeakHashMap<>();
+    private long lookups;
+    private long shared;
+
+    /**
+     * Returns the canonical instance of a set, registering the set itself if
+     * no equal one is known.
+     * 
+     * @param set the set to intern
+     * @return an equal set, shared by every caller that interned an equal set
+     */
+    public synchronized @NotNull PermissionSet intern(@NotNull PermissionSet set) {
+        lookups++;
+        if (set.size() == 0) {
+            shared++;
+            return PermissionSet.EMPTY;
+        }
+        WeakReference<PermissionSet> reference = canonical.get(set);
+        PermissionSet existing = reference != null ? reference.get() : null;
+        if (existing != null) {
+            shared++;
+            return existing;
+        }
+        canonical.put(set, new WeakReference<>(set));
+        return set;
+    }
+
+    /**
+     * Returns the number of distinct sets currently interned.
+     * 
+     * @return the number of canonical sets still in use
+     */
+    public synchronized int size() {
+        return canonical.size();
+    }
+
+    /**
+     * Returns the number of interned sets that were replaced by an existing
+     * canonical instance.
+     * 
+     * @return the number of shared lookups
+     */
+    public synchronized long getShared() {
+        return shared;
+    }
+
+    public synchronized long getLookups() {
+        return lookups;
+    }
+}
@@ -0,0 +1,43 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.UUID;
+
+/**
+ * A provider that can export the resolved state of a player in one call.
+ * 
+ * <p>Implemented by providers whose backend keeps a resolved permission map,
+ * such as {@link net.opsucht.permission.common.provider.AbstractLPProvider}.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface SnapshotSource {
+
+    /**
+     * Resolves a snapshot of a loaded player.
+     * 
+     * <p>Like {@code has}, this must not perform I/O.</p>
+     * 
+     * @param uuid the player's UUID
+     * @return the snapshot, or null if the player is not loaded
+     */
+    @Nullable
+    UserSnapshot snapshot(@NotNull UUID uuid);
+
+    /**
+     * Resolves a snapshot of a loaded player as seen by another server of
+     * the network, for example the one the player is connecting to.
+     * 
+     * <p>Backends with server-specific nodes resolve them for that server
+     * instead of their own. By default, the server is ignored.</p>
+     * 
+     * @param uuid   the player's UUID
+     * @param server the name of the other server
+     * @return the snapshot, or null if the player is not loaded
+     */
+    default @Nullable UserSnapshot snapshot(@NotNull UUID uuid, @NotNull String server) {
+        return snapshot(uuid);
+    }
+}
@@ -0,0 +1,276 @@
+package net.opsucht.permission.common.snapshot;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Persists {@link UserSnapshot}s in a single file, so a restarted server
+ * can serve permission checks before its backend has loaded anyone.
+ * 
+ * <p>Layout of format version 1:</p>
+ * <pre>
+ * int     magic "OPSN"
+ * byte    version
+ * long    generation, incremented on every write
+ * long    write time (epoch millis)
+ * int     body length
+ * int     CRC32 of the body
+ * body:
+ * varint  node count, then per node a length-prefixed UTF-8 string
+ * varint  group count, then per group a length-prefixed UTF-8 string
+ * varint  user count, then per user:
+ *         uuid, long creation time
+ *         varint permission count, then per permission: node id &lt;&lt; 1 | value
+ *         varint group count, then per group: group id
+ *         varint primary group id + 1 (0 = none)
+ * </pre>
+ * 
+ * <p>Nodes and groups are stored once in ID tables, as most players share
+ * most of their nodes. The file is read through a memory-mapped channel
+ * and rejected as a whole if the header, the checksum or the age does not
+ * match. Writes go to a temporary file that replaces the old one, so a
+ * crash never leaves a half-written store behind.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class SnapshotStore {
+
+    /**
+     * The current format version.
+     */
+    public static final byte VERSION = 1;
+
+    private static final int MAGIC = 0x4F50534E;
+    private static final int HEADER_SIZE = 4 + 1 + 8 + 8 + 4 + 4;
+
+    private final Path file;
+    private long generation;
+
+    /**
+     * Creates a store backed by a file. The file does not have to exist.
+     * 
+     * @param file the store file
+     */
+    public SnapshotStore(@NotNull Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the generation of the last file read or written.
+     * 
+     * @return the generation, 0 if none
+     */
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Writes snapshots, replacing the previous contents of the store.
+     * 
+     * @param snapshots the snapshots to write
+     * @throws IOException if the file cannot be written
+     */
+    public synchronized void write(@NotNull Collection<UserSnapshot> snapshots) throws IOException {
+        Map<String, Integer> nodeIds = new LinkedHashMap<>();
+        Map<String, Integer> groupIds = new LinkedHashMap<>();
+        for (UserSnapshot snapshot : snapshots) {
+            for (String node : snapshot.getPermissions().asMap().keySet()) {
+                nodeIds.putIfAbsent(node, nodeIds.size());
+            }
+            for (String group : snapshot.getGroups()) {
+                groupIds.putIfAbsent(group, groupIds.size());
+            }
+            if (snapshot.getPrimaryGroup() != null) {
+                groupIds.putIfAbsent(snapshot.getPrimaryGroup(), groupIds.size());
+            }
+        }
+
+        BinaryWriter body = new BinaryWriter(1024);
+        writeTable(body, nodeIds.keySet());
+        writeTable(body, groupIds.keySet());
+        body.writeVarInt(snapshots.size());
+        for (UserSnapshot snapshot : snapshots) {
+            body.writeUuid(snapshot.getUuid()).writeLong(snapshot.getCreatedAt());
+            Map<String, Boolean> permissions = snapshot.getPermissions().asMap();
+            body.writeVarInt(permissions.size());
+            for (Map.Entry<String, Boolean> entry : permissions.entrySet()) {
+                body.writeVarInt(nodeIds.get(entry.getKey()) << 1 | (entry.getValue() ? 1 : 0));
+            }
+            body.writeVarInt(snapshot.getGroups().size());
+            for (String group : snapshot.getGroups()) {
+                body.writeVarInt(groupIds.get(group));
+            }
+            String primaryGroup = snapshot.getPrimaryGroup();
+            body.writeVarInt(primaryGroup != null ? groupIds.get(primaryGroup) + 1 : 0);
+        }
+        byte[] bytes = body.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        long nextGeneration = generation + 1;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                .putInt(MAGIC)
+                .put(VERSION)
+                .putLong(nextGeneration)
+                .putLong(System.currentTimeMillis())
+                .putInt(bytes.length)
+                .putInt((int) crc.getValue());
+        header.flip();
+
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer data = ByteBuffer.wrap(bytes);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+        generation = nextGeneration;
+    }
+
+    /**
+     * Reads the snapshots of the store.
+     * 
+     * @param maxAgeMs the maximum age of the store; older stores are ignored
+     * @return the snapshots, empty if the store does not exist or is too old
+     * @throws IOException if the file cannot be read or fails validation
+     */
+    public synchronized @NotNull List<UserSnapshot> read(long maxAgeMs) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            return Collections.emptyList();
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid snapshot store size: " + size);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot store");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot store version: " + version);
+            }
+            long fileGeneration = buffer.getLong();
+            long writtenAt = buffer.getLong();
+            int bodyLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (bodyLength != size - HEADER_SIZE) {
+                throw new IOException("Snapshot store is truncated");
+            }
+
+            long age = System.currentTimeMillis() - writtenAt;
+            if (age > maxAgeMs || age < 0) {
+                return Collections.emptyList();
+            }
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new IOException("Snapshot store checksum mismatch");
+            }
+
+            List<UserSnapshot> snapshots;
+            try {
+                snapshots = readBody(new BinaryReader(buffer));
+            } catch (IllegalArgumentException e) {
+                throw new IOException("Malformed snapshot store", e);
+            }
+            generation = fileGeneration;
+            return snapshots;
+        }
+    }
+
+    private static void writeTable(BinaryWriter out, Collection<String> values) {
+        out.writeVarInt(values.size());
+        for (String value : values) {
+            out.writeString(value);
+        }
+    }
+
+    private static String[] readTable(BinaryReader in) {
+        String[] values = new String[in.readCount(1)];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readString();
+        }
+        return values;
+    }
+
+    private static List<UserSnapshot> readBody(BinaryReader in) {
+        String[] nodes = readTable(in);
+        String[] groups = readTable(in);
+
+        int userCount = in.readCount(16 + 8 + 3);
+        List<UserSnapshot> snapshots = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            UUID uuid = in.readUuid();
+            long createdAt = in.readLong();
+
+            int permissionCount = in.readCount(1);
+            Map<String, Boolean> permissions = new HashMap<>(permissionCount * 4 / 3 + 1);
+            for (int j = 0; j < permissionCount; j++) {
+                int value = in.readVarInt();
+                permissions.put(lookup(nodes, value >>> 1), (value & 1) != 0);
+            }
+
+            int groupCount = in.readCount(1);
+            Set<String> memberOf = new LinkedHashSet<>();
+            for (int j = 0; j < groupCount; j++) {
+                memberOf.add(lookup(groups, in.readVarInt()));
+            }
+            int primary = in.readVarInt();
+            String primaryGroup = primary == 0 ? null : lookup(groups, primary - 1);
+
+            snapshots.add(new UserSnapshot(uuid, PermissionSet.of(permissions), memberOf, primaryGroup, createdAt));
+        }
+        if (in.remaining() != 0) {
+            throw new IllegalArgumentException("Trailing data after snapshots");
+        }
+        return snapshots;
+    }
+
+    private static String lookup(String[] table, int id) {
+        if (id >= table.length) {
+            throw new IllegalArgumentException("Unknown table id: " + id);
+        }
+        return table[id];
+    }
+}
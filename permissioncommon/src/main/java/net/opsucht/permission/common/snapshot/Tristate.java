@@ -0,0 +1,45 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Result of resolving a permission against a {@link PermissionSet}.
+ * 
+ * @since 1.0.0
+ */
+public enum Tristate {
+
+    /**
+     * The permission is granted.
+     */
+    TRUE,
+
+    /**
+     * The permission is explicitly denied.
+     */
+    FALSE,
+
+    /**
+     * Neither the permission nor one of its wildcards is set.
+     */
+    UNDEFINED;
+
+    /**
+     * Returns the state for a boolean value.
+     * 
+     * @param value the value
+     * @return {@link #TRUE} or {@link #FALSE}
+     */
+    public static @NotNull Tristate of(boolean value) {
+        return value ? TRUE : FALSE;
+    }
+
+    /**
+     * Returns whether the permission is granted. Undefined counts as not granted.
+     * 
+     * @return true only for {@link #TRUE}
+     */
+    public boolean asBoolean() {
+        return this == TRUE;
+    }
+}
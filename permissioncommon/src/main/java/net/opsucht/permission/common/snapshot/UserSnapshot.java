@@ -0,0 +1,72 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable, fully resolved permission state of one player.
+ * 
+ * <p>A snapshot holds every node the backend resolved for the player,
+ * including inherited ones, and the groups the player is a direct member
+ * of. A node that is not part of the snapshot is not granted. Platform
+ * defaults that a backend applies on top (such as {@code default: true}
+ * in a plugin.yml) are not part of it.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class UserSnapshot {
+
+    private final UUID uuid;
+    private final PermissionSet permissions;
+    private final Set<String> groups;
+    private final @Nullable String primaryGroup;
+    private final long createdAt;
+
+    /**
+     * Creates a snapshot.
+     * 
+     * @param uuid the player's UUID
+     * @param permissions the resolved permissions
+     * @param groups the direct groups of the player
+     * @param primaryGroup the primary group, or null if unknown
+     * @param createdAt creation time in epoch milliseconds
+     */
+    public UserSnapshot(@NotNull UUID uuid, @NotNull PermissionSet permissions, @NotNull Set<String> groups,
+            @Nullable String primaryGroup, long createdAt) {
+        this.uuid = uuid;
+        this.permissions = permissions;
+        this.groups = Collections.unmodifiableSet(new LinkedHashSet<>(groups));
+        this.primaryGroup = primaryGroup;
+        this.createdAt = createdAt;
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    public @NotNull PermissionSet getPermissions() {
+        return permissions;
+    }
+
+    public @NotNull Set<String> getGroups() {
+        return groups;
+    }
+
+    public @Nullable String getPrimaryGroup() {
+        return primaryGroup;
+    }
+
+    /**
+     * Returns when the backend resolved this snapshot.
+     * 
+     * @return creation time in epoch milliseconds
+     */
+    public long getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -0,0 +1,43 @@
+package net.opsucht.permission.common.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the provider of one permission backend.
+ * 
+ * <p>Factories are discovered with {@link java.util.ServiceLoader}, so each
+ * platform lists its implementations in
+ * {@code META-INF/services/net.opsucht.permission.common.spi.PermissionProviderFactory}.
+ * A factory must be cheap to instantiate and must not touch classes of its
+ * backend in {@link #getName()} or {@link #isAvailable()}: the backend's
+ * classes are only loaded once {@link #create()} is called, so a server
+ * without GroupManager never loads the GroupManager provider.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface PermissionProviderFactory {
+
+    /**
+     * Returns the name used in {@code provider-priority}, for example
+     * {@code LuckPerms}. Names are compared case-insensitively.
+     * 
+     * @return the backend name
+     */
+    @NotNull String getName();
+
+    /**
+     * Checks whether the backend is installed and enabled.
+     * 
+     * @return true if {@link #create()} can be called
+     */
+    boolean isAvailable();
+
+    /**
+     * Creates a new provider for the backend.
+     * 
+     * @return the provider
+     * @throws IllegalStateException if the backend is not available
+     */
+    @NotNull PermissionProvider create();
+}
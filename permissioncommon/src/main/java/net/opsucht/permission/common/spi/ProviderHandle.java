@@ -0,0 +1,295 @@
+package net.opsucht.permission.common.spi;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.provider.ForwardingPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * The provider chain installed in {@link net.opsucht.permission.api.Permission}
+ * by the {@link ProviderRegistry}, counting the calls running on it.
+ * 
+ * <p>Once the handle is retired, calls that still reach it, because their
+ * caller read the old provider just before the swap, are passed on to the
+ * successor. The chain behind a retired handle therefore only sees calls
+ * that had already started, and {@link #awaitDrain(Duration)} returns once
+ * they are done. Asynchronous changes count until their future completes.</p>
+ * 
+ * <p>The counter is a {@link LongAdder}, so concurrent checks from many
+ * threads do not contend on one cache line.</p>
+ */
+final class ProviderHandle extends ForwardingPermissionProvider {
+
+    private final LongAdder active = new LongAdder();
+    private volatile @Nullable PermissionProvider successor;
+
+    ProviderHandle(@NotNull PermissionProvider delegate) {
+        super(delegate);
+    }
+
+    /**
+     * Sends all further calls to the given provider.
+     * 
+     * @param successor the provider that replaced this one
+     */
+    void retire(@NotNull PermissionProvider successor) {
+        this.successor = successor;
+    }
+
+    boolean isRetired() {
+        return successor != null;
+    }
+
+    /**
+     * Returns the number of calls currently running on the chain.
+     * 
+     * @return the number of calls
+     */
+    long getActiveCalls() {
+        return active.sum();
+    }
+
+    /**
+     * Waits until no call is running on the chain any more. Only meaningful
+     * after {@link #retire(PermissionProvider)}.
+     * 
+     * @param timeout the maximum time to wait
+     * @return true if the chain drained, false if the timeout passed first
+     */
+    boolean awaitDrain(@NotNull Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (active.sum() > 0) {
+            if (System.nanoTime() - deadline >= 0 || Thread.currentThread().isInterrupted()) {
+                return false;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        return true;
+    }
+
+    /**
+     * Registers a call and returns where it should go. The counter is
+     * raised before the retired flag is read, and {@link #retire} sets the
+     * flag before the drain reads the counter, so each call is either
+     * counted by the drain or sent to the successor.
+     */
+    private PermissionProvider enter() {
+        active.increment();
+        PermissionProvider next = successor;
+        if (next != null) {
+            active.decrement();
+            return next;
+        }
+        return delegate;
+    }
+
+    private void exit(PermissionProvider target) {
+        if (target == delegate) {
+            active.decrement();
+        }
+    }
+
+    private CompletableFuture<Void> exitWhenDone(PermissionProvider target, CompletableFuture<Void> future) {
+        if (target != delegate) {
+            return future;
+        }
+        future.whenComplete((ignored, error) -> active.decrement());
+        return future;
+    }
+
+    @Override
+    public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionProvider target = enter();
+        try {
+            return target.has(uuid, permission);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionProvider target = enter();
+        try {
+            target.add(uuid, permission);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionProvider target = enter();
+        try {
+            return exitWhenDone(target, target.addAsync(uuid, permission));
+        } catch (RuntimeException e) {
+            exit(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        PermissionProvider target = enter();
+        try {
+            return exitWhenDone(target, target.addAsync(uuid, permission, timeout));
+        } catch (RuntimeException e) {
+            exit(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public void addTemporary(@NotNull UUID uuid, @NotNull String permission, @NotNull Duration duration) {
+        PermissionProvider target = enter();
+        try {
+            target.addTemporary(uuid, permission, duration);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addTemporaryAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration duration) {
+        PermissionProvider target = enter();
+        try {
+            return exitWhenDone(target, target.addTemporaryAsync(uuid, permission, duration));
+        } catch (RuntimeException e) {
+            exit(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionProvider target = enter();
+        try {
+            target.remove(uuid, permission);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        PermissionProvider target = enter();
+        try {
+            return exitWhenDone(target, target.removeAsync(uuid, permission));
+        } catch (RuntimeException e) {
+            exit(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission,
+            @NotNull Duration timeout) {
+        PermissionProvider target = enter();
+        try {
+            return exitWhenDone(target, target.removeAsync(uuid, permission, timeout));
+        } catch (RuntimeException e) {
+            exit(target);
+            throw e;
+        }
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+        PermissionProvider target = enter();
+        try {
+            return target.getGroups(uuid);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups() {
+        PermissionProvider target = enter();
+        try {
+            return target.getGroups();
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public boolean isMember(@NotNull UUID uuid, @NotNull String group) {
+        PermissionProvider target = enter();
+        try {
+            return target.isMember(uuid, group);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public boolean inheritsFrom(@NotNull UUID uuid, @NotNull String group) {
+        PermissionProvider target = enter();
+        try {
+            return target.inheritsFrom(uuid, group);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @NotNull Set<UUID> getOnlineMembers(@NotNull String group) {
+        PermissionProvider target = enter();
+        try {
+            return target.getOnlineMembers(group);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @Nullable String getPrefix(@NotNull UUID uuid) {
+        PermissionProvider target = enter();
+        try {
+            return target.getPrefix(uuid);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @Nullable String getSuffix(@NotNull UUID uuid) {
+        PermissionProvider target = enter();
+        try {
+            return target.getSuffix(uuid);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @Nullable String getMeta(@NotNull UUID uuid, @NotNull String key) {
+        PermissionProvider target = enter();
+        try {
+            return target.getMeta(uuid, key);
+        } finally {
+            exit(target);
+        }
+    }
+
+    @Override
+    public @Nullable String getPrimaryGroup(@NotNull UUID uuid) {
+        PermissionProvider target = enter();
+        try {
+            return target.getPrimaryGroup(uuid);
+        } finally {
+            exit(target);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package net.opsucht.permission.common.spi;
+
+import net.opsucht.permission.api.Permission;
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ServiceLoader;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Discovers the permission backends of a platform and installs the active
+ * provider chain.
+ * 
+ * <p>Factories are looked up with a {@link ServiceLoader} on first use and
+ * kept afterwards. Detection asks them in the order of
+ * {@code provider-priority}, so only the chosen backend's classes are ever
+ * loaded.</p>
+ * 
+ * <p>{@link #activate(PermissionProvider, Duration)} can be called again at
+ * runtime to switch the backend or to put a cache in front of it. The new
+ * chain is published with a single atomic swap, so {@link Permission#get()}
+ * stays one volatile read. The previous chain stops receiving calls right
+ * away and is released once the calls still running on it have finished.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class ProviderRegistry {
+
+    private final ClassLoader loader;
+    private volatile @Nullable List<PermissionProviderFactory> factories;
+    private volatile @Nullable ProviderHandle active;
+
+    /**
+     * @param loader the class loader whose service files list the factories
+     */
+    public ProviderRegistry(@NotNull ClassLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Returns every factory listed for this platform, in discovery order.
+     * 
+     * @return the factories
+     */
+    public @NotNull List<PermissionProviderFactory> getFactories() {
+        List<PermissionProviderFactory> current = factories;
+        if (current == null) {
+            synchronized (this) {
+                current = factories;
+                if (current == null) {
+                    current = new ArrayList<>();
+                    for (PermissionProviderFactory factory : ServiceLoader.load(PermissionProviderFactory.class, loader)) {
+                        current.add(factory);
+                    }
+                    current = Collections.unmodifiableList(current);
+                    factories = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Looks up a factory by name.
+     * 
+     * @param name the backend name, case-insensitive
+     * @return the factory, or null if none has this name
+     */
+    public @Nullable PermissionProviderFactory getFactory(@NotNull String name) {
+        for (PermissionProviderFactory factory : getFactories()) {
+            if (factory.getName().equalsIgnoreCase(name)) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Picks the first available backend.
+     * 
+     * @param priority backend names in order of preference; if empty, all
+     *                 factories are tried in discovery order
+     * @return the factory of the first available backend, or null if none is available
+     */
+    public @Nullable PermissionProviderFactory detect(@NotNull List<String> priority) {
+        if (priority.isEmpty()) {
+            for (PermissionProviderFactory factory : getFactories()) {
+                if (factory.isAvailable()) {
+                    return factory;
+                }
+            }
+            return null;
+        }
+        for (String name : priority) {
+            PermissionProviderFactory factory = getFactory(name);
+            if (factory != null && factory.isAvailable()) {
+                return factory;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Makes a provider chain the active one.
+     * 
+     * @param provider     the chain to install
+     * @param drainTimeout how long to wait for calls still running on the previous chain
+     * @return completes with the previous chain once it drained, or with null
+     *         if there was none; completes exceptionally with a
+     *         {@link TimeoutException} if calls were still running after the timeout
+     */
+    public synchronized @NotNull CompletableFuture<PermissionProvider> activate(@NotNull PermissionProvider provider,
+            @NotNull Duration drainTimeout) {
+        ProviderHandle next = new ProviderHandle(provider);
+        ProviderHandle previous = active;
+        active = next;
+        Permission.swap(next);
+        if (previous == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        previous.retire(next);
+        CompletableFuture<PermissionProvider> released = new CompletableFuture<>();
+        CompletableFuture.runAsync(() -> {
+            if (previous.awaitDrain(drainTimeout)) {
+                released.complete(previous.getDelegate());
+            } else {
+                released.completeExceptionally(new TimeoutException(previous.getActiveCalls()
+                        + " calls still running on " + previous.getProviderName()));
+            }
+        });
+        return released;
+    }
+
+    /**
+     * Returns the active provider chain.
+     * 
+     * @return the chain, or null if none was activated yet
+     */
+    public @Nullable PermissionProvider getActive() {
+        ProviderHandle current = active;
+        return current == null ? null : current.getDelegate();
+    }
+}
@@ -0,0 +1,80 @@
+package net.opsucht.permission.common.sync;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A single cache invalidation: one permission node of a player, or all
+ * state of a player.
+ * 
+ * @since 1.0.0
+ */
+public final class Invalidation {
+
+    private final UUID uuid;
+    private final @Nullable String permission;
+
+    private Invalidation(@NotNull UUID uuid, @Nullable String permission) {
+        this.uuid = uuid;
+        this.permission = permission;
+    }
+
+    /**
+     * Creates an invalidation for one permission node of a player.
+     * 
+     * @param uuid the player's UUID
+     * @param permission the permission node
+     * @return the invalidation
+     */
+    public static @NotNull Invalidation node(@NotNull UUID uuid, @NotNull String permission) {
+        return new Invalidation(uuid, permission);
+    }
+
+    /**
+     * Creates an invalidation for all cached state of a player.
+     * 
+     * @param uuid the player's UUID
+     * @return the invalidation
+     */
+    public static @NotNull Invalidation user(@NotNull UUID uuid) {
+        return new Invalidation(uuid, null);
+    }
+
+    public @NotNull UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * Returns the invalidated permission node.
+     * 
+     * @return the node, or null if the whole player is invalidated
+     */
+    public @Nullable String getPermission() {
+        return permission;
+    }
+
+    public boolean isWholeUser() {
+        return permission == null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Invalidation)) return false;
+        Invalidation that = (Invalidation) o;
+        return uuid.equals(that.uuid) && Objects.equals(permission, that.permission);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * uuid.hashCode() + Objects.hashCode(permission);
+    }
+
+    @Override
+    public String toString() {
+        return uuid + (permission == null ? " (all)" : " " + permission);
+    }
+}
@@ -0,0 +1,116 @@
+package net.opsucht.permission.common.sync;
+
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.cache.InvalidationListener;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Logger;
+
+/**
+ * Keeps the caches of several nodes coherent by exchanging invalidations.
+ * 
+ * <p>Changes made through the local {@link CachedPermissionProvider} are
+ * queued and sent as one batch per {@link #flush()}, which the platform
+ * calls once per tick. Invalidations received from other nodes are applied
+ * to the local cache without being sent on again.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class InvalidationBus implements InvalidationListener {
+
+    private final CachedPermissionProvider cache;
+    private final InvalidationTransport transport;
+    private final Logger logger;
+    private final Queue<Invalidation> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Creates a new bus. Call {@link #start()} to connect it.
+     * 
+     * @param cache the local cache
+     * @param transport the transport to the other nodes
+     * @param logger the logger for protocol errors
+     */
+    public InvalidationBus(@NotNull CachedPermissionProvider cache, @NotNull InvalidationTransport transport,
+            @NotNull Logger logger) {
+        this.cache = cache;
+        this.transport = transport;
+        this.logger = logger;
+    }
+
+    /**
+     * Starts listening for local changes and for frames from other nodes.
+     */
+    public void start() {
+        transport.setReceiver(this::receive);
+        cache.addInvalidationListener(this);
+    }
+
+    /**
+     * Stops listening for local changes and sends what is still pending.
+     */
+    public void stop() {
+        cache.removeInvalidationListener(this);
+        flush();
+    }
+
+    @Override
+    public void onInvalidate(@NotNull UUID uuid, @Nullable String permission) {
+        pending.add(permission != null ? Invalidation.node(uuid, permission) : Invalidation.user(uuid));
+    }
+
+    /**
+     * Sends all pending invalidations as one batch.
+     * 
+     * <p>Duplicates are sent once, and node invalidations of a player are
+     * dropped if the same batch invalidates the whole player.</p>
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Set<Invalidation> batch = new LinkedHashSet<>();
+        Set<UUID> wholeUsers = new HashSet<>();
+        Invalidation next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+            if (next.isWholeUser()) {
+                wholeUsers.add(next.getUuid());
+            }
+        }
+        if (!wholeUsers.isEmpty()) {
+            batch.removeIf(i -> !i.isWholeUser() && wholeUsers.contains(i.getUuid()));
+        }
+
+        for (byte[] frame : InvalidationCodec.encode(batch)) {
+            transport.send(frame);
+        }
+    }
+
+    private void receive(byte[] frame) {
+        List<Invalidation> batch;
+        try {
+            batch = InvalidationCodec.decode(frame);
+        } catch (IllegalArgumentException e) {
+            logger.warning("Discarding malformed invalidation frame: " + e.getMessage());
+            return;
+        }
+
+        for (Invalidation invalidation : batch) {
+            String permission = invalidation.getPermission();
+            if (permission == null) {
+                cache.invalidateUser(invalidation.getUuid());
+            } else {
+                cache.invalidate(invalidation.getUuid(), permission);
+            }
+        }
+    }
+}
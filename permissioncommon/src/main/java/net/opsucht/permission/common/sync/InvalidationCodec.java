@@ -0,0 +1,112 @@
+package net.opsucht.permission.common.sync;
+
+import net.opsucht.permission.common.io.BinaryReader;
+import net.opsucht.permission.common.io.BinaryWriter;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Binary encoding of invalidation batches for the plugin messaging channel.
+ * 
+ * <p>A frame starts with a format version byte and a varint entry count.
+ * Each entry is the player's UUID as two longs, followed by a varint
+ * holding the UTF-8 length of the node plus one, and the node bytes.
+ * A length of zero marks a whole-user invalidation.</p>
+ * 
+ * <p>Plugin messages sent from the proxy to a server are limited to
+ * 32767 bytes, so batches are split into frames no larger than
+ * {@link #MAX_FRAME_SIZE}.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class InvalidationCodec {
+
+    /**
+     * The current format version.
+     */
+    public static final byte VERSION = 1;
+
+    /**
+     * Maximum size of an encoded frame in bytes.
+     */
+    public static final int MAX_FRAME_SIZE = 32000;
+
+    private static final int MAX_HEADER_SIZE = 1 + 5;
+
+    private InvalidationCodec() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Encodes a batch of invalidations into one or more frames.
+     * 
+     * @param batch the invalidations to encode
+     * @return the encoded frames, empty if the batch is empty
+     */
+    public static @NotNull List<byte[]> encode(@NotNull Collection<Invalidation> batch) {
+        List<byte[]> frames = new ArrayList<>();
+        List<byte[]> entries = new ArrayList<>();
+        int size = MAX_HEADER_SIZE;
+
+        for (Invalidation invalidation : batch) {
+            byte[] entry = encodeEntry(invalidation);
+            if (size + entry.length > MAX_FRAME_SIZE && !entries.isEmpty()) {
+                frames.add(frame(entries, size));
+                entries.clear();
+                size = MAX_HEADER_SIZE;
+            }
+            entries.add(entry);
+            size += entry.length;
+        }
+
+        if (!entries.isEmpty()) {
+            frames.add(frame(entries, size));
+        }
+        return frames;
+    }
+
+    /**
+     * Decodes a single frame.
+     * 
+     * @param frame the frame bytes
+     * @return the invalidations contained in the frame
+     * @throws IllegalArgumentException if the frame is malformed or uses an
+     *                                  unknown format version
+     */
+    public static @NotNull List<Invalidation> decode(byte @NotNull [] frame) {
+        BinaryReader in = new BinaryReader(frame);
+        byte version = in.readByte();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported invalidation format version: " + version);
+        }
+
+        int count = in.readCount(17);
+        List<Invalidation> out = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UUID uuid = in.readUuid();
+            String node = in.readNullableString();
+            out.add(node != null ? Invalidation.node(uuid, node) : Invalidation.user(uuid));
+        }
+        return out;
+    }
+
+    private static byte[] encodeEntry(Invalidation invalidation) {
+        return new BinaryWriter(32)
+                .writeUuid(invalidation.getUuid())
+                .writeNullableString(invalidation.getPermission())
+                .toByteArray();
+    }
+
+    private static byte[] frame(List<byte[]> entries, int size) {
+        BinaryWriter out = new BinaryWriter(size);
+        out.writeByte(VERSION).writeVarInt(entries.size());
+        for (byte[] entry : entries) {
+            out.writeBytes(entry);
+        }
+        return out.toByteArray();
+    }
+}
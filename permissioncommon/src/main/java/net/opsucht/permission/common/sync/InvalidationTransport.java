@@ -0,0 +1,38 @@
+package net.opsucht.permission.common.sync;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.function.Consumer;
+
+/**
+ * Carries encoded invalidation frames between the nodes of a network.
+ * 
+ * <p>On Bukkit and BungeeCord this is the plugin messaging channel
+ * {@link #CHANNEL}. Tests use {@link LoopbackTransport}.</p>
+ * 
+ * @since 1.0.0
+ */
+public interface InvalidationTransport {
+
+    /**
+     * The plugin messaging channel used for invalidations.
+     */
+    String CHANNEL = "opsucht:permsync";
+
+    /**
+     * Sends a frame to all other nodes.
+     * 
+     * <p>Delivery is best effort. A frame that cannot be delivered is
+     * covered by the cache duration on the receiving side.</p>
+     * 
+     * @param frame the encoded frame
+     */
+    void send(byte @NotNull [] frame);
+
+    /**
+     * Sets the handler for frames received from other nodes.
+     * 
+     * @param receiver the handler, called on the transport's thread
+     */
+    void setReceiver(@NotNull Consumer<byte[]> receiver);
+}
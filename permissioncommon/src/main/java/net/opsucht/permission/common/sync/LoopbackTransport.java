@@ -0,0 +1,60 @@
+package net.opsucht.permission.common.sync;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-process transport connecting several nodes through a shared {@link Hub}.
+ * 
+ * <p>Frames are delivered synchronously on the sending thread to every
+ * other member of the hub. This makes the invalidation protocol testable
+ * without a proxy or a Minecraft server.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class LoopbackTransport implements InvalidationTransport {
+
+    private final Hub hub;
+    private volatile Consumer<byte[]> receiver = frame -> {
+    };
+
+    private LoopbackTransport(Hub hub) {
+        this.hub = hub;
+    }
+
+    @Override
+    public void send(byte @NotNull [] frame) {
+        for (LoopbackTransport member : hub.members) {
+            if (member != this) {
+                member.receiver.accept(frame.clone());
+            }
+        }
+    }
+
+    @Override
+    public void setReceiver(@NotNull Consumer<byte[]> receiver) {
+        this.receiver = receiver;
+    }
+
+    /**
+     * A set of connected loopback transports.
+     */
+    public static final class Hub {
+
+        private final List<LoopbackTransport> members = new CopyOnWriteArrayList<>();
+
+        /**
+         * Creates a new transport connected to all other members of this hub.
+         * 
+         * @return the new transport
+         */
+        public @NotNull LoopbackTransport join() {
+            LoopbackTransport transport = new LoopbackTransport(this);
+            members.add(transport);
+            return transport;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.opsucht.permission.common.admission;
+
+import net.opsucht.permission.api.PermissionRejectedException;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the limits on pending asynchronous changes.
+ */
+class AdmissionControllerTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @Test
+    void shouldRejectRunawayPluginWithoutBlockingOthers() {
+        AdmissionController controller = new AdmissionController(8, 2, 0, OverflowPolicy.REJECT);
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+
+        List<CompletableFuture<Void>> runaway = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            runaway.add(controller.submit("Runaway", PLAYER, "node." + i, () -> pending(saves)));
+        }
+        CompletableFuture<Void> other = controller.submit("Shop", PLAYER, "shop.use", () -> pending(saves));
+
+        assertEquals(3, saves.size(), "Only the admitted changes should reach the backend");
+        assertEquals(98, controller.getRejected());
+        ExecutionException error = assertThrows(ExecutionException.class, () -> runaway.get(99).get());
+        PermissionRejectedException rejection = assertInstanceOf(PermissionRejectedException.class, error.getCause());
+        assertEquals("Runaway", rejection.getCaller());
+        assertFalse(other.isDone());
+
+        saves.forEach(save -> save.complete(null));
+        assertTrue(runaway.get(0).isDone());
+        assertEquals(0, controller.getInFlight());
+    }
+
+    @Test
+    void shouldStartQueuedChangesInTurnsAsSlotsFreeUp() {
+        AdmissionController controller = new AdmissionController(1, 1, 10, OverflowPolicy.QUEUE);
+        List<CompletableFuture<Void>> saves = new ArrayList<>();
+        List<String> started = new ArrayList<>();
+
+        CompletableFuture<Void> first = controller.submit("Runaway", PLAYER, "a", () -> {
+            started.add("Runaway");
+            return pending(saves);
+        });
+        CompletableFuture<Void> second = controller.submit("Runaway", PLAYER, "b", () -> {
+            started.add("Runaway");
+            return pending(saves);
+        });
+        CompletableFuture<Void> third = controller.submit("Shop", PLAYER, "c", () -> {
+            started.add("Shop");
+            return pending(saves);
+        });
+        assertEquals(2, controller.getQueued());
+        assertEquals(List.of("Runaway"), started);
+
+        saves.get(0).complete(null);
+        assertTrue(first.isDone());
+        assertEquals(1, controller.getQueued());
+        assertEquals(2, started.size());
+
+        saves.get(1).complete(null);
+        assertEquals(3, started.size());
+        assertTrue(started.contains("Shop"));
+        saves.get(2).complete(null);
+        assertTrue(second.isDone() && third.isDone());
+        assertEquals(0, controller.getQueued());
+        assertEquals(0, controller.getInFlight());
+    }
+
+    private static CompletableFuture<Void> pending(List<CompletableFuture<Void>> saves) {
+        CompletableFuture<Void> save = new CompletableFuture<>();
+        saves.add(save);
+        return save;
+    }
+}
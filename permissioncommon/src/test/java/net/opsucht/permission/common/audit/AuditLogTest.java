@@ -0,0 +1,92 @@
+package net.opsucht.permission.common.audit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the audit journal, its rotation and the reader.
+ */
+class AuditLogTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+    private static final Logger LOGGER = Logger.getLogger(AuditLogTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldWriteEveryRecordFromConcurrentThreadsAcrossSegments() throws Exception {
+        AuditLog log = new AuditLog(dir, 4096, 1000, FsyncPolicy.BATCH, Duration.ofSeconds(1), LOGGER);
+        log.start();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2500; i++) {
+                    log.record(AuditAction.ADD, new UUID(thread, i), "node." + i, 0L);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        log.close();
+
+        assertEquals(10_000, log.getWritten());
+        assertTrue(AuditJournal.segments(dir).size() > 1, "Journal should have rotated");
+        try (Stream<AuditRecord> records = log.reader().stream()) {
+            List<AuditRecord> all = records.collect(Collectors.toList());
+            assertEquals(10_000, all.size());
+            // Each thread's records keep their order
+            long ordered = all.stream().filter(record -> record.getUuid().getMostSignificantBits() == 0)
+                    .mapToLong(record -> record.getUuid().getLeastSignificantBits())
+                    .reduce(-1, (previous, next) -> next == previous + 1 ? next : Long.MIN_VALUE);
+            assertEquals(2499, ordered);
+        }
+    }
+
+    @Test
+    void shouldDeleteOldSegmentsAndContinueAfterTornTail() throws Exception {
+        AuditLog log = new AuditLog(dir, 1024, 3, FsyncPolicy.NEVER, Duration.ofSeconds(1), LOGGER);
+        log.start();
+        for (int i = 0; i < 500; i++) {
+            log.record(AuditAction.REMOVE, PLAYER, "old." + i, 0L);
+            if (i % 50 == 0) {
+                Thread.sleep(10); // Several batches, so the journal rotates
+            }
+        }
+        log.close();
+        List<Path> segments = AuditJournal.segments(dir);
+        assertEquals(3, segments.size());
+
+        // Simulate a crash in the middle of a record
+        Files.write(segments.get(2), new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        AuditLog restarted = new AuditLog(dir, 1024, 3, FsyncPolicy.PERIODIC, Duration.ZERO, LOGGER);
+        restarted.start();
+        restarted.record(AuditAction.ADD_TEMPORARY, PLAYER, "vip.fly", 1_700_000_000_000L);
+        restarted.close();
+
+        List<AuditRecord> tail = restarted.reader().tail(PLAYER, 2);
+        assertEquals(2, tail.size());
+        assertEquals("old.499", tail.get(0).getPermission());
+        assertEquals(AuditAction.ADD_TEMPORARY, tail.get(1).getAction());
+        assertEquals("vip.fly", tail.get(1).getPermission());
+        assertEquals(1_700_000_000_000L, tail.get(1).getExpiresAt());
+        assertEquals(Thread.currentThread().getName(), tail.get(1).getThread());
+    }
+}
@@ -0,0 +1,112 @@
+package net.opsucht.permission.common.builtin;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the built-in provider, its mutation log and its state file.
+ */
+class BuiltinPermissionProviderTest {
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+    private static final Logger LOGGER = Logger.getLogger(BuiltinPermissionProviderTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldResolveUserNodesBeforeGroupsAndGroupsBeforeParents() throws Exception {
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            provider.setGroupPermission("default", "chat.use", true);
+            provider.setGroupPermission("staff", "essentials.*", true);
+            provider.setGroupPermission("admin", "essentials.ban", false);
+            provider.setParents("admin", List.of("staff"));
+            provider.setGroupMeta("admin", "prefix", "[A]");
+
+            assertTrue(provider.has(BOB, "chat.use"), "Every user inherits the default group");
+            assertFalse(provider.has(BOB, "essentials.fly"));
+
+            provider.setMember(ALICE, "Admin", true);
+            assertTrue(provider.has(ALICE, "essentials.fly"), "Parents are inherited");
+            assertFalse(provider.has(ALICE, "essentials.ban"), "A group wins over its parents");
+            assertTrue(provider.inheritsFrom(ALICE, "staff"));
+            assertEquals(Set.of("admin", "default"), provider.getGroups(ALICE));
+            assertEquals("admin", provider.getPrimaryGroup(ALICE));
+            assertEquals("[A]", provider.getPrefix(ALICE));
+
+            provider.setPermission(ALICE, "essentials.ban", true);
+            assertTrue(provider.has(ALICE, "ESSENTIALS.BAN"), "Own nodes win over groups");
+
+            // A change to a group reaches users resolved before it
+            provider.setGroupPermission("staff", "essentials.*", null);
+            assertFalse(provider.has(ALICE, "essentials.fly"));
+            provider.remove(ALICE, "essentials.ban");
+            assertFalse(provider.has(ALICE, "essentials.ban"));
+        }
+    }
+
+    @Test
+    void shouldListOnlineMembersWithoutCache() throws Exception {
+        UUID offline = new UUID(0L, 3L);
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER,
+                () -> List.of(ALICE, BOB))) {
+            provider.setMember(ALICE, "staff", true);
+            provider.setMember(offline, "staff", true);
+
+            assertEquals(Set.of(ALICE), provider.getOnlineMembers("Staff"));
+            assertEquals(Set.of(ALICE, BOB), provider.getOnlineMembers("default"));
+        }
+    }
+
+    @Test
+    void shouldRecoverFromStateFileAndLog() throws Exception {
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            provider.add(ALICE, "kit.vip");
+            provider.setGroupPermission("vip", "fly.use", true);
+            provider.setMember(ALICE, "vip", true);
+            provider.compact();
+            // Only in the log
+            provider.add(ALICE, "kit.daily");
+            provider.setMeta(ALICE, "suffix", "*");
+            provider.setGroupPermission("vip", "fly.use", false);
+        }
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            assertEquals(5, Files.size(dir.resolve("permissions.log")), "Closing must compact the log");
+            provider.add(BOB, "kit.starter");
+            provider.remove(ALICE, "kit.vip");
+            Files.copy(dir.resolve("permissions.log"), dir.resolve("saved.log"));
+        }
+        // As after a crash between writing the state file and emptying the log
+        Files.move(dir.resolve("saved.log"), dir.resolve("permissions.log"), StandardCopyOption.REPLACE_EXISTING);
+        // A torn record at the end, as after a crash while appending
+        Files.write(dir.resolve("permissions.log"), new byte[]{0, 0, 0, 40, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            assertTrue(provider.has(ALICE, "kit.daily"));
+            assertFalse(provider.has(ALICE, "fly.use"));
+            assertEquals("*", provider.getSuffix(ALICE));
+            // The state file already contains the restored records, so they are skipped
+            assertTrue(provider.has(BOB, "kit.starter"));
+            assertFalse(provider.has(ALICE, "kit.vip"));
+            assertEquals(Set.of("vip", "default"), provider.getGroups(ALICE));
+
+            provider.add(BOB, "kit.weekly");
+            assertTrue(provider.has(BOB, "kit.weekly"), "Appends after the torn record must be readable");
+        }
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            assertTrue(provider.has(BOB, "kit.weekly"));
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the group membership index of the cache.
+ */
+class GroupIndexTest {
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+
+    @Test
+    void shouldApplyOnlyChangedGroups() {
+        GroupIndex index = new GroupIndex();
+        index.track(ALICE, List.of("Staff", "default"));
+        index.track(BOB, List.of("default"));
+
+        assertEquals(Set.of(ALICE, BOB), index.getMembers("default"));
+        assertTrue(index.isMember(ALICE, "staff"));
+
+        assertTrue(index.refresh(ALICE, List.of("default", "vip")));
+        assertEquals(Set.of(), index.getMembers("staff"));
+        assertEquals(Set.of(ALICE), index.getMembers("VIP"));
+
+        index.untrack(BOB);
+        assertFalse(index.refresh(BOB, List.of("staff")), "Players who left must not be added again");
+        assertEquals(Set.of(ALICE), index.getMembers("default"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void shouldAnswerFromIndexAndFollowMutations() {
+        GroupBackend backend = new GroupBackend();
+        backend.groups.put(ALICE, Set.of("default"));
+        backend.groups.put(BOB, Set.of("staff"));
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        cache.trackMember(ALICE);
+        cache.trackMember(BOB);
+        int lookups = backend.lookups.get();
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(Set.of(BOB), cache.getOnlineMembers("staff"));
+            assertFalse(cache.isMember(ALICE, "staff"));
+        }
+        assertEquals(lookups, backend.lookups.get(), "Membership queries should not resolve players");
+
+        backend.groups.put(ALICE, Set.of("default", "staff"));
+        cache.add(ALICE, "group.staff");
+        assertEquals(Set.of(ALICE, BOB), cache.getOnlineMembers("staff"));
+
+        cache.untrackMember(BOB);
+        cache.invalidateUser(BOB);
+        assertEquals(Set.of(ALICE), cache.getOnlineMembers("staff"));
+    }
+
+    /**
+     * Returns the groups from a map and counts the lookups.
+     */
+    private static final class GroupBackend implements PermissionProvider {
+        private final Map<UUID, Set<String>> groups = new ConcurrentHashMap<>();
+        private final AtomicInteger lookups = new AtomicInteger();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Groups";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            lookups.incrementAndGet();
+            return groups.getOrDefault(uuid, Set.of());
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of("default", "staff");
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.common.builtin.BuiltinPermissionProvider;
+import net.opsucht.permission.common.builtin.CacheRefresher;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for applying group changes to the cache without clearing it.
+ */
+class GroupRecomputerTest {
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final UUID BOB = new UUID(0L, 2L);
+    private static final UUID CAROL = new UUID(0L, 3L);
+    private static final UUID DAVE = new UUID(0L, 4L);
+    private static final Logger LOGGER = Logger.getLogger(GroupRecomputerTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRecomputeOnlyPlayersDependingOnChangedGroup() throws Exception {
+        try (BuiltinPermissionProvider provider = BuiltinPermissionProvider.open(dir, LOGGER)) {
+            provider.setGroupPermission("staff", "essentials.fly", true);
+            provider.setParents("admin", List.of("staff"));
+            provider.setGroupPermission("vip", "kit.vip", true);
+            provider.setMember(ALICE, "admin", true);
+            provider.setMember(DAVE, "staff", true);
+            provider.setMember(BOB, "vip", true);
+            provider.setMember(CAROL, "admin", true);
+
+            CachedPermissionProvider cache = new CachedPermissionProvider(provider);
+            GroupRecomputer recomputer = new GroupRecomputer(cache, 1);
+            provider.addChangeListener(new CacheRefresher(cache, recomputer));
+            for (UUID uuid : List.of(ALICE, BOB, DAVE)) {
+                cache.trackMember(uuid);
+                cache.snapshot(uuid);
+            }
+            UserSnapshot bob = cache.snapshot(BOB);
+            // Offline and without a snapshot, so its groups are unknown to the cache
+            assertTrue(cache.has(CAROL, "essentials.fly"));
+
+            provider.setGroupPermission("staff", "essentials.fly", false);
+            assertTrue(cache.has(ALICE, "essentials.fly"), "Players keep their state until recomputed");
+
+            recomputer.run();
+            assertEquals(1, recomputer.getPending(), "Only one player is recomputed per run");
+            assertFalse(cache.has(CAROL, "essentials.fly"), "Offline players are dropped right away");
+            recomputer.run();
+            assertEquals(0, recomputer.getPending());
+
+            long misses = cache.getStats().getMisses();
+            assertFalse(cache.has(ALICE, "essentials.fly"), "Inheritors of the group are affected");
+            assertFalse(cache.has(DAVE, "essentials.fly"));
+            assertEquals(misses, cache.getStats().getMisses(), "Recomputed players must not miss the cache");
+            assertSame(bob, cache.snapshot(BOB), "Players outside the group keep their state");
+        }
+    }
+}
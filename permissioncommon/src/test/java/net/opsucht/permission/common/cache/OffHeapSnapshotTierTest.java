@@ -0,0 +1,161 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the off-heap second cache tier.
+ */
+class OffHeapSnapshotTierTest {
+
+    private static final UUID ALICE = new UUID(0L, 1L);
+    private static final long TTL = TimeUnit.MINUTES.toMillis(10);
+
+    @Test
+    void shouldResolveLikeThePermissionSet() {
+        PermissionSet permissions = PermissionSet.of(Map.of(
+                "essentials.fly", true,
+                "WorldEdit.*", true,
+                "worldedit.admin.*", false,
+                "shop.sell", false,
+                "chat.color.red", true));
+        UserSnapshot snapshot = new UserSnapshot(ALICE, permissions, Set.of("vip", "default"), "vip", 1234L);
+        OffHeapSnapshotTier tier = new OffHeapSnapshotTier(1 << 16, 4096, TTL);
+        assertTrue(tier.put(snapshot));
+
+        for (String node : List.of("essentials.fly", "ESSENTIALS.FLY", "worldedit.wand", "worldedit.admin.reload",
+                "worldedit", "shop.sell", "shop.buy", "chat.color.red", "chat.color", "unknown.node")) {
+            assertEquals(permissions.check(node), tier.check(ALICE, node), node);
+        }
+        assertNull(tier.check(new UUID(0L, 2L), "essentials.fly"));
+
+        UserSnapshot decoded = tier.get(ALICE);
+        assertNotNull(decoded);
+        assertEquals(permissions, decoded.getPermissions());
+        assertEquals(Set.of("vip", "default"), decoded.getGroups());
+        assertEquals("vip", decoded.getPrimaryGroup());
+        assertEquals(1234L, decoded.getCreatedAt());
+
+        UUID bob = new UUID(0L, 2L);
+        assertTrue(tier.put(new UserSnapshot(bob, permissions, Set.of("Staff"), null, 0L)));
+        assertEquals(1, tier.removeMembers(List.of("staff", "admin")), "Only members of the groups are dropped");
+        assertNull(tier.get(bob));
+
+        assertTrue(tier.remove(ALICE));
+        assertNull(tier.check(ALICE, "essentials.fly"));
+        assertEquals(0, tier.getUsedBytes());
+    }
+
+    @Test
+    void shouldGiveReferencedSnapshotsASecondChanceWhenFull() {
+        // 40 nodes are 48 + 8 + 160 bytes, so four players fill a slab of 1 KiB
+        OffHeapSnapshotTier tier = new OffHeapSnapshotTier(4096, 1024, TTL);
+        for (int i = 0; i < 12; i++) {
+            assertTrue(tier.put(snapshot(new UUID(1L, i), 40)));
+        }
+        assertNotNull(tier.check(new UUID(1L, 0), "node.1"));
+
+        // Takes the last free slab, which reclaims the first one
+        tier.put(snapshot(new UUID(1L, 12), 40));
+
+        assertNotNull(tier.check(new UUID(1L, 0), "node.1"), "A snapshot read since the last visit must survive");
+        for (int i = 1; i < 4; i++) {
+            assertNull(tier.check(new UUID(1L, i), "node.1"));
+        }
+        assertEquals(3, tier.getEvictions());
+        assertEquals(10, tier.size());
+        assertTrue(tier.getAllocatedBytes() <= 4096 + 64 * 1024, "Memory must stay within the slabs and index");
+    }
+
+    @Test
+    void shouldMoveLeavingPlayersOffTheHeapAndBack() {
+        SnapshotBackend backend = new SnapshotBackend();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        OffHeapSnapshotTier tier = new OffHeapSnapshotTier(1 << 16, 4096, TTL);
+        cache.setOffHeapTier(tier);
+
+        cache.trackMember(ALICE);
+        cache.untrackMember(ALICE);
+        cache.demoteUser(ALICE);
+        assertEquals(1, tier.size());
+
+        assertTrue(cache.has(ALICE, "node.1"));
+        assertFalse(cache.has(ALICE, "other.node"));
+        assertEquals(Set.of("default"), cache.getGroups(ALICE));
+        assertEquals(0, backend.checks.get(), "Checks for demoted players should not reach the backend");
+
+        cache.trackMember(ALICE);
+        assertEquals(0, tier.size(), "Returning players move back to the heap");
+        assertTrue(cache.has(ALICE, "node.1"));
+
+        cache.untrackMember(ALICE);
+        cache.demoteUser(ALICE);
+        cache.invalidate(ALICE, "node.1");
+        assertEquals(0, tier.size(), "Invalidations must reach the off-heap tier");
+    }
+
+    private static UserSnapshot snapshot(UUID uuid, int nodes) {
+        Map<String, Boolean> permissions = new HashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            permissions.put("node." + i, true);
+        }
+        return new UserSnapshot(uuid, PermissionSet.of(permissions), Set.of("default"), "default", 0L);
+    }
+
+    /**
+     * Resolves every player to the same snapshot and counts permission
+     * checks.
+     */
+    private static final class SnapshotBackend implements PermissionProvider, SnapshotSource {
+        private final AtomicInteger checks = new AtomicInteger();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Snapshots";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            checks.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of("default");
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of("default");
+        }
+
+        @Override
+        public @Nullable UserSnapshot snapshot(@NotNull UUID uuid) {
+            return OffHeapSnapshotTierTest.snapshot(uuid, 3);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package net.opsucht.permission.common.cache;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.SnapshotSource;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for snapshots that were resolved on another node.
+ */
+class ProvisionalSnapshotTest {
+
+    private static final UUID PLAYER = new UUID(0L, 1L);
+
+    @Test
+    void shouldOnlyAnswerNodesDefinedByProvisionalSnapshot() {
+        Backend backend = new Backend();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        cache.installProvisional(pushed());
+
+        assertTrue(cache.has(PLAYER, "pushed.node"));
+        assertFalse(cache.has(PLAYER, "denied.node"));
+        assertTrue(cache.has(PLAYER, "world.node"), "Missing nodes must be checked by the delegate");
+
+        cache.invalidateUser(PLAYER);
+        cache.install(pushed());
+        assertFalse(cache.has(PLAYER, "world.node"), "Installed snapshots are authoritative");
+    }
+
+    @Test
+    void shouldReplaceProvisionalSnapshotOnceDelegateLoadedPlayer() {
+        Backend backend = new Backend();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        cache.installProvisional(pushed());
+        assertTrue(cache.has(PLAYER, "pushed.node"));
+
+        backend.loaded = true;
+        assertFalse(cache.has(PLAYER, "pushed.node"), "The delegate's own snapshot wins");
+        assertTrue(cache.has(PLAYER, "world.node"));
+        assertEquals(Set.of("loaded"), cache.getGroups(PLAYER));
+    }
+
+    @Test
+    void shouldInstallDelegateSnapshotWhenTrackingMember() {
+        Backend backend = new Backend();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        backend.loaded = true;
+        cache.trackMember(PLAYER);
+
+        backend.loaded = false;
+        UserSnapshot snapshot = cache.snapshot(PLAYER);
+        assertNotNull(snapshot, "Joining should install the delegate's snapshot");
+        assertEquals(Set.of("loaded"), snapshot.getGroups());
+    }
+
+    private static UserSnapshot pushed() {
+        return new UserSnapshot(PLAYER, PermissionSet.of(Map.of("pushed.node", true, "denied.node", false)),
+                Set.of("default"), "default", System.currentTimeMillis());
+    }
+
+    /**
+     * Grants {@code world.node}, which the proxy cannot resolve, and loads
+     * the player on request.
+     */
+    private static final class Backend implements PermissionProvider, SnapshotSource {
+        private volatile boolean loaded;
+
+        @Override
+        public @Nullable UserSnapshot snapshot(@NotNull UUID uuid) {
+            if (!loaded) {
+                return null;
+            }
+            return new UserSnapshot(uuid, PermissionSet.of(Map.of("world.node", true)), Set.of("loaded"), "loaded",
+                    System.currentTimeMillis());
+        }
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Backend";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return permission.equals("world.node");
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return loaded ? Set.of("loaded") : Set.of("default");
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of("default", "loaded");
+        }
+    }
+}
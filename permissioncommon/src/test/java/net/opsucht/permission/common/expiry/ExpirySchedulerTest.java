@@ -0,0 +1,163 @@
+package net.opsucht.permission.common.expiry;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the timing wheel, the expiry journal and temporary grants.
+ */
+class ExpirySchedulerTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+    private static final Logger LOGGER = Logger.getLogger(ExpirySchedulerTest.class.getName());
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldReturnItemsOnlyOnceTheyAreDue() {
+        TimingWheel<String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.add("soon", 250);
+        wheel.add("next-revolution", 250 + 8 * 100);
+        wheel.add("overdue", -5);
+
+        assertEquals(List.of("overdue"), wheel.advance(200));
+        assertEquals(List.of("soon"), wheel.advance(300));
+        assertEquals(1, wheel.size());
+        assertEquals(List.of(), wheel.advance(1000));
+        // A pause longer than a revolution still finds the item
+        assertEquals(List.of("next-revolution"), wheel.advance(5000));
+    }
+
+    @Test
+    void shouldBatchExpiriesAndRestoreGrantsFromJournal() throws Exception {
+        Path journal = dir.resolve("expiry.journal");
+        List<List<TemporaryGrant>> batches = new ArrayList<>();
+        long now = System.currentTimeMillis();
+
+        ExpiryScheduler scheduler = new ExpiryScheduler(journal, batches::add, LOGGER);
+        scheduler.start();
+        scheduler.schedule(PLAYER, "vip.fly", now + 1_000);
+        scheduler.schedule(PLAYER, "vip.hat", now + 1_500);
+        scheduler.schedule(PLAYER, "vip.kit", now + 60_000);
+        scheduler.schedule(PLAYER, "vip.cancelled", now + 1_000);
+        scheduler.cancel(PLAYER, "vip.cancelled");
+
+        assertEquals(2, scheduler.expireDue(now + 3_000));
+        assertEquals(1, batches.size(), "Due grants should be expired in one batch");
+        scheduler.close();
+
+        // A torn record at the end must not lose the complete ones
+        Files.write(journal, new byte[] {0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+
+        ExpiryScheduler restarted = new ExpiryScheduler(journal, batches::add, LOGGER);
+        restarted.start();
+        try {
+            assertEquals(1, restarted.size());
+            assertNotNull(restarted.getGrant(PLAYER, "vip.kit"));
+            assertNull(restarted.getGrant(PLAYER, "vip.cancelled"));
+        } finally {
+            restarted.close();
+        }
+    }
+
+    @Test
+    void shouldRemoveExpiredNodeThroughCache() throws Exception {
+        GrantStore backend = new GrantStore();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        ExpiringPermissionProvider provider = new ExpiringPermissionProvider(cache,
+                dir.resolve("expiry.journal"), LOGGER);
+        provider.start();
+        try {
+            provider.addTemporary(PLAYER, "vip.fly", Duration.ofMinutes(5));
+            assertTrue(provider.has(PLAYER, "vip.fly"));
+
+            provider.getScheduler().expireDue(System.currentTimeMillis() + Duration.ofMinutes(6).toMillis());
+
+            assertFalse(provider.has(PLAYER, "vip.fly"), "Expiry should invalidate the cached result");
+            assertEquals(0, provider.getScheduler().size());
+
+            provider.addTemporary(PLAYER, "vip.hat", Duration.ofMinutes(5));
+            provider.add(PLAYER, "vip.hat");
+            assertNull(provider.getScheduler().getGrant(PLAYER, "vip.hat"), "Permanent add should cancel expiry");
+        } finally {
+            provider.close();
+        }
+    }
+
+    @Test
+    void shouldExpireThroughRebuiltProvider() throws Exception {
+        GrantStore first = new GrantStore();
+        ExpiringPermissionProvider previous = new ExpiringPermissionProvider(first,
+                dir.resolve("expiry.journal"), LOGGER);
+        previous.start();
+        try {
+            previous.addTemporary(PLAYER, "vip.fly", Duration.ofMinutes(5));
+            GrantStore second = new GrantStore();
+            second.add(PLAYER, "vip.fly");
+            ExpiringPermissionProvider next = new ExpiringPermissionProvider(second, previous.getScheduler(), LOGGER);
+
+            previous.addTemporary(PLAYER, "vip.hat", Duration.ofMinutes(5));
+            assertNotNull(next.getScheduler().getGrant(PLAYER, "vip.hat"), "Both providers share their grants");
+
+            next.getScheduler().expireDue(System.currentTimeMillis() + Duration.ofMinutes(6).toMillis());
+            assertFalse(second.has(PLAYER, "vip.fly"), "Expiry should go through the newest provider");
+            assertTrue(first.has(PLAYER, "vip.fly"));
+        } finally {
+            previous.close();
+        }
+    }
+
+    /**
+     * Keeps granted nodes in memory.
+     */
+    private static class GrantStore implements PermissionProvider {
+        private final Set<String> granted = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "GrantStore";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return granted.contains(uuid + permission);
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+            granted.add(uuid + permission);
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+            granted.remove(uuid + permission);
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
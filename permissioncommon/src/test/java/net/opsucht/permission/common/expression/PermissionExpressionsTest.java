@@ -0,0 +1,95 @@
+package net.opsucht.permission.common.expression;
+
+import net.opsucht.permission.api.PermissionExpression;
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for evaluating expressions against snapshots and providers.
+ */
+class PermissionExpressionsTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @Test
+    void shouldResolveInstalledSnapshotWithoutProviderCalls() {
+        CountingProvider backend = new CountingProvider();
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        cache.install(new UserSnapshot(PLAYER, PermissionSet.of(Map.of("shop.*", true, "shop.banned", false)),
+                Set.of("default"), "default", System.currentTimeMillis()));
+
+        PermissionExpression expression = PermissionExpression.compile("shop.sell && !shop.banned");
+
+        assertTrue(PermissionExpressions.test(cache, PLAYER, expression));
+        assertEquals(0, backend.checks.get());
+    }
+
+    @Test
+    void shouldFallBackToProviderChecks() {
+        CountingProvider backend = new CountingProvider();
+
+        assertFalse(PermissionExpressions.test(backend, PLAYER, PermissionExpression.compile("a && b")));
+        assertEquals(1, backend.checks.get(), "Should stop after the first false operand");
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedExpressions() {
+        ExpressionCache cache = new ExpressionCache(2);
+        PermissionExpression a = cache.get("a");
+        cache.get("b");
+        assertSame(a, cache.get("a"));
+        cache.get("c");
+
+        assertEquals(2, cache.size());
+        assertSame(a, cache.get("a"), "Recently used expression should survive");
+        assertThrows(IllegalArgumentException.class, () -> cache.get("a &&"));
+        assertEquals(2, cache.size());
+    }
+
+    /**
+     * Denies everything and counts the checks.
+     */
+    private static class CountingProvider implements PermissionProvider {
+        private final AtomicInteger checks = new AtomicInteger();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Counting";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            checks.incrementAndGet();
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package net.opsucht.permission.common.group;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the closure of group inheritance.
+ */
+class GroupGraphTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @Test
+    void shouldRecomputeInheritorsOfChangedGroup() {
+        GroupGraph graph = new GroupGraph();
+        graph.rebuild(Map.of(
+                "admin", Set.of("Moderator"),
+                "moderator", Set.of("staff"),
+                "staff", Set.of(),
+                "vip", Set.of("default")));
+
+        assertTrue(graph.inherits("admin", "staff"));
+        assertTrue(graph.inherits("staff", "staff"));
+        assertFalse(graph.inherits("vip", "staff"));
+        assertEquals(Set.of("admin", "moderator", "staff"), graph.getAncestors("ADMIN"));
+        assertEquals(Set.of("admin", "moderator", "staff"), graph.getDescendants("Staff"));
+        assertEquals(Set.of("owner"), graph.getDescendants("owner"));
+
+        long version = graph.getVersion();
+        graph.update("staff", List.of("default"));
+        assertTrue(graph.inherits("admin", "default"), "Inheritors of staff should see its new parent");
+        assertTrue(graph.getVersion() > version);
+
+        graph.update("moderator", null);
+        assertFalse(graph.inherits("admin", "staff"), "Deleted groups should no longer link their parents");
+        assertTrue(graph.inherits("admin", "moderator"));
+    }
+
+    @Test
+    void shouldTolerateCycles() {
+        GroupGraph graph = new GroupGraph();
+        graph.rebuild(Map.of("a", Set.of("b"), "b", Set.of("c"), "c", Set.of("a")));
+
+        assertTrue(graph.inherits("a", "c"));
+        assertTrue(graph.inherits("c", "b"));
+        assertEquals(3, graph.closureOf(List.of("b")).cardinality());
+    }
+
+    @Test
+    void shouldAnswerInheritedMembershipFromCache() {
+        Hierarchy backend = new Hierarchy();
+        backend.parents.put("admin", Set.of("staff"));
+        backend.parents.put("staff", Set.of());
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+        cache.trackMember(PLAYER);
+
+        assertTrue(cache.inheritsFrom(PLAYER, "staff"));
+        assertTrue(cache.inheritsFrom(PLAYER, "admin"));
+        assertFalse(cache.inheritsFrom(PLAYER, "owner"));
+        assertFalse(cache.isMember(PLAYER, "staff"), "isMember only covers direct groups");
+
+        backend.parents.put("owner", Set.of());
+        backend.parents.put("staff", Set.of("owner"));
+        cache.refreshGroup("staff");
+        assertTrue(cache.inheritsFrom(PLAYER, "owner"));
+    }
+
+    /**
+     * A player in {@code admin} and a mutable group hierarchy.
+     */
+    private static final class Hierarchy implements PermissionProvider, GroupHierarchy {
+        private final Map<String, Set<String>> parents = new HashMap<>();
+
+        @Override
+        public @NotNull Map<String, Set<String>> getGroupParents() {
+            return new HashMap<>(parents);
+        }
+
+        @Override
+        public @Nullable Set<String> getParents(@NotNull String group) {
+            return parents.get(group);
+        }
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Hierarchy";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of("admin");
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return parents.keySet();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package net.opsucht.permission.common.jfr;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the JFR events emitted by the cache.
+ */
+class PermissionEventsTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRecordChecksLoadsAndEvictions() throws Exception {
+        CachedPermissionProvider cache = new CachedPermissionProvider(new GrantAll());
+        Path file = dir.resolve("events.jfr");
+
+        try (Recording recording = new Recording()) {
+            recording.enable(PermissionCheckEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(CacheLoadEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(CacheEvictionEvent.class);
+            recording.start();
+
+            cache.has(PLAYER, "vip.fly");
+            cache.has(PLAYER, "vip.fly");
+            cache.invalidate(PLAYER, "vip.fly");
+
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        List<RecordedEvent> checks = named(events, "net.opsucht.permission.PermissionCheck");
+        assertEquals(2, checks.size());
+        assertEquals(1, checks.stream().filter(event -> event.getBoolean("cacheHit")).count());
+        assertEquals(PLAYER.toString(), checks.get(0).getString("uuid"));
+        assertEquals("GrantAll (Cached)", checks.get(0).getString("provider"));
+
+        List<RecordedEvent> loads = named(events, "net.opsucht.permission.CacheLoad");
+        assertEquals(1, loads.size());
+        assertEquals("GrantAll", loads.get(0).getString("provider"));
+
+        List<RecordedEvent> evictions = named(events, "net.opsucht.permission.CacheEviction");
+        assertEquals(1, evictions.size());
+        assertEquals(CacheEvictionEvent.INVALIDATED, evictions.get(0).getString("reason"));
+    }
+
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(event -> event.getEventType().getName().equals(name)).toList();
+    }
+
+    private static class GrantAll implements PermissionProvider {
+        @Override
+        public @NotNull String getProviderName() {
+            return "GrantAll";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return true;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.opsucht.permission.common.metrics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for caller attribution sampling.
+ */
+class CallSamplerTest {
+
+    @Test
+    void shouldAttributeSamplesToFirstForeignCaller() {
+        // Frames of this library are skipped, so the first resolved frame
+        // belongs to the test framework
+        CallSampler sampler = new CallSampler(8, 1, loader -> "TestPlugin");
+        sampler.setEnabled(true);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(sampler.shouldSample());
+            sampler.record("vip.fly", 1_000);
+        }
+        sampler.record("vip.chat", 1_000);
+
+        List<Map.Entry<String, Long>> callers = sampler.topCallers(5);
+        assertEquals(1, callers.size());
+        assertEquals("TestPlugin", callers.get(0).getKey());
+        assertEquals(4L, callers.get(0).getValue());
+        assertEquals("vip.fly", sampler.topNodes(1).get(0).getKey());
+    }
+
+    @Test
+    void shouldResolveEachClassOnlyOnce() {
+        AtomicInteger resolved = new AtomicInteger();
+        CallerLookup lookup = new CallerLookup(loader -> {
+            resolved.incrementAndGet();
+            return "TestPlugin";
+        });
+
+        assertEquals("TestPlugin", lookup.find());
+        int first = resolved.get();
+        assertEquals("TestPlugin", lookup.find());
+        assertEquals(first, resolved.get(), "Known classes must not be resolved again");
+    }
+
+    @Test
+    void shouldOverwriteOldestSamplesAndHonourSwitch() {
+        CallSampler sampler = new CallSampler(4, 1, loader -> null);
+        assertFalse(sampler.shouldSample(), "A new sampler should be disabled");
+
+        for (int i = 0; i < 10; i++) {
+            sampler.record("node." + i, 1_000);
+        }
+
+        assertEquals(4, sampler.topNodes(100).size());
+        assertEquals(CallSampler.UNKNOWN_CALLER, sampler.topCallers(1).get(0).getKey());
+        assertThrows(IllegalArgumentException.class, () -> sampler.setRate(3));
+    }
+}
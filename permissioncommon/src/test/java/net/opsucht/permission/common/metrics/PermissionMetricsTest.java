@@ -0,0 +1,97 @@
+package net.opsucht.permission.common.metrics;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CacheStats;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for call metrics, latency histograms and cache statistics.
+ */
+class PermissionMetricsTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @Test
+    void shouldReportPercentilesAsBucketUpperBounds() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 99; i++) {
+            histogram.record(100);
+        }
+        histogram.record(1_000_000);
+
+        assertEquals(100, histogram.getCount());
+        assertEquals(128, histogram.getPercentileNanos(50.0));
+        assertEquals(128, histogram.getPercentileNanos(99.0));
+        assertEquals(1L << 20, histogram.getPercentileNanos(100.0));
+        assertEquals((99 * 100 + 1_000_000) / 100.0, histogram.getMeanNanos(), 0.001);
+    }
+
+    @Test
+    void shouldCountEveryCallAndSampleLatencies() {
+        PermissionMetrics metrics = new PermissionMetrics("Test", 1);
+        PermissionProvider provider = new InstrumentedPermissionProvider(new GrantAll(), metrics);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(provider.has(PLAYER, "vip.fly"));
+        }
+        provider.getGroups(PLAYER);
+
+        assertEquals(10, metrics.getCalls(Operation.HAS));
+        assertEquals(1, metrics.getCalls(Operation.GET_GROUPS));
+        assertEquals(10, metrics.getLatency(Operation.HAS).getCount());
+        assertEquals(0, metrics.getCalls(Operation.ADD));
+    }
+
+    @Test
+    void shouldTrackCacheHitsMissesAndEvictions() {
+        CachedPermissionProvider cache = new CachedPermissionProvider(new GrantAll());
+        CacheStats stats = cache.getStats();
+
+        cache.has(PLAYER, "vip.fly");
+        cache.has(PLAYER, "vip.fly");
+        cache.has(PLAYER, "vip.fly");
+        cache.invalidate(PLAYER, "vip.fly");
+
+        assertEquals(2, stats.getHits());
+        assertEquals(1, stats.getMisses());
+        assertEquals(1, stats.getEvictions());
+        assertEquals(2.0 / 3.0, stats.getHitRate(), 0.001);
+    }
+
+    private static class GrantAll implements PermissionProvider {
+        @Override
+        public @NotNull String getProviderName() {
+            return "GrantAll";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return true;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package net.opsucht.permission.common.migration;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the batched migration pipeline and its checkpoints.
+ */
+class MigrationTest {
+
+    private static final Logger LOGGER = Logger.getLogger(MigrationTest.class.getName());
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void shouldMigrateEveryUserWithOneSaveAndVerify() throws Exception {
+        Backend source = Backend.filled(1000);
+        Backend target = new Backend("Target");
+
+        Migration migration = new Migration(source, target, folder.resolve("migration.checkpoint"), 4, 64, LOGGER);
+        migration.run();
+
+        assertEquals(Migration.Phase.DONE, migration.getPhase());
+        assertEquals(1000, migration.getMigrated());
+        assertEquals(1000, target.saves.get());
+        assertEquals(source.groups, target.groups);
+        assertEquals(0, migration.verify());
+        assertEquals(Map.of("shop.use", true, "shop.sell", false),
+                target.users.get(new UUID(0, 7)).getNodes());
+    }
+
+    @Test
+    void shouldResumeFailedBatchesFromCheckpoint() throws Exception {
+        Backend source = Backend.filled(1000);
+        Backend target = new Backend("Target");
+        UUID broken = new UUID(0, 500);
+        target.failing.add(broken);
+        Path checkpoint = folder.resolve("migration.checkpoint");
+
+        Migration first = new Migration(source, target, checkpoint, 4, 100, LOGGER);
+        first.run();
+        assertEquals(1, first.getFailedBatches());
+        assertEquals(900, first.getMigrated());
+        assertEquals(100, new Migration(source, target, checkpoint, 1, 100, LOGGER).verify());
+
+        target.failing.clear();
+        int savesBefore = target.saves.get();
+        Migration second = new Migration(source, target, checkpoint, 4, 100, LOGGER);
+        second.run();
+
+        assertEquals(100, second.getMigrated());
+        assertEquals(900, second.getSkipped());
+        assertEquals(100, target.saves.get() - savesBefore);
+        assertEquals(0, second.verify());
+    }
+
+    /**
+     * An in-memory backend that can be read from and written into.
+     */
+    private static final class Backend implements PermissionProvider, MigrationSource, MigrationTarget {
+        private final String name;
+        private final Map<UUID, MigrationUser> users = new ConcurrentHashMap<>();
+        private final Map<String, MigrationGroup> groups = new ConcurrentHashMap<>();
+        private final Set<UUID> failing = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger saves = new AtomicInteger();
+
+        Backend(String name) {
+            this.name = name;
+        }
+
+        static Backend filled(int count) {
+            Backend backend = new Backend("Source");
+            backend.groups.put("default", new MigrationGroup("Default", Migration.parseNodes(List.of("chat.use")),
+                    List.of(), "[Spieler]", null));
+            backend.groups.put("vip", new MigrationGroup("VIP", Migration.parseNodes(List.of("vip.fly", "-vip.nofly")),
+                    List.of("default"), "[VIP]", null));
+            for (int i = 0; i < count; i++) {
+                UUID uuid = new UUID(0, i);
+                backend.users.put(uuid, new MigrationUser(uuid, Migration.parseNodes(List.of("Shop.use", "-shop.sell")),
+                        List.of(i % 10 == 0 ? "vip" : "default"), null, null, null));
+            }
+            return backend;
+        }
+
+        @Override
+        public @NotNull Collection<UUID> readUserIds() {
+            return new ArrayList<>(users.keySet());
+        }
+
+        @Override
+        public @Nullable MigrationUser readUser(@NotNull UUID uuid) {
+            return users.get(uuid);
+        }
+
+        @Override
+        public @NotNull List<MigrationGroup> readGroups() {
+            return new ArrayList<>(groups.values());
+        }
+
+        @Override
+        public @NotNull CompletableFuture<Void> writeGroup(@NotNull MigrationGroup group) {
+            groups.put(group.getName(), group);
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public @NotNull CompletableFuture<Void> writeUsers(@NotNull List<MigrationUser> batch) {
+            for (MigrationUser user : batch) {
+                if (failing.contains(user.getUuid())) {
+                    return CompletableFuture.failedFuture(new IllegalStateException("Storage unavailable"));
+                }
+            }
+            return CompletableFuture.runAsync(() -> {
+                for (MigrationUser user : batch) {
+                    users.put(user.getUuid(), user);
+                    saves.incrementAndGet();
+                }
+            });
+        }
+
+        @Override
+        public @NotNull String getProviderName() {
+            return name;
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            MigrationUser user = users.get(uuid);
+            return user != null && user.getNodes().getOrDefault(permission, false);
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            MigrationUser user = users.get(uuid);
+            return user != null ? user.getGroups() : Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return groups.keySet();
+        }
+    }
+}
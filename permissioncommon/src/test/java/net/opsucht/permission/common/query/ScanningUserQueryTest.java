@@ -0,0 +1,169 @@
+package net.opsucht.permission.common.query;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the chunked scanning query.
+ */
+class ScanningUserQueryTest {
+
+    private static final int USERS = 10_000;
+
+    @Test
+    void shouldStreamEveryMatchOnce() throws InterruptedException {
+        List<UUID> users = users();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            ScanningUserQuery query = new ScanningUserQuery(new EveryTenth(new AtomicInteger()), () -> users,
+                    executor, 100, 4);
+
+            Collector collector = new Collector(Long.MAX_VALUE);
+            query.findUsersWith("vip.legacy").subscribe(collector);
+
+            assertTrue(collector.done.await(10, TimeUnit.SECONDS), "Query should complete");
+            assertNull(collector.error);
+            assertEquals(USERS / 10, collector.received.size());
+            assertEquals(USERS / 10, new HashSet<>(collector.received).size());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldStopScanningWhenCancelled() throws InterruptedException {
+        List<UUID> users = users();
+        AtomicInteger checks = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ScanningUserQuery query = new ScanningUserQuery(new EveryTenth(checks), () -> users, executor, 100, 2);
+
+            Collector collector = new Collector(5);
+            query.findUsersWith("vip.legacy").subscribe(collector);
+            assertTrue(collector.firstBatch.await(10, TimeUnit.SECONDS), "Should receive the requested elements");
+            collector.subscription.cancel();
+
+            Thread.sleep(200);
+            int afterCancel = checks.get();
+            Thread.sleep(200);
+            assertEquals(afterCancel, checks.get(), "Scan should stop after cancel");
+            assertTrue(afterCancel < USERS, "Scan should not run to the end");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<UUID> users() {
+        List<UUID> users = new ArrayList<>(USERS);
+        for (int i = 0; i < USERS; i++) {
+            users.add(new UUID(0L, i));
+        }
+        return users;
+    }
+
+    private static final class Collector implements Flow.Subscriber<UUID> {
+        private final long demand;
+        private final List<UUID> received = new ArrayList<>();
+        private final CountDownLatch done = new CountDownLatch(1);
+        private final CountDownLatch firstBatch = new CountDownLatch(1);
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable error;
+
+        Collector(long demand) {
+            this.demand = demand;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(demand);
+        }
+
+        @Override
+        public void onNext(UUID item) {
+            received.add(item);
+            if (received.size() == demand) {
+                firstBatch.countDown();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+            done.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            done.countDown();
+        }
+    }
+
+    /**
+     * Grants the node to every tenth user and counts the checks.
+     */
+    private static final class EveryTenth implements PermissionProvider {
+        private final AtomicInteger checks;
+
+        EveryTenth(AtomicInteger checks) {
+            this.checks = checks;
+        }
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "EveryTenth";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            checks.incrementAndGet();
+            return uuid.getLeastSignificantBits() % 10 == 0;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
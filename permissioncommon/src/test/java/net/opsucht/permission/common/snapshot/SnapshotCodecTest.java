@@ -0,0 +1,139 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the snapshot encoding and wildcard resolution.
+ */
+class SnapshotCodecTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+    private static final byte[] KEY = "network-secret".getBytes(StandardCharsets.UTF_8);
+
+    @Test
+    void shouldRoundTripSnapshot() {
+        UserSnapshot snapshot = realisticSnapshot();
+
+        UserSnapshot decoded = SnapshotCodec.decode(SnapshotCodec.encode(snapshot));
+
+        assertEquals(snapshot.getUuid(), decoded.getUuid());
+        assertEquals(snapshot.getPermissions(), decoded.getPermissions());
+        assertEquals(snapshot.getGroups(), decoded.getGroups());
+        assertEquals(snapshot.getPrimaryGroup(), decoded.getPrimaryGroup());
+        assertEquals(snapshot.getCreatedAt(), decoded.getCreatedAt());
+    }
+
+    @Test
+    void shouldEncodeRealisticProfileCompactly() {
+        UserSnapshot snapshot = realisticSnapshot();
+        Map<String, Boolean> nodes = snapshot.getPermissions().asMap();
+
+        int naive = 0;
+        for (String node : nodes.keySet()) {
+            // Length-prefixed string plus one byte for the value
+            naive += 2 + node.getBytes(StandardCharsets.UTF_8).length + 1;
+        }
+        int encoded = SnapshotCodec.encode(snapshot).length;
+
+        assertTrue(nodes.size() >= 300, "Profile should be realistic");
+        assertTrue(encoded * 2 < naive, "Front coding should at least halve the size: " + encoded + " vs " + naive);
+        assertTrue(encoded / nodes.size() <= 12, "Expected at most 12 bytes per node, got " + encoded / nodes.size());
+    }
+
+    @Test
+    void shouldRejectTamperedOrForeignFrames() {
+        byte[] frame = SnapshotCodec.encodeSigned(realisticSnapshot(), KEY);
+        assertEquals(PLAYER, SnapshotCodec.decodeSigned(frame, KEY).getUuid());
+
+        byte[] tampered = frame.clone();
+        tampered[20] ^= 1;
+        assertThrows(IllegalArgumentException.class, () -> SnapshotCodec.decodeSigned(tampered, KEY));
+        assertThrows(IllegalArgumentException.class,
+                () -> SnapshotCodec.decodeSigned(frame, "other".getBytes(StandardCharsets.UTF_8)));
+        assertThrows(IllegalArgumentException.class,
+                () -> SnapshotCodec.decode(Arrays.copyOf(frame, frame.length - SnapshotCodec.MAC_LENGTH - 1)));
+    }
+
+    @Test
+    void shouldResolveMostSpecificWildcard() {
+        Map<String, Boolean> nodes = new HashMap<>();
+        nodes.put("essentials.*", true);
+        nodes.put("essentials.warp.*", false);
+        nodes.put("Essentials.Warp.Spawn", true);
+        PermissionSet set = PermissionSet.of(nodes);
+
+        assertEquals(Tristate.TRUE, set.check("essentials.warp.spawn"));
+        assertEquals(Tristate.FALSE, set.check("essentials.warp.nether"));
+        assertEquals(Tristate.TRUE, set.check("ESSENTIALS.home"));
+        assertEquals(Tristate.UNDEFINED, set.check("essentialsx.home"));
+        assertEquals(Tristate.UNDEFINED, set.check("worldedit.wand"));
+    }
+
+    @Test
+    void shouldRejectMostNegativesInFilterWithoutFalseNegatives() {
+        Map<String, Boolean> nodes = new HashMap<>(realisticSnapshot().getPermissions().asMap());
+        nodes.put("essentials.*", true);
+        nodes.put("essentials.warp.*", false);
+        PermissionSet set = PermissionSet.of(nodes);
+
+        String[] queries = {"essentials.home", "ESSENTIALS.Warp.Spawn", "essentials.warp.nether",
+                "worldguard.region.action1", "WorldGuard.Region.Action7", "worldguard.region.action0"};
+        for (String query : queries) {
+            assertEquals(set.check(query).asBoolean(), set.test(query), query);
+        }
+
+        int rejected = 0;
+        for (int i = 0; i < 10_000; i++) {
+            String node = "anticheat.bypass.check" + i;
+            assertFalse(set.test(node));
+            if (!set.mightGrant(node)) {
+                rejected++;
+            }
+        }
+        assertTrue(rejected > 9_800, "Filter should reject nearly all negatives, rejected " + rejected);
+        assertTrue(PermissionSet.of(Map.of("*", true)).mightGrant("anticheat.bypass"));
+    }
+
+    @Test
+    void shouldInternEqualSetsToOneInstance() {
+        PermissionSetInterner interner = new PermissionSetInterner();
+        PermissionSet vip = interner.intern(realisticSnapshot().getPermissions());
+
+        PermissionSet other = realisticSnapshot().getPermissions();
+        assertNotSame(vip, other);
+        assertSame(vip, interner.intern(other));
+        assertNotSame(vip, interner.intern(PermissionSet.of(Map.of("vip.fly", true))));
+        assertSame(PermissionSet.EMPTY, interner.intern(PermissionSet.of(Map.of())));
+
+        assertEquals(2, interner.size());
+        assertEquals(4, interner.getLookups());
+        assertEquals(2, interner.getShared());
+    }
+
+    private static UserSnapshot realisticSnapshot() {
+        String[] plugins = {"essentials", "worldedit", "worldguard", "luckperms", "coreprotect", "mcmmo"};
+        String[] areas = {"command", "region", "ability", "admin", "bypass"};
+        Map<String, Boolean> nodes = new HashMap<>();
+        for (String plugin : plugins) {
+            for (String area : areas) {
+                for (int i = 0; i < 10; i++) {
+                    nodes.put(plugin + "." + area + ".action" + i, i % 7 != 0);
+                }
+            }
+            nodes.put(plugin + ".*", false);
+        }
+
+        Set<String> groups = new LinkedHashSet<>(Arrays.asList("default", "vip", "builder"));
+        return new UserSnapshot(PLAYER, PermissionSet.of(nodes), groups, "vip", 1_700_000_000_000L);
+    }
+}
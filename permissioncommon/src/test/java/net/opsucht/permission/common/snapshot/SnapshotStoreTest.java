@@ -0,0 +1,77 @@
+package net.opsucht.permission.common.snapshot;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the on-disk snapshot store.
+ */
+class SnapshotStoreTest {
+
+    private static final long MAX_AGE = 60_000L;
+
+    @TempDir
+    Path folder;
+
+    @Test
+    void shouldRestoreWrittenSnapshots() throws IOException {
+        SnapshotStore store = new SnapshotStore(folder.resolve("snapshots.bin"));
+        List<UserSnapshot> written = Arrays.asList(snapshot("vip"), snapshot("default"));
+
+        store.write(written);
+        SnapshotStore restarted = new SnapshotStore(folder.resolve("snapshots.bin"));
+        List<UserSnapshot> read = restarted.read(MAX_AGE);
+
+        assertEquals(written.size(), read.size());
+        for (int i = 0; i < written.size(); i++) {
+            assertEquals(written.get(i).getUuid(), read.get(i).getUuid());
+            assertEquals(written.get(i).getPermissions(), read.get(i).getPermissions());
+            assertEquals(written.get(i).getGroups(), read.get(i).getGroups());
+            assertEquals(written.get(i).getPrimaryGroup(), read.get(i).getPrimaryGroup());
+        }
+        assertEquals(store.getGeneration(), restarted.getGeneration());
+    }
+
+    @Test
+    void shouldIgnoreMissingAndOutdatedStores() throws IOException {
+        SnapshotStore store = new SnapshotStore(folder.resolve("snapshots.bin"));
+        assertTrue(store.read(MAX_AGE).isEmpty());
+
+        store.write(Collections.singletonList(snapshot("vip")));
+        assertTrue(store.read(-1L).isEmpty(), "A store older than the maximum age should be ignored");
+    }
+
+    @Test
+    void shouldRejectCorruptedStore() throws IOException {
+        Path file = folder.resolve("snapshots.bin");
+        new SnapshotStore(file).write(Collections.singletonList(snapshot("vip")));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 2] ^= 0x10;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> new SnapshotStore(file).read(MAX_AGE));
+    }
+
+    private static UserSnapshot snapshot(String group) {
+        Map<String, Boolean> nodes = new HashMap<>();
+        nodes.put("essentials.home", true);
+        nodes.put("essentials.warp.*", group.equals("vip"));
+        nodes.put(group + ".chat", true);
+        return new UserSnapshot(UUID.randomUUID(), PermissionSet.of(nodes),
+                new LinkedHashSet<>(Arrays.asList("default", group)), group, System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,165 @@
+package net.opsucht.permission.common.spi;
+
+import net.opsucht.permission.api.Permission;
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Field;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for provider discovery and hot swapping.
+ */
+class ProviderRegistryTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    @BeforeEach
+    @AfterEach
+    void resetPermission() throws Exception {
+        Field instance = Permission.class.getDeclaredField("instance");
+        instance.setAccessible(true);
+        instance.set(null, null);
+    }
+
+    @Test
+    void shouldDetectBackendsInPriorityOrder() {
+        ProviderRegistry registry = new ProviderRegistry(getClass().getClassLoader());
+
+        assertEquals(3, registry.getFactories().size());
+        assertEquals("Beta", registry.detect(Arrays.asList("gamma", "beta", "alpha")).getName());
+        assertEquals("Alpha", registry.detect(Collections.emptyList()).getName());
+        assertNull(registry.detect(Arrays.asList("Gamma", "Missing")));
+    }
+
+    @Test
+    void shouldDrainRunningCallsBeforeReleasingPreviousChain() throws Exception {
+        ProviderRegistry registry = new ProviderRegistry(getClass().getClassLoader());
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Fixed blocking = new Fixed(false) {
+            @Override
+            public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+                entered.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return false;
+            }
+        };
+        Fixed granting = new Fixed(true);
+
+        assertNull(registry.activate(blocking, Duration.ofSeconds(5)).get());
+        PermissionProvider old = Permission.get();
+        CompletableFuture<Boolean> running = CompletableFuture.supplyAsync(() -> old.has(PLAYER, "vip.fly"));
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<PermissionProvider> released = registry.activate(granting, Duration.ofSeconds(5));
+
+        assertTrue(Permission.get().has(PLAYER, "vip.fly"), "New calls should reach the new chain");
+        assertTrue(old.has(PLAYER, "vip.fly"), "Late calls on the old handle should be redirected");
+        Thread.sleep(50);
+        assertFalse(released.isDone(), "The old chain should not be released while a call is running");
+
+        release.countDown();
+        assertSame(blocking, released.get(5, TimeUnit.SECONDS));
+        assertFalse(running.get(5, TimeUnit.SECONDS));
+        assertSame(granting, registry.getActive());
+    }
+
+    public static final class Alpha extends Named {
+        public Alpha() {
+            super("Alpha", true);
+        }
+    }
+
+    public static final class Beta extends Named {
+        public Beta() {
+            super("Beta", true);
+        }
+    }
+
+    public static final class Gamma extends Named {
+        public Gamma() {
+            super("Gamma", false);
+        }
+    }
+
+    private abstract static class Named implements PermissionProviderFactory {
+        private final String name;
+        private final boolean available;
+
+        Named(String name, boolean available) {
+            this.name = name;
+            this.available = available;
+        }
+
+        @Override
+        public @NotNull String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean isAvailable() {
+            return available;
+        }
+
+        @Override
+        public @NotNull PermissionProvider create() {
+            return new Fixed(available);
+        }
+    }
+
+    /**
+     * Answers every check with the same result.
+     */
+    private static class Fixed implements PermissionProvider {
+        private final boolean granted;
+
+        Fixed(boolean granted) {
+            this.granted = granted;
+        }
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Fixed";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            return granted;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
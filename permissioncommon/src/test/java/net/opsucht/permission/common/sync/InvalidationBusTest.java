@@ -0,0 +1,184 @@
+package net.opsucht.permission.common.sync;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the invalidation protocol over the loopback transport.
+ */
+class InvalidationBusTest {
+
+    private static final UUID PLAYER = UUID.fromString("6b1f3e2c-0d4a-4c59-9a53-2f4a4f0e8b11");
+
+    private SharedStorage storage;
+    private CachedPermissionProvider proxy;
+    private CachedPermissionProvider backend;
+    private InvalidationBus proxyBus;
+    private InvalidationBus backendBus;
+    private List<byte[]> observed;
+
+    @BeforeEach
+    void setUp() {
+        storage = new SharedStorage();
+        proxy = new CachedPermissionProvider(storage, Long.MAX_VALUE / 2);
+        backend = new CachedPermissionProvider(storage, Long.MAX_VALUE / 2);
+
+        LoopbackTransport.Hub hub = new LoopbackTransport.Hub();
+        proxyBus = new InvalidationBus(proxy, hub.join(), Logger.getAnonymousLogger());
+        backendBus = new InvalidationBus(backend, hub.join(), Logger.getAnonymousLogger());
+        proxyBus.start();
+        backendBus.start();
+
+        observed = new ArrayList<>();
+        hub.join().setReceiver(observed::add);
+    }
+
+    @Test
+    void shouldInvalidateRemoteCacheAfterFlush() {
+        assertFalse(backend.has(PLAYER, "vip.fly"));
+
+        proxy.add(PLAYER, "vip.fly");
+        assertFalse(backend.has(PLAYER, "vip.fly"), "Remote cache should be stale before the flush");
+
+        proxyBus.flush();
+        assertTrue(backend.has(PLAYER, "vip.fly"), "Remote cache should be invalidated after the flush");
+    }
+
+    @Test
+    void shouldInvalidateWholePlayerForWildcards() {
+        assertFalse(proxy.has(PLAYER, "vip.fly"));
+        assertFalse(backend.has(PLAYER, "vip.fly"));
+
+        proxy.add(PLAYER, "vip.*");
+        assertTrue(proxy.has(PLAYER, "vip.fly"), "Local results covered by the wildcard should be dropped");
+
+        proxyBus.flush();
+        assertTrue(backend.has(PLAYER, "vip.fly"), "Remote results covered by the wildcard should be dropped");
+    }
+
+    @Test
+    void shouldNotEchoAppliedInvalidations() {
+        proxy.add(PLAYER, "vip.fly");
+        proxyBus.flush();
+        assertEquals(1, observed.size());
+
+        backendBus.flush();
+        assertEquals(1, observed.size(), "Applied invalidations must not be sent again");
+    }
+
+    @Test
+    void shouldBatchMutationsIntoOneFrame() {
+        List<byte[]> sent = new ArrayList<>();
+        InvalidationTransport recording = new InvalidationTransport() {
+            @Override
+            public void send(byte @NotNull [] frame) {
+                sent.add(frame);
+            }
+
+            @Override
+            public void setReceiver(@NotNull Consumer<byte[]> receiver) {
+            }
+        };
+        CachedPermissionProvider cache = new CachedPermissionProvider(storage);
+        InvalidationBus bus = new InvalidationBus(cache, recording, Logger.getAnonymousLogger());
+        bus.start();
+
+        for (int i = 0; i < 100; i++) {
+            cache.add(PLAYER, "node." + (i % 10));
+        }
+        bus.flush();
+
+        assertEquals(1, sent.size());
+        assertEquals(10, InvalidationCodec.decode(sent.get(0)).size(), "Duplicates should be coalesced");
+    }
+
+    @Test
+    void shouldRoundTripAndSplitLargeBatches() {
+        List<Invalidation> batch = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            UUID uuid = new UUID(i, -i);
+            batch.add(i % 7 == 0 ? Invalidation.user(uuid) : Invalidation.node(uuid, "some.node.ä" + i));
+        }
+
+        List<byte[]> frames = InvalidationCodec.encode(batch);
+        assertTrue(frames.size() > 1);
+
+        List<Invalidation> decoded = new ArrayList<>();
+        for (byte[] frame : frames) {
+            assertTrue(frame.length <= InvalidationCodec.MAX_FRAME_SIZE);
+            decoded.addAll(InvalidationCodec.decode(frame));
+        }
+        assertEquals(batch, decoded);
+    }
+
+    @Test
+    void shouldRejectMalformedFrames() {
+        byte[] frame = InvalidationCodec.encode(List.of(Invalidation.node(PLAYER, "a.b"))).get(0);
+        byte[] truncated = Arrays.copyOf(frame, frame.length - 2);
+
+        assertThrows(IllegalArgumentException.class, () -> InvalidationCodec.decode(truncated));
+        assertThrows(IllegalArgumentException.class, () -> InvalidationCodec.decode(new byte[] { 99, 0 }));
+    }
+
+    /**
+     * Provider backed by a map shared between all simulated nodes. A node
+     * {@code foo.*} grants everything below {@code foo}.
+     */
+    private static class SharedStorage implements PermissionProvider {
+        private final Map<UUID, Set<String>> nodes = new ConcurrentHashMap<>();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Shared";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            Set<String> granted = nodes.getOrDefault(uuid, Set.of());
+            if (granted.contains(permission)) {
+                return true;
+            }
+            for (int dot = permission.lastIndexOf('.'); dot > 0; dot = permission.lastIndexOf('.', dot - 1)) {
+                if (granted.contains(permission.substring(0, dot) + ".*")) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+            nodes.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(permission);
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+            nodes.getOrDefault(uuid, Set.of()).remove(permission);
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package net.opsucht.permission.loadtest;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory permission backend with a fixed latency per call.
+ * 
+ * <p>Every player is granted a fixed, pseudo-random quarter of all nodes,
+ * derived from the UUID and the node, so results are the same in every
+ * run. Changes are kept as overrides on top of that.</p>
+ * 
+ * <p>The latency is spent busy-waiting on the calling thread. This models
+ * a backend that blocks the caller, such as a permission plugin resolving
+ * a node on the main thread, without the scheduling jitter of sleeping
+ * for a few microseconds.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class FakeBackend implements PermissionProvider {
+
+    private final long latencyNanos;
+    private final Map<UUID, Map<String, Boolean>> overrides = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+
+    /**
+     * Creates a backend.
+     * 
+     * @param latencyNanos the latency of every call in nanoseconds
+     */
+    public FakeBackend(long latencyNanos) {
+        this.latencyNanos = latencyNanos;
+    }
+
+    @Override
+    public @NotNull String getProviderName() {
+        return "FakeBackend";
+    }
+
+    @Override
+    public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+        simulateLatency();
+        Map<String, Boolean> changed = overrides.get(uuid);
+        Boolean override = changed != null ? changed.get(permission) : null;
+        if (override != null) {
+            return override;
+        }
+        return ((uuid.hashCode() * 31 + permission.hashCode()) & 3) == 0;
+    }
+
+    @Override
+    public void add(@NotNull UUID uuid, @NotNull String permission) {
+        simulateLatency();
+        overrides.computeIfAbsent(uuid, key -> new ConcurrentHashMap<>()).put(permission, Boolean.TRUE);
+    }
+
+    @Override
+    public CompletableFuture<Void> addAsync(@NotNull UUID uuid, @NotNull String permission) {
+        add(uuid, permission);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public void remove(@NotNull UUID uuid, @NotNull String permission) {
+        simulateLatency();
+        overrides.computeIfAbsent(uuid, key -> new ConcurrentHashMap<>()).put(permission, Boolean.FALSE);
+    }
+
+    @Override
+    public CompletableFuture<Void> removeAsync(@NotNull UUID uuid, @NotNull String permission) {
+        remove(uuid, permission);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+        simulateLatency();
+        return Set.of("default");
+    }
+
+    @Override
+    public @NotNull Set<String> getGroups() {
+        return Set.of("default");
+    }
+
+    /**
+     * Returns the number of calls that reached this backend.
+     * 
+     * @return the call count
+     */
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    private void simulateLatency() {
+        calls.increment();
+        if (latencyNanos <= 0) {
+            return;
+        }
+        long start = System.nanoTime();
+        while (System.nanoTime() - start < latencyNanos) {
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package net.opsucht.permission.loadtest;
+
+/**
+ * Single-threaded latency histogram with log-linear buckets.
+ * 
+ * <p>Each power of two is split into 32 buckets, so percentiles are
+ * accurate to about 3% at any magnitude. The power-of-two histogram used
+ * for live metrics is too coarse to compare cache configurations that
+ * differ by less than a factor of two.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class LatencyRecorder {
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    private final long[] counts = new long[SUB_BUCKETS * (64 - SUB_BITS)];
+    private long count;
+    private long totalNanos;
+    private long maxNanos;
+
+    /**
+     * Records one latency.
+     * 
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        counts[index(value)]++;
+        count++;
+        totalNanos += value;
+        maxNanos = Math.max(maxNanos, value);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0.0 : (double) totalNanos / count;
+    }
+
+    /**
+     * Returns the latency below which the given share of all recordings
+     * falls, as the upper bound of its bucket.
+     * 
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency in nanoseconds, 0 if nothing was recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long target = Math.max(1L, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return Math.min(upperBound(i), maxNanos);
+            }
+        }
+        return maxNanos;
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return SUB_BUCKETS * (shift + 1) + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,89 @@
+package net.opsucht.permission.loadtest;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CacheStats;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * Command line entry point of the load test.
+ * 
+ * <p>Runs the same seeded workload once per configured cache duration
+ * against a {@link FakeBackend}, a duration of 0 meaning the backend is
+ * used without a cache, and prints one report per run followed by a
+ * summary. Example:</p>
+ * 
+ * <pre>
+ * java -jar permissionloadtest/target/permissionloadtest-1.0.0-SNAPSHOT.jar \
+ *     --players=1000 --ticks=12000 --backend-latency-us=200 --cache=off,1000,30000
+ * </pre>
+ * 
+ * <p>Cache durations are wall-clock time. Ticks run back to back unless
+ * {@code --tick-ms} is set, so to study expiry at realistic tick rates use
+ * {@code --tick-ms=50}.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) {
+        LoadTestConfig config;
+        try {
+            config = LoadTestConfig.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        System.out.println("Lasttest: " + config);
+        List<String> summary = new ArrayList<>();
+        summary.add(String.format(Locale.ROOT, "%-18s %12s %10s %10s %10s %10s %10s",
+                "Konfiguration", "Checks/s", "p50 µs", "p99 µs", "p999 µs", "Heap MB", "Backend"));
+
+        for (long cacheMs : config.getCacheDurations()) {
+            FakeBackend backend = new FakeBackend(config.getBackendLatencyNanos());
+            PermissionProvider provider = backend;
+            Consumer<UUID> onQuit = uuid -> {
+            };
+            CacheStats stats = null;
+            String name = "ohne Cache";
+            if (cacheMs > 0) {
+                CachedPermissionProvider cache = new CachedPermissionProvider(backend, cacheMs);
+                provider = cache;
+                onQuit = cache::invalidateUser;
+                stats = cache.getStats();
+                name = "Cache " + cacheMs + " ms";
+            }
+
+            RunResult result = new PlayerSimulation(config, provider, onQuit).run(name);
+            System.out.println();
+            result.report().forEach(System.out::println);
+            if (stats != null) {
+                System.out.println(String.format(Locale.ROOT, "Cache (gesamter Lauf): %.1f %% Treffer, %d Evictions",
+                        stats.getHitRate() * 100.0, stats.getEvictions()));
+            }
+            System.out.println("Backend-Aufrufe (gesamter Lauf): " + backend.getCalls());
+
+            LatencyRecorder latencies = result.getLatencies();
+            summary.add(String.format(Locale.ROOT, "%-18s %12.0f %10.2f %10.2f %10.2f %10.2f %10d",
+                    name, result.getThroughput(),
+                    latencies.getPercentileNanos(50.0) / 1000.0,
+                    latencies.getPercentileNanos(99.0) / 1000.0,
+                    latencies.getPercentileNanos(99.9) / 1000.0,
+                    result.getHeapGrowthBytes() / (1024.0 * 1024.0),
+                    backend.getCalls()));
+        }
+
+        System.out.println();
+        summary.forEach(System.out::println);
+    }
+}
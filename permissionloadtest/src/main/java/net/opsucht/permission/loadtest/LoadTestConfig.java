@@ -0,0 +1,219 @@
+package net.opsucht.permission.loadtest;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Parameters of a load test run.
+ * 
+ * <p>Every parameter can be set on the command line as
+ * {@code --name=value}. Rates are per tick; fractional rates are rounded
+ * up or down at random so that they average out to the given value.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class LoadTestConfig {
+
+    private int players = 500;
+    private int ticks = 6000;
+    private int warmupTicks = 200;
+    private int nodes = 2000;
+    private double zipfExponent = 1.1;
+    private double checksPerPlayer = 2.0;
+    private double churn = 0.0005;
+    private double mutationsPerTick = 0.05;
+    private long backendLatencyMicros = 50;
+    private long tickMillis = 0;
+    private long seed = 42;
+    private List<Long> cacheDurations = List.of(0L, 5000L, 30000L);
+
+    /**
+     * Parses command line arguments of the form {@code --name=value}.
+     * 
+     * @param args the arguments
+     * @return the configuration
+     * @throws IllegalArgumentException if an argument is unknown or invalid
+     */
+    public static @NotNull LoadTestConfig parse(@NotNull String[] args) {
+        LoadTestConfig config = new LoadTestConfig();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (!arg.startsWith("--") || separator < 0) {
+                throw new IllegalArgumentException("Expected --name=value: " + arg);
+            }
+            String name = arg.substring(2, separator);
+            String value = arg.substring(separator + 1);
+            try {
+                config.set(name, value);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid value for --" + name + ": " + value, e);
+            }
+        }
+        config.validate();
+        return config;
+    }
+
+    private void set(String name, String value) {
+        switch (name) {
+            case "players":
+                players = Integer.parseInt(value);
+                break;
+            case "ticks":
+                ticks = Integer.parseInt(value);
+                break;
+            case "warmup-ticks":
+                warmupTicks = Integer.parseInt(value);
+                break;
+            case "nodes":
+                nodes = Integer.parseInt(value);
+                break;
+            case "zipf":
+                zipfExponent = Double.parseDouble(value);
+                break;
+            case "checks-per-player":
+                checksPerPlayer = Double.parseDouble(value);
+                break;
+            case "churn":
+                churn = Double.parseDouble(value);
+                break;
+            case "mutations-per-tick":
+                mutationsPerTick = Double.parseDouble(value);
+                break;
+            case "backend-latency-us":
+                backendLatencyMicros = Long.parseLong(value);
+                break;
+            case "tick-ms":
+                tickMillis = Long.parseLong(value);
+                break;
+            case "seed":
+                seed = Long.parseLong(value);
+                break;
+            case "cache":
+                cacheDurations = parseDurations(value);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: --" + name);
+        }
+    }
+
+    private static List<Long> parseDurations(String value) {
+        List<Long> durations = new ArrayList<>();
+        for (String part : value.split(",")) {
+            String trimmed = part.trim().toLowerCase(Locale.ROOT);
+            durations.add(trimmed.equals("off") ? 0L : Long.parseLong(trimmed));
+        }
+        return Collections.unmodifiableList(durations);
+    }
+
+    private void validate() {
+        if (players < 1 || nodes < 1 || ticks < 1) {
+            throw new IllegalArgumentException("players, nodes and ticks must be positive");
+        }
+        if (warmupTicks < 0 || warmupTicks >= ticks) {
+            throw new IllegalArgumentException("warmup-ticks must be between 0 and ticks");
+        }
+        if (churn < 0.0 || churn > 1.0) {
+            throw new IllegalArgumentException("churn must be between 0 and 1: " + churn);
+        }
+        if (checksPerPlayer < 0.0 || mutationsPerTick < 0.0 || backendLatencyMicros < 0 || tickMillis < 0) {
+            throw new IllegalArgumentException("Rates and latencies must not be negative");
+        }
+    }
+
+    /**
+     * @return the number of players online once everybody has joined
+     */
+    public int getPlayers() {
+        return players;
+    }
+
+    /**
+     * @return the number of simulated ticks, including the warmup
+     */
+    public int getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return the number of ticks at the start that are not measured
+     */
+    public int getWarmupTicks() {
+        return warmupTicks;
+    }
+
+    /**
+     * @return the number of distinct permission nodes
+     */
+    public int getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the exponent of the Zipf distribution of checked nodes
+     */
+    public double getZipfExponent() {
+        return zipfExponent;
+    }
+
+    /**
+     * @return the number of checks per online player and tick
+     */
+    public double getChecksPerPlayer() {
+        return checksPerPlayer;
+    }
+
+    /**
+     * @return the chance of an online player quitting in a tick
+     */
+    public double getChurn() {
+        return churn;
+    }
+
+    /**
+     * @return the number of permission changes per tick
+     */
+    public double getMutationsPerTick() {
+        return mutationsPerTick;
+    }
+
+    /**
+     * @return the latency of every backend call in nanoseconds
+     */
+    public long getBackendLatencyNanos() {
+        return backendLatencyMicros * 1000L;
+    }
+
+    /**
+     * @return the wall-clock length of a tick, or 0 to run ticks back to back
+     */
+    public long getTickMillis() {
+        return tickMillis;
+    }
+
+    /**
+     * @return the seed of the workload
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return the cache durations to compare in milliseconds, 0 meaning no cache
+     */
+    public @NotNull List<Long> getCacheDurations() {
+        return cacheDurations;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT,
+                "%d Spieler, %d Ticks (%d Warmup), %d Nodes (Zipf %.2f), %.2f Checks/Spieler/Tick, "
+                        + "Churn %.4f, %.2f Änderungen/Tick, Backend %d µs, Seed %d",
+                players, ticks, warmupTicks, nodes, zipfExponent, checksPerPlayer, churn, mutationsPerTick,
+                backendLatencyMicros, seed);
+    }
+}
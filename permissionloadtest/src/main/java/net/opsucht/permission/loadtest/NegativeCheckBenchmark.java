@@ -0,0 +1,192 @@
+package net.opsucht.permission.loadtest;
+
+import net.opsucht.permission.common.snapshot.PermissionSet;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Measures checks for nodes a player does not have, with and without the
+ * Bloom filter of {@link PermissionSet}.
+ * 
+ * <p>Builds one seeded profile per player, then checks bypass nodes none of
+ * the profiles grant, once through the full resolution and once through
+ * the filter. Prints the throughput of both, the share of checks the filter
+ * answered on its own and the heap used per player. Example:</p>
+ * 
+ * <pre>
+ * java -cp permissionloadtest/target/permissionloadtest-1.0.0-SNAPSHOT.jar \
+ *     net.opsucht.permission.loadtest.NegativeCheckBenchmark --players=1000 --nodes=300
+ * </pre>
+ * 
+ * @since 1.0.0
+ */
+public final class NegativeCheckBenchmark {
+
+    private static final String[] PLUGINS = {
+            "essentials", "worldedit", "worldguard", "coreprotect", "mcmmo", "shop", "plots", "chat"
+    };
+    private static final String[] AREAS = {"command", "region", "ability", "admin", "use"};
+    private static final int QUERIES = 4096;
+    private static final int ROUNDS = 10;
+
+    private NegativeCheckBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int players = 1000;
+        int nodes = 300;
+        long checks = 20_000_000L;
+        long seed = 42;
+        try {
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(separator + 1);
+                switch (arg.substring(2, separator)) {
+                    case "players":
+                        players = Integer.parseInt(value);
+                        break;
+                    case "nodes":
+                        nodes = Integer.parseInt(value);
+                        break;
+                    case "checks":
+                        checks = Long.parseLong(value);
+                        break;
+                    case "seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (players < 1 || nodes < 1 || checks < 1) {
+                throw new IllegalArgumentException("players, nodes and checks must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        Random random = new Random(seed);
+        long heapBefore = usedHeapAfterGc();
+        PermissionSet[] sets = new PermissionSet[players];
+        for (int i = 0; i < players; i++) {
+            sets[i] = profile(random, nodes);
+        }
+        long heapAfter = usedHeapAfterGc();
+
+        long filterBytes = 0;
+        for (PermissionSet set : sets) {
+            filterBytes += set.getFilterBytes();
+        }
+
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = negativeNode(random);
+        }
+
+        int rejected = 0;
+        for (int i = 0; i < QUERIES; i++) {
+            if (!sets[i % players].mightGrant(queries[i])) {
+                rejected++;
+            }
+        }
+
+        // Alternate both variants so JIT and frequency scaling affect them alike
+        long fullNanos = 0;
+        long filteredNanos = 0;
+        long perRound = Math.max(1, checks / ROUNDS);
+        int sink = 0;
+        for (int round = -2; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            sink += runFull(sets, queries, perRound);
+            long middle = System.nanoTime();
+            sink += runFiltered(sets, queries, perRound);
+            long end = System.nanoTime();
+            if (round >= 0) {
+                fullNanos += middle - start;
+                filteredNanos += end - middle;
+            }
+        }
+        if (sink != 0) {
+            throw new IllegalStateException("Benchmark nodes must not be granted");
+        }
+
+        long measured = perRound * ROUNDS;
+        System.out.println(String.format(Locale.ROOT, "Negative Checks: %d Spieler, %d Nodes pro Spieler, %d Checks",
+                players, nodes, measured));
+        System.out.println(String.format(Locale.ROOT, "Ohne Filter: %.1f Mio. Checks/s",
+                measured * 1000.0 / fullNanos));
+        System.out.println(String.format(Locale.ROOT, "Mit Filter:  %.1f Mio. Checks/s (%.2fx)",
+                measured * 1000.0 / filteredNanos, fullNanos / (double) filteredNanos));
+        System.out.println(String.format(Locale.ROOT, "Vom Filter beantwortet: %.2f %%",
+                rejected * 100.0 / QUERIES));
+        System.out.println(String.format(Locale.ROOT, "Speicher pro Spieler: %d Bytes Filter, %d Bytes gesamt",
+                filterBytes / players, Math.max(0, heapAfter - heapBefore) / players));
+    }
+
+    private static int runFull(PermissionSet[] sets, String[] queries, long checks) {
+        int granted = 0;
+        for (long i = 0; i < checks; i++) {
+            if (sets[(int) (i % sets.length)].check(queries[(int) (i & (QUERIES - 1))]).asBoolean()) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+
+    private static int runFiltered(PermissionSet[] sets, String[] queries, long checks) {
+        int granted = 0;
+        for (long i = 0; i < checks; i++) {
+            if (sets[(int) (i % sets.length)].test(queries[(int) (i & (QUERIES - 1))])) {
+                granted++;
+            }
+        }
+        return granted;
+    }
+
+    /**
+     * Builds a profile of plugin nodes with a few denials and one granted
+     * and one denied wildcard, the shape of a typical player group.
+     */
+    private static PermissionSet profile(Random random, int nodes) {
+        Map<String, Boolean> permissions = new HashMap<>(nodes * 2);
+        while (permissions.size() < nodes) {
+            String plugin = PLUGINS[random.nextInt(PLUGINS.length)];
+            String area = AREAS[random.nextInt(AREAS.length)];
+            permissions.put(plugin + "." + area + ".action" + random.nextInt(1000), random.nextInt(10) != 0);
+        }
+        permissions.put(PLUGINS[random.nextInt(PLUGINS.length)] + ".use.*", true);
+        permissions.put(PLUGINS[random.nextInt(PLUGINS.length)] + ".admin.*", false);
+        return PermissionSet.of(permissions);
+    }
+
+    /**
+     * Returns a region or anti-cheat bypass node, which ordinary players
+     * never hold.
+     */
+    private static String negativeNode(Random random) {
+        switch (random.nextInt(3)) {
+            case 0:
+                return "worldguard.region.bypass.region" + random.nextInt(500);
+            case 1:
+                return "anticheat.bypass.check" + random.nextInt(100);
+            default:
+                return PLUGINS[random.nextInt(PLUGINS.length)] + ".bypass.cooldown";
+        }
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,296 @@
+package net.opsucht.permission.loadtest;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import net.opsucht.permission.common.cache.OffHeapSnapshotTier;
+import net.opsucht.permission.common.snapshot.PermissionSet;
+import net.opsucht.permission.common.snapshot.UserSnapshot;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares garbage collection with the snapshots of many offline players
+ * on the heap and in the {@link OffHeapSnapshotTier}.
+ * 
+ * <p>Fills a {@link CachedPermissionProvider} with one seeded snapshot per
+ * player, either installed on the heap or stored in the off-heap tier as
+ * the proxy does for players who left. Then checks random nodes of random
+ * players while allocating short-lived garbage, as a proxy does for every
+ * packet, and records every collection pause. Prints the heap still in use
+ * after a full collection, the number, total and longest pause and the
+ * check throughput of both variants. Example:</p>
+ * 
+ * <pre>
+ * java -Xmx2g -cp permissionloadtest/target/permissionloadtest-1.0.0-SNAPSHOT.jar \
+ *     net.opsucht.permission.loadtest.OffHeapTierBenchmark --players=200000 --nodes=40
+ * </pre>
+ * 
+ * <p>Use {@code --variant=heap} or {@code --variant=off-heap} to run each
+ * variant in a JVM of its own.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class OffHeapTierBenchmark {
+
+    private static final String[] PLUGINS = {
+            "essentials", "worldedit", "worldguard", "coreprotect", "mcmmo", "shop", "plots", "chat"
+    };
+    private static final int RANKS = 5;
+    private static final int PERSONAL_NODES = 3;
+    private static final int QUERIES = 4096;
+    private static final long CACHE_DURATION_MS = TimeUnit.HOURS.toMillis(1);
+
+    private OffHeapTierBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int players = 100_000;
+        int nodes = 40;
+        long checks = 20_000_000L;
+        int garbageBytes = 256;
+        long seed = 42;
+        String variant = "both";
+        try {
+            for (String arg : args) {
+                int separator = arg.indexOf('=');
+                if (!arg.startsWith("--") || separator < 0) {
+                    throw new IllegalArgumentException("Expected --name=value: " + arg);
+                }
+                String value = arg.substring(separator + 1);
+                switch (arg.substring(2, separator)) {
+                    case "players":
+                        players = Integer.parseInt(value);
+                        break;
+                    case "nodes":
+                        nodes = Integer.parseInt(value);
+                        break;
+                    case "checks":
+                        checks = Long.parseLong(value);
+                        break;
+                    case "garbage-bytes":
+                        garbageBytes = Integer.parseInt(value);
+                        break;
+                    case "seed":
+                        seed = Long.parseLong(value);
+                        break;
+                    case "variant":
+                        variant = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + arg);
+                }
+            }
+            if (players < 1 || nodes < 1 || checks < 1 || garbageBytes < 0) {
+                throw new IllegalArgumentException("players, nodes and checks must be positive");
+            }
+            if (!variant.equals("both") && !variant.equals("heap") && !variant.equals("off-heap")) {
+                throw new IllegalArgumentException("variant must be both, heap or off-heap");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        PauseRecorder pauses = new PauseRecorder();
+        pauses.register();
+        System.out.println(String.format(Locale.ROOT,
+                "Offline-Spieler: %d Spieler, %d Nodes pro Spieler, %d Checks, %d Bytes Garbage pro Check",
+                players, nodes, checks, garbageBytes));
+        long heapGranted = -1;
+        long offHeapGranted = -1;
+        if (!variant.equals("off-heap")) {
+            heapGranted = run("Heap", false, players, nodes, checks, garbageBytes, seed, pauses);
+        }
+        if (!variant.equals("heap")) {
+            offHeapGranted = run("Off-Heap", true, players, nodes, checks, garbageBytes, seed, pauses);
+        }
+        if (heapGranted >= 0 && offHeapGranted >= 0 && heapGranted != offHeapGranted) {
+            throw new IllegalStateException("Both variants must resolve the same checks");
+        }
+    }
+
+    /**
+     * Fills a cache, runs the checks and prints the pauses of this variant.
+     * 
+     * @return the number of granted checks, to compare the variants
+     */
+    private static long run(String name, boolean offHeap, int players, int nodes, long checks, int garbageBytes,
+            long seed, PauseRecorder pauses) {
+        Random random = new Random(seed);
+        Map<String, Boolean>[] ranks = ranks(random, nodes);
+        String[] queries = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            queries[i] = query(random, nodes);
+        }
+
+        long heapBefore = usedHeapAfterGc();
+        CachedPermissionProvider cache = new CachedPermissionProvider(new FakeBackend(0), CACHE_DURATION_MS);
+        OffHeapSnapshotTier tier = null;
+        if (offHeap) {
+            // Twice the encoded size, so the log has room for replaced records
+            long bytes = (long) players * (64 + (nodes + PERSONAL_NODES) * Integer.BYTES) * 2;
+            tier = new OffHeapSnapshotTier(Math.max(bytes, 4L << 20), CACHE_DURATION_MS);
+            cache.setOffHeapTier(tier);
+        }
+        UUID[] uuids = new UUID[players];
+        for (int i = 0; i < players; i++) {
+            uuids[i] = new UUID(seed, i);
+            UserSnapshot snapshot = snapshot(uuids[i], ranks[i % RANKS], random);
+            if (tier != null) {
+                tier.put(snapshot);
+            } else {
+                cache.install(snapshot);
+            }
+        }
+        long heapAfter = usedHeapAfterGc();
+
+        pauses.reset();
+        Object[] garbage = new Object[1024];
+        long granted = 0;
+        long start = System.nanoTime();
+        for (long i = 0; i < checks; i++) {
+            if (cache.has(uuids[(int) (i * 0x9e3779b1L % players)], queries[(int) (i & (QUERIES - 1))])) {
+                granted++;
+            }
+            if (garbageBytes > 0) {
+                garbage[(int) (i & 1023)] = new byte[garbageBytes];
+            }
+        }
+        long nanos = System.nanoTime() - start;
+        pauses.settle();
+
+        System.out.println(String.format(Locale.ROOT,
+                "%-8s %6.1f MB Heap belegt, %5d Pausen, %8.1f ms gesamt, %6.1f ms max, %5.1f Mio. Checks/s%s",
+                name + ":", Math.max(0, heapAfter - heapBefore) / 1048576.0, pauses.getCount(),
+                pauses.getTotalMs(), pauses.getMaxMs(), checks * 1000.0 / nanos,
+                tier != null ? String.format(Locale.ROOT, " (%.1f MB direkt)", tier.getAllocatedBytes() / 1048576.0)
+                        : ""));
+        return granted;
+    }
+
+    /**
+     * Builds the nodes of each rank, a few wildcards among them.
+     */
+    @SuppressWarnings("unchecked")
+    private static Map<String, Boolean>[] ranks(Random random, int nodes) {
+        Map<String, Boolean>[] ranks = new Map[RANKS];
+        for (int rank = 0; rank < RANKS; rank++) {
+            Map<String, Boolean> permissions = new HashMap<>();
+            while (permissions.size() < nodes - 1) {
+                permissions.put(node(random, nodes), random.nextInt(10) != 0);
+            }
+            permissions.put(PLUGINS[random.nextInt(PLUGINS.length)] + ".use.*", true);
+            ranks[rank] = permissions;
+        }
+        return ranks;
+    }
+
+    /**
+     * Returns the nodes of a rank plus a few personal ones, so players do
+     * not share their permission sets.
+     */
+    private static UserSnapshot snapshot(UUID uuid, Map<String, Boolean> rank, Random random) {
+        Map<String, Boolean> permissions = new HashMap<>(rank);
+        for (int i = 0; i < PERSONAL_NODES; i++) {
+            permissions.put("personal.kit" + random.nextInt(100_000), true);
+        }
+        return new UserSnapshot(uuid, PermissionSet.of(permissions), Set.of("default"), "default",
+                System.currentTimeMillis());
+    }
+
+    private static String node(Random random, int nodes) {
+        return PLUGINS[random.nextInt(PLUGINS.length)] + ".command.action" + random.nextInt(nodes * 4);
+    }
+
+    private static String query(Random random, int nodes) {
+        return random.nextInt(4) == 0
+                ? PLUGINS[random.nextInt(PLUGINS.length)] + ".use.item" + random.nextInt(10)
+                : node(random, nodes);
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    /**
+     * Collects the duration of every stop-the-world collection from the
+     * notifications of the garbage collector beans. Concurrent cycles run
+     * alongside the application and are not counted.
+     */
+    private static final class PauseRecorder implements NotificationListener {
+        private long count;
+        private long totalMs;
+        private long maxMs;
+
+        void register() {
+            for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+                if (bean instanceof NotificationEmitter) {
+                    ((NotificationEmitter) bean).addNotificationListener(this, null, null);
+                }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification notification, Object handback) {
+            if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+                return;
+            }
+            GarbageCollectionNotificationInfo info =
+                    GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+            String collector = info.getGcName();
+            if (collector.contains("Concurrent") || collector.contains("Cycles")) {
+                return;
+            }
+            long duration = info.getGcInfo().getDuration();
+            count++;
+            totalMs += duration;
+            maxMs = Math.max(maxMs, duration);
+        }
+
+        synchronized void reset() {
+            count = 0;
+            totalMs = 0;
+            maxMs = 0;
+        }
+
+        /**
+         * Waits for notifications of collections that already happened,
+         * which are delivered on another thread.
+         */
+        void settle() {
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        synchronized long getCount() {
+            return count;
+        }
+
+        synchronized double getTotalMs() {
+            return totalMs;
+        }
+
+        synchronized double getMaxMs() {
+            return maxMs;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package net.opsucht.permission.loadtest;
+
+import net.opsucht.permission.api.PermissionProvider;
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Drives a {@link PermissionProvider} with a simulated player population.
+ * 
+ * <p>Each tick, online players quit at the configured churn rate, players
+ * from an offline pool twice the target size join until the target is
+ * reached again, every online player checks Zipf-distributed nodes and a
+ * few random permissions are changed. All calls are made from the calling
+ * thread, like on a server's main thread.</p>
+ * 
+ * <p>The workload only depends on the configuration and its seed, never on
+ * results or timing, so two runs with the same seed issue exactly the same
+ * calls in the same order.</p>
+ * 
+ * @since 1.0.0
+ */
+public final class PlayerSimulation {
+
+    private static final String NODE_PREFIX = "loadtest.node.";
+
+    private final LoadTestConfig config;
+    private final PermissionProvider provider;
+    private final Consumer<UUID> onQuit;
+    private final String[] nodes;
+    private final ZipfSampler sampler;
+
+    /**
+     * Creates a simulation.
+     * 
+     * @param config the workload parameters
+     * @param provider the provider under test
+     * @param onQuit called when a player quits, for example to invalidate a
+     *               cache the way the platform listeners do
+     */
+    public PlayerSimulation(@NotNull LoadTestConfig config, @NotNull PermissionProvider provider,
+            @NotNull Consumer<UUID> onQuit) {
+        this.config = config;
+        this.provider = provider;
+        this.onQuit = onQuit;
+        this.nodes = new String[config.getNodes()];
+        for (int i = 0; i < nodes.length; i++) {
+            nodes[i] = NODE_PREFIX + i;
+        }
+        this.sampler = new ZipfSampler(nodes.length, config.getZipfExponent());
+    }
+
+    /**
+     * Runs the configured number of ticks.
+     * 
+     * @param name the name of the run in the report
+     * @return the measurements of the ticks after the warmup
+     */
+    public @NotNull RunResult run(@NotNull String name) {
+        Random random = new Random(config.getSeed());
+        List<UUID> online = new ArrayList<>(config.getPlayers());
+        List<UUID> offline = new ArrayList<>(config.getPlayers() * 2);
+        for (int i = 0; i < config.getPlayers() * 2; i++) {
+            offline.add(new UUID(config.getSeed(), i));
+        }
+        int joinsPerTick = Math.max(1, config.getPlayers() / 100);
+
+        LatencyRecorder latencies = new LatencyRecorder();
+        long joins = 0;
+        long quits = 0;
+        long mutations = 0;
+        long granted = 0;
+        long heapBefore = 0;
+        long measuredStart = 0;
+        long tickNanos = TimeUnit.MILLISECONDS.toNanos(config.getTickMillis());
+        long nextTick = System.nanoTime();
+
+        for (int tick = 0; tick < config.getTicks(); tick++) {
+            boolean measured = tick >= config.getWarmupTicks();
+            if (tick == config.getWarmupTicks()) {
+                heapBefore = usedHeapAfterGc();
+                measuredStart = System.nanoTime();
+                nextTick = measuredStart;
+            }
+
+            // Quit in reverse so swap-removal does not skip anybody
+            for (int i = online.size() - 1; i >= 0; i--) {
+                if (random.nextDouble() < config.getChurn()) {
+                    UUID player = swapRemove(online, i);
+                    onQuit.accept(player);
+                    offline.add(player);
+                    quits += measured ? 1 : 0;
+                }
+            }
+
+            for (int i = 0; i < joinsPerTick && online.size() < config.getPlayers(); i++) {
+                online.add(swapRemove(offline, random.nextInt(offline.size())));
+                joins += measured ? 1 : 0;
+            }
+
+            for (UUID player : online) {
+                int checks = draw(random, config.getChecksPerPlayer());
+                for (int i = 0; i < checks; i++) {
+                    String node = nodes[sampler.sample(random)];
+                    long start = System.nanoTime();
+                    boolean result = provider.has(player, node);
+                    long elapsed = System.nanoTime() - start;
+                    if (measured) {
+                        latencies.record(elapsed);
+                        granted += result ? 1 : 0;
+                    }
+                }
+            }
+
+            int changes = online.isEmpty() ? 0 : draw(random, config.getMutationsPerTick());
+            for (int i = 0; i < changes; i++) {
+                UUID player = online.get(random.nextInt(online.size()));
+                String node = nodes[sampler.sample(random)];
+                if (random.nextBoolean()) {
+                    provider.add(player, node);
+                } else {
+                    provider.remove(player, node);
+                }
+                mutations += measured ? 1 : 0;
+            }
+
+            if (tickNanos > 0) {
+                nextTick += tickNanos;
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - measuredStart;
+        long heapGrowth = usedHeapAfterGc() - heapBefore;
+        return new RunResult(name, latencies, elapsedNanos, heapGrowth, joins, quits, mutations, granted);
+    }
+
+    /**
+     * Rounds a fractional rate up or down at random, so the result averages
+     * out to the rate.
+     */
+    private static int draw(Random random, double rate) {
+        int whole = (int) rate;
+        return whole + (random.nextDouble() < rate - whole ? 1 : 0);
+    }
+
+    private static UUID swapRemove(List<UUID> list, int index) {
+        UUID removed = list.get(index);
+        UUID last = list.remove(list.size() - 1);
+        if (index < list.size()) {
+            list.set(index, last);
+        }
+        return removed;
+    }
+
+    private static long usedHeapAfterGc() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,106 @@
+package net.opsucht.permission.loadtest;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measurements of one load test run, taken after the warmup.
+ * 
+ * @since 1.0.0
+ */
+public final class RunResult {
+
+    private final String name;
+    private final LatencyRecorder latencies;
+    private final long elapsedNanos;
+    private final long heapGrowthBytes;
+    private final long joins;
+    private final long quits;
+    private final long mutations;
+    private final long granted;
+
+    RunResult(String name, LatencyRecorder latencies, long elapsedNanos, long heapGrowthBytes, long joins,
+            long quits, long mutations, long granted) {
+        this.name = name;
+        this.latencies = latencies;
+        this.elapsedNanos = elapsedNanos;
+        this.heapGrowthBytes = heapGrowthBytes;
+        this.joins = joins;
+        this.quits = quits;
+        this.mutations = mutations;
+        this.granted = granted;
+    }
+
+    public @NotNull String getName() {
+        return name;
+    }
+
+    public @NotNull LatencyRecorder getLatencies() {
+        return latencies;
+    }
+
+    public long getChecks() {
+        return latencies.getCount();
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public long getHeapGrowthBytes() {
+        return heapGrowthBytes;
+    }
+
+    public long getJoins() {
+        return joins;
+    }
+
+    public long getQuits() {
+        return quits;
+    }
+
+    public long getMutations() {
+        return mutations;
+    }
+
+    public long getGranted() {
+        return granted;
+    }
+
+    /**
+     * Returns the permission checks per second of wall-clock time. With
+     * paced ticks this is bounded by the configured rate.
+     * 
+     * @return the throughput
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0 ? 0.0 : getChecks() * 1_000_000_000.0 / elapsedNanos;
+    }
+
+    /**
+     * Formats the result for the console.
+     * 
+     * @return the report lines
+     */
+    public @NotNull List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add("== " + name + " ==");
+        lines.add(String.format(Locale.ROOT, "Checks: %d in %.2f s, %.0f Checks/s, %.1f %% erlaubt",
+                getChecks(), elapsedNanos / 1e9, getThroughput(),
+                getChecks() == 0 ? 0.0 : granted * 100.0 / getChecks()));
+        lines.add(String.format(Locale.ROOT, "Latenz: p50 %s, p99 %s, p999 %s, max %s, Ø %s",
+                micros(latencies.getPercentileNanos(50.0)), micros(latencies.getPercentileNanos(99.0)),
+                micros(latencies.getPercentileNanos(99.9)), micros(latencies.getMaxNanos()),
+                micros(latencies.getMeanNanos())));
+        lines.add(String.format(Locale.ROOT, "Heap-Zuwachs: %.2f MB", heapGrowthBytes / (1024.0 * 1024.0)));
+        lines.add(String.format(Locale.ROOT, "Spieler: %d Joins, %d Quits, %d Änderungen", joins, quits, mutations));
+        return lines;
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.2f µs", nanos / 1000.0);
+    }
+}
@@ -0,0 +1,49 @@
+package net.opsucht.permission.loadtest;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws indexes from a Zipf distribution: index {@code k} is drawn with a
+ * probability proportional to {@code 1 / (k + 1)^exponent}, so a few nodes
+ * receive most checks and the rest form a long tail.
+ * 
+ * @since 1.0.0
+ */
+public final class ZipfSampler {
+
+    private final double[] cumulative;
+
+    /**
+     * Precomputes the distribution.
+     * 
+     * @param size the number of indexes
+     * @param exponent the skew; 0 is uniform, larger values are more skewed
+     */
+    public ZipfSampler(int size, double exponent) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Size must be positive: " + size);
+        }
+        this.cumulative = new double[size];
+        double sum = 0.0;
+        for (int k = 0; k < size; k++) {
+            sum += 1.0 / Math.pow(k + 1, exponent);
+            cumulative[k] = sum;
+        }
+        for (int k = 0; k < size; k++) {
+            cumulative[k] /= sum;
+        }
+    }
+
+    /**
+     * Draws one index.
+     * 
+     * @param random the source of randomness
+     * @return an index between 0 and {@code size - 1}
+     */
+    public int sample(Random random) {
+        int index = Arrays.binarySearch(cumulative, random.nextDouble());
+        // Not found returns -(insertion point) - 1, which is the drawn index
+        return Math.min(cumulative.length - 1, index >= 0 ? index : -index - 1);
+    }
+}
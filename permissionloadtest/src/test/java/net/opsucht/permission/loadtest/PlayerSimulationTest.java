@@ -0,0 +1,114 @@
+package net.opsucht.permission.loadtest;
+
+import net.opsucht.permission.api.PermissionProvider;
+import net.opsucht.permission.common.cache.CachedPermissionProvider;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the simulated workload.
+ */
+class PlayerSimulationTest {
+
+    private static final String[] SMALL = {
+            "--players=50", "--ticks=300", "--warmup-ticks=20", "--nodes=100", "--churn=0.01",
+            "--mutations-per-tick=0.5", "--backend-latency-us=0", "--seed=7"
+    };
+
+    @Test
+    void shouldIssueTheSameCallsForTheSameSeed() {
+        Recording first = new Recording();
+        Recording second = new Recording();
+        LoadTestConfig config = LoadTestConfig.parse(SMALL);
+
+        RunResult a = new PlayerSimulation(config, first, uuid -> first.calls.add("quit " + uuid)).run("a");
+        RunResult b = new PlayerSimulation(config, second, uuid -> second.calls.add("quit " + uuid)).run("b");
+
+        assertFalse(first.calls.isEmpty());
+        assertEquals(first.calls, second.calls);
+        assertEquals(a.getChecks(), b.getChecks());
+        assertEquals(a.getMutations(), b.getMutations());
+        assertTrue(a.getQuits() > 0, "Players should churn");
+    }
+
+    @Test
+    void shouldDriveTheCacheOverTheFakeBackend() {
+        LoadTestConfig config = LoadTestConfig.parse(SMALL);
+        FakeBackend backend = new FakeBackend(0);
+        CachedPermissionProvider cache = new CachedPermissionProvider(backend);
+
+        RunResult result = new PlayerSimulation(config, cache, cache::invalidateUser).run("cache");
+
+        assertTrue(result.getChecks() > 0);
+        assertTrue(backend.getCalls() < result.getChecks(), "Most checks should be served from the cache");
+        assertTrue(cache.getStats().getHitRate() > 0.5);
+    }
+
+    @Test
+    void shouldFavourLowIndexesInZipfDistribution() {
+        ZipfSampler sampler = new ZipfSampler(100, 1.1);
+        Random random = new Random(1);
+        int[] counts = new int[100];
+        for (int i = 0; i < 100_000; i++) {
+            counts[sampler.sample(random)]++;
+        }
+        assertTrue(counts[0] > counts[1] && counts[1] > counts[10] && counts[10] > counts[99]);
+    }
+
+    @Test
+    void shouldReportPercentilesWithinBucketPrecision() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(i * 1000L);
+        }
+        assertEquals(500_000, recorder.getPercentileNanos(50.0), 500_000 * 0.04);
+        assertEquals(990_000, recorder.getPercentileNanos(99.0), 990_000 * 0.04);
+        assertEquals(1_000_000, recorder.getPercentileNanos(100.0));
+    }
+
+    /**
+     * Records every call it receives.
+     */
+    private static final class Recording implements PermissionProvider {
+        private final List<String> calls = new ArrayList<>();
+
+        @Override
+        public @NotNull String getProviderName() {
+            return "Recording";
+        }
+
+        @Override
+        public boolean has(@NotNull UUID uuid, @NotNull String permission) {
+            calls.add("has " + uuid + " " + permission);
+            return false;
+        }
+
+        @Override
+        public void add(@NotNull UUID uuid, @NotNull String permission) {
+            calls.add("add " + uuid + " " + permission);
+        }
+
+        @Override
+        public void remove(@NotNull UUID uuid, @NotNull String permission) {
+            calls.add("remove " + uuid + " " + permission);
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups(@NotNull UUID uuid) {
+            return Set.of();
+        }
+
+        @Override
+        public @NotNull Set<String> getGroups() {
+            return Set.of();
+        }
+    }
+}